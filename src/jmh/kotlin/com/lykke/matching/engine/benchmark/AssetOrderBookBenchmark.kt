@@ -0,0 +1,77 @@
+package com.lykke.matching.engine.benchmark
+
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.services.AssetOrderBook
+import com.lykke.matching.engine.services.utils.OrderBookQueue
+import com.lykke.matching.engine.services.utils.OrderBookType
+import com.lykke.matching.engine.utils.MessageBuilder.Companion.buildLimitOrder
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.util.concurrent.TimeUnit
+
+/**
+ * Order book operations for each [OrderBookType] with the order book side of [depth] orders
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class AssetOrderBookBenchmark {
+
+    @Param
+    @JvmField
+    var type = OrderBookType.PRIORITY_QUEUE
+
+    @Param("100", "10000")
+    @JvmField
+    var depth = 0
+
+    private lateinit var orderBook: AssetOrderBook
+    private lateinit var midOrder: LimitOrder
+    private lateinit var newOrder: LimitOrder
+
+    @Setup
+    fun setUp() {
+        orderBook = AssetOrderBook("EURUSD", type)
+        (1..depth).forEach {
+            orderBook.addOrder(buildLimitOrder(uid = "sell-$it", price = 1.0 + it * 0.0001, volume = -1.0))
+        }
+        midOrder = orderBook.getOrderBook(false).first { it.id == "sell-${depth / 2}" }
+        newOrder = buildLimitOrder(uid = "new", price = 1.0 + depth / 2 * 0.0001, volume = -1.0)
+    }
+
+    /** Adds order into the middle of the side and removes it */
+    @Benchmark
+    fun addAndRemoveOrder(): Boolean {
+        orderBook.addOrder(newOrder)
+        return orderBook.removeOrder(newOrder)
+    }
+
+    /** Removes order from the middle of the side and adds it back */
+    @Benchmark
+    fun removeAndAddOrder(): Boolean {
+        orderBook.removeOrder(midOrder)
+        return orderBook.addOrder(midOrder)
+    }
+
+    @Benchmark
+    fun copy(): AssetOrderBook {
+        return orderBook.copy()
+    }
+
+    @Benchmark
+    fun copySide(): OrderBookQueue {
+        return orderBook.getOrderBook(false).copy()
+    }
+}
@@ -0,0 +1,68 @@
+package com.lykke.matching.engine.benchmark
+
+import com.lykke.matching.engine.balance.util.TestBalanceHolderWrapper
+import com.lykke.matching.engine.config.TestApplicationContext
+import com.lykke.matching.engine.daos.Asset
+import com.lykke.matching.engine.daos.AssetPair
+import com.lykke.matching.engine.database.BackOfficeDatabaseAccessor
+import com.lykke.matching.engine.database.TestBackOfficeDatabaseAccessor
+import com.lykke.matching.engine.database.TestDictionariesDatabaseAccessor
+import com.lykke.matching.engine.order.utils.TestOrderBookWrapper
+import com.lykke.matching.engine.utils.MessageBuilder.Companion.buildLimitOrder
+import org.springframework.boot.Banner
+import org.springframework.boot.WebApplicationType
+import org.springframework.boot.builder.SpringApplicationBuilder
+import org.springframework.context.ConfigurableApplicationContext
+import org.springframework.context.annotation.Bean
+import org.springframework.context.annotation.Configuration
+import org.springframework.context.annotation.Primary
+
+/**
+ * Application context for benchmarks: test configuration with in-memory database accessors
+ */
+object BenchmarkContext {
+
+    /** @param properties spring properties in 'key=value' form which override test configuration defaults */
+    fun create(vararg properties: String): ConfigurableApplicationContext {
+        return SpringApplicationBuilder(TestApplicationContext::class.java, BenchmarkConfig::class.java)
+                .properties(*properties)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run()
+    }
+
+    /**
+     * Adds EURUSD asset pair, funds of market side client (Client1) and [depth] sell orders of Client2,
+     * each order has volume 1 and the price is increased by 0.0001 with each order
+     * @return asset pairs by id
+     */
+    fun initOrderBook(context: ConfigurableApplicationContext, depth: Int): Map<String, AssetPair> {
+        val dictionariesDatabaseAccessor = context.getBean(TestDictionariesDatabaseAccessor::class.java)
+        dictionariesDatabaseAccessor.addAssetPair(AssetPair("EURUSD", "EUR", "USD", 5))
+
+        val balanceHolderWrapper = context.getBean(TestBalanceHolderWrapper::class.java)
+        balanceHolderWrapper.updateBalance("Client1", "USD", 1_000_000_000.0)
+        balanceHolderWrapper.updateBalance("Client2", "EUR", 1_000_000_000.0)
+        balanceHolderWrapper.updateReservedBalance("Client2", "EUR", 1_000_000_000.0)
+
+        val orderBookWrapper = context.getBean(TestOrderBookWrapper::class.java)
+        (1..depth).forEach {
+            orderBookWrapper.addLimitOrder(buildLimitOrder(uid = "sell-$it", clientId = "Client2", price = 1.0 + it * 0.0001, volume = -1.0))
+        }
+        return dictionariesDatabaseAccessor.loadAssetPairs()
+    }
+
+    @Configuration
+    open class BenchmarkConfig {
+        @Bean
+        @Primary
+        open fun testBackOfficeDatabaseAccessor(): BackOfficeDatabaseAccessor {
+            val testBackOfficeDatabaseAccessor = TestBackOfficeDatabaseAccessor()
+            testBackOfficeDatabaseAccessor.addAsset(Asset("USD", 2))
+            testBackOfficeDatabaseAccessor.addAsset(Asset("EUR", 4))
+            testBackOfficeDatabaseAccessor.addAsset(Asset("BTC", 8))
+            return testBackOfficeDatabaseAccessor
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.lykke.matching.engine.benchmark
+
+import com.lykke.matching.engine.daos.MarketOrder
+import com.lykke.matching.engine.matching.MatchingEngine
+import com.lykke.matching.engine.messages.MessageType
+import com.lykke.matching.engine.order.transaction.ExecutionContextFactory
+import com.lykke.matching.engine.outgoing.messages.ClientBalanceUpdate
+import com.lykke.matching.engine.outgoing.messages.LimitOrderWithTrades
+import com.lykke.matching.engine.outgoing.messages.MarketOrderWithTrades
+import com.lykke.matching.engine.outgoing.messages.v2.builders.EventFactory
+import com.lykke.matching.engine.outgoing.messages.v2.events.ExecutionEvent
+import com.lykke.matching.engine.services.GenericLimitOrderService
+import com.lykke.matching.engine.utils.MessageBuilder.Companion.buildMarketOrder
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import org.slf4j.helpers.NOPLogger
+import java.util.Date
+import java.util.concurrent.TimeUnit
+
+/**
+ * Building of execution event of market order matched with [tradesCount] limit orders
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class EventFactoryBenchmark {
+
+    @Param("1", "10", "100")
+    @JvmField
+    var tradesCount = 0
+
+    private val date = Date()
+    private lateinit var clientBalanceUpdates: List<ClientBalanceUpdate>
+    private lateinit var limitOrdersWithTrades: List<LimitOrderWithTrades>
+    private lateinit var marketOrderWithTrades: MarketOrderWithTrades
+
+    @Setup
+    fun setUp() {
+        val context = BenchmarkContext.create()
+        try {
+            val assetPairsById = BenchmarkContext.initOrderBook(context, tradesCount)
+            val executionContext = context.getBean(ExecutionContextFactory::class.java).create("messageId", "requestId",
+                    MessageType.MARKET_ORDER,
+                    null,
+                    assetPairsById,
+                    date,
+                    NOPLogger.NOP_LOGGER)
+            val order = buildMarketOrder(clientId = "Client1", volume = tradesCount.toDouble())
+            val matchingResult = context.getBean(MatchingEngine::class.java).match(order,
+                    context.getBean(GenericLimitOrderService::class.java).getOrderBook("EURUSD").getOrderBook(false),
+                    "messageId",
+                    executionContext = executionContext)
+
+            executionContext.walletOperationsProcessor.preProcess(matchingResult.ownCashMovements)
+            executionContext.walletOperationsProcessor.preProcess(matchingResult.oppositeCashMovements, true)
+
+            clientBalanceUpdates = executionContext.walletOperationsProcessor.getClientBalanceUpdates()
+            limitOrdersWithTrades = matchingResult.limitOrdersReport!!.orders
+            marketOrderWithTrades = MarketOrderWithTrades("messageId", matchingResult.orderCopy as MarketOrder, matchingResult.marketOrderTrades)
+        } finally {
+            context.close()
+        }
+    }
+
+    @Benchmark
+    fun createExecutionEvent(): ExecutionEvent {
+        return EventFactory.createExecutionEvent(1,
+                "messageId",
+                "requestId",
+                date,
+                MessageType.MARKET_ORDER,
+                clientBalanceUpdates,
+                limitOrdersWithTrades,
+                marketOrderWithTrades)
+    }
+}
@@ -0,0 +1,97 @@
+package com.lykke.matching.engine.benchmark
+
+import com.lykke.matching.engine.balance.util.TestBalanceHolderWrapper
+import com.lykke.matching.engine.daos.AssetPair
+import com.lykke.matching.engine.daos.FeeSizeType
+import com.lykke.matching.engine.daos.FeeType
+import com.lykke.matching.engine.daos.WalletOperation
+import com.lykke.matching.engine.daos.fee.v2.NewFeeInstruction
+import com.lykke.matching.engine.daos.fee.v2.NewLimitOrderFeeInstruction
+import com.lykke.matching.engine.database.TestDictionariesDatabaseAccessor
+import com.lykke.matching.engine.fee.FeeProcessor
+import com.lykke.matching.engine.holders.BalancesHolder
+import com.lykke.matching.engine.utils.MessageBuilder.Companion.buildFeeInstructions
+import com.lykke.matching.engine.utils.MessageBuilder.Companion.buildLimitOrderFeeInstructions
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+import org.springframework.context.ConfigurableApplicationContext
+import java.math.BigDecimal
+import java.util.Collections
+import java.util.concurrent.TimeUnit
+
+/**
+ * Calculation of taker and maker fees of one trade
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class FeeProcessorBenchmark {
+
+    private lateinit var context: ConfigurableApplicationContext
+    private lateinit var feeProcessor: FeeProcessor
+    private lateinit var balancesHolder: BalancesHolder
+    private lateinit var takerFeeInstructions: List<NewFeeInstruction>
+    private lateinit var makerFeeInstructions: List<NewLimitOrderFeeInstruction>
+    private val convertPrices = Collections.singletonMap("EURUSD", BigDecimal.valueOf(1.1))
+
+    @Setup
+    fun setUp() {
+        context = BenchmarkContext.create()
+        feeProcessor = context.getBean(FeeProcessor::class.java)
+        balancesHolder = context.getBean(BalancesHolder::class.java)
+        context.getBean(TestDictionariesDatabaseAccessor::class.java).addAssetPair(AssetPair("EURUSD", "EUR", "USD", 5))
+
+        val balanceHolderWrapper = context.getBean(TestBalanceHolderWrapper::class.java)
+        balanceHolderWrapper.updateBalance("Client1", "USD", 1_000_000.0)
+        balanceHolderWrapper.updateBalance("Client2", "EUR", 1_000_000.0)
+
+        takerFeeInstructions = buildFeeInstructions(type = FeeType.CLIENT_FEE, sizeType = FeeSizeType.PERCENTAGE,
+                size = 0.01, targetClientId = "FeeTargetClient", assetIds = listOf("USD"))
+        makerFeeInstructions = buildLimitOrderFeeInstructions(type = FeeType.CLIENT_FEE, makerSizeType = FeeSizeType.PERCENTAGE,
+                makerSize = 0.01, targetClientId = "FeeTargetClient", assetIds = listOf("EUR"))
+    }
+
+    @TearDown
+    fun tearDown() {
+        context.close()
+    }
+
+    @Benchmark
+    fun processTakerFee(): Any {
+        val walletOperationsProcessor = balancesHolder.createWalletProcessor(null)
+        val receiptOperation = WalletOperation("Client1", "EUR", BigDecimal.ONE, BigDecimal.ZERO)
+        val operations = mutableListOf(receiptOperation, WalletOperation("Client1", "USD", BigDecimal.valueOf(-1.1), BigDecimal.ZERO))
+        return feeProcessor.processFee(takerFeeInstructions,
+                receiptOperation,
+                operations,
+                convertPrices,
+                HashMap(),
+                walletOperationsProcessor)
+    }
+
+    @Benchmark
+    fun processMakerFee(): Any {
+        val walletOperationsProcessor = balancesHolder.createWalletProcessor(null)
+        val receiptOperation = WalletOperation("Client2", "USD", BigDecimal.valueOf(1.1), BigDecimal.ZERO)
+        val operations = mutableListOf(WalletOperation("Client2", "EUR", BigDecimal.ONE.negate(), BigDecimal.ZERO), receiptOperation)
+        return feeProcessor.processMakerFee(makerFeeInstructions,
+                receiptOperation,
+                operations,
+                BigDecimal.valueOf(0.001),
+                convertPrices,
+                HashMap(),
+                walletOperationsProcessor)
+    }
+}
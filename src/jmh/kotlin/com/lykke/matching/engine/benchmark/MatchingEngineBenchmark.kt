@@ -0,0 +1,96 @@
+package com.lykke.matching.engine.benchmark
+
+import com.lykke.matching.engine.daos.AssetPair
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.daos.Order
+import com.lykke.matching.engine.matching.MatchingEngine
+import com.lykke.matching.engine.matching.MatchingResult
+import com.lykke.matching.engine.messages.MessageType
+import com.lykke.matching.engine.order.transaction.ExecutionContextFactory
+import com.lykke.matching.engine.services.GenericLimitOrderService
+import com.lykke.matching.engine.utils.MessageBuilder.Companion.buildLimitOrder
+import com.lykke.matching.engine.utils.MessageBuilder.Companion.buildMarketOrder
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+import org.slf4j.helpers.NOPLogger
+import org.springframework.context.ConfigurableApplicationContext
+import java.util.Date
+import java.util.concurrent.TimeUnit
+
+/**
+ * Matching of market and limit orders with the order book of [depth] orders.
+ * Run with gc profiler (default for jmh task) to get allocated bytes per match, sample mode reports latency percentiles.
+ * [fixedPointArithmetic] compares BigDecimal arithmetic of matching with scaled long arithmetic (see ScaledDecimal).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime, Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class MatchingEngineBenchmark {
+
+    @Param("1", "10", "100")
+    @JvmField
+    var depth = 0
+
+    @Param("false", "true")
+    @JvmField
+    var fixedPointArithmetic = false
+
+    private lateinit var context: ConfigurableApplicationContext
+    private lateinit var matchingEngine: MatchingEngine
+    private lateinit var executionContextFactory: ExecutionContextFactory
+    private lateinit var genericLimitOrderService: GenericLimitOrderService
+    private lateinit var assetPairsById: Map<String, AssetPair>
+
+    @Setup
+    fun setUp() {
+        context = BenchmarkContext.create("matching.fixed.point.arithmetic=$fixedPointArithmetic")
+        matchingEngine = context.getBean(MatchingEngine::class.java)
+        executionContextFactory = context.getBean(ExecutionContextFactory::class.java)
+        genericLimitOrderService = context.getBean(GenericLimitOrderService::class.java)
+
+        assetPairsById = BenchmarkContext.initOrderBook(context, depth)
+    }
+
+    @TearDown
+    fun tearDown() {
+        context.close()
+    }
+
+    /** Market order which matches all orders of the order book */
+    @Benchmark
+    fun matchMarketOrder(): MatchingResult {
+        return match(buildMarketOrder(clientId = "Client1", volume = depth.toDouble()))
+    }
+
+    /** Limit order which matches the best order only */
+    @Benchmark
+    fun matchLimitOrder(): MatchingResult {
+        return match(buildLimitOrder(clientId = "Client1", price = 1.0001, volume = 1.0))
+    }
+
+    private fun match(order: Order): MatchingResult {
+        val executionContext = executionContextFactory.create("messageId", "requestId",
+                if (order is LimitOrder) MessageType.LIMIT_ORDER else MessageType.MARKET_ORDER,
+                null,
+                assetPairsById,
+                Date(),
+                NOPLogger.NOP_LOGGER)
+        return matchingEngine.match(order,
+                genericLimitOrderService.getOrderBook("EURUSD").getOrderBook(false),
+                "messageId",
+                executionContext = executionContext)
+    }
+}
@@ -0,0 +1,65 @@
+package com.lykke.matching.engine.benchmark
+
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.daos.wallet.AssetBalance
+import com.lykke.matching.engine.utils.MessageBuilder.Companion.buildLimitOrder
+import org.nustaq.serialization.FSTConfiguration
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.math.BigDecimal
+import java.util.concurrent.TimeUnit
+
+/**
+ * FST serialization of persisted entities, configured the same way as redis and file database accessors
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class SerializationBenchmark {
+
+    private val conf = FSTConfiguration.createDefaultConfiguration()
+
+    private lateinit var limitOrder: LimitOrder
+    private lateinit var serializedLimitOrder: ByteArray
+    private lateinit var assetBalance: AssetBalance
+    private lateinit var serializedAssetBalance: ByteArray
+
+    @Setup
+    fun setUp() {
+        limitOrder = buildLimitOrder(uid = "order", clientId = "Client1", price = 1.12345, volume = -100.0)
+        serializedLimitOrder = conf.asByteArray(limitOrder)
+        assetBalance = AssetBalance("Client1", "EUR", BigDecimal.valueOf(1000.12), BigDecimal.valueOf(100.5))
+        serializedAssetBalance = conf.asByteArray(assetBalance)
+    }
+
+    @Benchmark
+    fun serializeLimitOrder(): ByteArray {
+        return conf.asByteArray(limitOrder)
+    }
+
+    @Benchmark
+    fun deserializeLimitOrder(): Any {
+        return conf.asObject(serializedLimitOrder)
+    }
+
+    @Benchmark
+    fun serializeAssetBalance(): ByteArray {
+        return conf.asByteArray(assetBalance)
+    }
+
+    @Benchmark
+    fun deserializeAssetBalance(): Any {
+        return conf.asObject(serializedAssetBalance)
+    }
+}
@@ -0,0 +1,73 @@
+package com.lykke.matching.engine.benchmark
+
+import com.lykke.matching.engine.balance.WalletOperationsProcessor
+import com.lykke.matching.engine.balance.util.TestBalanceHolderWrapper
+import com.lykke.matching.engine.daos.WalletOperation
+import com.lykke.matching.engine.holders.BalancesHolder
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+import org.springframework.context.ConfigurableApplicationContext
+import java.math.BigDecimal
+import java.util.concurrent.TimeUnit
+
+/**
+ * Pre-processing of wallet operations of [tradesCount] trades (4 operations per trade)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class WalletOperationsProcessorBenchmark {
+
+    @Param("1", "10")
+    @JvmField
+    var tradesCount = 0
+
+    private lateinit var context: ConfigurableApplicationContext
+    private lateinit var balancesHolder: BalancesHolder
+    private lateinit var operations: List<WalletOperation>
+
+    @Setup
+    fun setUp() {
+        context = BenchmarkContext.create()
+        balancesHolder = context.getBean(BalancesHolder::class.java)
+
+        val balanceHolderWrapper = context.getBean(TestBalanceHolderWrapper::class.java)
+        val volume = BigDecimal.ONE
+        val price = BigDecimal.valueOf(1.1)
+        val operations = ArrayList<WalletOperation>()
+        (1..tradesCount).forEach {
+            val limitClientId = "LimitClient$it"
+            balanceHolderWrapper.updateBalance(limitClientId, "EUR", 1_000_000.0)
+            balanceHolderWrapper.updateReservedBalance(limitClientId, "EUR", 1_000_000.0)
+            operations.add(WalletOperation("Client1", "EUR", volume, BigDecimal.ZERO))
+            operations.add(WalletOperation("Client1", "USD", -volume * price, BigDecimal.ZERO))
+            operations.add(WalletOperation(limitClientId, "EUR", -volume, -volume))
+            operations.add(WalletOperation(limitClientId, "USD", volume * price, BigDecimal.ZERO))
+        }
+        balanceHolderWrapper.updateBalance("Client1", "USD", 1_000_000.0)
+        this.operations = operations
+    }
+
+    @TearDown
+    fun tearDown() {
+        context.close()
+    }
+
+    @Benchmark
+    fun preProcess(): WalletOperationsProcessor {
+        return balancesHolder.createWalletProcessor(null).preProcess(operations)
+    }
+}
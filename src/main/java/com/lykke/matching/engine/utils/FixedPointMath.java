@@ -0,0 +1,172 @@
+package com.lykke.matching.engine.utils;
+
+import java.math.BigDecimal;
+
+/**
+ * Scaled long versions of {@link NumberUtils} rounding operations.
+ * <p>
+ * Operands are converted to unscaled long values, the operation and both rounding steps of
+ * {@link NumberUtils} methods are performed in long arithmetic and the result is converted back to BigDecimal only once.
+ * Results are equal (value and scale) to the results of corresponding {@link NumberUtils} calls.
+ * Methods return null if an operand or an intermediate value does not fit into long,
+ * caller should fall back to BigDecimal arithmetic in this case.
+ */
+public class FixedPointMath {
+
+    private static final int MAX_SCALE = 16;
+    private static final int MAX_LONG_PRECISION = 18;
+    static final long NOT_REPRESENTABLE = Long.MIN_VALUE;
+    private static final long[] POWERS_OF_TEN = new long[MAX_LONG_PRECISION + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    enum Rounding {UP, DOWN, HALF_UP}
+
+    /**
+     * Equivalent of {@code NumberUtils.setScale(negate ? -(first * second) : first * second, accuracy, roundUp)}
+     */
+    public static BigDecimal multiplyAndSetScale(BigDecimal first, BigDecimal second, boolean negate, int accuracy, boolean roundUp) {
+        long firstUnscaled = toUnscaled(first);
+        long secondUnscaled = toUnscaled(second);
+        if (firstUnscaled == NOT_REPRESENTABLE || secondUnscaled == NOT_REPRESENTABLE) {
+            return null;
+        }
+        long product;
+        try {
+            product = Math.multiplyExact(firstUnscaled, secondUnscaled);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+        return setScale(negate ? -product : product, first.scale() + second.scale(), roundUpOrDownIntermediateScale(accuracy),
+                accuracy, roundUp ? Rounding.UP : Rounding.DOWN);
+    }
+
+    /**
+     * Equivalent of {@code NumberUtils.setScale(negate ? -value : value, accuracy, roundUp)}
+     */
+    public static BigDecimal setScale(BigDecimal value, boolean negate, int accuracy, boolean roundUp) {
+        long unscaled = toUnscaled(value);
+        if (unscaled == NOT_REPRESENTABLE) {
+            return null;
+        }
+        return setScale(negate ? -unscaled : unscaled, value.scale(), roundUpOrDownIntermediateScale(accuracy),
+                accuracy, roundUp ? Rounding.UP : Rounding.DOWN);
+    }
+
+    /**
+     * Equivalent of {@code NumberUtils.setScale(negateSecond ? first - second : first + second, accuracy, roundUp)}
+     */
+    public static BigDecimal addAndSetScale(BigDecimal first, BigDecimal second, boolean negateSecond, int accuracy, boolean roundUp) {
+        return add(first, second, negateSecond, roundUpOrDownIntermediateScale(accuracy), accuracy, roundUp ? Rounding.UP : Rounding.DOWN);
+    }
+
+    /**
+     * Equivalent of {@code NumberUtils.setScaleRoundHalfUp(negateSecond ? first - second : first + second, accuracy)}
+     */
+    public static BigDecimal addAndSetScaleRoundHalfUp(BigDecimal first, BigDecimal second, boolean negateSecond, int accuracy) {
+        return add(first, second, negateSecond, roundHalfUpIntermediateScale(accuracy), accuracy, Rounding.HALF_UP);
+    }
+
+    private static BigDecimal add(BigDecimal first, BigDecimal second, boolean negateSecond, int intermediateScale, int accuracy, Rounding rounding) {
+        long firstUnscaled = toUnscaled(first);
+        long secondUnscaled = toUnscaled(second);
+        if (firstUnscaled == NOT_REPRESENTABLE || secondUnscaled == NOT_REPRESENTABLE) {
+            return null;
+        }
+        int scale = Math.max(first.scale(), second.scale());
+        firstUnscaled = upscale(firstUnscaled, scale - first.scale());
+        secondUnscaled = upscale(secondUnscaled, scale - second.scale());
+        if (firstUnscaled == NOT_REPRESENTABLE || secondUnscaled == NOT_REPRESENTABLE) {
+            return null;
+        }
+        long sum;
+        try {
+            sum = negateSecond ? Math.subtractExact(firstUnscaled, secondUnscaled) : Math.addExact(firstUnscaled, secondUnscaled);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+        return setScale(sum, scale, intermediateScale, accuracy, rounding);
+    }
+
+    private static BigDecimal setScale(long unscaled, int scale, int intermediateScale, int accuracy, Rounding rounding) {
+        long result = round(unscaled, scale, intermediateScale, accuracy, rounding);
+        return result == NOT_REPRESENTABLE ? null : BigDecimal.valueOf(result, accuracy);
+    }
+
+    /** Scale of the first rounding step of {@code NumberUtils.setScaleRoundUp} and {@code NumberUtils.setScaleRoundDown} */
+    static int roundUpOrDownIntermediateScale(int accuracy) {
+        return Math.min(MAX_SCALE, accuracy + 10);
+    }
+
+    /** Scale of the first rounding step of {@code NumberUtils.setScaleRoundHalfUp} */
+    static int roundHalfUpIntermediateScale(int accuracy) {
+        return accuracy + 8;
+    }
+
+    /**
+     * Rounds value to intermediate scale with HALF_UP mode and then to the accuracy with the given mode,
+     * as NumberUtils.setScale* methods do
+     * @return unscaled value with the scale equal to accuracy or {@link #NOT_REPRESENTABLE}
+     */
+    static long round(long unscaled, int scale, int intermediateScale, int accuracy, Rounding rounding) {
+        long result = unscaled;
+        int resultScale = scale;
+        if (resultScale > intermediateScale) {
+            result = downscale(result, resultScale - intermediateScale, Rounding.HALF_UP);
+            resultScale = intermediateScale;
+        }
+        if (resultScale > accuracy) {
+            return downscale(result, resultScale - accuracy, rounding);
+        }
+        return upscale(result, accuracy - resultScale);
+    }
+
+    /**
+     * BigDecimal.movePointRight keeps the compact long representation of the value,
+     * unlike BigDecimal.unscaledValue which creates BigInteger for each call
+     * @return unscaled value or {@link #NOT_REPRESENTABLE}
+     */
+    static long toUnscaled(BigDecimal value) {
+        if (value.scale() < 0 || value.precision() > MAX_LONG_PRECISION) {
+            return NOT_REPRESENTABLE;
+        }
+        return value.movePointRight(value.scale()).longValue();
+    }
+
+    static long upscale(long unscaled, int digits) {
+        if (unscaled == NOT_REPRESENTABLE || digits > MAX_LONG_PRECISION) {
+            return NOT_REPRESENTABLE;
+        }
+        try {
+            return Math.multiplyExact(unscaled, POWERS_OF_TEN[digits]);
+        } catch (ArithmeticException e) {
+            return NOT_REPRESENTABLE;
+        }
+    }
+
+    private static long downscale(long unscaled, int digits, Rounding rounding) {
+        if (unscaled == NOT_REPRESENTABLE || digits > MAX_LONG_PRECISION) {
+            return NOT_REPRESENTABLE;
+        }
+        long divisor = POWERS_OF_TEN[digits];
+        long quotient = unscaled / divisor;
+        long remainder = Math.abs(unscaled % divisor);
+        if (remainder == 0) {
+            return quotient;
+        }
+        long sign = unscaled < 0 ? -1 : 1;
+        switch (rounding) {
+            case UP:
+                return quotient + sign;
+            case HALF_UP:
+                return remainder >= divisor - remainder ? quotient + sign : quotient;
+            default:
+                return quotient;
+        }
+    }
+}
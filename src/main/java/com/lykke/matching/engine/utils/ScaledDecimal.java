@@ -0,0 +1,252 @@
+package com.lykke.matching.engine.utils;
+
+import java.math.BigDecimal;
+
+import static com.lykke.matching.engine.utils.FixedPointMath.NOT_REPRESENTABLE;
+
+/**
+ * Mutable decimal number for calculations which are repeated for each trade of an order.
+ * <p>
+ * If fixed point arithmetic is enabled the number is kept as an unscaled long value and a scale while it fits into long,
+ * operations are performed in long arithmetic (see {@link FixedPointMath}) and BigDecimal is created only by {@link #toBigDecimal()}.
+ * If the value or a result of an operation does not fit into long (or fixed point arithmetic is disabled)
+ * the number is kept as BigDecimal and operations are performed with BigDecimal and {@link NumberUtils}.
+ * Value and scale of the number are always equal to the value and scale of the corresponding BigDecimal calculation.
+ * <p>
+ * Operands may be the same instance as the target of an operation.
+ */
+public final class ScaledDecimal implements Comparable<ScaledDecimal> {
+
+    private final boolean fixedPointArithmetic;
+
+    private long unscaled;
+    private int scale;
+    /** Value which does not fit into long, null if the value is kept as unscaled long */
+    private BigDecimal value;
+
+    public ScaledDecimal(boolean fixedPointArithmetic) {
+        this.fixedPointArithmetic = fixedPointArithmetic;
+        setZero();
+    }
+
+    public ScaledDecimal set(BigDecimal value) {
+        long unscaled = fixedPointArithmetic ? FixedPointMath.toUnscaled(value) : NOT_REPRESENTABLE;
+        if (unscaled == NOT_REPRESENTABLE) {
+            this.value = value;
+        } else {
+            setUnscaled(unscaled, value.scale());
+        }
+        return this;
+    }
+
+    public ScaledDecimal set(ScaledDecimal other) {
+        this.unscaled = other.unscaled;
+        this.scale = other.scale;
+        this.value = other.value;
+        return this;
+    }
+
+    public ScaledDecimal setZero() {
+        if (fixedPointArithmetic) {
+            setUnscaled(0, 0);
+        } else {
+            value = BigDecimal.ZERO;
+        }
+        return this;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return value != null ? value : BigDecimal.valueOf(unscaled, scale);
+    }
+
+    public int signum() {
+        return value != null ? value.signum() : Long.signum(unscaled);
+    }
+
+    @Override
+    public int compareTo(ScaledDecimal other) {
+        if (value == null && other.value == null) {
+            int resultScale = Math.max(scale, other.scale);
+            long first = FixedPointMath.upscale(unscaled, resultScale - scale);
+            long second = FixedPointMath.upscale(other.unscaled, resultScale - other.scale);
+            if (first != NOT_REPRESENTABLE && second != NOT_REPRESENTABLE) {
+                return Long.compare(first, second);
+            }
+        }
+        return toBigDecimal().compareTo(other.toBigDecimal());
+    }
+
+    /**
+     * @return the same as {@code NumberUtils.equalsWithDefaultDelta(this, BigDecimal.ZERO)}
+     */
+    public boolean isZeroWithDefaultDelta() {
+        if (value != null) {
+            return NumberUtils.equalsWithDefaultDelta(value, BigDecimal.ZERO);
+        }
+        // |unscaled| * 10^-scale < 10^-10
+        if (scale <= 10) {
+            return unscaled == 0;
+        }
+        long bound = FixedPointMath.upscale(1, scale - 10);
+        return bound == NOT_REPRESENTABLE || Math.abs(unscaled) < bound;
+    }
+
+    /**
+     * this = this + other, or this - other if negateOther is set
+     */
+    public ScaledDecimal add(ScaledDecimal other, boolean negateOther) {
+        if (value == null && other.value == null) {
+            int resultScale = Math.max(scale, other.scale);
+            long sum = add(unscaled, scale, other.unscaled, other.scale, negateOther, resultScale);
+            if (sum != NOT_REPRESENTABLE) {
+                return setUnscaled(sum, resultScale);
+            }
+        }
+        BigDecimal first = toBigDecimal();
+        BigDecimal second = other.toBigDecimal();
+        return set(negateOther ? first.subtract(second) : first.add(second));
+    }
+
+    /**
+     * this = this + first * second, or this - first * second if negateProduct is set
+     */
+    public ScaledDecimal addProduct(ScaledDecimal first, ScaledDecimal second, boolean negateProduct) {
+        if (value == null && first.value == null && second.value == null) {
+            int productScale = first.scale + second.scale;
+            long product = multiply(first.unscaled, second.unscaled);
+            int resultScale = Math.max(scale, productScale);
+            long sum = add(unscaled, scale, product, productScale, negateProduct, resultScale);
+            if (sum != NOT_REPRESENTABLE) {
+                return setUnscaled(sum, resultScale);
+            }
+        }
+        BigDecimal product = first.toBigDecimal().multiply(second.toBigDecimal());
+        return set(negateProduct ? toBigDecimal().subtract(product) : toBigDecimal().add(product));
+    }
+
+    /**
+     * this = {@code NumberUtils.setScale(negate ? -value : value, accuracy, roundUp)}
+     */
+    public ScaledDecimal setScale(ScaledDecimal value, boolean negate, int accuracy, boolean roundUp) {
+        if (value.value == null) {
+            long result = FixedPointMath.round(negate ? -value.unscaled : value.unscaled, value.scale,
+                    FixedPointMath.roundUpOrDownIntermediateScale(accuracy), accuracy, rounding(roundUp));
+            if (result != NOT_REPRESENTABLE) {
+                return setUnscaled(result, accuracy);
+            }
+        }
+        BigDecimal decimal = value.toBigDecimal();
+        return set(NumberUtils.setScale(negate ? decimal.negate() : decimal, accuracy, roundUp));
+    }
+
+    /**
+     * this = {@code NumberUtils.setScale(negate ? -(first * second) : first * second, accuracy, roundUp)}
+     */
+    public ScaledDecimal multiplyAndSetScale(ScaledDecimal first, ScaledDecimal second, boolean negate, int accuracy, boolean roundUp) {
+        if (first.value == null && second.value == null) {
+            long product = multiply(first.unscaled, second.unscaled);
+            long result = product == NOT_REPRESENTABLE ? NOT_REPRESENTABLE : FixedPointMath.round(negate ? -product : product,
+                    first.scale + second.scale, FixedPointMath.roundUpOrDownIntermediateScale(accuracy), accuracy, rounding(roundUp));
+            if (result != NOT_REPRESENTABLE) {
+                return setUnscaled(result, accuracy);
+            }
+        }
+        BigDecimal product = first.toBigDecimal().multiply(second.toBigDecimal());
+        return set(NumberUtils.setScale(negate ? product.negate() : product, accuracy, roundUp));
+    }
+
+    /**
+     * this = {@code NumberUtils.setScale(negateSecond ? first - second : first + second, accuracy, roundUp)}
+     */
+    public ScaledDecimal addAndSetScale(ScaledDecimal first, ScaledDecimal second, boolean negateSecond, int accuracy, boolean roundUp) {
+        if (first.value == null && second.value == null) {
+            int sumScale = Math.max(first.scale, second.scale);
+            long sum = add(first.unscaled, first.scale, second.unscaled, second.scale, negateSecond, sumScale);
+            long result = sum == NOT_REPRESENTABLE ? NOT_REPRESENTABLE : FixedPointMath.round(sum, sumScale,
+                    FixedPointMath.roundUpOrDownIntermediateScale(accuracy), accuracy, rounding(roundUp));
+            if (result != NOT_REPRESENTABLE) {
+                return setUnscaled(result, accuracy);
+            }
+        }
+        BigDecimal sum = negateSecond ? first.toBigDecimal().subtract(second.toBigDecimal()) : first.toBigDecimal().add(second.toBigDecimal());
+        return set(NumberUtils.setScale(sum, accuracy, roundUp));
+    }
+
+    /**
+     * this = {@code NumberUtils.setScaleRoundHalfUp(negateSecond ? first - second : first + second, accuracy)}
+     */
+    public ScaledDecimal addAndSetScaleRoundHalfUp(ScaledDecimal first, ScaledDecimal second, boolean negateSecond, int accuracy) {
+        if (first.value == null && second.value == null) {
+            int sumScale = Math.max(first.scale, second.scale);
+            long sum = add(first.unscaled, first.scale, second.unscaled, second.scale, negateSecond, sumScale);
+            long result = sum == NOT_REPRESENTABLE ? NOT_REPRESENTABLE : FixedPointMath.round(sum, sumScale,
+                    FixedPointMath.roundHalfUpIntermediateScale(accuracy), accuracy, FixedPointMath.Rounding.HALF_UP);
+            if (result != NOT_REPRESENTABLE) {
+                return setUnscaled(result, accuracy);
+            }
+        }
+        BigDecimal sum = negateSecond ? first.toBigDecimal().subtract(second.toBigDecimal()) : first.toBigDecimal().add(second.toBigDecimal());
+        return set(NumberUtils.setScaleRoundHalfUp(sum, accuracy));
+    }
+
+    /**
+     * this = {@code NumberUtils.setScale(negateProduct ? first - second * third : first + second * third, accuracy, roundUp)}
+     */
+    public ScaledDecimal addProductAndSetScale(ScaledDecimal first, ScaledDecimal second, ScaledDecimal third,
+                                               boolean negateProduct, int accuracy, boolean roundUp) {
+        if (first.value == null && second.value == null && third.value == null) {
+            int productScale = second.scale + third.scale;
+            long product = multiply(second.unscaled, third.unscaled);
+            int sumScale = Math.max(first.scale, productScale);
+            long sum = add(first.unscaled, first.scale, product, productScale, negateProduct, sumScale);
+            long result = sum == NOT_REPRESENTABLE ? NOT_REPRESENTABLE : FixedPointMath.round(sum, sumScale,
+                    FixedPointMath.roundUpOrDownIntermediateScale(accuracy), accuracy, rounding(roundUp));
+            if (result != NOT_REPRESENTABLE) {
+                return setUnscaled(result, accuracy);
+            }
+        }
+        BigDecimal product = second.toBigDecimal().multiply(third.toBigDecimal());
+        BigDecimal sum = negateProduct ? first.toBigDecimal().subtract(product) : first.toBigDecimal().add(product);
+        return set(NumberUtils.setScale(sum, accuracy, roundUp));
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toString();
+    }
+
+    private ScaledDecimal setUnscaled(long unscaled, int scale) {
+        this.unscaled = unscaled;
+        this.scale = scale;
+        this.value = null;
+        return this;
+    }
+
+    private static FixedPointMath.Rounding rounding(boolean roundUp) {
+        return roundUp ? FixedPointMath.Rounding.UP : FixedPointMath.Rounding.DOWN;
+    }
+
+    private static long multiply(long first, long second) {
+        if (first == NOT_REPRESENTABLE || second == NOT_REPRESENTABLE) {
+            return NOT_REPRESENTABLE;
+        }
+        try {
+            return Math.multiplyExact(first, second);
+        } catch (ArithmeticException e) {
+            return NOT_REPRESENTABLE;
+        }
+    }
+
+    private static long add(long first, int firstScale, long second, int secondScale, boolean negateSecond, int resultScale) {
+        long firstUpscaled = FixedPointMath.upscale(first, resultScale - firstScale);
+        long secondUpscaled = FixedPointMath.upscale(second, resultScale - secondScale);
+        if (firstUpscaled == NOT_REPRESENTABLE || secondUpscaled == NOT_REPRESENTABLE) {
+            return NOT_REPRESENTABLE;
+        }
+        try {
+            return negateSecond ? Math.subtractExact(firstUpscaled, secondUpscaled) : Math.addExact(firstUpscaled, secondUpscaled);
+        } catch (ArithmeticException e) {
+            return NOT_REPRESENTABLE;
+        }
+    }
+}
@@ -5,6 +5,9 @@ import com.lykke.matching.engine.common.SimpleApplicationEventPublisher
 import com.lykke.matching.engine.common.impl.ApplicationEventPublisherImpl
 import com.lykke.matching.engine.database.*
 import com.lykke.matching.engine.database.azure.*
+import com.lykke.matching.engine.database.common.GroupCommitPersistenceBarrier
+import com.lykke.matching.engine.database.common.NoOpPersistenceBarrier
+import com.lykke.matching.engine.database.common.PersistenceBarrier
 import com.lykke.matching.engine.database.common.PersistenceManagerFactory
 import com.lykke.matching.engine.database.file.FileOrderBookDatabaseAccessor
 import com.lykke.matching.engine.database.file.FileProcessedMessagesDatabaseAccessor
@@ -15,6 +18,7 @@ import com.lykke.matching.engine.database.listeners.WalletOperationsPersistListe
 import com.lykke.matching.engine.database.reconciliation.events.AccountPersistEvent
 import com.lykke.matching.engine.database.reconciliation.events.OrderBookPersistEvent
 import com.lykke.matching.engine.database.reconciliation.events.StopOrderBookPersistEvent
+import com.lykke.matching.engine.database.redis.RedisPersistenceManager
 import com.lykke.matching.engine.database.redis.accessor.impl.RedisCashOperationIdDatabaseAccessor
 import com.lykke.matching.engine.database.redis.accessor.impl.RedisMessageSequenceNumberDatabaseAccessor
 import com.lykke.matching.engine.database.redis.accessor.impl.RedisProcessedMessagesDatabaseAccessor
@@ -43,7 +47,13 @@ open class DatabaseAccessorConfig {
     //<editor-fold desc="Persistence managers">
     @Bean
     open fun persistenceManager(persistenceRedisConnection: Optional<RedisConnection>): PersistenceManager {
-        return persistenceManagerFactory.get(persistenceRedisConnection)
+        return persistenceManagerFactory.getWithGroupCommit(persistenceRedisConnection)
+    }
+
+    @Bean
+    open fun persistenceBarrier(persistenceManager: PersistenceManager): PersistenceBarrier {
+        val groupCommitProcessor = (persistenceManager as? RedisPersistenceManager)?.groupCommitProcessor
+        return if (groupCommitProcessor != null) GroupCommitPersistenceBarrier(groupCommitProcessor) else NoOpPersistenceBarrier()
     }
 
     @Bean
@@ -68,9 +78,9 @@ open class DatabaseAccessorConfig {
     //<editor-fold desc="Persist listeners">
     @Bean
     open fun walletOperationsPersistListener(updatedWalletsQueue: BlockingQueue<AccountPersistEvent>,
-                                             balancesDatabaseAccessorsHolder: BalancesDatabaseAccessorsHolder): QueueConsumer<AccountPersistEvent>? {
+                                             balancesDatabaseAccessorsHolder: BalancesDatabaseAccessorsHolder): WalletOperationsPersistListener? {
         return balancesDatabaseAccessorsHolder.secondaryAccessor?.let {
-            WalletOperationsPersistListener(updatedWalletsQueue, balancesDatabaseAccessorsHolder.secondaryAccessor)
+            WalletOperationsPersistListener(updatedWalletsQueue, balancesDatabaseAccessorsHolder.secondaryAccessor, config.me.secondaryDbFlushInterval)
         }
     }
 
@@ -79,7 +89,8 @@ open class DatabaseAccessorConfig {
                                       ordersDatabaseAccessorsHolder: OrdersDatabaseAccessorsHolder): OrderBookPersistListener? {
         return ordersDatabaseAccessorsHolder.secondaryAccessor?.let {
             OrderBookPersistListener(updatedOrderBooksQueue,
-                    ordersDatabaseAccessorsHolder.secondaryAccessor)
+                    ordersDatabaseAccessorsHolder.secondaryAccessor,
+                    config.me.secondaryDbFlushInterval)
         }
     }
 
@@ -87,7 +98,7 @@ open class DatabaseAccessorConfig {
     open fun stopOrderBookPersistListener(updatedStopOrderBooksQueue: BlockingQueue<StopOrderBookPersistEvent>,
                                           stopOrdersDatabaseAccessorsHolder: StopOrdersDatabaseAccessorsHolder): StopOrderBookPersistListener? {
         return stopOrdersDatabaseAccessorsHolder.secondaryAccessor?.let {
-            StopOrderBookPersistListener(updatedStopOrderBooksQueue, stopOrdersDatabaseAccessorsHolder.secondaryAccessor)
+            StopOrderBookPersistListener(updatedStopOrderBooksQueue, stopOrdersDatabaseAccessorsHolder.secondaryAccessor, config.me.secondaryDbFlushInterval)
         }
     }
     //</editor-fold>
@@ -7,6 +7,7 @@ import com.lykke.matching.engine.database.reconciliation.events.AccountPersistEv
 import com.lykke.matching.engine.database.reconciliation.events.OrderBookPersistEvent
 import com.lykke.matching.engine.database.reconciliation.events.StopOrderBookPersistEvent
 import com.lykke.matching.engine.messages.MessageWrapper
+import com.lykke.matching.engine.order.transaction.CurrentTransactionOrderBooksHolder.OrderBookLevelsData
 import com.lykke.matching.engine.outgoing.messages.*
 import com.lykke.matching.engine.outgoing.messages.v2.events.Event
 import com.lykke.matching.engine.outgoing.messages.v2.events.ExecutionEvent
@@ -195,6 +196,12 @@ open class QueueConfig {
         return LinkedBlockingQueue<OrderBook>()
     }
 
+    @Bean
+    @DataQueue
+    open fun orderBookLevelsQueue(): BlockingQueue<OrderBookLevelsData> {
+        return LinkedBlockingQueue<OrderBookLevelsData>()
+    }
+
     @Bean
     @DataQueue
     open fun dbTransferOperationQueue(): BlockingQueue<TransferOperation> {
@@ -47,6 +47,15 @@ open class RedisConfig {
         return redisConnectionFactory.getConnection("initialLoadingRedisConnection")
     }
 
+    @Bean
+    open fun cashOperationIdsIndexRedisConnection(): RedisConnection? {
+        if (config.me.storage != Storage.Redis && config.me.storage != Storage.RedisWithoutOrders ||
+                config.me.redis.cashOperationIdsIndex == null) {
+            return null
+        }
+        return redisConnectionFactory.getConnection("cashOperationIdsIndexRedisConnection")
+    }
+
     @Bean
     open fun persistenceRedisConnection(): RedisConnection? {
         return redisConnectionFactory.getConnection("persistenceRedisConnection")
@@ -88,7 +97,7 @@ open class RedisConfig {
             return null
         }
 
-        return RedisWalletDatabaseAccessor(initialLoadingRedisConnection()!!, config.me.redis.balanceDatabase)
+        return RedisWalletDatabaseAccessor(initialLoadingRedisConnection()!!, config.me.redis.balanceDatabase, config.me.redis.initialLoad)
     }
 
     @Bean
@@ -99,7 +108,11 @@ open class RedisConfig {
 
         return RedisCashOperationIdDatabaseAccessor(cashInOutOperationIdRedisConnection()!!,
                 cashTransferOperationIdRedisConnection()!!,
-                config.me.redis.processedCashMessageDatabase)
+                config.me.redis.processedCashMessageDatabase,
+                cashOperationIdsIndexRedisConnection(),
+                config.me.redis.cashOperationIdsIndex,
+                config.me.redis.initialLoad,
+                config.me.processedMessagesInterval)
     }
 
     @Bean
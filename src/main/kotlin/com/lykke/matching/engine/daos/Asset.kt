@@ -4,6 +4,16 @@ class Asset(
         val assetId: String,
         val accuracy: Int
 ){
+    override fun equals(other: Any?): Boolean {
+        if (this === other) return true
+        if (other !is Asset) return false
+        return assetId == other.assetId && accuracy == other.accuracy
+    }
+
+    override fun hashCode(): Int {
+        return 31 * assetId.hashCode() + accuracy
+    }
+
     override fun toString(): String {
         return "Asset(" +
                 "assetId='$assetId', " +
@@ -13,6 +13,24 @@ class AssetPair(
         val maxValue: BigDecimal? = null,
         val marketOrderPriceDeviationThreshold: BigDecimal? = null
 ) {
+    override fun equals(other: Any?): Boolean {
+        if (this === other) return true
+        if (other !is AssetPair) return false
+        return assetPairId == other.assetPairId
+                && baseAssetId == other.baseAssetId
+                && quotingAssetId == other.quotingAssetId
+                && accuracy == other.accuracy
+                && minVolume == other.minVolume
+                && minInvertedVolume == other.minInvertedVolume
+                && maxVolume == other.maxVolume
+                && maxValue == other.maxValue
+                && marketOrderPriceDeviationThreshold == other.marketOrderPriceDeviationThreshold
+    }
+
+    override fun hashCode(): Int {
+        return 31 * assetPairId.hashCode() + accuracy
+    }
+
     override fun toString(): String {
         return "AssetPair(" +
                 "assetPairId='$assetPairId', " +
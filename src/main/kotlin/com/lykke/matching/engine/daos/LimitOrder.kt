@@ -78,7 +78,7 @@ class LimitOrder(id: String,
     }
 
     override fun copy(): LimitOrder {
-        return LimitOrder(id, externalId, assetPairId, clientId, volume, price, status, statusDate, createdAt,
+        val copy = LimitOrder(id, externalId, assetPairId, clientId, volume, price, status, statusDate, createdAt,
                 registered, remainingVolume, lastMatchTime, reservedLimitVolume, fee as? LimitOrderFeeInstruction,
                 fees?.map { it as NewLimitOrderFeeInstruction }, type, lowerLimitPrice, lowerPrice, upperLimitPrice,
                 upperPrice, previousExternalId,
@@ -86,6 +86,8 @@ class LimitOrder(id: String,
                 expiryTime,
                 parentOrderExternalId,
                 childOrderExternalId)
+        copy.feePlan = feePlan
+        return copy
     }
 
     override fun applyToOrigin(origin: Copyable) {
@@ -56,7 +56,9 @@ class MarketOrder(id: String,
     }
 
     override fun copy(): MarketOrder {
-        return MarketOrder(id, externalId, assetPairId, clientId, volume, price, status, statusDate!!, createdAt, registered, matchedAt, straight, reservedLimitVolume, fee, fees)
+        val copy = MarketOrder(id, externalId, assetPairId, clientId, volume, price, status, statusDate!!, createdAt, registered, matchedAt, straight, reservedLimitVolume, fee, fees)
+        copy.feePlan = feePlan
+        return copy
     }
 
     override fun applyToOrigin(origin: Copyable) {
@@ -1,6 +1,7 @@
 package com.lykke.matching.engine.daos
 
 import com.lykke.matching.engine.daos.fee.v2.NewFeeInstruction
+import com.lykke.matching.engine.fee.FeePlan
 import com.lykke.matching.engine.holders.AssetsPairsHolder
 import com.lykke.matching.engine.utils.NumberUtils
 import com.lykke.matching.engine.daos.v2.FeeInstruction
@@ -30,6 +31,10 @@ abstract class Order(
     var statusDate = statusDate
         private set
 
+    /** Is compiled once the order is accepted, see [com.lykke.matching.engine.fee.FeeProcessor.compileFeePlan] */
+    @Transient
+    var feePlan: FeePlan? = null
+
     fun getAbsVolume(): BigDecimal {
         return volume.abs()
     }
@@ -64,5 +69,6 @@ abstract class Order(
         origin.status = status
         origin.statusDate = statusDate
         origin.reservedLimitVolume = reservedLimitVolume
+        origin.feePlan = feePlan
     }
 }
\ No newline at end of file
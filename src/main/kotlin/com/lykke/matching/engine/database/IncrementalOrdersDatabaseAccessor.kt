@@ -0,0 +1,10 @@
+package com.lykke.matching.engine.database
+
+import com.lykke.matching.engine.daos.LimitOrder
+
+/**
+ * Orders database accessor which can save only changed orders instead of whole order book sides
+ */
+interface IncrementalOrdersDatabaseAccessor {
+    fun updateOrders(ordersToSave: Collection<LimitOrder>, ordersToRemove: Collection<LimitOrder>)
+}
@@ -4,5 +4,9 @@ import com.lykke.matching.engine.daos.LimitOrder
 
 interface OrderBookDatabaseAccessor {
     fun loadLimitOrders(): List<LimitOrder>
+
+    /** Passes loaded orders to [consumer] one by one, implementations may avoid building the whole list */
+    fun loadLimitOrders(consumer: (LimitOrder) -> Unit) = loadLimitOrders().forEach(consumer)
+
     fun updateOrderBook(asset: String, isBuy: Boolean, orderBook: Collection<LimitOrder>)
 }
\ No newline at end of file
@@ -4,5 +4,9 @@ import com.lykke.matching.engine.daos.LimitOrder
 
 interface StopOrderBookDatabaseAccessor {
     fun loadStopLimitOrders(): List<LimitOrder>
+
+    /** Passes loaded orders to [consumer] one by one, implementations may avoid building the whole list */
+    fun loadStopLimitOrders(consumer: (LimitOrder) -> Unit) = loadStopLimitOrders().forEach(consumer)
+
     fun updateStopOrderBook(assetPairId: String, isBuy: Boolean, orderBook: Collection<LimitOrder>)
 }
\ No newline at end of file
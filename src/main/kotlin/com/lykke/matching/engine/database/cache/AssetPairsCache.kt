@@ -63,6 +63,7 @@ class AssetPairsCache @Autowired constructor(
         val oldAssetPairs = assetPairsById.values
         if (newMap.isNotEmpty()) {
             val newMapByPair = generateAssetPairsMapByPair(newMap)
+            onUpdated(assetPairsById, newMap)
             assetPairsById = newMap
             assetPairsByPair = newMapByPair
         }
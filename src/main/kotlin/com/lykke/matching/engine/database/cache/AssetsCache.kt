@@ -26,7 +26,8 @@ class AssetsCache @Autowired constructor(
     override fun update() {
         val newMap = databaseAccessor.loadAssets()
         if (newMap.isNotEmpty()) {
-            assetsMap = databaseAccessor.loadAssets()
+            onUpdated(assetsMap, newMap)
+            assetsMap = newMap
         }
     }
 
@@ -1,5 +1,16 @@
 package com.lykke.matching.engine.database.cache
 
 abstract class DataCache {
+    /** Is incremented each time reloaded data differs from cached data, data derived from the cache is valid while the version is the same */
+    @Volatile
+    var version = 0L
+        private set
+
     abstract fun update()
-}
\ No newline at end of file
+
+    protected fun onUpdated(cachedData: Any, loadedData: Any) {
+        if (cachedData != loadedData) {
+            version++
+        }
+    }
+}
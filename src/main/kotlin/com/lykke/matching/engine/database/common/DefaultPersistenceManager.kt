@@ -1,5 +1,6 @@
 package com.lykke.matching.engine.database.common
 
+import com.lykke.matching.engine.database.IncrementalOrdersDatabaseAccessor
 import com.lykke.matching.engine.database.OrderBookDatabaseAccessor
 import com.lykke.matching.engine.database.PersistenceManager
 import com.lykke.matching.engine.database.ProcessedMessagesDatabaseAccessor
@@ -49,11 +50,23 @@ class DefaultPersistenceManager(private val walletDatabaseAccessor: WalletDataba
         if (data.balancesData?.wallets?.isNotEmpty() == true) {
             walletDatabaseAccessor.insertOrUpdateWallets(data.balancesData.wallets.toList())
         }
-        data.orderBooksData?.orderBooks?.forEach {
-            orderBookDatabaseAccessor.updateOrderBook(it.assetPairId, it.isBuy, it.orders)
+        data.orderBooksData?.let { orderBooksData ->
+            if (orderBookDatabaseAccessor is IncrementalOrdersDatabaseAccessor) {
+                orderBookDatabaseAccessor.updateOrders(orderBooksData.ordersToSave, orderBooksData.ordersToRemove)
+            } else {
+                orderBooksData.orderBooks.forEach {
+                    orderBookDatabaseAccessor.updateOrderBook(it.assetPairId, it.isBuy, it.orders)
+                }
+            }
         }
-        data.stopOrderBooksData?.orderBooks?.forEach {
-            stopOrderBookDatabaseAccessor.updateStopOrderBook(it.assetPairId, it.isBuy, it.orders)
+        data.stopOrderBooksData?.let { stopOrderBooksData ->
+            if (stopOrderBookDatabaseAccessor is IncrementalOrdersDatabaseAccessor) {
+                stopOrderBookDatabaseAccessor.updateOrders(stopOrderBooksData.ordersToSave, stopOrderBooksData.ordersToRemove)
+            } else {
+                stopOrderBooksData.orderBooks.forEach {
+                    stopOrderBookDatabaseAccessor.updateStopOrderBook(it.assetPairId, it.isBuy, it.orders)
+                }
+            }
         }
         persistProcessedMessages(data.processedMessage)
     }
@@ -0,0 +1,17 @@
+package com.lykke.matching.engine.database.common
+
+import com.lykke.matching.engine.database.redis.RedisGroupCommitProcessor
+import com.lykke.matching.engine.socket.ClientHandler
+import com.lykke.matching.engine.socket.impl.PersistenceAwareClientHandler
+
+/**
+ * Executes actions after the group commit batch with the data submitted before them is committed
+ */
+class GroupCommitPersistenceBarrier(private val groupCommitProcessor: RedisGroupCommitProcessor) : PersistenceBarrier {
+
+    override fun executeAfterPersist(action: () -> Unit) {
+        groupCommitProcessor.executeAfterCommit(action)
+    }
+
+    override fun wrap(clientHandler: ClientHandler): ClientHandler = PersistenceAwareClientHandler(clientHandler, this)
+}
@@ -0,0 +1,15 @@
+package com.lykke.matching.engine.database.common
+
+import com.lykke.matching.engine.socket.ClientHandler
+
+/**
+ * Is used when data is persisted synchronously during message processing, actions are executed immediately
+ */
+class NoOpPersistenceBarrier : PersistenceBarrier {
+
+    override fun executeAfterPersist(action: () -> Unit) {
+        action()
+    }
+
+    override fun wrap(clientHandler: ClientHandler) = clientHandler
+}
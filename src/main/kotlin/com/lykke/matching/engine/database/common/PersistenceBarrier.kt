@@ -0,0 +1,13 @@
+package com.lykke.matching.engine.database.common
+
+import com.lykke.matching.engine.socket.ClientHandler
+
+/**
+ * Holds back client responses and outgoing events until the data of messages processed before them is persisted.
+ */
+interface PersistenceBarrier {
+    fun executeAfterPersist(action: () -> Unit)
+
+    /** @return handler which writes responses only after the data of messages processed before them is persisted */
+    fun wrap(clientHandler: ClientHandler): ClientHandler
+}
@@ -4,7 +4,11 @@ import com.lykke.matching.engine.database.PersistenceManager
 import com.lykke.matching.engine.database.redis.connection.RedisConnection
 import java.util.*
 
-@FunctionalInterface
 interface PersistenceManagerFactory {
     fun get(redisConnection: Optional<RedisConnection>): PersistenceManager
+
+    /**
+     * Creates persistence manager which uses group commit if it is enabled in config
+     */
+    fun getWithGroupCommit(redisConnection: Optional<RedisConnection>): PersistenceManager
 }
\ No newline at end of file
@@ -9,15 +9,20 @@ import com.lykke.matching.engine.database.common.strategy.OrdersPersistInSeconda
 import com.lykke.matching.engine.database.common.strategy.PersistOrdersDuringRedisTransactionStrategy
 import com.lykke.matching.engine.database.file.FileProcessedMessagesDatabaseAccessor
 import com.lykke.matching.engine.database.reconciliation.events.AccountPersistEvent
+import com.lykke.matching.engine.database.redis.RedisGroupCommitProcessor
 import com.lykke.matching.engine.database.redis.RedisPersistenceManager
 import com.lykke.matching.engine.database.redis.accessor.impl.*
 import com.lykke.matching.engine.database.redis.connection.RedisConnection
+import com.lykke.matching.engine.database.snapshot.EngineStateJournal
 import com.lykke.matching.engine.holders.BalancesDatabaseAccessorsHolder
 import com.lykke.matching.engine.holders.CurrentTransactionDataHolder
+import com.lykke.matching.engine.holders.MessageSequenceNumberHolder
 import com.lykke.matching.engine.holders.OrdersDatabaseAccessorsHolder
 import com.lykke.matching.engine.holders.StopOrdersDatabaseAccessorsHolder
 import com.lykke.matching.engine.performance.PerformanceStatsHolder
 import com.lykke.matching.engine.utils.config.Config
+import org.slf4j.LoggerFactory
+import org.springframework.context.ApplicationEventPublisher
 import org.springframework.stereotype.Component
 import java.util.*
 
@@ -34,7 +39,14 @@ class PersistenceManagerFactoryImpl(private val balancesDatabaseAccessorsHolder:
                                     private val currentTransactionDataHolder: CurrentTransactionDataHolder,
                                     private val performanceStatsHolder: PerformanceStatsHolder,
                                     private val persistOrdersStrategy: Optional<PersistOrdersDuringRedisTransactionStrategy>,
-                                    private val ordersPersistInSecondaryDbStrategy: Optional<OrdersPersistInSecondaryDbStrategy>) : PersistenceManagerFactory {
+                                    private val ordersPersistInSecondaryDbStrategy: Optional<OrdersPersistInSecondaryDbStrategy>,
+                                    private val applicationEventPublisher: ApplicationEventPublisher,
+                                    private val messageSequenceNumberHolder: MessageSequenceNumberHolder,
+                                    private val engineStateJournal: EngineStateJournal) : PersistenceManagerFactory {
+
+    companion object {
+        private val LOGGER = LoggerFactory.getLogger(PersistenceManagerFactoryImpl::class.java.name)
+    }
 
     override fun get(redisConnection: Optional<RedisConnection>): PersistenceManager {
         return when (config.me.storage) {
@@ -49,6 +61,27 @@ class PersistenceManagerFactoryImpl(private val balancesDatabaseAccessorsHolder:
         }
     }
 
+    override fun getWithGroupCommit(redisConnection: Optional<RedisConnection>): PersistenceManager {
+        val persistenceManager = get(redisConnection)
+        val groupCommitConfig = config.me.redis.groupCommit
+        if (groupCommitConfig == null || persistenceManager !is RedisPersistenceManager) {
+            return persistenceManager
+        }
+        if (!persistOrdersStrategy.get().isRedisTransactionUsed()) {
+            LOGGER.warn("Group commit is disabled: orders are not persisted in redis transaction")
+            return persistenceManager
+        }
+
+        val groupCommitProcessor = RedisGroupCommitProcessor(groupCommitConfig,
+                { persistenceManager.persistBatch(it) },
+                performanceStatsHolder,
+                applicationEventPublisher)
+        persistenceManager.enableGroupCommit(groupCommitProcessor)
+        groupCommitProcessor.start()
+        LOGGER.info("Group commit is enabled, batch size: ${groupCommitConfig.batchSize}, max wait: ${groupCommitConfig.maxWait} ms")
+        return persistenceManager
+    }
+
     private fun createRedisPersistenceManager(redisConnection: RedisConnection,
                                               ordersPersistInSecondaryDbStrategy: OrdersPersistInSecondaryDbStrategy?): RedisPersistenceManager {
         return RedisPersistenceManager(
@@ -62,7 +95,9 @@ class PersistenceManagerFactoryImpl(private val balancesDatabaseAccessorsHolder:
                 redisConnection,
                 config,
                 currentTransactionDataHolder,
-                performanceStatsHolder
+                performanceStatsHolder,
+                messageSequenceNumberHolder,
+                engineStateJournal
         )
     }
 }
\ No newline at end of file
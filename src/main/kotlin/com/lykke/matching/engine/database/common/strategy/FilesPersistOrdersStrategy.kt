@@ -1,5 +1,6 @@
 package com.lykke.matching.engine.database.common.strategy
 
+import com.lykke.matching.engine.database.IncrementalOrdersDatabaseAccessor
 import com.lykke.matching.engine.database.common.entity.OrderBooksPersistenceData
 import com.lykke.matching.engine.holders.OrdersDatabaseAccessorsHolder
 import com.lykke.matching.engine.holders.StopOrdersDatabaseAccessorsHolder
@@ -24,6 +25,10 @@ class FilesPersistOrdersStrategy(private val ordersDatabaseAccessorsHolder: Orde
         }
 
         val orderBookDatabaseAccessor = ordersDatabaseAccessorsHolder.primaryAccessor
+        if (orderBookDatabaseAccessor is IncrementalOrdersDatabaseAccessor) {
+            orderBookDatabaseAccessor.updateOrders(data.ordersToSave, data.ordersToRemove)
+            return
+        }
         data.orderBooks.forEach {
             orderBookDatabaseAccessor.updateOrderBook(it.assetPairId, it.isBuy, it.orders)
         }
@@ -35,6 +40,10 @@ class FilesPersistOrdersStrategy(private val ordersDatabaseAccessorsHolder: Orde
         }
 
         val stopOrderBookDatabaseAccessor = stopOrdersDatabaseAccessorsHolder.primaryAccessor
+        if (stopOrderBookDatabaseAccessor is IncrementalOrdersDatabaseAccessor) {
+            stopOrderBookDatabaseAccessor.updateOrders(data.ordersToSave, data.ordersToRemove)
+            return
+        }
         data.orderBooks.forEach {
             stopOrderBookDatabaseAccessor.updateStopOrderBook(it.assetPairId, it.isBuy, it.orders)
         }
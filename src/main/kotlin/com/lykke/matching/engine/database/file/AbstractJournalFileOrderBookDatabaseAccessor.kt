@@ -0,0 +1,73 @@
+package com.lykke.matching.engine.database.file
+
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.database.IncrementalOrdersDatabaseAccessor
+import com.lykke.matching.engine.database.file.journal.OrdersJournal
+import com.lykke.matching.engine.utils.config.OrderBookJournalConfig
+import com.lykke.utils.logging.MetricsLogger
+import com.lykke.utils.logging.ThrottlingLogger
+import java.nio.file.Paths
+
+/**
+ * Saves order changes to append only journal instead of rewriting order book side files.
+ * Orders from order book side files are moved to the journal on the first load.
+ */
+abstract class AbstractJournalFileOrderBookDatabaseAccessor(ordersDir: String,
+                                                            config: OrderBookJournalConfig,
+                                                            logPrefix: String = "")
+    : AbstractFileOrderBookDatabaseAccessor(ordersDir, logPrefix), IncrementalOrdersDatabaseAccessor {
+
+    companion object {
+        private val LOGGER = ThrottlingLogger.getLogger(AbstractJournalFileOrderBookDatabaseAccessor::class.java.name)
+        private val METRICS_LOGGER = MetricsLogger.getLogger()
+        private const val JOURNAL_DIR = "journal"
+    }
+
+    private val logPrefix = if (logPrefix.isNotEmpty()) "$logPrefix " else ""
+    private val journal = OrdersJournal(Paths.get(ordersDir, JOURNAL_DIR).toString(), config.segmentSize, config.syncOnWrite, logPrefix)
+
+    protected fun loadOrdersFromJournal(): List<LimitOrder> {
+        if (journal.isEmpty()) {
+            val orders = loadOrdersFromFiles()
+            journal.init(orders)
+            LOGGER.info("${orders.size} ${logPrefix}orders are moved from order book files to journal")
+            return orders
+        }
+        return journal.load()
+    }
+
+    override fun updateOrders(ordersToSave: Collection<LimitOrder>, ordersToRemove: Collection<LimitOrder>) {
+        if (ordersToSave.isEmpty() && ordersToRemove.isEmpty()) {
+            return
+        }
+        try {
+            journal.appendUpdate(ordersToSave, ordersToRemove)
+        } catch (e: Exception) {
+            val message = "Unable to save ${logPrefix}orders to journal, to save: ${ordersToSave.size}, to remove: ${ordersToRemove.size}"
+            LOGGER.error(message, e)
+            METRICS_LOGGER.logError(message, e)
+            throw e
+        }
+    }
+
+    protected fun updateOrderBookSide(assetPairId: String, isBuy: Boolean, orders: Collection<LimitOrder>) {
+        try {
+            journal.appendOrderBookSide(assetPairId, isBuy, orders)
+        } catch (e: Exception) {
+            val message = "Unable to save ${logPrefix}order book to journal, size: ${orders.size}"
+            LOGGER.error(message, e)
+            METRICS_LOGGER.logError(message, e)
+            throw e
+        }
+    }
+
+    fun compact() {
+        try {
+            journal.compact()
+        } catch (e: Exception) {
+            val message = "Unable to compact ${logPrefix}orders journal"
+            LOGGER.error(message, e)
+            METRICS_LOGGER.logError(message, e)
+        }
+    }
+}
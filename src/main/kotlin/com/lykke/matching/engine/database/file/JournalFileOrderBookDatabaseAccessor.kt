@@ -0,0 +1,17 @@
+package com.lykke.matching.engine.database.file
+
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.database.OrderBookDatabaseAccessor
+import com.lykke.matching.engine.utils.config.OrderBookJournalConfig
+
+class JournalFileOrderBookDatabaseAccessor(ordersDir: String, config: OrderBookJournalConfig)
+    : AbstractJournalFileOrderBookDatabaseAccessor(ordersDir, config), OrderBookDatabaseAccessor {
+
+    override fun loadLimitOrders(): List<LimitOrder> {
+        return loadOrdersFromJournal()
+    }
+
+    override fun updateOrderBook(asset: String, isBuy: Boolean, orderBook: Collection<LimitOrder>) {
+        updateOrderBookSide(asset, isBuy, orderBook)
+    }
+}
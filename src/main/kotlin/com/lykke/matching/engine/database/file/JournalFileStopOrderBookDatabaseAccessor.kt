@@ -0,0 +1,17 @@
+package com.lykke.matching.engine.database.file
+
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.database.StopOrderBookDatabaseAccessor
+import com.lykke.matching.engine.utils.config.OrderBookJournalConfig
+
+class JournalFileStopOrderBookDatabaseAccessor(ordersDir: String, config: OrderBookJournalConfig)
+    : AbstractJournalFileOrderBookDatabaseAccessor(ordersDir, config, "stop"), StopOrderBookDatabaseAccessor {
+
+    override fun loadStopLimitOrders(): List<LimitOrder> {
+        return loadOrdersFromJournal()
+    }
+
+    override fun updateStopOrderBook(assetPairId: String, isBuy: Boolean, orderBook: Collection<LimitOrder>) {
+        updateOrderBookSide(assetPairId, isBuy, orderBook)
+    }
+}
@@ -0,0 +1,326 @@
+package com.lykke.matching.engine.database.file.journal
+
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.utils.logging.MetricsLogger
+import com.lykke.utils.logging.ThrottlingLogger
+import org.nustaq.serialization.FSTConfiguration
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.util.stream.Collectors
+import java.util.zip.CRC32
+
+/**
+ * Append only journal of order changes.
+ *
+ * Records are appended to segment files, each record is framed with its length and CRC32 checksum.
+ * A new segment is started when the current one exceeds [segmentSize] bytes.
+ * [compact] writes a snapshot of all orders and deletes segments which are covered by the snapshots,
+ * the last [SNAPSHOTS_TO_KEEP] snapshots are kept to be able to load orders if the latest snapshot is broken.
+ * Orders are loaded from the latest valid snapshot and segment records appended after it.
+ */
+class OrdersJournal(journalDir: String,
+                    private val segmentSize: Long,
+                    private val syncOnWrite: Boolean,
+                    logPrefix: String = "") {
+
+    companion object {
+        private val LOGGER = ThrottlingLogger.getLogger(OrdersJournal::class.java.name)
+        private val METRICS_LOGGER = MetricsLogger.getLogger()
+        private const val SEGMENT_FILE_PREFIX = "segment_"
+        private const val SNAPSHOT_FILE_PREFIX = "snapshot_"
+        private const val TMP_FILE_SUFFIX = ".tmp"
+        private const val FRAME_HEADER_SIZE = 8
+        private const val SNAPSHOTS_TO_KEEP = 2
+    }
+
+    private val logPrefix = if (logPrefix.isNotEmpty()) "$logPrefix " else ""
+    private val conf = FSTConfiguration.createDefaultConfiguration()
+    private val journalPath = Paths.get(journalDir)
+    private val compactionLock = Any()
+
+    private var segmentChannel: FileChannel? = null
+    private var segmentChannelSize = 0L
+    private var nextSequenceNumber: Long? = null
+
+    init {
+        Files.createDirectories(journalPath)
+    }
+
+    fun isEmpty(): Boolean {
+        return getFiles(SNAPSHOT_FILE_PREFIX).isEmpty() && getFiles(SEGMENT_FILE_PREFIX).isEmpty()
+    }
+
+    fun load(): List<LimitOrder> {
+        val state = readState(Long.MAX_VALUE)
+        LOGGER.info("Loaded ${state.orders.size} ${logPrefix}orders from journal, last record: ${state.sequenceNumber}")
+        return ArrayList(state.orders.values)
+    }
+
+    /** Saves initial state of empty journal */
+    @Synchronized
+    fun init(orders: Collection<LimitOrder>) {
+        if (!isEmpty()) {
+            throw IllegalStateException("${logPrefix}orders journal is not empty")
+        }
+        writeSnapshot(0, orders)
+    }
+
+    @Synchronized
+    fun appendUpdate(ordersToSave: Collection<LimitOrder>, ordersToRemove: Collection<LimitOrder>) {
+        append { OrdersUpdateRecord(it, ArrayList(ordersToSave), ordersToRemove.mapTo(ArrayList()) { order -> order.id }) }
+    }
+
+    @Synchronized
+    fun appendOrderBookSide(assetPairId: String, isBuy: Boolean, orders: Collection<LimitOrder>) {
+        append { OrderBookSideRecord(it, assetPairId, isBuy, ArrayList(orders)) }
+    }
+
+    fun compact() {
+        synchronized(compactionLock) {
+            val startTime = System.currentTimeMillis()
+            val lastSequenceNumber = closeSegment()
+            val snapshotSequenceNumber = getFiles(SNAPSHOT_FILE_PREFIX).keys.max() ?: 0L
+            if (lastSequenceNumber <= snapshotSequenceNumber) {
+                return
+            }
+
+            val state = readState(lastSequenceNumber)
+            writeSnapshot(state.sequenceNumber, state.orders.values)
+            deleteObsoleteFiles()
+            LOGGER.info("${logPrefix}orders journal is compacted, snapshot: ${state.sequenceNumber}, " +
+                    "orders: ${state.orders.size}, time: ${System.currentTimeMillis() - startTime} ms")
+        }
+    }
+
+    private fun append(createRecord: (sequenceNumber: Long) -> OrdersJournalRecord) {
+        val sequenceNumber = getNextSequenceNumber()
+        val frame = createFrame(conf.asByteArray(createRecord(sequenceNumber)))
+        val channel = getSegmentChannel(sequenceNumber)
+        try {
+            while (frame.hasRemaining()) {
+                channel.write(frame)
+            }
+            if (syncOnWrite) {
+                channel.force(false)
+            }
+        } catch (e: Exception) {
+            // partially written record is cut when the journal is reopened on the next append
+            segmentChannel = null
+            nextSequenceNumber = null
+            channel.close()
+            throw e
+        }
+        segmentChannelSize += frame.limit()
+        nextSequenceNumber = sequenceNumber + 1
+    }
+
+    /** @return sequence number of the last record of closed segment */
+    @Synchronized
+    private fun closeSegment(): Long {
+        val lastSequenceNumber = getNextSequenceNumber() - 1
+        segmentChannel?.close()
+        segmentChannel = null
+        return lastSequenceNumber
+    }
+
+    private fun getSegmentChannel(sequenceNumber: Long): FileChannel {
+        val channel = segmentChannel
+        if (channel != null && segmentChannelSize < segmentSize) {
+            return channel
+        }
+        channel?.close()
+
+        val newChannel = FileChannel.open(getFilePath(SEGMENT_FILE_PREFIX, sequenceNumber), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)
+        segmentChannel = newChannel
+        segmentChannelSize = 0
+        return newChannel
+    }
+
+    private fun getNextSequenceNumber(): Long {
+        nextSequenceNumber?.let {
+            return it
+        }
+
+        // journal is opened for writing: records are appended to a new segment, broken tail of the last segment is cut
+        var lastSequenceNumber = getFiles(SNAPSHOT_FILE_PREFIX).keys.max() ?: 0L
+        val lastSegment = getFiles(SEGMENT_FILE_PREFIX).entries.lastOrNull()
+        if (lastSegment != null) {
+            var lastSegmentSequenceNumber: Long? = null
+            val validLength = readFrames(lastSegment.value) { lastSegmentSequenceNumber = (it as OrdersJournalRecord).sequenceNumber }
+            if (validLength == 0L) {
+                Files.delete(lastSegment.value)
+            } else if (validLength < Files.size(lastSegment.value)) {
+                LOGGER.warn("Broken tail of ${logPrefix}orders journal segment ${lastSegment.value.fileName} is cut, valid length: $validLength")
+                FileChannel.open(lastSegment.value, StandardOpenOption.WRITE).use { it.truncate(validLength) }
+            }
+            lastSequenceNumber = Math.max(lastSequenceNumber, lastSegmentSequenceNumber ?: lastSegment.key - 1)
+        }
+
+        val result = lastSequenceNumber + 1
+        nextSequenceNumber = result
+        return result
+    }
+
+    private fun readState(maxSequenceNumber: Long): JournalState {
+        val state = readLatestSnapshot()
+
+        val segments = getFiles(SEGMENT_FILE_PREFIX).entries.filter { it.key <= maxSequenceNumber }
+        for (i in segments.indices) {
+            if (i < segments.size - 1 && segments[i + 1].key <= state.sequenceNumber + 1) {
+                // all records of segment are included in snapshot
+                continue
+            }
+
+            val segmentPath = segments[i].value
+            val validLength = readFrames(segmentPath) {
+                val record = it as OrdersJournalRecord
+                if (record.sequenceNumber > state.sequenceNumber && record.sequenceNumber <= maxSequenceNumber) {
+                    if (record.sequenceNumber != state.sequenceNumber + 1) {
+                        LOGGER.warn("${logPrefix}orders journal records are missed: ${state.sequenceNumber + 1} - ${record.sequenceNumber - 1}")
+                    }
+                    state.apply(record)
+                }
+            }
+
+            if (validLength < Files.size(segmentPath)) {
+                if (i == segments.size - 1) {
+                    LOGGER.warn("${logPrefix}orders journal segment ${segmentPath.fileName} has broken tail, valid length: $validLength")
+                } else {
+                    val message = "${logPrefix}orders journal segment ${segmentPath.fileName} is broken, " +
+                            "records after ${state.sequenceNumber} are skipped"
+                    LOGGER.error(message)
+                    METRICS_LOGGER.logError(message)
+                    break
+                }
+            }
+        }
+        return state
+    }
+
+    private fun readLatestSnapshot(): JournalState {
+        getFiles(SNAPSHOT_FILE_PREFIX).values.reversed().forEach { snapshotPath ->
+            var snapshot: OrdersSnapshot? = null
+            try {
+                readFrames(snapshotPath) { snapshot = it as OrdersSnapshot }
+            } catch (e: Exception) {
+                LOGGER.error("Unable to read ${logPrefix}orders snapshot ${snapshotPath.fileName}", e)
+            }
+
+            val result = snapshot
+            if (result != null) {
+                val state = JournalState(result.sequenceNumber)
+                result.orders.forEach { state.orders[it.id] = it }
+                return state
+            }
+            val message = "${logPrefix}orders snapshot ${snapshotPath.fileName} is broken, trying to load previous one"
+            LOGGER.error(message)
+            METRICS_LOGGER.logError(message)
+        }
+        return JournalState(0)
+    }
+
+    private fun writeSnapshot(sequenceNumber: Long, orders: Collection<LimitOrder>) {
+        val snapshotPath = getFilePath(SNAPSHOT_FILE_PREFIX, sequenceNumber)
+        val tmpPath = Paths.get("$snapshotPath$TMP_FILE_SUFFIX")
+        val frame = createFrame(conf.asByteArray(OrdersSnapshot(sequenceNumber, ArrayList(orders))))
+        FileChannel.open(tmpPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE).use { channel ->
+            while (frame.hasRemaining()) {
+                channel.write(frame)
+            }
+            channel.force(true)
+        }
+        Files.move(tmpPath, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING)
+    }
+
+    private fun deleteObsoleteFiles() {
+        val snapshots = getFiles(SNAPSHOT_FILE_PREFIX).entries.reversed()
+        if (snapshots.size < SNAPSHOTS_TO_KEEP) {
+            return
+        }
+        snapshots.drop(SNAPSHOTS_TO_KEEP).forEach { Files.deleteIfExists(it.value) }
+
+        val oldestSnapshotSequenceNumber = snapshots[SNAPSHOTS_TO_KEEP - 1].key
+        val segments = getFiles(SEGMENT_FILE_PREFIX).entries.toList()
+        for (i in 0 until segments.size - 1) {
+            if (segments[i + 1].key - 1 <= oldestSnapshotSequenceNumber) {
+                Files.deleteIfExists(segments[i].value)
+            }
+        }
+    }
+
+    /** @return length of the valid part of the file */
+    private fun readFrames(path: Path, consumer: (Any) -> Unit): Long {
+        val buffer = ByteBuffer.wrap(Files.readAllBytes(path))
+        val crc = CRC32()
+        while (buffer.remaining() >= FRAME_HEADER_SIZE) {
+            val frameStart = buffer.position()
+            val length = buffer.int
+            val checksum = buffer.int
+            if (length < 0 || length > buffer.remaining()) {
+                return frameStart.toLong()
+            }
+
+            val payload = ByteArray(length)
+            buffer.get(payload)
+            crc.reset()
+            crc.update(payload)
+            if (crc.value.toInt() != checksum) {
+                return frameStart.toLong()
+            }
+            consumer(conf.asObject(payload))
+        }
+        return buffer.position().toLong()
+    }
+
+    private fun createFrame(payload: ByteArray): ByteBuffer {
+        val crc = CRC32()
+        crc.update(payload)
+        val frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + payload.size)
+        frame.putInt(payload.size)
+        frame.putInt(crc.value.toInt())
+        frame.put(payload)
+        frame.flip()
+        return frame
+    }
+
+    /** @return files sorted by sequence number */
+    private fun getFiles(prefix: String): Map<Long, Path> {
+        val result = sortedMapOf<Long, Path>()
+        Files.list(journalPath).use { paths ->
+            paths.collect(Collectors.toList()).forEach { path ->
+                val fileName = path.fileName.toString()
+                if (fileName.startsWith(prefix) && !fileName.endsWith(TMP_FILE_SUFFIX)) {
+                    fileName.removePrefix(prefix).toLongOrNull()?.let { result[it] = path }
+                }
+            }
+        }
+        return result
+    }
+
+    private fun getFilePath(prefix: String, sequenceNumber: Long): Path {
+        return journalPath.resolve(prefix + String.format("%020d", sequenceNumber))
+    }
+
+    private class JournalState(var sequenceNumber: Long) {
+        val orders = LinkedHashMap<String, LimitOrder>()
+
+        fun apply(record: OrdersJournalRecord) {
+            when (record) {
+                is OrdersUpdateRecord -> {
+                    record.orderIdsToRemove.forEach { orders.remove(it) }
+                    record.ordersToSave.forEach { orders[it.id] = it }
+                }
+                is OrderBookSideRecord -> {
+                    orders.values.removeIf { it.assetPairId == record.assetPairId && it.isBuySide() == record.isBuy }
+                    record.orders.forEach { orders[it.id] = it }
+                }
+            }
+            sequenceNumber = record.sequenceNumber
+        }
+    }
+}
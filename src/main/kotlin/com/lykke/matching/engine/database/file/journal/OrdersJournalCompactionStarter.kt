@@ -0,0 +1,35 @@
+package com.lykke.matching.engine.database.file.journal
+
+import com.lykke.matching.engine.database.file.AbstractJournalFileOrderBookDatabaseAccessor
+import com.lykke.matching.engine.holders.OrdersDatabaseAccessorsHolder
+import com.lykke.matching.engine.holders.StopOrdersDatabaseAccessorsHolder
+import com.lykke.matching.engine.utils.config.Config
+import org.springframework.context.annotation.Profile
+import org.springframework.scheduling.TaskScheduler
+import org.springframework.stereotype.Component
+import java.time.Duration
+import java.time.ZonedDateTime
+import javax.annotation.PostConstruct
+
+@Component
+@Profile("default")
+class OrdersJournalCompactionStarter(private val ordersDatabaseAccessorsHolder: OrdersDatabaseAccessorsHolder,
+                                     private val stopOrdersDatabaseAccessorsHolder: StopOrdersDatabaseAccessorsHolder,
+                                     private val taskScheduler: TaskScheduler,
+                                     private val config: Config) {
+    @PostConstruct
+    fun start() {
+        val journalConfig = config.me.orderBookJournal ?: return
+        val accessors = listOf(ordersDatabaseAccessorsHolder.primaryAccessor, stopOrdersDatabaseAccessorsHolder.primaryAccessor)
+                .filterIsInstance<AbstractJournalFileOrderBookDatabaseAccessor>()
+        if (accessors.isEmpty()) {
+            return
+        }
+
+        taskScheduler.scheduleWithFixedDelay({
+            Thread.currentThread().name = "OrdersJournalCompaction"
+            accessors.forEach { it.compact() }
+        }, ZonedDateTime.now().toInstant().plusMillis(journalConfig.compactionInterval),
+                Duration.ofMillis(journalConfig.compactionInterval))
+    }
+}
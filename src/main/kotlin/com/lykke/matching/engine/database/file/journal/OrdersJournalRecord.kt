@@ -0,0 +1,21 @@
+package com.lykke.matching.engine.database.file.journal
+
+import com.lykke.matching.engine.daos.LimitOrder
+import java.io.Serializable
+
+abstract class OrdersJournalRecord(val sequenceNumber: Long) : Serializable
+
+/** Changed orders of one persisted message */
+class OrdersUpdateRecord(sequenceNumber: Long,
+                         val ordersToSave: ArrayList<LimitOrder>,
+                         val orderIdsToRemove: ArrayList<String>) : OrdersJournalRecord(sequenceNumber)
+
+/** All orders of an order book side, replaces previously saved orders of the side */
+class OrderBookSideRecord(sequenceNumber: Long,
+                          val assetPairId: String,
+                          val isBuy: Boolean,
+                          val orders: ArrayList<LimitOrder>) : OrdersJournalRecord(sequenceNumber)
+
+/** State of all order books after the record with [sequenceNumber] is applied */
+class OrdersSnapshot(val sequenceNumber: Long,
+                     val orders: ArrayList<LimitOrder>) : Serializable
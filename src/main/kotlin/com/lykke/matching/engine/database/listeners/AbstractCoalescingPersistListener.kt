@@ -0,0 +1,105 @@
+package com.lykke.matching.engine.database.listeners
+
+import com.lykke.matching.engine.performance.ReplicationLag
+import com.lykke.utils.logging.MetricsLogger
+import org.slf4j.LoggerFactory
+import java.util.ArrayList
+import java.util.LinkedHashMap
+import java.util.concurrent.BlockingQueue
+import java.util.concurrent.TimeUnit
+import javax.annotation.PostConstruct
+import kotlin.concurrent.thread
+
+/**
+ * Writes data of persist events to the secondary database.
+ *
+ * Events are drained from the queue by batches and merged by key, only the latest value of each key is kept.
+ * Merged values are written at most once per [flushInterval] ms, failed write is retried on the next flush
+ * with values merged meanwhile.
+ */
+abstract class AbstractCoalescingPersistListener<E, K, V>(private val queue: BlockingQueue<E>,
+                                                          val name: String,
+                                                          flushInterval: Long?) {
+
+    companion object {
+        private val LOGGER = LoggerFactory.getLogger(AbstractCoalescingPersistListener::class.java.name)
+        private val METRICS_LOGGER = MetricsLogger.getLogger()
+        private const val DEFAULT_FLUSH_INTERVAL = 100L
+    }
+
+    private val flushInterval = flushInterval ?: DEFAULT_FLUSH_INTERVAL
+
+    private val pendingValues = LinkedHashMap<K, V>()
+    private val events = ArrayList<E>()
+    private var lastFlushTime = 0L
+
+    @Volatile
+    private var pendingEventsCount = 0
+    @Volatile
+    private var oldestPendingEventTimestamp = 0L
+
+    protected abstract fun getTimestamp(event: E): Long
+
+    protected abstract fun merge(event: E, values: MutableMap<K, V>)
+
+    protected abstract fun write(values: Collection<V>)
+
+    /** Count of events not written yet and age of the oldest of them in ms */
+    fun getLag(): ReplicationLag {
+        val queuedEventsCount = queue.size
+        val oldestEventTimestamp = if (pendingEventsCount > 0) oldestPendingEventTimestamp else queue.peek()?.let { getTimestamp(it) }
+        return ReplicationLag(pendingEventsCount + queuedEventsCount,
+                oldestEventTimestamp?.let { System.currentTimeMillis() - it } ?: 0L)
+    }
+
+    @PostConstruct
+    fun init() {
+        thread(name = "${javaClass.name}.asyncWriter") {
+            while (true) {
+                try {
+                    takeEvents()
+                    if (pendingEventsCount > 0 && System.currentTimeMillis() - lastFlushTime >= flushInterval) {
+                        flush()
+                    }
+                } catch (e: InterruptedException) {
+                    Thread.currentThread().interrupt()
+                    return@thread
+                } catch (e: Exception) {
+                    val message = "Unable to save $name"
+                    LOGGER.error(message, e)
+                    METRICS_LOGGER.logError(message, e)
+                }
+            }
+        }
+    }
+
+    private fun takeEvents() {
+        val event = if (pendingEventsCount == 0) {
+            queue.take()
+        } else {
+            queue.poll(Math.max(0, lastFlushTime + flushInterval - System.currentTimeMillis()), TimeUnit.MILLISECONDS)
+        }
+        if (event == null) {
+            return
+        }
+        events.add(event)
+        queue.drainTo(events)
+
+        if (pendingEventsCount == 0) {
+            oldestPendingEventTimestamp = getTimestamp(event)
+        }
+        try {
+            events.forEach { merge(it, pendingValues) }
+            pendingEventsCount += events.size
+        } finally {
+            events.clear()
+        }
+    }
+
+    private fun flush() {
+        lastFlushTime = System.currentTimeMillis()
+        write(pendingValues.values)
+        pendingValues.clear()
+        pendingEventsCount = 0
+    }
+}
@@ -2,31 +2,28 @@ package com.lykke.matching.engine.database.listeners
 
 import com.lykke.matching.engine.common.QueueConsumer
 import com.lykke.matching.engine.database.OrderBookDatabaseAccessor
+import com.lykke.matching.engine.database.common.OrderBookSide
+import com.lykke.matching.engine.database.common.entity.OrderBookPersistenceData
 import com.lykke.matching.engine.database.reconciliation.events.OrderBookPersistEvent
-import org.slf4j.LoggerFactory
 import java.util.concurrent.BlockingQueue
-import javax.annotation.PostConstruct
-import kotlin.concurrent.thread
 
-class OrderBookPersistListener(private val updatedOrderBooksQueue: BlockingQueue<OrderBookPersistEvent>,
-                               private val secondaryOrdersAccessor: OrderBookDatabaseAccessor) : QueueConsumer<OrderBookPersistEvent> {
-    companion object {
-        private val LOGGER = LoggerFactory.getLogger(OrderBookPersistListener::class.java.name)
+class OrderBookPersistListener(updatedOrderBooksQueue: BlockingQueue<OrderBookPersistEvent>,
+                               private val secondaryOrdersAccessor: OrderBookDatabaseAccessor,
+                               flushInterval: Long? = null)
+    : AbstractCoalescingPersistListener<OrderBookPersistEvent, OrderBookSide, OrderBookPersistenceData>(updatedOrderBooksQueue, "orders", flushInterval),
+        QueueConsumer<OrderBookPersistEvent> {
+
+    override fun getTimestamp(event: OrderBookPersistEvent) = event.timestamp
+
+    override fun merge(event: OrderBookPersistEvent, values: MutableMap<OrderBookSide, OrderBookPersistenceData>) {
+        event.persistenceData.forEach {
+            values[OrderBookSide(it.assetPairId, it.isBuy)] = it
+        }
     }
 
-    @PostConstruct
-    private fun init() {
-        thread(name = "${OrderBookPersistListener::class.java.name}.ordersAsyncWriter") {
-            while (true) {
-                try {
-                    val orderBooks = updatedOrderBooksQueue.take()
-                    orderBooks.persistenceData.forEach {
-                        secondaryOrdersAccessor.updateOrderBook(it.assetPairId, it.isBuy, it.orders)
-                    }
-                } catch (e: Exception) {
-                    LOGGER.error("Unable to save orders async", e)
-                }
-            }
+    override fun write(values: Collection<OrderBookPersistenceData>) {
+        values.forEach {
+            secondaryOrdersAccessor.updateOrderBook(it.assetPairId, it.isBuy, it.orders)
         }
     }
-}
\ No newline at end of file
+}
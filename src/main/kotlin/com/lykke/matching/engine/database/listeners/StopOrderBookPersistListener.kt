@@ -2,32 +2,28 @@ package com.lykke.matching.engine.database.listeners
 
 import com.lykke.matching.engine.common.QueueConsumer
 import com.lykke.matching.engine.database.StopOrderBookDatabaseAccessor
+import com.lykke.matching.engine.database.common.OrderBookSide
+import com.lykke.matching.engine.database.common.entity.OrderBookPersistenceData
 import com.lykke.matching.engine.database.reconciliation.events.StopOrderBookPersistEvent
-import org.slf4j.LoggerFactory
 import java.util.concurrent.BlockingQueue
-import javax.annotation.PostConstruct
-import kotlin.concurrent.thread
 
-class StopOrderBookPersistListener(private val updatedStopOrderBooksQueue: BlockingQueue<StopOrderBookPersistEvent>,
-                                   private val secondaryStopOrdersAccessor: StopOrderBookDatabaseAccessor): QueueConsumer<StopOrderBookPersistEvent> {
+class StopOrderBookPersistListener(updatedStopOrderBooksQueue: BlockingQueue<StopOrderBookPersistEvent>,
+                                   private val secondaryStopOrdersAccessor: StopOrderBookDatabaseAccessor,
+                                   flushInterval: Long? = null)
+    : AbstractCoalescingPersistListener<StopOrderBookPersistEvent, OrderBookSide, OrderBookPersistenceData>(updatedStopOrderBooksQueue, "stop orders", flushInterval),
+        QueueConsumer<StopOrderBookPersistEvent> {
 
-    companion object {
-        private val LOGGER = LoggerFactory.getLogger(StopOrderBookPersistListener::class.java.name)
+    override fun getTimestamp(event: StopOrderBookPersistEvent) = event.timestamp
+
+    override fun merge(event: StopOrderBookPersistEvent, values: MutableMap<OrderBookSide, OrderBookPersistenceData>) {
+        event.persistenceData.forEach {
+            values[OrderBookSide(it.assetPairId, it.isBuy)] = it
+        }
     }
 
-    @PostConstruct
-    private fun init() {
-        thread(name = "${StopOrderBookPersistListener::class.java.name}.stopOrdersAsyncWriter") {
-            while (true) {
-                try {
-                    val orderBooks = updatedStopOrderBooksQueue.take()
-                    orderBooks.persistenceData.forEach {
-                        secondaryStopOrdersAccessor.updateStopOrderBook(it.assetPairId, it.isBuy, it.orders)
-                    }
-                } catch (e: Exception) {
-                    LOGGER.error("Unable to save stop orders async", e)
-                }
-            }
+    override fun write(values: Collection<OrderBookPersistenceData>) {
+        values.forEach {
+            secondaryStopOrdersAccessor.updateStopOrderBook(it.assetPairId, it.isBuy, it.orders)
         }
     }
-}
\ No newline at end of file
+}
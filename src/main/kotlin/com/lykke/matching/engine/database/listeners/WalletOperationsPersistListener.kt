@@ -1,30 +1,30 @@
 package com.lykke.matching.engine.database.listeners
 
 import com.lykke.matching.engine.common.QueueConsumer
+import com.lykke.matching.engine.daos.wallet.Wallet
 import com.lykke.matching.engine.database.WalletDatabaseAccessor
 import com.lykke.matching.engine.database.reconciliation.events.AccountPersistEvent
-import org.slf4j.LoggerFactory
 import java.util.concurrent.BlockingQueue
-import javax.annotation.PostConstruct
-import kotlin.concurrent.thread
 
-class WalletOperationsPersistListener(private val updatedWalletsQueue: BlockingQueue<AccountPersistEvent>,
-                                      private val secondaryBalancesAccessor: WalletDatabaseAccessor) : QueueConsumer<AccountPersistEvent> {
-    companion object {
-        private val LOGGER = LoggerFactory.getLogger(WalletOperationsPersistListener::class.java.name)
-    }
+/**
+ * Events contain whole wallets (secondary database stores all balances of a wallet in one entity),
+ * so the latest wallet is kept per client
+ */
+class WalletOperationsPersistListener(updatedWalletsQueue: BlockingQueue<AccountPersistEvent>,
+                                      private val secondaryBalancesAccessor: WalletDatabaseAccessor,
+                                      flushInterval: Long? = null)
+    : AbstractCoalescingPersistListener<AccountPersistEvent, String, Wallet>(updatedWalletsQueue, "wallets", flushInterval),
+        QueueConsumer<AccountPersistEvent> {
+
+    override fun getTimestamp(event: AccountPersistEvent) = event.timestamp
 
-    @PostConstruct
-    fun init() {
-        thread(name = "${WalletOperationsPersistListener::class.java.name}.asyncBalancesWriter") {
-            while (true) {
-                try {
-                    val wallets = updatedWalletsQueue.take().persistenceData
-                    secondaryBalancesAccessor.insertOrUpdateWallets(wallets.toList())
-                } catch (e: Exception) {
-                    LOGGER.error("Unable to save wallets", e)
-                }
-            }
+    override fun merge(event: AccountPersistEvent, values: MutableMap<String, Wallet>) {
+        event.persistenceData.forEach {
+            values[it.clientId] = it
         }
     }
-}
\ No newline at end of file
+
+    override fun write(values: Collection<Wallet>) {
+        secondaryBalancesAccessor.insertOrUpdateWallets(values.toList())
+    }
+}
@@ -34,10 +34,10 @@ class OrdersMigrationService(private val config: Config,
     private val fileOrderBookDatabaseAccessor = FileOrderBookDatabaseAccessor(config.me.orderBookPath)
     private val fileStopOrderBookDatabaseAccessor = FileStopOrderBookDatabaseAccessor(config.me.stopOrderBookPath)
     private val redisOrderBookDatabaseAccessor = if (initialLoadingRedisConnection.isPresent)
-        RedisOrderBookDatabaseAccessor(initialLoadingRedisConnection.get(), config.me.redis.ordersDatabase)
+        RedisOrderBookDatabaseAccessor(initialLoadingRedisConnection.get(), config.me.redis.ordersDatabase, config.me.redis.initialLoad)
     else null
     private val redisStopOrderBookDatabaseAccessor = if (initialLoadingRedisConnection.isPresent)
-        RedisStopOrderBookDatabaseAccessor(initialLoadingRedisConnection.get(), config.me.redis.ordersDatabase)
+        RedisStopOrderBookDatabaseAccessor(initialLoadingRedisConnection.get(), config.me.redis.ordersDatabase, config.me.redis.initialLoad)
     else null
 
     override fun run(args: ApplicationArguments?) {
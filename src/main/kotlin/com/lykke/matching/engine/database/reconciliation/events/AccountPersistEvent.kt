@@ -2,4 +2,5 @@ package com.lykke.matching.engine.database.reconciliation.events
 
 import com.lykke.matching.engine.daos.wallet.Wallet
 
-class AccountPersistEvent(val persistenceData: Collection<Wallet>)
\ No newline at end of file
+class AccountPersistEvent(val persistenceData: Collection<Wallet>,
+                          val timestamp: Long = System.currentTimeMillis())
\ No newline at end of file
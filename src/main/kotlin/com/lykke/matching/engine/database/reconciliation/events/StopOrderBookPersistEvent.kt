@@ -2,4 +2,5 @@ package com.lykke.matching.engine.database.reconciliation.events
 
 import com.lykke.matching.engine.database.common.entity.OrderBookPersistenceData
 
-class StopOrderBookPersistEvent(val persistenceData: Collection<OrderBookPersistenceData>)
\ No newline at end of file
+class StopOrderBookPersistEvent(val persistenceData: Collection<OrderBookPersistenceData>,
+                                val timestamp: Long = System.currentTimeMillis())
\ No newline at end of file
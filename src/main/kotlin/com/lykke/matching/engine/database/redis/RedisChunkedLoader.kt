@@ -0,0 +1,199 @@
+package com.lykke.matching.engine.database.redis
+
+import com.lykke.matching.engine.database.redis.connection.RedisConnection
+import com.lykke.matching.engine.utils.config.RedisInitialLoadConfig
+import com.lykke.utils.logging.MetricsLogger
+import org.slf4j.LoggerFactory
+import redis.clients.jedis.Jedis
+import redis.clients.jedis.Response
+import redis.clients.jedis.ScanParams
+import java.util.ArrayDeque
+import java.util.ArrayList
+import java.util.HashSet
+import java.util.concurrent.Callable
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinTask
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Loads entities stored under separate redis keys with common prefix.
+ *
+ * Keys are iterated with SCAN, values of [RedisInitialLoadConfig.pipelineChunks] chunks of
+ * [RedisInitialLoadConfig.chunkSize] keys are fetched by MGET commands sent in one pipeline.
+ * Fetched chunks are deserialized in parallel on fork-join pool and passed to consumer on the calling thread in SCAN order.
+ * Number of fetched but not consumed chunks is limited, so raw values of all keys are never kept in memory at once.
+ *
+ * SCAN can return the same key several times. Duplicates are dropped only within keys fetched by one pipeline,
+ * so no set of all scanned keys is kept; consumer can get the same entity more than once and has to merge entities by id.
+ */
+class RedisChunkedLoader(private val redisConnection: RedisConnection,
+                         private val db: Int,
+                         config: RedisInitialLoadConfig?) {
+
+    companion object {
+        private val LOGGER = LoggerFactory.getLogger(RedisChunkedLoader::class.java.name)
+        private val METRICS_LOGGER = MetricsLogger.getLogger()
+        private const val DEFAULT_CHUNK_SIZE = 1000
+        private const val DEFAULT_PIPELINE_CHUNKS = 10
+        private const val PROGRESS_LOG_INTERVAL = 10000L
+    }
+
+    private val chunkSize = config?.chunkSize ?: DEFAULT_CHUNK_SIZE
+    private val pipelineChunks = config?.pipelineChunks ?: DEFAULT_PIPELINE_CHUNKS
+    private val parallelism = config?.parallelism ?: Runtime.getRuntime().availableProcessors()
+
+    /**
+     * @param deserialize converts value of the key to entity, thrown exception is logged and the key is skipped
+     * @return count of loaded entities, including entities of keys returned by SCAN several times
+     */
+    fun <T> load(keyPrefix: String,
+                 entityName: String,
+                 deserialize: (key: String, value: ByteArray) -> T,
+                 consumer: (T) -> Unit): Int {
+        val load = Load(keyPrefix, entityName, deserialize, consumer)
+        try {
+            redisConnection.resource { jedis ->
+                if (jedis.db != db.toLong()) {
+                    jedis.select(db)
+                }
+                load.scanAndFetch(jedis)
+            }
+            load.consumeAll()
+        } finally {
+            load.pool.shutdownNow()
+        }
+        load.logResult()
+        return load.loadedCount
+    }
+
+    private inner class Load<T>(private val keyPrefix: String,
+                                private val entityName: String,
+                                private val deserialize: (key: String, value: ByteArray) -> T,
+                                private val consumer: (T) -> Unit) {
+
+        val pool = ForkJoinPool(parallelism)
+
+        private val startTime = System.nanoTime()
+        private var lastProgressTime = startTime
+
+        /** Keys of chunks of the next pipeline, to drop keys returned by SCAN several times */
+        private val pipelineKeys = HashSet<String>()
+        private var scannedKeysCount = 0L
+        private val pendingChunks = ArrayDeque<ForkJoinTask<List<T>>>()
+        private val maxPendingChunks = pipelineChunks * 2
+
+        var loadedCount = 0
+        private var scanTime = 0L
+        private var fetchTime = 0L
+        private val deserializationTime = AtomicLong()
+        private var applyTime = 0L
+
+        fun scanAndFetch(jedis: Jedis) {
+            val params = ScanParams().match("$keyPrefix*").count(chunkSize)
+            val chunks = ArrayList<List<String>>(pipelineChunks)
+            var chunk = ArrayList<String>(chunkSize)
+            var cursor = ScanParams.SCAN_POINTER_START
+            do {
+                val scanStartTime = System.nanoTime()
+                val scanResult = jedis.scan(cursor, params)
+                scanTime += System.nanoTime() - scanStartTime
+                cursor = scanResult.stringCursor
+                val scanFinished = cursor == ScanParams.SCAN_POINTER_START
+
+                scanResult.result.forEach { key ->
+                    if (pipelineKeys.add(key)) {
+                        scannedKeysCount++
+                        chunk.add(key)
+                        if (chunk.size >= chunkSize) {
+                            chunks.add(chunk)
+                            chunk = ArrayList(chunkSize)
+                        }
+                    }
+                }
+                if (scanFinished && chunk.isNotEmpty()) {
+                    chunks.add(chunk)
+                }
+                if (chunks.size >= pipelineChunks || scanFinished && chunks.isNotEmpty()) {
+                    fetch(jedis, chunks)
+                    chunks.clear()
+                    pipelineKeys.clear()
+                }
+                consumeReady()
+            } while (!scanFinished)
+        }
+
+        private fun fetch(jedis: Jedis, chunks: List<List<String>>) {
+            val fetchStartTime = System.nanoTime()
+            val pipeline = jedis.pipelined()
+            val responses = ArrayList<Response<List<ByteArray>>>(chunks.size)
+            chunks.forEach { chunk ->
+                responses.add(pipeline.mget(*chunk.map { it.toByteArray() }.toTypedArray()))
+            }
+            pipeline.sync()
+            fetchTime += System.nanoTime() - fetchStartTime
+
+            chunks.forEachIndexed { index, chunk ->
+                val values = responses[index].get()
+                pendingChunks.add(pool.submit(Callable<List<T>> { deserializeChunk(chunk, values) }))
+            }
+        }
+
+        private fun deserializeChunk(keys: List<String>, values: List<ByteArray?>): List<T> {
+            val startTime = System.nanoTime()
+            val result = ArrayList<T>(keys.size)
+            keys.forEachIndexed { index, key ->
+                try {
+                    val value = values[index] ?: throw Exception("Value doesn't exist, key: $key")
+                    result.add(deserialize(key, value))
+                } catch (e: Exception) {
+                    val message = "Unable to load $entityName, key: $key"
+                    LOGGER.error(message, e)
+                    METRICS_LOGGER.logError(message, e)
+                }
+            }
+            deserializationTime.addAndGet(System.nanoTime() - startTime)
+            return result
+        }
+
+        private fun consumeReady() {
+            while (pendingChunks.size > maxPendingChunks || pendingChunks.peekFirst()?.isDone == true) {
+                consume(pendingChunks.pollFirst())
+            }
+            logProgress()
+        }
+
+        fun consumeAll() {
+            while (pendingChunks.isNotEmpty()) {
+                consume(pendingChunks.pollFirst())
+                logProgress()
+            }
+        }
+
+        private fun consume(task: ForkJoinTask<List<T>>) {
+            val entities = task.join()
+            val applyStartTime = System.nanoTime()
+            entities.forEach(consumer)
+            applyTime += System.nanoTime() - applyStartTime
+            loadedCount += entities.size
+        }
+
+        private fun logProgress() {
+            val now = System.nanoTime()
+            if (now - lastProgressTime >= TimeUnit.MILLISECONDS.toNanos(PROGRESS_LOG_INTERVAL)) {
+                lastProgressTime = now
+                LOGGER.info("Loading $entityName from redis db $db: $scannedKeysCount keys scanned, $loadedCount loaded, ${toMillis(now - startTime)} ms passed")
+            }
+        }
+
+        fun logResult() {
+            LOGGER.info("Loaded $loadedCount $entityName from redis db $db ($scannedKeysCount keys) in ${toMillis(System.nanoTime() - startTime)} ms: " +
+                    "scan ${toMillis(scanTime)} ms, " +
+                    "fetch ${toMillis(fetchTime)} ms, " +
+                    "deserialization ${toMillis(deserializationTime.get())} ms on $parallelism threads, " +
+                    "apply ${toMillis(applyTime)} ms")
+        }
+
+        private fun toMillis(nanos: Long) = TimeUnit.NANOSECONDS.toMillis(nanos)
+    }
+}
@@ -0,0 +1,181 @@
+package com.lykke.matching.engine.database.redis
+
+import com.lykke.matching.engine.database.common.entity.PersistenceData
+import com.lykke.matching.engine.performance.PerformanceStatsHolder
+import com.lykke.matching.engine.utils.monitoring.HealthMonitorEvent
+import com.lykke.matching.engine.utils.monitoring.MonitoredComponent
+import com.lykke.matching.engine.utils.config.RedisGroupCommitConfig
+import com.lykke.utils.logging.MetricsLogger
+import com.lykke.utils.logging.ThrottlingLogger
+import org.springframework.context.ApplicationEventPublisher
+import java.util.ArrayDeque
+import java.util.ArrayList
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * Accumulates persistence data of consecutive messages and commits it by batches in one redis transaction.
+ *
+ * Batch is committed when it contains [RedisGroupCommitConfig.batchSize] messages
+ * or [RedisGroupCommitConfig.maxWait] ms passed since its first message was submitted.
+ * Actions submitted via [executeAfterCommit] are executed in submission order after all data submitted before them is committed.
+ * Data is already applied to in-memory state when it is submitted, so failed batch is retried until it is committed,
+ * redis is reported as broken component meanwhile.
+ */
+class RedisGroupCommitProcessor(private val config: RedisGroupCommitConfig,
+                                private val commit: (data: List<PersistenceData>) -> Unit,
+                                private val performanceStatsHolder: PerformanceStatsHolder,
+                                private val applicationEventPublisher: ApplicationEventPublisher) : Thread(RedisGroupCommitProcessor::class.java.name) {
+
+    companion object {
+        private val LOGGER = ThrottlingLogger.getLogger(RedisGroupCommitProcessor::class.java.name)
+        private val METRICS_LOGGER = MetricsLogger.getLogger()
+        private const val RETRY_INTERVAL = 1000L
+        private const val HEALTH_QUALIFIER = "groupCommit"
+    }
+
+    private val lock = ReentrantLock()
+    private val batchReady = lock.newCondition()
+    private val batchCommitted = lock.newCondition()
+
+    private val maxWait = TimeUnit.MILLISECONDS.toNanos(config.maxWait)
+
+    private var openBatch: Batch? = null
+
+    /** Closed batches, the first one is being committed or its actions are being executed */
+    private val closedBatches = ArrayDeque<Batch>()
+
+    init {
+        isDaemon = true
+    }
+
+    fun submit(data: PersistenceData) {
+        lock.withLock {
+            while (closedBatches.size >= config.maxPendingBatches) {
+                batchCommitted.await()
+            }
+
+            var batch = openBatch
+            if (batch == null) {
+                batch = Batch(System.nanoTime())
+                openBatch = batch
+            }
+            batch.data.add(data)
+
+            if (batch.data.size >= config.batchSize) {
+                closeOpenBatch()
+            } else if (batch.data.size == 1) {
+                batchReady.signal()
+            }
+        }
+    }
+
+    fun executeAfterCommit(action: () -> Unit) {
+        lock.withLock {
+            val batch = openBatch ?: closedBatches.peekLast()
+            if (batch != null) {
+                batch.actions.add(action)
+                return
+            }
+        }
+        action()
+    }
+
+    override fun run() {
+        while (true) {
+            try {
+                val batch = takeBatch()
+                val commitTime = commitWithRetries(batch)
+                performanceStatsHolder.addPersistenceBatch(batch.data.size, commitTime.first - batch.startTime, commitTime.second)
+                executeActions(batch)
+            } catch (e: InterruptedException) {
+                Thread.currentThread().interrupt()
+                return
+            } catch (e: Exception) {
+                LOGGER.error("Unexpected error during group commit", e)
+                METRICS_LOGGER.logError("Unexpected error during group commit", e)
+            }
+        }
+    }
+
+    private fun takeBatch(): Batch = lock.withLock {
+        var batch = closedBatches.peekFirst()
+        while (batch == null) {
+            val currentOpenBatch = openBatch
+            if (currentOpenBatch == null) {
+                batchReady.await()
+            } else {
+                val waitTime = maxWait - (System.nanoTime() - currentOpenBatch.startTime)
+                if (waitTime <= 0) {
+                    closeOpenBatch()
+                } else {
+                    batchReady.awaitNanos(waitTime)
+                }
+            }
+            batch = closedBatches.peekFirst()
+        }
+        batch
+    }
+
+    /** @return commit start time and commit duration */
+    private fun commitWithRetries(batch: Batch): Pair<Long, Long> {
+        var result: Pair<Long, Long>? = null
+        var failed = false
+        while (result == null) {
+            val startTime = System.nanoTime()
+            try {
+                commit(batch.data)
+                result = Pair(startTime, System.nanoTime() - startTime)
+            } catch (e: Exception) {
+                val message = "Unable to commit batch of ${batch.data.size} messages, retry in $RETRY_INTERVAL ms"
+                LOGGER.error(message, e)
+                METRICS_LOGGER.logError(message, e)
+                if (!failed) {
+                    failed = true
+                    applicationEventPublisher.publishEvent(HealthMonitorEvent(false, MonitoredComponent.REDIS, HEALTH_QUALIFIER))
+                }
+                Thread.sleep(RETRY_INTERVAL)
+            }
+        }
+        if (failed) {
+            applicationEventPublisher.publishEvent(HealthMonitorEvent(true, MonitoredComponent.REDIS, HEALTH_QUALIFIER))
+        }
+        return result
+    }
+
+    private fun executeActions(batch: Batch) {
+        while (true) {
+            val actions = lock.withLock {
+                if (batch.actions.isEmpty()) {
+                    closedBatches.pollFirst()
+                    batchCommitted.signalAll()
+                    return
+                }
+                val actions = batch.actions
+                batch.actions = ArrayList()
+                actions
+            }
+
+            actions.forEach {
+                try {
+                    it()
+                } catch (e: Exception) {
+                    LOGGER.error("Unable to execute action after commit", e)
+                    METRICS_LOGGER.logError("Unable to execute action after commit", e)
+                }
+            }
+        }
+    }
+
+    private fun closeOpenBatch() {
+        closedBatches.addLast(openBatch!!)
+        openBatch = null
+        batchReady.signal()
+    }
+
+    private class Batch(val startTime: Long) {
+        val data = ArrayList<PersistenceData>()
+        var actions: MutableList<() -> Unit> = ArrayList()
+    }
+}
@@ -3,14 +3,17 @@ package com.lykke.matching.engine.database.redis
 import com.lykke.matching.engine.common.SimpleApplicationEventPublisher
 import com.lykke.matching.engine.daos.wallet.AssetBalance
 import com.lykke.matching.engine.database.PersistenceManager
+import com.lykke.matching.engine.database.common.entity.OrderBooksPersistenceData
 import com.lykke.matching.engine.database.common.entity.PersistenceData
 import com.lykke.matching.engine.database.common.strategy.OrdersPersistInSecondaryDbStrategy
 import com.lykke.matching.engine.database.common.strategy.PersistOrdersDuringRedisTransactionStrategy
 import com.lykke.matching.engine.database.reconciliation.events.AccountPersistEvent
 import com.lykke.matching.engine.database.redis.accessor.impl.*
 import com.lykke.matching.engine.database.redis.connection.RedisConnection
+import com.lykke.matching.engine.database.snapshot.EngineStateJournal
 import com.lykke.matching.engine.deduplication.ProcessedMessage
 import com.lykke.matching.engine.holders.CurrentTransactionDataHolder
+import com.lykke.matching.engine.holders.MessageSequenceNumberHolder
 import com.lykke.matching.engine.messages.MessageType
 import com.lykke.matching.engine.performance.PerformanceStatsHolder
 import com.lykke.matching.engine.utils.PrintUtils
@@ -32,7 +35,9 @@ class RedisPersistenceManager(
         private val redisConnection: RedisConnection,
         private val config: Config,
         private val currentTransactionDataHolder: CurrentTransactionDataHolder,
-        private val performanceStatsHolder: PerformanceStatsHolder) : PersistenceManager {
+        private val performanceStatsHolder: PerformanceStatsHolder,
+        private val messageSequenceNumberHolder: MessageSequenceNumberHolder,
+        private val engineStateJournal: EngineStateJournal?) : PersistenceManager {
 
     companion object {
         private val LOGGER = LoggerFactory.getLogger(RedisPersistenceManager::class.java.name)
@@ -40,12 +45,41 @@ class RedisPersistenceManager(
         private val METRICS_LOGGER = MetricsLogger.getLogger()
     }
 
+    /** Not null if group commit is enabled */
+    var groupCommitProcessor: RedisGroupCommitProcessor? = null
+        private set
+
+    /**
+     * Switches to group commit: [persist] only adds data to the current batch, data is persisted by [groupCommitProcessor].
+     */
+    fun enableGroupCommit(groupCommitProcessor: RedisGroupCommitProcessor) {
+        this.groupCommitProcessor = groupCommitProcessor
+    }
+
+    fun persistBatch(dataBatch: List<PersistenceData>) {
+        redisConnection.transactionalResource { transaction ->
+            dataBatch.forEach {
+                persistData(transaction, it)
+            }
+            transaction.exec()
+        }
+
+        dataBatch.forEach {
+            afterPersist(it)
+        }
+    }
+
     override fun persist(data: PersistenceData): Boolean {
         if (data.isEmpty()) {
             return true
         }
         return try {
-            persistData(redisConnection, data)
+            val groupCommitProcessor = this.groupCommitProcessor
+            if (groupCommitProcessor != null) {
+                submitToGroupCommit(groupCommitProcessor, data)
+            } else {
+                persistData(redisConnection, data)
+            }
             true
         } catch (e: Exception) {
             val message = "Unable to save data (${data.getSummary()})"
@@ -55,6 +89,55 @@ class RedisPersistenceManager(
         }
     }
 
+    private fun submitToGroupCommit(groupCommitProcessor: RedisGroupCommitProcessor, data: PersistenceData) {
+        val startTime = System.nanoTime()
+        // orders are changed in place by next messages, so their current state is saved
+        groupCommitProcessor.submit(PersistenceData(data.balancesData,
+                data.processedMessage,
+                copyOrdersToSave(data.orderBooksData),
+                copyOrdersToSave(data.stopOrderBooksData),
+                data.messageSequenceNumber))
+        currentTransactionDataHolder.getMessageType()?.let {
+            performanceStatsHolder.addPersistTime(it.type, System.nanoTime() - startTime)
+        }
+    }
+
+    private fun copyOrdersToSave(data: OrderBooksPersistenceData?): OrderBooksPersistenceData? {
+        if (data == null || data.ordersToSave.isEmpty()) {
+            return data
+        }
+        return OrderBooksPersistenceData(data.orderBooks, data.ordersToSave.map { it.copy() }, data.ordersToRemove)
+    }
+
+    private fun persistData(transaction: Transaction, data: PersistenceData) {
+        persistBalances(transaction, data.balancesData?.balances)
+        persistProcessedMessages(transaction, data.processedMessage)
+
+        if (data.processedMessage?.type == MessageType.CASH_IN_OUT_OPERATION.type ||
+                data.processedMessage?.type == MessageType.CASH_TRANSFER_OPERATION.type) {
+            persistProcessedCashMessage(transaction, data.processedMessage)
+        }
+
+        persistOrders(transaction, data)
+        persistMessageSequenceNumber(transaction, data.messageSequenceNumber)
+    }
+
+    private fun afterPersist(data: PersistenceData) {
+        data.messageSequenceNumber?.let { messageSequenceNumberHolder.setPersistedValue(it) }
+        engineStateJournal?.append(data)
+
+        if (data.processedMessage?.type == MessageType.CASH_IN_OUT_OPERATION.type ||
+                data.processedMessage?.type == MessageType.CASH_TRANSFER_OPERATION.type) {
+            redisProcessedCashOperationIdDatabaseAccessor.afterSave(data.processedMessage)
+        }
+
+        if (!CollectionUtils.isEmpty(data.balancesData?.wallets)) {
+            persistedWalletsApplicationEventPublisher.publishEvent(AccountPersistEvent(data.balancesData!!.wallets))
+        }
+
+        ordersPersistInSecondaryDbStrategy?.persistOrders(data.orderBooksData, data.stopOrderBooksData)
+    }
+
     private fun persistData(redisConnection: RedisConnection, data: PersistenceData) {
         val startTime = System.nanoTime()
         redisConnection.transactionalResource { transaction ->
@@ -89,11 +172,7 @@ class RedisPersistenceManager(
                 performanceStatsHolder.addPersistTime(it.type, commitTime - startTime)
             }
 
-            if (!CollectionUtils.isEmpty(data.balancesData?.wallets)) {
-                persistedWalletsApplicationEventPublisher.publishEvent(AccountPersistEvent(data.balancesData!!.wallets))
-            }
-
-            ordersPersistInSecondaryDbStrategy?.persistOrders(data.orderBooksData, data.stopOrderBooksData)
+            afterPersist(data)
         }
     }
 
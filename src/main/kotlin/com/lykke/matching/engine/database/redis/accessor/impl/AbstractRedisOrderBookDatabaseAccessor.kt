@@ -1,55 +1,41 @@
 package com.lykke.matching.engine.database.redis.accessor.impl
 
 import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.database.redis.RedisChunkedLoader
 import com.lykke.matching.engine.database.redis.connection.RedisConnection
-import com.lykke.utils.logging.MetricsLogger
+import com.lykke.matching.engine.utils.config.RedisInitialLoadConfig
 import org.slf4j.LoggerFactory
 import org.nustaq.serialization.FSTConfiguration
 import redis.clients.jedis.Transaction
 
-abstract class AbstractRedisOrderBookDatabaseAccessor(private val redisConnection: RedisConnection,
+abstract class AbstractRedisOrderBookDatabaseAccessor(redisConnection: RedisConnection,
                                                       private val db: Int,
                                                       private val keyPrefix: String,
-                                                      private val logPrefix: String = "") {
+                                                      private val logPrefix: String = "",
+                                                      initialLoadConfig: RedisInitialLoadConfig? = null) {
 
     companion object {
         private val LOGGER = LoggerFactory.getLogger(AbstractRedisOrderBookDatabaseAccessor::class.java.name)
-        private val METRICS_LOGGER = MetricsLogger.getLogger()
         private const val KEY_SEPARATOR = ":"
     }
 
     private val conf = FSTConfiguration.createDefaultConfiguration()
+    private val loader = RedisChunkedLoader(redisConnection, db, initialLoadConfig)
 
     protected fun loadOrders(): List<LimitOrder> {
         val result = ArrayList<LimitOrder>()
-        redisConnection.resource { jedis ->
-
-
-            if (jedis.db != db.toLong()) {
-                jedis.select(db)
-            }
-            val keys = jedis.keys("$keyPrefix*").toList()
-
-            val values = if (keys.isNotEmpty())
-                jedis.mget(*keys.map { it.toByteArray() }.toTypedArray())
-            else emptyList()
+        loadOrders { result.add(it) }
+        return result
+    }
 
-            values.forEachIndexed { index, value ->
-                val key = keys[index]
-                try {
-                    if (value == null) {
-                        throw Exception("${logPrefix}order doesn't exist, key: $key")
-                    }
-                    result.add(deserializeOrder(value))
-                } catch (e: Exception) {
-                    val message = "Unable to load ${logPrefix}order, key: $key"
-                    LOGGER.error(message, e)
-                    METRICS_LOGGER.logError(message, e)
-                }
+    /** [consumer] gets each order once, orders of keys returned by redis SCAN several times are skipped */
+    protected fun loadOrders(consumer: (LimitOrder) -> Unit) {
+        val loadedOrderIds = HashSet<String>()
+        loader.load(keyPrefix, "${logPrefix}limit orders", { _, value -> deserializeOrder(value) }) { order ->
+            if (loadedOrderIds.add(order.id)) {
+                consumer(order)
             }
-            LOGGER.info("Loaded ${result.size} ${logPrefix}limit orders from redis db $db")
         }
-        return result
     }
 
     fun updateOrders(transaction: Transaction, ordersToSave: Collection<LimitOrder>, ordersToRemove: Collection<LimitOrder>) {
@@ -1,29 +1,72 @@
 package com.lykke.matching.engine.database.redis.accessor.impl
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder
 import com.lykke.matching.engine.database.CashOperationIdDatabaseAccessor
+import com.lykke.matching.engine.database.redis.RedisChunkedLoader
 import com.lykke.matching.engine.database.redis.connection.RedisConnection
+import com.lykke.matching.engine.deduplication.ProcessedIdsIndex
 import com.lykke.matching.engine.deduplication.ProcessedMessage
 import com.lykke.matching.engine.messages.MessageType
+import com.lykke.matching.engine.performance.ProcessedIdsIndexStats
+import com.lykke.matching.engine.utils.config.RedisCashOperationIdsIndexConfig
+import com.lykke.matching.engine.utils.config.RedisInitialLoadConfig
+import com.lykke.utils.logging.MetricsLogger
 import com.lykke.utils.logging.ThrottlingLogger
 import org.nustaq.serialization.FSTConfiguration
 import redis.clients.jedis.Transaction
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicBoolean
 
+/**
+ * If [indexConfig] is set, ids stored in redis are loaded to in-memory [ProcessedIdsIndex] of each cash operation type,
+ * only ids which can be processed according to the index are checked in redis.
+ * Bloom filter of the index is rebuilt from ids stored in redis on a separate thread when the index requests it.
+ */
 class RedisCashOperationIdDatabaseAccessor(private val cashInOutOperationRedisConnection: RedisConnection,
                                            private val cashTransferOperationRedisConnection: RedisConnection,
-                                           private val dbIndex: Int): CashOperationIdDatabaseAccessor {
+                                           private val dbIndex: Int,
+                                           private val indexRedisConnection: RedisConnection? = null,
+                                           indexConfig: RedisCashOperationIdsIndexConfig? = null,
+                                           private val initialLoadConfig: RedisInitialLoadConfig? = null,
+                                           retentionPeriod: Long = 0): CashOperationIdDatabaseAccessor {
     companion object {
         val LOGGER = ThrottlingLogger.getLogger(RedisCashOperationIdDatabaseAccessor::class.java.name)
+        private val METRICS_LOGGER = MetricsLogger.getLogger()
         private const val SEPARATOR = ":"
+        private val CASH_IN_OUT_TYPE = MessageType.CASH_IN_OUT_OPERATION.type.toString()
+        private val CASH_TRANSFER_TYPE = MessageType.CASH_TRANSFER_OPERATION.type.toString()
     }
 
     private var conf = FSTConfiguration.createJsonConfiguration()
 
+    private val indexes: Map<String, ProcessedIdsIndex> = if (indexConfig != null && indexRedisConnection != null) {
+        loadIndexes(indexRedisConnection, indexConfig, initialLoadConfig, retentionPeriod)
+    } else emptyMap()
+
+    private val indexRebuildInProgress = AtomicBoolean()
+    private val indexRebuildExecutor by lazy {
+        Executors.newSingleThreadExecutor(ThreadFactoryBuilder()
+                .setNameFormat("CashOperationIdsIndexRebuild")
+                .setDaemon(true)
+                .build())
+    }
+
     override fun isAlreadyProcessed(type: String, id: String): Boolean {
-        return when (type) {
-            MessageType.CASH_TRANSFER_OPERATION.type.toString() -> isTransferAlreadyProcessed(id)
-            MessageType.CASH_IN_OUT_OPERATION.type.toString() -> isCashInOutAlreadyProcessed(id)
+        val index = indexes[type]
+        val checkResult = index?.check(id) ?: ProcessedIdsIndex.CheckResult.UNKNOWN
+        if (checkResult != ProcessedIdsIndex.CheckResult.UNKNOWN) {
+            return checkResult == ProcessedIdsIndex.CheckResult.PROCESSED
+        }
+
+        val result = when (type) {
+            CASH_TRANSFER_TYPE -> isTransferAlreadyProcessed(id)
+            CASH_IN_OUT_TYPE -> isCashInOutAlreadyProcessed(id)
             else -> false
         }
+        if (!result) {
+            index?.onFalsePositive()
+        }
+        return result
     }
 
     private fun isCashInOutAlreadyProcessed(id: String): Boolean {
@@ -31,7 +74,7 @@ class RedisCashOperationIdDatabaseAccessor(private val cashInOutOperationRedisCo
 
         cashInOutOperationRedisConnection.resource {
             jedis -> jedis.select(dbIndex)
-            result = jedis.exists(getKey(MessageType.CASH_IN_OUT_OPERATION.type.toString(), id))
+            result = jedis.exists(getKey(CASH_IN_OUT_TYPE, id))
         }
 
         return result
@@ -42,15 +85,93 @@ class RedisCashOperationIdDatabaseAccessor(private val cashInOutOperationRedisCo
 
         cashTransferOperationRedisConnection.resource { jedis ->
             jedis.select(dbIndex)
-            result = jedis.exists(getKey(MessageType.CASH_TRANSFER_OPERATION.type.toString(), id))
+            result = jedis.exists(getKey(CASH_TRANSFER_TYPE, id))
         }
 
         return result
     }
 
+    /**
+     * Id is added to the bloom filter of the index before transaction is committed,
+     * so the index never reports committed id as not processed.
+     */
     fun save(transaction: Transaction, message: ProcessedMessage) {
         transaction.select(dbIndex)
         transaction.set(getKey(message.type.toString(), message.messageId), conf.asJsonString(message))
+        indexes[message.type.toString()]?.addKnown(message.messageId)
+    }
+
+    /** Is called after transaction containing [message] is committed */
+    fun afterSave(message: ProcessedMessage) {
+        val type = message.type.toString()
+        val index = indexes[type] ?: return
+        index.addProcessed(message.messageId, message.timestamp)
+        if (index.isRebuildNeeded() && indexRebuildInProgress.compareAndSet(false, true)) {
+            indexRebuildExecutor.execute { rebuildIndex(type, index) }
+        }
+    }
+
+    fun getIndexStatsAndReset(): Map<String, ProcessedIdsIndexStats> {
+        return indexes.mapValues { it.value.getStatsAndReset() }
+    }
+
+    private fun loadIndexes(redisConnection: RedisConnection,
+                            indexConfig: RedisCashOperationIdsIndexConfig,
+                            initialLoadConfig: RedisInitialLoadConfig?,
+                            retentionPeriod: Long): Map<String, ProcessedIdsIndex> {
+        return try {
+            val loader = RedisChunkedLoader(redisConnection, dbIndex, initialLoadConfig)
+            listOf(CASH_IN_OUT_TYPE, CASH_TRANSFER_TYPE).associate { type ->
+                val index = ProcessedIdsIndex(indexConfig.expectedIdsCount, indexConfig.falsePositiveProbability, retentionPeriod)
+                val keyPrefix = type + SEPARATOR
+                val loadedCount = loader.load(keyPrefix,
+                        "processed cash operation ids of type $type",
+                        { key, value -> ProcessedMessage(type.toByte(), getTimestamp(key, value), key.substring(keyPrefix.length)) },
+                        { index.addProcessed(it.messageId, it.timestamp) })
+                if (loadedCount > indexConfig.expectedIdsCount) {
+                    LOGGER.warn("Loaded $loadedCount processed cash operation ids of type $type, " +
+                            "expected ids count ${indexConfig.expectedIdsCount} is exceeded, false positive probability is increased")
+                }
+                type to index
+            }
+        } catch (e: Exception) {
+            val message = "Unable to load processed cash operation ids, all ids will be checked in redis"
+            LOGGER.error(message, e)
+            METRICS_LOGGER.logError(message, e)
+            emptyMap()
+        }
+    }
+
+    private fun rebuildIndex(type: String, index: ProcessedIdsIndex) {
+        try {
+            val startTime = System.currentTimeMillis()
+            val keyPrefix = type + SEPARATOR
+            var loadedCount = 0
+            index.rebuild { consumer ->
+                loadedCount = RedisChunkedLoader(indexRedisConnection!!, dbIndex, initialLoadConfig).load(keyPrefix,
+                        "processed cash operation ids of type $type",
+                        { key, _ -> key.substring(keyPrefix.length) },
+                        consumer)
+            }
+            LOGGER.info("Bloom filter of processed cash operation ids of type $type is rebuilt with $loadedCount ids " +
+                    "in ${System.currentTimeMillis() - startTime} ms")
+        } catch (e: Exception) {
+            val message = "Unable to rebuild bloom filter of processed cash operation ids of type $type"
+            LOGGER.error(message, e)
+            METRICS_LOGGER.logError(message, e)
+        } finally {
+            indexRebuildInProgress.set(false)
+        }
+    }
+
+    /** Id is added to the index even if its value is broken, timestamp is unknown in this case */
+    private fun getTimestamp(key: String, value: ByteArray): Long {
+        return try {
+            (conf.asObject(value) as ProcessedMessage).timestamp
+        } catch (e: Exception) {
+            LOGGER.error("Unable to read processed cash operation, key: $key", e)
+            0L
+        }
     }
 
     private fun getKey(type: String, id: String): String {
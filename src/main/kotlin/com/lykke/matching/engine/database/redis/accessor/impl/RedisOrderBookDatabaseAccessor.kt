@@ -3,12 +3,15 @@ package com.lykke.matching.engine.database.redis.accessor.impl
 import com.lykke.matching.engine.daos.LimitOrder
 import com.lykke.matching.engine.database.OrderBookDatabaseAccessor
 import com.lykke.matching.engine.database.redis.connection.RedisConnection
+import com.lykke.matching.engine.utils.config.RedisInitialLoadConfig
 
-class RedisOrderBookDatabaseAccessor(redisConnection: RedisConnection, db: Int)
-    : AbstractRedisOrderBookDatabaseAccessor(redisConnection, db, KEY_PREFIX_ORDER), OrderBookDatabaseAccessor {
+class RedisOrderBookDatabaseAccessor(redisConnection: RedisConnection, db: Int, initialLoadConfig: RedisInitialLoadConfig? = null)
+    : AbstractRedisOrderBookDatabaseAccessor(redisConnection, db, KEY_PREFIX_ORDER, initialLoadConfig = initialLoadConfig), OrderBookDatabaseAccessor {
 
     override fun loadLimitOrders() = loadOrders()
 
+    override fun loadLimitOrders(consumer: (LimitOrder) -> Unit) = loadOrders(consumer)
+
     override fun updateOrderBook(asset: String, isBuy: Boolean, orderBook: Collection<LimitOrder>) {
         // Nothing to do
     }
@@ -3,12 +3,15 @@ package com.lykke.matching.engine.database.redis.accessor.impl
 import com.lykke.matching.engine.daos.LimitOrder
 import com.lykke.matching.engine.database.StopOrderBookDatabaseAccessor
 import com.lykke.matching.engine.database.redis.connection.RedisConnection
+import com.lykke.matching.engine.utils.config.RedisInitialLoadConfig
 
-class RedisStopOrderBookDatabaseAccessor(redisConnection: RedisConnection, db: Int)
-    : AbstractRedisOrderBookDatabaseAccessor(redisConnection, db, KEY_PREFIX_ORDER, "stop"), StopOrderBookDatabaseAccessor {
+class RedisStopOrderBookDatabaseAccessor(redisConnection: RedisConnection, db: Int, initialLoadConfig: RedisInitialLoadConfig? = null)
+    : AbstractRedisOrderBookDatabaseAccessor(redisConnection, db, KEY_PREFIX_ORDER, "stop", initialLoadConfig), StopOrderBookDatabaseAccessor {
 
     override fun loadStopLimitOrders() = loadOrders()
 
+    override fun loadStopLimitOrders(consumer: (LimitOrder) -> Unit) = loadOrders(consumer)
+
     override fun updateStopOrderBook(assetPairId: String, isBuy: Boolean, orderBook: Collection<LimitOrder>) {
         // Nothing to do
     }
@@ -0,0 +1,351 @@
+package com.lykke.matching.engine.database.snapshot
+
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.daos.wallet.Wallet
+import com.lykke.matching.engine.database.ReadOnlyMessageSequenceNumberDatabaseAccessor
+import com.lykke.matching.engine.database.Storage
+import com.lykke.matching.engine.database.common.entity.OrderBooksPersistenceData
+import com.lykke.matching.engine.database.common.entity.PersistenceData
+import com.lykke.matching.engine.utils.config.StateSnapshotConfig
+import com.lykke.utils.logging.MetricsLogger
+import org.nustaq.serialization.FSTConfiguration
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Component
+import org.springframework.util.CollectionUtils
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.StandardOpenOption
+import java.util.ArrayList
+import java.util.HashMap
+import java.util.LinkedHashMap
+import java.util.stream.Collectors
+import java.util.zip.CRC32
+
+/**
+ * Append only journal of balances and orders changes written to the primary database,
+ * brings the latest state snapshot up to the sequence number stored in the database on startup.
+ *
+ * Persistence manager appends changes of each message with sequence number after they are written to the database.
+ * Records are framed with their length and CRC32 checksum and appended to segment files without sync,
+ * each segment starts with [EngineStateJournalSegmentHeader], a new segment is started when the current one exceeds [SEGMENT_SIZE] bytes.
+ * Segments which are not needed to catch up the latest snapshot are deleted by [onSnapshotWritten].
+ *
+ * The journal is restarted (all segments are deleted) if it misses changes written to the database:
+ * it is behind the database on startup, a record can not be appended or changes are written without sequence number by migrations.
+ * Snapshots taken before the restart are not caught up, holders load data from the database in this case.
+ */
+@Component
+class EngineStateJournal(@Value("#{Config.me.stateSnapshot}")
+                         stateSnapshotConfig: StateSnapshotConfig?,
+                         @Value("#{Config.me.storage}")
+                         storage: Storage,
+                         messageSequenceNumberDatabaseAccessor: ReadOnlyMessageSequenceNumberDatabaseAccessor) {
+
+    companion object {
+        private val LOGGER = LoggerFactory.getLogger(EngineStateJournal::class.java.name)
+        private val METRICS_LOGGER = MetricsLogger.getLogger()
+        private const val SEGMENT_FILE_PREFIX = "segment_"
+        private const val FRAME_HEADER_SIZE = 8
+        private const val SEGMENT_SIZE = 64L * 1024 * 1024
+    }
+
+    private val conf = FSTConfiguration.createDefaultConfiguration()
+    private val journalPath = if (stateSnapshotConfig != null && storage != Storage.Azure) Paths.get("${stateSnapshotConfig.path}.journal") else null
+
+    /** Sequence number of the last change written to the database, null if changes without sequence number are written after it */
+    private var persistedSequenceNumber: Long? = journalPath?.let { messageSequenceNumberDatabaseAccessor.getSequenceNumber() }
+    /** Sequence number of the last change written to the journal, is read from the last segment when the journal is opened */
+    private var lastSequenceNumber: Long? = null
+    private var segmentChannel: FileChannel? = null
+    private var segmentChannelSize = 0L
+    private var nextSegmentIndex = 0L
+
+    init {
+        journalPath?.let { Files.createDirectories(it) }
+    }
+
+    /** Is called by persistence manager after [data] is written to the database */
+    @Synchronized
+    fun append(data: PersistenceData) {
+        if (journalPath == null) {
+            return
+        }
+        val sequenceNumber = data.messageSequenceNumber
+        if (sequenceNumber == null) {
+            if (!CollectionUtils.isEmpty(data.balancesData?.balances) || !data.isOrdersEmpty()) {
+                LOGGER.warn("Changes without sequence number are written after $persistedSequenceNumber, " +
+                        "state journal will be restarted after the next message")
+                persistedSequenceNumber = null
+            }
+            return
+        }
+
+        val previousSequenceNumber = persistedSequenceNumber
+        persistedSequenceNumber = sequenceNumber
+        try {
+            val frame = createFrame(conf.asByteArray(createRecord(sequenceNumber, data)))
+            val channel = getSegmentChannel(previousSequenceNumber, sequenceNumber)
+            write(channel, frame)
+            segmentChannelSize += frame.limit()
+            lastSequenceNumber = sequenceNumber
+        } catch (e: Exception) {
+            // partially written record is cut and the journal is restarted on the next append
+            val message = "Unable to append changes with sequence number $sequenceNumber to state journal"
+            LOGGER.error(message, e)
+            METRICS_LOGGER.logError(message, e)
+            closeSegment()
+        }
+    }
+
+    /**
+     * Applies changes written after [snapshot] was taken.
+     * @return state at [sequenceNumber] or null if the journal does not contain all changes up to it
+     */
+    @Synchronized
+    fun catchUp(snapshot: EngineStateSnapshot, sequenceNumber: Long): EngineStateSnapshot? {
+        if (journalPath == null) {
+            return null
+        }
+        val segments = getSegments().values.toList()
+        val firstSegmentIndex = segments.indexOfLast { isSnapshotCovered(it, snapshot.sequenceNumber) }
+        if (firstSegmentIndex < 0) {
+            LOGGER.info("State journal does not contain changes made after snapshot ${snapshot.sequenceNumber}")
+            return null
+        }
+
+        val state = JournalState(snapshot)
+        var lastSequenceNumber: Long? = null
+        for (i in firstSegmentIndex until segments.size) {
+            val segmentPath = segments[i]
+            var missedChanges = false
+            val validLength = readFrames(segmentPath) { record ->
+                when (record) {
+                    is EngineStateJournalSegmentHeader -> {
+                        missedChanges = missedChanges || lastSequenceNumber != null && lastSequenceNumber != record.startSequenceNumber
+                        lastSequenceNumber = record.startSequenceNumber
+                    }
+                    is EngineStateJournalRecord -> {
+                        if (record.sequenceNumber > snapshot.sequenceNumber) {
+                            state.apply(record)
+                        }
+                        lastSequenceNumber = record.sequenceNumber
+                    }
+                }
+            }
+            if (missedChanges || i < segments.size - 1 && validLength < Files.size(segmentPath)) {
+                val message = "State journal segment ${segmentPath.fileName} is broken or does not follow the previous one"
+                LOGGER.error(message)
+                METRICS_LOGGER.logError(message)
+                return null
+            }
+        }
+
+        if (lastSequenceNumber != sequenceNumber) {
+            LOGGER.info("State journal does not contain all changes, last journal record: $lastSequenceNumber, database sequence number: $sequenceNumber")
+            return null
+        }
+        return EngineStateSnapshot(sequenceNumber, snapshot.timestamp, state.wallets.values, state.orders.values, state.stopOrders.values)
+    }
+
+    /** Deletes segments which are not needed to catch up the snapshot with [sequenceNumber] */
+    @Synchronized
+    fun onSnapshotWritten(sequenceNumber: Long) {
+        if (journalPath == null) {
+            return
+        }
+        val segments = getSegments().values.toList()
+        val firstSegmentIndex = segments.indexOfLast { isSnapshotCovered(it, sequenceNumber) }
+        for (i in 0 until firstSegmentIndex) {
+            Files.deleteIfExists(segments[i])
+        }
+    }
+
+    private fun getSegmentChannel(previousSequenceNumber: Long?, sequenceNumber: Long): FileChannel {
+        if (segmentChannel == null) {
+            open()
+        }
+        val lastSequenceNumber = this.lastSequenceNumber
+        if (previousSequenceNumber == null || lastSequenceNumber != previousSequenceNumber) {
+            val startSequenceNumber = previousSequenceNumber ?: sequenceNumber
+            LOGGER.warn("State journal is restarted after $startSequenceNumber, last journal record: $lastSequenceNumber")
+            restart(startSequenceNumber)
+        } else if (segmentChannel == null || segmentChannelSize >= SEGMENT_SIZE) {
+            closeSegment()
+            createSegment(previousSequenceNumber)
+        }
+        return segmentChannel!!
+    }
+
+    /** Reads the last record of the journal, broken tail of the last segment is cut */
+    private fun open() {
+        val segments = getSegments()
+        nextSegmentIndex = (segments.keys.max() ?: -1L) + 1
+        lastSequenceNumber = null
+        val lastSegment = segments.values.lastOrNull() ?: return
+        val validLength = readFrames(lastSegment) { record ->
+            when (record) {
+                is EngineStateJournalSegmentHeader -> lastSequenceNumber = record.startSequenceNumber
+                is EngineStateJournalRecord -> lastSequenceNumber = record.sequenceNumber
+            }
+        }
+        if (validLength < Files.size(lastSegment)) {
+            LOGGER.warn("Broken tail of state journal segment ${lastSegment.fileName} is cut, valid length: $validLength")
+            FileChannel.open(lastSegment, StandardOpenOption.WRITE).use { it.truncate(validLength) }
+        }
+    }
+
+    private fun restart(startSequenceNumber: Long) {
+        closeSegment()
+        getSegments().values.forEach { Files.deleteIfExists(it) }
+        createSegment(startSequenceNumber)
+    }
+
+    private fun createSegment(startSequenceNumber: Long) {
+        val path = journalPath!!.resolve(SEGMENT_FILE_PREFIX + String.format("%020d", nextSegmentIndex++))
+        val channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)
+        segmentChannel = channel
+        val frame = createFrame(conf.asByteArray(EngineStateJournalSegmentHeader(startSequenceNumber)))
+        write(channel, frame)
+        segmentChannelSize = frame.limit().toLong()
+        lastSequenceNumber = startSequenceNumber
+    }
+
+    private fun closeSegment() {
+        try {
+            segmentChannel?.close()
+        } catch (e: Exception) {
+            LOGGER.error("Unable to close state journal segment", e)
+        }
+        segmentChannel = null
+    }
+
+    private fun createRecord(sequenceNumber: Long, data: PersistenceData): EngineStateJournalRecord {
+        return EngineStateJournalRecord(sequenceNumber,
+                ArrayList(data.balancesData?.balances ?: emptyList()),
+                ordersToSave(data.orderBooksData),
+                orderIdsToRemove(data.orderBooksData),
+                ordersToSave(data.stopOrderBooksData),
+                orderIdsToRemove(data.stopOrderBooksData))
+    }
+
+    private fun ordersToSave(data: OrderBooksPersistenceData?): ArrayList<LimitOrder> {
+        return ArrayList(data?.ordersToSave ?: emptyList())
+    }
+
+    private fun orderIdsToRemove(data: OrderBooksPersistenceData?): ArrayList<String> {
+        return data?.ordersToRemove?.mapTo(ArrayList()) { it.id } ?: ArrayList()
+    }
+
+    /** @return true if the segment and the next ones contain all changes made after the snapshot with [sequenceNumber] */
+    private fun isSnapshotCovered(segmentPath: Path, sequenceNumber: Long): Boolean {
+        val header = try {
+            readHeader(segmentPath)
+        } catch (e: Exception) {
+            LOGGER.error("Unable to read header of state journal segment ${segmentPath.fileName}", e)
+            null
+        }
+        return header != null && header.startSequenceNumber <= sequenceNumber
+    }
+
+    private fun readHeader(path: Path): EngineStateJournalSegmentHeader? {
+        FileChannel.open(path, StandardOpenOption.READ).use { channel ->
+            val frameHeader = ByteBuffer.allocate(FRAME_HEADER_SIZE)
+            while (frameHeader.hasRemaining()) {
+                if (channel.read(frameHeader) < 0) {
+                    return null
+                }
+            }
+            frameHeader.flip()
+            val length = frameHeader.int
+            val checksum = frameHeader.int
+            if (length < 0 || length > channel.size() - FRAME_HEADER_SIZE) {
+                return null
+            }
+            val payload = ByteBuffer.allocate(length)
+            while (payload.hasRemaining()) {
+                if (channel.read(payload) < 0) {
+                    return null
+                }
+            }
+            val crc = CRC32()
+            crc.update(payload.array())
+            if (crc.value.toInt() != checksum) {
+                return null
+            }
+            return conf.asObject(payload.array()) as? EngineStateJournalSegmentHeader
+        }
+    }
+
+    /** @return length of the valid part of the file */
+    private fun readFrames(path: Path, consumer: (Any) -> Unit): Long {
+        val buffer = ByteBuffer.wrap(Files.readAllBytes(path))
+        val crc = CRC32()
+        while (buffer.remaining() >= FRAME_HEADER_SIZE) {
+            val frameStart = buffer.position()
+            val length = buffer.int
+            val checksum = buffer.int
+            if (length < 0 || length > buffer.remaining()) {
+                return frameStart.toLong()
+            }
+
+            val payload = ByteArray(length)
+            buffer.get(payload)
+            crc.reset()
+            crc.update(payload)
+            if (crc.value.toInt() != checksum) {
+                return frameStart.toLong()
+            }
+            consumer(conf.asObject(payload))
+        }
+        return buffer.position().toLong()
+    }
+
+    private fun createFrame(payload: ByteArray): ByteBuffer {
+        val crc = CRC32()
+        crc.update(payload)
+        val frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + payload.size)
+        frame.putInt(payload.size)
+        frame.putInt(crc.value.toInt())
+        frame.put(payload)
+        frame.flip()
+        return frame
+    }
+
+    private fun write(channel: FileChannel, frame: ByteBuffer) {
+        while (frame.hasRemaining()) {
+            channel.write(frame)
+        }
+    }
+
+    /** @return segment files sorted by index */
+    private fun getSegments(): Map<Long, Path> {
+        val result = sortedMapOf<Long, Path>()
+        Files.list(journalPath).use { paths ->
+            paths.collect(Collectors.toList()).forEach { path ->
+                val fileName = path.fileName.toString()
+                if (fileName.startsWith(SEGMENT_FILE_PREFIX)) {
+                    fileName.removePrefix(SEGMENT_FILE_PREFIX).toLongOrNull()?.let { result[it] = path }
+                }
+            }
+        }
+        return result
+    }
+
+    private class JournalState(snapshot: EngineStateSnapshot) {
+        val wallets = snapshot.wallets.associateByTo(HashMap()) { it.clientId }
+        val orders = snapshot.orders.associateByTo(LinkedHashMap()) { it.id }
+        val stopOrders = snapshot.stopOrders.associateByTo(LinkedHashMap()) { it.id }
+
+        fun apply(record: EngineStateJournalRecord) {
+            record.balances.forEach { wallets.getOrPut(it.clientId) { Wallet(it.clientId) }.balances[it.asset] = it }
+            record.orderIdsToRemove.forEach { orders.remove(it) }
+            record.ordersToSave.forEach { orders[it.id] = it }
+            record.stopOrderIdsToRemove.forEach { stopOrders.remove(it) }
+            record.stopOrdersToSave.forEach { stopOrders[it.id] = it }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.lykke.matching.engine.database.snapshot
+
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.daos.wallet.AssetBalance
+import java.io.Serializable
+
+/** First record of a segment: the segment and the next ones contain all changes made after [startSequenceNumber] */
+class EngineStateJournalSegmentHeader(val startSequenceNumber: Long) : Serializable
+
+/** Changed balances and orders of one persisted message */
+class EngineStateJournalRecord(val sequenceNumber: Long,
+                               val balances: ArrayList<AssetBalance>,
+                               val ordersToSave: ArrayList<LimitOrder>,
+                               val orderIdsToRemove: ArrayList<String>,
+                               val stopOrdersToSave: ArrayList<LimitOrder>,
+                               val stopOrderIdsToRemove: ArrayList<String>) : Serializable
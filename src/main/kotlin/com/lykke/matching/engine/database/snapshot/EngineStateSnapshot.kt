@@ -0,0 +1,11 @@
+package com.lykke.matching.engine.database.snapshot
+
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.daos.wallet.Wallet
+
+/** State of balances and order books after the message with [sequenceNumber] is processed */
+class EngineStateSnapshot(val sequenceNumber: Long,
+                          val timestamp: Long,
+                          val wallets: Collection<Wallet>,
+                          val orders: Collection<LimitOrder>,
+                          val stopOrders: Collection<LimitOrder>)
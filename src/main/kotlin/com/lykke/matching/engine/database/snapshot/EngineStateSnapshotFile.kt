@@ -0,0 +1,272 @@
+package com.lykke.matching.engine.database.snapshot
+
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.daos.wallet.AssetBalance
+import com.lykke.matching.engine.daos.wallet.Wallet
+import org.nustaq.serialization.FSTConfiguration
+import java.io.IOException
+import java.math.BigDecimal
+import java.math.BigInteger
+import java.nio.ByteBuffer
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Paths
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.util.ArrayList
+import java.util.zip.CRC32
+
+/**
+ * Engine state snapshot stored in a memory-mapped file.
+ *
+ * File starts with a fixed header: magic, format version, sequence number, timestamp, payload length and payload CRC32.
+ * Payload contains wallets (client id once per wallet, then asset, balance and reserved balance of each balance),
+ * then limit orders and stop orders serialized with FST as in other order storages.
+ * Snapshot is written to a temporary file which replaces the previous snapshot after the header is written,
+ * so a partially written snapshot is never read.
+ */
+class EngineStateSnapshotFile(fileName: String) {
+
+    companion object {
+        private const val MAGIC = 0x4D455353
+        private const val VERSION = 1
+        private const val HEADER_SIZE = 40
+        private const val WINDOW_SIZE = 64L * 1024 * 1024
+        private const val TMP_SUFFIX = ".tmp"
+    }
+
+    private val path = Paths.get(fileName)
+    private val tmpPath = Paths.get(fileName + TMP_SUFFIX)
+    private val conf = FSTConfiguration.createDefaultConfiguration()
+
+    fun exists() = Files.exists(path)
+
+    fun write(snapshot: EngineStateSnapshot) {
+        path.toAbsolutePath().parent?.let { Files.createDirectories(it) }
+        FileChannel.open(tmpPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE).use { channel ->
+            val output = MappedOutput(channel, HEADER_SIZE.toLong())
+            writeWallets(output, snapshot.wallets)
+            writeOrders(output, snapshot.orders)
+            writeOrders(output, snapshot.stopOrders)
+            output.flush()
+
+            val header = ByteBuffer.allocate(HEADER_SIZE)
+            header.putInt(MAGIC)
+            header.putInt(VERSION)
+            header.putLong(snapshot.sequenceNumber)
+            header.putLong(snapshot.timestamp)
+            header.putLong(output.length)
+            header.putLong(output.crc.value)
+            header.flip()
+            channel.write(header, 0)
+            channel.truncate(HEADER_SIZE + output.length)
+            channel.force(true)
+        }
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    }
+
+    /** @throws IOException if the file is broken or has unsupported format version */
+    fun read(): EngineStateSnapshot {
+        FileChannel.open(path, StandardOpenOption.READ).use { channel ->
+            val header = ByteBuffer.allocate(HEADER_SIZE)
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position().toLong()) < 0) {
+                    throw IOException("Unexpected end of snapshot header")
+                }
+            }
+            header.flip()
+            if (header.int != MAGIC) {
+                throw IOException("Invalid snapshot file")
+            }
+            val version = header.int
+            if (version != VERSION) {
+                throw IOException("Unsupported snapshot version: $version")
+            }
+            val sequenceNumber = header.long
+            val timestamp = header.long
+            val payloadLength = header.long
+            val payloadCrc = header.long
+            if (channel.size() != HEADER_SIZE + payloadLength) {
+                throw IOException("Invalid snapshot size: ${channel.size()}, expected: ${HEADER_SIZE + payloadLength}")
+            }
+
+            val input = MappedInput(channel, HEADER_SIZE.toLong(), payloadLength)
+            val snapshot = try {
+                EngineStateSnapshot(sequenceNumber, timestamp, readWallets(input), readOrders(input), readOrders(input))
+            } catch (e: IOException) {
+                throw e
+            } catch (e: Exception) {
+                throw IOException("Unable to read snapshot payload", e)
+            }
+            if (input.crc.value != payloadCrc) {
+                throw IOException("Invalid snapshot checksum")
+            }
+            return snapshot
+        }
+    }
+
+    private fun writeWallets(output: MappedOutput, wallets: Collection<Wallet>) {
+        output.putInt(wallets.size)
+        wallets.forEach { wallet ->
+            output.putString(wallet.clientId)
+            output.putInt(wallet.balances.size)
+            wallet.balances.values.forEach { balance ->
+                output.putString(balance.asset)
+                output.putDecimal(balance.balance)
+                output.putDecimal(balance.reserved)
+            }
+        }
+    }
+
+    private fun readWallets(input: MappedInput): List<Wallet> {
+        val walletsCount = input.getInt()
+        val result = ArrayList<Wallet>(walletsCount)
+        repeat(walletsCount) {
+            val wallet = Wallet(input.getString())
+            repeat(input.getInt()) {
+                val balance = AssetBalance(wallet.clientId, input.getString(), input.getDecimal(), input.getDecimal())
+                wallet.balances[balance.asset] = balance
+            }
+            result.add(wallet)
+        }
+        return result
+    }
+
+    private fun writeOrders(output: MappedOutput, orders: Collection<LimitOrder>) {
+        output.putInt(orders.size)
+        orders.forEach { order ->
+            val bytes = conf.asByteArray(order)
+            output.putInt(bytes.size)
+            output.put(bytes)
+        }
+    }
+
+    private fun readOrders(input: MappedInput): List<LimitOrder> {
+        val ordersCount = input.getInt()
+        val result = ArrayList<LimitOrder>(ordersCount)
+        repeat(ordersCount) {
+            result.add(conf.asObject(input.getBytes(input.getInt())) as LimitOrder)
+        }
+        return result
+    }
+
+    /** Sequential writer which maps the file by windows of [WINDOW_SIZE] bytes starting from [startPosition] */
+    private class MappedOutput(private val channel: FileChannel, private val startPosition: Long) {
+        val crc = CRC32()
+        var length = 0L
+            private set
+
+        private val scratch = ByteBuffer.allocate(8)
+        private var window: MappedByteBuffer? = null
+
+        fun putInt(value: Int) {
+            scratch.clear()
+            scratch.putInt(value)
+            put(scratch.array(), 0, 4)
+        }
+
+        fun putString(value: String) {
+            val bytes = value.toByteArray(Charsets.UTF_8)
+            putInt(bytes.size)
+            put(bytes)
+        }
+
+        fun putDecimal(value: BigDecimal) {
+            putInt(value.scale())
+            val unscaled = value.unscaledValue().toByteArray()
+            putInt(unscaled.size)
+            put(unscaled)
+        }
+
+        fun put(bytes: ByteArray) = put(bytes, 0, bytes.size)
+
+        private fun put(bytes: ByteArray, offset: Int, size: Int) {
+            crc.update(bytes, offset, size)
+            var written = 0
+            while (written < size) {
+                val currentWindow = currentWindow()
+                val chunkSize = Math.min(size - written, currentWindow.remaining())
+                currentWindow.put(bytes, offset + written, chunkSize)
+                written += chunkSize
+                length += chunkSize
+            }
+        }
+
+        private fun currentWindow(): MappedByteBuffer {
+            val currentWindow = window
+            if (currentWindow != null && currentWindow.hasRemaining()) {
+                return currentWindow
+            }
+            currentWindow?.force()
+            val newWindow = channel.map(FileChannel.MapMode.READ_WRITE, startPosition + length, WINDOW_SIZE)
+            window = newWindow
+            return newWindow
+        }
+
+        fun flush() {
+            window?.force()
+            window = null
+        }
+    }
+
+    /** Sequential reader which maps the file by windows of at most [WINDOW_SIZE] bytes */
+    private class MappedInput(private val channel: FileChannel,
+                              private val startPosition: Long,
+                              private val length: Long) {
+        val crc = CRC32()
+
+        private val scratch = ByteArray(8)
+        private var position = 0L
+        private var window: MappedByteBuffer? = null
+
+        fun getInt(): Int {
+            get(scratch, 4)
+            return ByteBuffer.wrap(scratch, 0, 4).int
+        }
+
+        fun getString() = String(getBytes(getInt()), Charsets.UTF_8)
+
+        fun getDecimal(): BigDecimal {
+            val scale = getInt()
+            return BigDecimal(BigInteger(getBytes(getInt())), scale)
+        }
+
+        fun getBytes(size: Int): ByteArray {
+            checkAvailable(size)
+            val result = ByteArray(size)
+            get(result, size)
+            return result
+        }
+
+        private fun checkAvailable(size: Int) {
+            if (size < 0 || position + size > length) {
+                throw IOException("Unexpected end of snapshot payload")
+            }
+        }
+
+        private fun get(bytes: ByteArray, size: Int) {
+            checkAvailable(size)
+            var read = 0
+            while (read < size) {
+                val currentWindow = currentWindow()
+                val chunkSize = Math.min(size - read, currentWindow.remaining())
+                currentWindow.get(bytes, read, chunkSize)
+                read += chunkSize
+                position += chunkSize
+            }
+            crc.update(bytes, 0, size)
+        }
+
+        private fun currentWindow(): MappedByteBuffer {
+            val currentWindow = window
+            if (currentWindow != null && currentWindow.hasRemaining()) {
+                return currentWindow
+            }
+            val newWindow = channel.map(FileChannel.MapMode.READ_ONLY, startPosition + position, Math.min(WINDOW_SIZE, length - position))
+            window = newWindow
+            return newWindow
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.lykke.matching.engine.database.snapshot
+
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.daos.wallet.Wallet
+import com.lykke.matching.engine.database.ReadOnlyMessageSequenceNumberDatabaseAccessor
+import com.lykke.matching.engine.database.Storage
+import com.lykke.matching.engine.utils.config.StateSnapshotConfig
+import com.lykke.utils.logging.MetricsLogger
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Component
+import java.util.HashMap
+
+/**
+ * Provides initial state of balances and order books from the state snapshot.
+ *
+ * Primary databases keep only current state, so if the primary database contains changes made after the snapshot was taken
+ * they are applied from [EngineStateJournal]. The snapshot is not used if the journal does not contain all these changes
+ * (or the snapshot is ahead of the database), holders load data from the database in this case.
+ * Each part of the snapshot is given away once, holders reload their data from the database afterwards.
+ * Snapshot is not used with [Storage.Azure]: it does not store sequence numbers, so the snapshot can not be checked.
+ */
+@Component
+class EngineStateSnapshotLoader(@Value("#{Config.me.stateSnapshot}")
+                                stateSnapshotConfig: StateSnapshotConfig?,
+                                @Value("#{Config.me.storage}")
+                                storage: Storage,
+                                private val messageSequenceNumberDatabaseAccessor: ReadOnlyMessageSequenceNumberDatabaseAccessor,
+                                private val engineStateJournal: EngineStateJournal) {
+
+    companion object {
+        private val LOGGER = LoggerFactory.getLogger(EngineStateSnapshotLoader::class.java.name)
+        private val METRICS_LOGGER = MetricsLogger.getLogger()
+    }
+
+    private var wallets: Collection<Wallet>? = null
+    private var orders: Collection<LimitOrder>? = null
+    private var stopOrders: Collection<LimitOrder>? = null
+
+    init {
+        if (stateSnapshotConfig != null) {
+            if (storage == Storage.Azure) {
+                LOGGER.warn("State snapshot is not used with $storage storage")
+            } else {
+                load(EngineStateSnapshotFile(stateSnapshotConfig.path))
+            }
+        }
+    }
+
+    @Synchronized
+    fun takeWallets(): HashMap<String, Wallet>? {
+        val result = wallets?.associateByTo(HashMap()) { it.clientId }
+        wallets = null
+        return result
+    }
+
+    @Synchronized
+    fun takeOrders(): Collection<LimitOrder>? {
+        val result = orders
+        orders = null
+        return result
+    }
+
+    @Synchronized
+    fun takeStopOrders(): Collection<LimitOrder>? {
+        val result = stopOrders
+        stopOrders = null
+        return result
+    }
+
+    private fun load(file: EngineStateSnapshotFile) {
+        if (!file.exists()) {
+            LOGGER.info("State snapshot does not exist")
+            return
+        }
+        try {
+            val startTime = System.currentTimeMillis()
+            val fileSnapshot = file.read()
+            val sequenceNumber = messageSequenceNumberDatabaseAccessor.getSequenceNumber()
+            val snapshot = if (fileSnapshot.sequenceNumber < sequenceNumber) {
+                engineStateJournal.catchUp(fileSnapshot, sequenceNumber)
+            } else {
+                fileSnapshot
+            }
+            if (snapshot == null || snapshot.sequenceNumber != sequenceNumber) {
+                LOGGER.info("State snapshot is not used, snapshot sequence number: ${fileSnapshot.sequenceNumber}, database sequence number: $sequenceNumber")
+                return
+            }
+            wallets = snapshot.wallets
+            orders = snapshot.orders
+            stopOrders = snapshot.stopOrders
+            LOGGER.info("Loaded state snapshot with sequence number ${fileSnapshot.sequenceNumber} caught up to ${snapshot.sequenceNumber} in ${System.currentTimeMillis() - startTime} ms: " +
+                    "${snapshot.wallets.size} wallets, ${snapshot.orders.size} limit orders, ${snapshot.stopOrders.size} stop limit orders")
+        } catch (e: Exception) {
+            val message = "Unable to load state snapshot"
+            LOGGER.error(message, e)
+            METRICS_LOGGER.logError(message, e)
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.lykke.matching.engine.database.snapshot
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.daos.wallet.AssetBalance
+import com.lykke.matching.engine.daos.wallet.Wallet
+import com.lykke.matching.engine.database.Storage
+import com.lykke.matching.engine.holders.MessageSequenceNumberHolder
+import com.lykke.matching.engine.readmodel.ReadModelHolder
+import com.lykke.matching.engine.readmodel.ShardedImmutableMap
+import com.lykke.matching.engine.utils.config.StateSnapshotConfig
+import com.lykke.utils.logging.MetricsLogger
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Component
+import java.util.ArrayList
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import javax.annotation.PostConstruct
+
+/**
+ * Periodically takes state snapshot of balances and order books.
+ *
+ * Snapshot is built from the current [com.lykke.matching.engine.readmodel.ReadModel]: it is immutable and corresponds
+ * to the sequence number of the message processed before its publication, so the state is read and written
+ * to the file on a separate thread without copying it on the message processor thread.
+ * Snapshot is taken only when the sequence number of the read model is written to the database,
+ * so it is not taken with [Storage.Azure] which does not store sequence numbers.
+ * [EngineStateJournal] segments which are not needed to catch up the written snapshot are deleted.
+ */
+@Component
+class EngineStateSnapshotWriter(@Value("#{Config.me.stateSnapshot}")
+                                stateSnapshotConfig: StateSnapshotConfig?,
+                                @Value("#{Config.me.storage}")
+                                storage: Storage,
+                                private val readModelHolder: ReadModelHolder,
+                                private val messageSequenceNumberHolder: MessageSequenceNumberHolder,
+                                private val engineStateJournal: EngineStateJournal) {
+
+    companion object {
+        private val LOGGER = LoggerFactory.getLogger(EngineStateSnapshotWriter::class.java.name)
+        private val METRICS_LOGGER = MetricsLogger.getLogger()
+    }
+
+    private val snapshotConfig = if (storage != Storage.Azure) stateSnapshotConfig else null
+    private val file = snapshotConfig?.let { EngineStateSnapshotFile(it.path) }
+    private var lastSequenceNumber: Long? = null
+
+    @PostConstruct
+    private fun start() {
+        val config = snapshotConfig ?: return
+        Executors.newSingleThreadScheduledExecutor(ThreadFactoryBuilder()
+                .setNameFormat("EngineStateSnapshotWriter")
+                .setDaemon(true)
+                .build())
+                .scheduleWithFixedDelay({ takeSnapshot() }, config.interval, config.interval, TimeUnit.MILLISECONDS)
+    }
+
+    /** Writes snapshot of the current read model if it is changed and persisted since the previous snapshot */
+    @Synchronized
+    fun takeSnapshot() {
+        val file = this.file ?: return
+        val readModel = readModelHolder.readModel
+        val sequenceNumber = readModel.asOfSequenceNumber
+        if (sequenceNumber == lastSequenceNumber || !messageSequenceNumberHolder.isPersisted(sequenceNumber)) {
+            return
+        }
+
+        try {
+            val startTime = System.nanoTime()
+            val snapshot = EngineStateSnapshot(sequenceNumber,
+                    readModel.timestamp,
+                    getWallets(readModel.balancesByClientId),
+                    getOrders(readModel.ordersByClientId),
+                    getOrders(readModel.stopOrdersByClientId))
+            file.write(snapshot)
+            lastSequenceNumber = sequenceNumber
+            engineStateJournal.onSnapshotWritten(sequenceNumber)
+            LOGGER.info("Written state snapshot with sequence number $sequenceNumber: " +
+                    "${snapshot.wallets.size} wallets, ${snapshot.orders.size} limit orders, ${snapshot.stopOrders.size} stop limit orders " +
+                    "in ${(System.nanoTime() - startTime) / 1000000} ms")
+        } catch (e: Exception) {
+            val message = "Unable to write state snapshot"
+            LOGGER.error(message, e)
+            METRICS_LOGGER.logError(message, e)
+        }
+    }
+
+    private fun getWallets(balancesByClientId: ShardedImmutableMap<String, Map<String, AssetBalance>>): List<Wallet> {
+        val result = ArrayList<Wallet>(balancesByClientId.size)
+        balancesByClientId.forEach { clientId, balances -> result.add(Wallet(clientId, ArrayList(balances.values))) }
+        return result
+    }
+
+    private fun getOrders(ordersByClientId: ShardedImmutableMap<String, List<LimitOrder>>): List<LimitOrder> {
+        val result = ArrayList<LimitOrder>()
+        ordersByClientId.forEach { _, orders -> result.addAll(orders) }
+        return result
+    }
+}
@@ -0,0 +1,220 @@
+package com.lykke.matching.engine.deduplication
+
+import com.lykke.matching.engine.performance.ProcessedIdsIndexStats
+import java.util.HashSet
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * In-memory index of processed message ids.
+ *
+ * Bloom filter contains all known ids, so id absent in the filter was not processed.
+ * Ids processed during the last [retentionPeriod] ms (up to 2 * [retentionPeriod] ms) are also kept in exact sets,
+ * id found in them was processed. Other ids are to be checked in the database.
+ *
+ * Ids stored in the database are never deleted, so the filter can not drop old ids when the sets are rotated.
+ * Instead, when the sets are rotated and the filter contains more ids than it was sized for (its false positive probability is exceeded),
+ * [isRebuildNeeded] becomes true and the owner of the index calls [rebuild] to replace the filter
+ * with a larger one filled with all ids stored in the database.
+ *
+ * Ids can be added by one thread while other threads check ids.
+ */
+class ProcessedIdsIndex(private val expectedIdsCount: Long,
+                        private val falsePositiveProbability: Double,
+                        private val retentionPeriod: Long) {
+
+    enum class CheckResult {
+        PROCESSED,
+        NOT_PROCESSED,
+        UNKNOWN
+    }
+
+    private val filterLock = Any()
+    @Volatile
+    private var filter = BloomFilter(expectedIdsCount, falsePositiveProbability)
+    /** Filter which is being filled by [rebuild], ids added to the index are added to it as well */
+    private var rebuildingFilter: BloomFilter? = null
+    /** Ids added by [addKnown] and not yet by [addProcessed], they can be committed after the database is read by [rebuild] */
+    private val pendingIds = HashSet<String>()
+
+    @Volatile
+    private var currentIds: MutableSet<String> = ConcurrentHashMap.newKeySet()
+    @Volatile
+    private var previousIds: MutableSet<String> = ConcurrentHashMap.newKeySet()
+    private var currentIdsStartTime = System.currentTimeMillis()
+    @Volatile
+    private var rebuildNeeded = false
+
+    private val notProcessedCount = AtomicLong()
+    private val processedCount = AtomicLong()
+    private val unknownCount = AtomicLong()
+    private val falsePositivesCount = AtomicLong()
+
+    /** Adds id to the bloom filter only, id is to be checked in the database until it is added by [addProcessed] */
+    fun addKnown(id: String) {
+        synchronized(filterLock) {
+            addToFilters(id)
+            pendingIds.add(id)
+        }
+    }
+
+    fun addProcessed(id: String, timestamp: Long) {
+        synchronized(filterLock) {
+            addToFilters(id)
+            pendingIds.remove(id)
+        }
+        val now = System.currentTimeMillis()
+        synchronized(this) {
+            if (now - currentIdsStartTime >= retentionPeriod) {
+                previousIds = currentIds
+                currentIds = ConcurrentHashMap.newKeySet()
+                currentIdsStartTime = now
+                rebuildNeeded = filter.isSaturated()
+            }
+            if (now - timestamp < retentionPeriod) {
+                currentIds.add(id)
+            }
+        }
+    }
+
+    fun isRebuildNeeded() = rebuildNeeded
+
+    /**
+     * Replaces the bloom filter with a new one sized for twice the current ids count.
+     * [loadIds] passes all ids stored in the database to the consumer, ids added to the index meanwhile are added to the new filter as well.
+     * The current filter is kept if [loadIds] fails.
+     */
+    fun rebuild(loadIds: (consumer: (String) -> Unit) -> Unit) {
+        val newFilter = BloomFilter(Math.max(expectedIdsCount, filter.addedCount.get() * 2), falsePositiveProbability)
+        synchronized(filterLock) {
+            rebuildingFilter = newFilter
+        }
+        try {
+            loadIds { newFilter.add(it) }
+            synchronized(filterLock) {
+                pendingIds.forEach { newFilter.add(it) }
+                pendingIds.clear()
+                filter = newFilter
+            }
+            rebuildNeeded = false
+        } finally {
+            synchronized(filterLock) {
+                rebuildingFilter = null
+            }
+        }
+    }
+
+    fun check(id: String): CheckResult {
+        if (!filter.mightContain(id)) {
+            notProcessedCount.incrementAndGet()
+            return CheckResult.NOT_PROCESSED
+        }
+        if (currentIds.contains(id) || previousIds.contains(id)) {
+            processedCount.incrementAndGet()
+            return CheckResult.PROCESSED
+        }
+        unknownCount.incrementAndGet()
+        return CheckResult.UNKNOWN
+    }
+
+    /** Is called if id with [CheckResult.UNKNOWN] check result is not found in the database */
+    fun onFalsePositive() {
+        falsePositivesCount.incrementAndGet()
+    }
+
+    fun getStatsAndReset(): ProcessedIdsIndexStats {
+        return ProcessedIdsIndexStats(notProcessedCount.getAndSet(0),
+                processedCount.getAndSet(0),
+                unknownCount.getAndSet(0),
+                falsePositivesCount.getAndSet(0))
+    }
+
+    private fun addToFilters(id: String) {
+        filter.add(id)
+        rebuildingFilter?.add(id)
+    }
+
+    /** Bloom filter sized for [expectedIdsCount] ids with [falsePositiveProbability] */
+    private class BloomFilter(private val expectedIdsCount: Long,
+                              falsePositiveProbability: Double) {
+        private val bits: AtomicLongArray
+        private val bitsCount: Long
+        private val hashesCount: Int
+
+        /** Count of added ids which were absent in the filter */
+        val addedCount = AtomicLong()
+
+        init {
+            val idsCount = Math.max(expectedIdsCount, 1L)
+            val ln2 = Math.log(2.0)
+            val optimalBitsCount = Math.ceil(-idsCount * Math.log(falsePositiveProbability) / (ln2 * ln2)).toLong()
+            val wordsCount = Math.max((optimalBitsCount + 63) / 64, 1L)
+            if (wordsCount > Int.MAX_VALUE) {
+                throw IllegalArgumentException("Bloom filter is too large for $expectedIdsCount ids with false positive probability $falsePositiveProbability")
+            }
+            bits = AtomicLongArray(wordsCount.toInt())
+            bitsCount = wordsCount * 64
+            hashesCount = Math.max(1, Math.round(bitsCount.toDouble() / idsCount * ln2).toInt())
+        }
+
+        fun isSaturated() = addedCount.get() > expectedIdsCount
+
+        fun add(id: String) {
+            val hash = hash(id)
+            val secondHash = java.lang.Long.rotateLeft(hash, 32) or 1L
+            var added = false
+            for (i in 0 until hashesCount) {
+                added = setBit(bitIndex(hash, secondHash, i)) || added
+            }
+            if (added) {
+                addedCount.incrementAndGet()
+            }
+        }
+
+        fun mightContain(id: String): Boolean {
+            val hash = hash(id)
+            val secondHash = java.lang.Long.rotateLeft(hash, 32) or 1L
+            for (i in 0 until hashesCount) {
+                if (!isBitSet(bitIndex(hash, secondHash, i))) {
+                    return false
+                }
+            }
+            return true
+        }
+
+        private fun bitIndex(hash: Long, secondHash: Long, i: Int): Long {
+            return ((hash + i * secondHash) and Long.MAX_VALUE) % bitsCount
+        }
+
+        private fun isBitSet(index: Long): Boolean {
+            return (bits.get((index ushr 6).toInt()) and (1L shl (index and 63).toInt())) != 0L
+        }
+
+        /** @return true if the bit was not set */
+        private fun setBit(index: Long): Boolean {
+            val word = (index ushr 6).toInt()
+            val mask = 1L shl (index and 63).toInt()
+            while (true) {
+                val value = bits.get(word)
+                if ((value and mask) != 0L) {
+                    return false
+                }
+                if (bits.compareAndSet(word, value, value or mask)) {
+                    return true
+                }
+            }
+        }
+
+        /** FNV-1a hash of chars mixed by murmur3 finalizer */
+        private fun hash(id: String): Long {
+            var hash = -0x340d631b7bdddcdbL
+            for (i in 0 until id.length) {
+                hash = (hash xor id[i].toLong()) * 0x100000001b3L
+            }
+            hash = (hash xor (hash ushr 33)) * -0xae502812aa7333L
+            hash = (hash xor (hash ushr 33)) * -0x3b314601e57a13adL
+            return hash xor (hash ushr 33)
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.lykke.matching.engine.deduplication.impl
+
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Open addressing (linear probing) set of 128-bit hashes stored in primitive arrays.
+ * Zero hash is reserved for empty slots, so it is replaced by another value.
+ * [clear] keeps allocated arrays to reuse them for next messages.
+ *
+ * Hashes are added and the set is cleared by one thread at a time, [contains] can be called by other threads without locking:
+ * slots are atomic, a slot is emptied only by [clear] and resized table is published after it is filled,
+ * so a concurrent lookup can miss only hashes which are being added or cleared.
+ */
+class MessageHashesBucket(initialCapacity: Int) {
+
+    companion object {
+        private const val MAX_LOAD_FACTOR = 0.7
+    }
+
+    private class Table(val length: Int) {
+        val highs = AtomicLongArray(length)
+        val lows = AtomicLongArray(length)
+        val mask = length - 1
+
+        fun isEmpty(index: Int) = highs.get(index) == 0L && lows.get(index) == 0L
+
+        fun slot(low: Long): Int {
+            return (low xor (low ushr 32)).toInt() and mask
+        }
+    }
+
+    @Volatile
+    private var table = Table(tableSize(initialCapacity))
+
+    @Volatile
+    var size = 0
+        private set
+
+    val allocatedBytes: Long
+        get() = table.length * 16L
+
+    fun add(high: Long, low: Long): Boolean {
+        val storedLow = if (high == 0L && low == 0L) 1L else low
+        if (size + 1 > table.length * MAX_LOAD_FACTOR) {
+            resize(table.length * 2)
+        }
+        val table = this.table
+        var index = table.slot(storedLow)
+        while (!table.isEmpty(index)) {
+            if (table.highs.get(index) == high && table.lows.get(index) == storedLow) {
+                return false
+            }
+            index = (index + 1) and table.mask
+        }
+        table.lows.set(index, storedLow)
+        table.highs.set(index, high)
+        size++
+        return true
+    }
+
+    fun contains(high: Long, low: Long): Boolean {
+        val storedLow = if (high == 0L && low == 0L) 1L else low
+        val table = this.table
+        var index = table.slot(storedLow)
+        while (!table.isEmpty(index)) {
+            if (table.highs.get(index) == high && table.lows.get(index) == storedLow) {
+                return true
+            }
+            index = (index + 1) and table.mask
+        }
+        return false
+    }
+
+    fun clear() {
+        if (size > 0) {
+            val table = this.table
+            for (i in 0 until table.length) {
+                table.highs.lazySet(i, 0L)
+                table.lows.lazySet(i, 0L)
+            }
+            size = 0
+        }
+    }
+
+    private fun resize(newSize: Int) {
+        val oldTable = table
+        val newTable = Table(newSize)
+        for (i in 0 until oldTable.length) {
+            if (!oldTable.isEmpty(i)) {
+                val low = oldTable.lows.get(i)
+                var index = newTable.slot(low)
+                while (!newTable.isEmpty(index)) {
+                    index = (index + 1) and newTable.mask
+                }
+                newTable.highs.set(index, oldTable.highs.get(i))
+                newTable.lows.set(index, low)
+            }
+        }
+        table = newTable
+    }
+
+    private fun tableSize(capacity: Int): Int {
+        var result = 16
+        while (result * MAX_LOAD_FACTOR < capacity) {
+            result = result shl 1
+        }
+        return result
+    }
+}
@@ -0,0 +1,79 @@
+package com.lykke.matching.engine.deduplication.impl
+
+/**
+ * Calculates 128-bit MurmurHash3 (x64 variant) of message id chars seeded by message type.
+ * Result is kept in [high] and [low] fields to avoid allocations, so instance must not be shared between threads.
+ */
+class MessageIdHasher {
+
+    companion object {
+        private const val C1 = -0x783c846eeebdac2bL
+        private const val C2 = 0x4cf5ad432745937fL
+    }
+
+    var high = 0L
+        private set
+    var low = 0L
+        private set
+
+    fun hash(type: Byte, id: String) {
+        val length = id.length
+        var h1 = type.toLong()
+        var h2 = type.toLong()
+
+        var i = 0
+        while (i + 8 <= length) {
+            h1 = h1 xor mixK1(chars(id, i, 4))
+            h1 = java.lang.Long.rotateLeft(h1, 27) + h2
+            h1 = h1 * 5 + 0x52dce729
+            h2 = h2 xor mixK2(chars(id, i + 4, 4))
+            h2 = java.lang.Long.rotateLeft(h2, 31) + h1
+            h2 = h2 * 5 + 0x38495ab5
+            i += 8
+        }
+
+        val remaining = length - i
+        if (remaining > 4) {
+            h2 = h2 xor mixK2(chars(id, i + 4, remaining - 4))
+        }
+        if (remaining > 0) {
+            h1 = h1 xor mixK1(chars(id, i, Math.min(remaining, 4)))
+        }
+
+        h1 = h1 xor (length * 2L)
+        h2 = h2 xor (length * 2L)
+        h1 += h2
+        h2 += h1
+        h1 = fmix(h1)
+        h2 = fmix(h2)
+        h1 += h2
+        h2 += h1
+
+        high = h1
+        low = h2
+    }
+
+    /** Little endian 16-bit chars as 64-bit block */
+    private fun chars(id: String, offset: Int, count: Int): Long {
+        var result = 0L
+        for (j in 0 until count) {
+            result = result or (id[offset + j].toLong() shl (16 * j))
+        }
+        return result
+    }
+
+    private fun mixK1(k1: Long): Long {
+        return java.lang.Long.rotateLeft(k1 * C1, 31) * C2
+    }
+
+    private fun mixK2(k2: Long): Long {
+        return java.lang.Long.rotateLeft(k2 * C2, 33) * C1
+    }
+
+    private fun fmix(value: Long): Long {
+        var k = value
+        k = (k xor (k ushr 33)) * -0xae502812aa7333L
+        k = (k xor (k ushr 33)) * -0x3b314601e57a13adL
+        return k xor (k ushr 33)
+    }
+}
@@ -3,7 +3,9 @@ package com.lykke.matching.engine.deduplication.impl
 import com.lykke.matching.engine.database.ReadOnlyProcessedMessagesDatabaseAccessor
 import com.lykke.matching.engine.deduplication.ProcessedMessage
 import com.lykke.matching.engine.deduplication.ProcessedMessagesCache
+import com.lykke.matching.engine.utils.PrintUtils
 import com.lykke.matching.engine.utils.config.Config
+import org.slf4j.LoggerFactory
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.beans.factory.annotation.Qualifier
 import org.springframework.scheduling.TaskScheduler
@@ -11,11 +13,17 @@ import org.springframework.stereotype.Component
 import java.time.Duration
 import java.time.Instant
 import java.time.ZonedDateTime
-import java.util.*
-import java.util.concurrent.atomic.AtomicReference
+import java.util.concurrent.atomic.LongAdder
 import javax.annotation.PostConstruct
-import kotlin.collections.HashMap
 
+/**
+ * Keeps 128-bit hashes of processed message ids (seeded by message type) in a ring of time buckets.
+ * Each bucket contains messages of [bucketInterval] ms, the oldest bucket is cleared and reused for new messages
+ * every [bucketInterval] ms, so messages are kept at least processedMessagesInterval ms.
+ *
+ * Messages are added and buckets are cleared under lock, [isProcessed] reads buckets without locking (see [MessageHashesBucket]).
+ * Each thread hashes ids with its own [MessageIdHasher].
+ */
 @Component
 class ProcessedMessagesCacheImpl @Autowired constructor(
         @Qualifier("MultiSourceProcessedMessageDatabaseAccessor")
@@ -23,43 +31,72 @@ class ProcessedMessagesCacheImpl @Autowired constructor(
         private val config: Config,
         private val taskScheduler: TaskScheduler) : ProcessedMessagesCache {
 
-    private var typeToProcessedMessage = AtomicReference<HashMap<Byte, MutableSet<String>>>()
-    private var prevTypeToProcessedMessage =  AtomicReference<HashMap<Byte, MutableSet<String>>>()
-
-    override fun addMessage(message: ProcessedMessage) {
-        typeToProcessedMessage.get().getOrPut(message.type) { HashSet() }.add(message.messageId)
+    companion object {
+        private val LOGGER = LoggerFactory.getLogger(ProcessedMessagesCacheImpl::class.java.name)
+        private const val BUCKETS_COUNT = 10
+        private const val INITIAL_BUCKET_CAPACITY = 1024
     }
 
-    override fun isProcessed(type: Byte, messageId: String): Boolean {
-        return containsMessageId(typeToProcessedMessage.get()[type], messageId)
-                || containsMessageId(prevTypeToProcessedMessage.get()[type], messageId)
-    }
+    private val bucketInterval = Math.max(config.me.processedMessagesInterval / BUCKETS_COUNT, 1L)
+    private val buckets = Array(BUCKETS_COUNT + 1) { MessageHashesBucket(INITIAL_BUCKET_CAPACITY) }
+    private var currentBucketIndex = 0
+    private val hashers = ThreadLocal.withInitial { MessageIdHasher() }
+
+    private val lookupsCount = LongAdder()
+    private val lookupsTime = LongAdder()
 
-    private fun containsMessageId(processedMessages: Set<String>?, messageId: String): Boolean {
-        if (processedMessages == null) {
-            return false
+    override fun addMessage(message: ProcessedMessage) {
+        val hasher = hashers.get()
+        hasher.hash(message.type, message.messageId)
+        synchronized(this) {
+            buckets[currentBucketIndex].add(hasher.high, hasher.low)
         }
+    }
 
-        return processedMessages.contains(messageId)
+    override fun isProcessed(type: Byte, messageId: String): Boolean {
+        val startTime = System.nanoTime()
+        val hasher = hashers.get()
+        hasher.hash(type, messageId)
+        val result = buckets.any { it.size > 0 && it.contains(hasher.high, hasher.low) }
+        lookupsTime.add(System.nanoTime() - startTime)
+        lookupsCount.increment()
+        return result
     }
 
     @PostConstruct
     private fun initCache() {
-        typeToProcessedMessage.set(HashMap())
-        prevTypeToProcessedMessage.set(HashMap())
+        val now = System.currentTimeMillis()
         val cutoffTime = getCutoffTime()
+        val hasher = hashers.get()
         readOnlyProcessedMessagesDatabaseAccessor.get().forEach {
             if (it.timestamp > cutoffTime) {
-                typeToProcessedMessage.get().getOrPut(it.type) { HashSet() }.add(it.messageId)
+                // bucket of the message is the current one or one of the previous buckets
+                val age = Math.min(Math.max(now - it.timestamp, 0L) / bucketInterval, BUCKETS_COUNT.toLong()).toInt()
+                hasher.hash(it.type, it.messageId)
+                buckets[(buckets.size - age) % buckets.size].add(hasher.high, hasher.low)
             }
         }
 
         scheduleCleaning()
     }
 
+    @Synchronized
     private fun clean() {
-        prevTypeToProcessedMessage.set(typeToProcessedMessage.get())
-        typeToProcessedMessage.set(HashMap())
+        logStats()
+        currentBucketIndex = (currentBucketIndex + 1) % buckets.size
+        buckets[currentBucketIndex].clear()
+    }
+
+    private fun logStats() {
+        val lookupsCount = this.lookupsCount.sumThenReset()
+        val lookupsTime = this.lookupsTime.sumThenReset()
+        val entriesCount = buckets.sumBy { it.size }
+        val allocatedBytes = buckets.fold(0L) { sum, bucket -> sum + bucket.allocatedBytes }
+        LOGGER.info("Processed messages cache: $entriesCount messages, " +
+                "allocated ${allocatedBytes / 1024} KB" +
+                (if (entriesCount > 0) " (${allocatedBytes / entriesCount} bytes per message)" else "") +
+                ", lookups: $lookupsCount" +
+                (if (lookupsCount > 0) ", average lookup time: ${PrintUtils.convertToString2(lookupsTime.toDouble() / lookupsCount)}" else ""))
     }
 
     private fun scheduleCleaning() {
@@ -69,14 +106,14 @@ class ProcessedMessagesCacheImpl @Autowired constructor(
                     clean()
                 },
                 getStarCleaningTime(),
-                Duration.ofMillis(config.me.processedMessagesInterval))
+                Duration.ofMillis(bucketInterval))
     }
 
     private fun getStarCleaningTime(): Instant {
-        return ZonedDateTime.now().toInstant().plusMillis(config.me.processedMessagesInterval)
+        return ZonedDateTime.now().toInstant().plusMillis(bucketInterval)
     }
 
     private fun getCutoffTime(): Long {
-        return Date().time - config.me.processedMessagesInterval
+        return System.currentTimeMillis() - config.me.processedMessagesInterval
     }
-}
\ No newline at end of file
+}
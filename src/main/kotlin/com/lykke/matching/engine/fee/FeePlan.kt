@@ -0,0 +1,36 @@
+package com.lykke.matching.engine.fee
+
+import com.lykke.matching.engine.daos.Asset
+import com.lykke.matching.engine.daos.AssetPair
+import com.lykke.matching.engine.daos.FeeSizeType
+import java.math.BigDecimal
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Fee instructions compiled with their fee assets and size types.
+ * Plan is shared by all orders and operations with equal fee instructions,
+ * it is valid until assets or asset pairs are reloaded (see [assetsVersion] and [assetPairsVersion]).
+ */
+class FeePlan(val instructions: List<CompiledFeeInstruction>,
+              val assetsVersion: Long,
+              val assetPairsVersion: Long) {
+
+    /** Operation asset id -> asset, is filled on the first operation of the asset */
+    val operationAssets = ConcurrentHashMap<String, Asset>()
+}
+
+class CompiledFeeInstruction(val sizeType: FeeSizeType?,
+                             val size: BigDecimal?,
+                             /** false if the instruction has no maker fee */
+                             val isLimitOrderFee: Boolean,
+                             val makerSizeType: FeeSizeType?,
+                             val makerSize: BigDecimal?,
+                             val makerFeeModificator: BigDecimal?,
+                             /** null if fee is paid in operation asset */
+                             val feeAssetId: String?,
+                             /** null if fee is paid in operation asset or fee asset is not found on compilation */
+                             val feeAsset: Asset?) {
+
+    /** Operation asset id -> asset pair to convert fee from operation asset to [feeAsset] */
+    val conversionAssetPairs = ConcurrentHashMap<String, AssetPair>()
+}
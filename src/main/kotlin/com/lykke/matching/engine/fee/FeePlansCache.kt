@@ -0,0 +1,106 @@
+package com.lykke.matching.engine.fee
+
+import com.lykke.matching.engine.daos.FeeSizeType
+import com.lykke.matching.engine.daos.FeeType
+import com.lykke.matching.engine.daos.fee.v2.NewFeeInstruction
+import com.lykke.matching.engine.daos.fee.v2.NewLimitOrderFeeInstruction
+import com.lykke.matching.engine.daos.v2.FeeInstruction
+import com.lykke.matching.engine.daos.v2.LimitOrderFeeInstruction
+import com.lykke.matching.engine.holders.AssetsHolder
+import com.lykke.matching.engine.holders.AssetsPairsHolder
+import java.math.BigDecimal
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Interns [FeePlan]s by values of fee instructions: market makers send the same fee instructions with every order.
+ * Plan is compiled again once assets or asset pairs are reloaded.
+ */
+class FeePlansCache(private val assetsHolder: AssetsHolder,
+                    private val assetsPairsHolder: AssetsPairsHolder) {
+
+    private companion object {
+        const val MAX_PLANS_COUNT = 10000
+    }
+
+    private data class FeeInstructionKey(val instructionClass: Class<*>,
+                                         val type: FeeType,
+                                         val sizeType: FeeSizeType?,
+                                         val size: BigDecimal?,
+                                         val makerSizeType: FeeSizeType?,
+                                         val makerSize: BigDecimal?,
+                                         val makerFeeModificator: BigDecimal?,
+                                         val sourceClientId: String?,
+                                         val targetClientId: String?,
+                                         val assetIds: List<String>)
+
+    private val plans = ConcurrentHashMap<List<FeeInstructionKey>, FeePlan>()
+
+    /** Builds keys of all instructions, is called once per order or operation (see [FeeProcessor.compileFeePlan]) */
+    fun getPlan(feeInstructions: List<FeeInstruction>): FeePlan {
+        val assetsVersion = assetsHolder.getVersion()
+        val assetPairsVersion = assetsPairsHolder.getVersion()
+        val key = feeInstructions.map { createKey(it) }
+        val plan = plans[key]
+        if (plan != null && plan.assetsVersion == assetsVersion && plan.assetPairsVersion == assetPairsVersion) {
+            return plan
+        }
+
+        if (plans.size >= MAX_PLANS_COUNT) {
+            plans.clear()
+        }
+        val newPlan = FeePlan(feeInstructions.map { compile(it) }, assetsVersion, assetPairsVersion)
+        plans[key] = newPlan
+        return newPlan
+    }
+
+    fun isActual(plan: FeePlan): Boolean {
+        return plan.assetsVersion == assetsHolder.getVersion() && plan.assetPairsVersion == assetsPairsHolder.getVersion()
+    }
+
+    private fun compile(feeInstruction: FeeInstruction): CompiledFeeInstruction {
+        val feeAssetId = getFeeAssetId(feeInstruction)
+        return CompiledFeeInstruction(feeInstruction.sizeType,
+                feeInstruction.size,
+                feeInstruction is LimitOrderFeeInstruction || feeInstruction is NewLimitOrderFeeInstruction,
+                getMakerSizeType(feeInstruction),
+                getMakerSize(feeInstruction),
+                (feeInstruction as? NewLimitOrderFeeInstruction)?.makerFeeModificator,
+                feeAssetId,
+                // not found asset is looked up again on fee processing to fail the operation as before
+                if (feeAssetId != null && feeInstruction.type != FeeType.NO_FEE) assetsHolder.getAssetAllowNulls(feeAssetId) else null)
+    }
+
+    private fun createKey(feeInstruction: FeeInstruction): FeeInstructionKey {
+        return FeeInstructionKey(feeInstruction.javaClass,
+                feeInstruction.type,
+                feeInstruction.sizeType,
+                feeInstruction.size,
+                getMakerSizeType(feeInstruction),
+                getMakerSize(feeInstruction),
+                (feeInstruction as? NewLimitOrderFeeInstruction)?.makerFeeModificator,
+                feeInstruction.sourceClientId,
+                feeInstruction.targetClientId,
+                (feeInstruction as? NewFeeInstruction)?.assetIds ?: emptyList())
+    }
+
+    private fun getMakerSizeType(feeInstruction: FeeInstruction): FeeSizeType? {
+        return when (feeInstruction) {
+            is LimitOrderFeeInstruction -> feeInstruction.makerSizeType
+            is NewLimitOrderFeeInstruction -> feeInstruction.makerSizeType
+            else -> null
+        }
+    }
+
+    private fun getMakerSize(feeInstruction: FeeInstruction): BigDecimal? {
+        return when (feeInstruction) {
+            is LimitOrderFeeInstruction -> feeInstruction.makerSize
+            is NewLimitOrderFeeInstruction -> feeInstruction.makerSize
+            else -> null
+        }
+    }
+
+    private fun getFeeAssetId(feeInstruction: FeeInstruction): String? {
+        val assetIds = (feeInstruction as? NewFeeInstruction)?.assetIds
+        return if (assetIds != null && assetIds.isNotEmpty()) assetIds.first() else null
+    }
+}
@@ -2,15 +2,14 @@ package com.lykke.matching.engine.fee
 
 import com.lykke.matching.engine.balance.BalancesGetter
 import com.lykke.matching.engine.daos.Asset
+import com.lykke.matching.engine.daos.AssetPair
 import com.lykke.matching.engine.daos.v2.FeeInstruction
 import com.lykke.matching.engine.daos.FeeSizeType
 import com.lykke.matching.engine.daos.FeeTransfer
 import com.lykke.matching.engine.daos.FeeType
-import com.lykke.matching.engine.daos.v2.LimitOrderFeeInstruction
+import com.lykke.matching.engine.daos.Order
 import com.lykke.matching.engine.daos.WalletOperation
 import com.lykke.matching.engine.daos.fee.v2.Fee
-import com.lykke.matching.engine.daos.fee.v2.NewFeeInstruction
-import com.lykke.matching.engine.daos.fee.v2.NewLimitOrderFeeInstruction
 import com.lykke.matching.engine.holders.AssetsHolder
 import com.lykke.matching.engine.holders.AssetsPairsHolder
 import com.lykke.matching.engine.holders.BalancesHolder
@@ -32,13 +31,30 @@ class FeeProcessor(private val assetsHolder: AssetsHolder,
         private const val FEE_COEF_ACCURACY = 12
     }
 
+    private val feePlansCache = FeePlansCache(assetsHolder, assetsPairsHolder)
+
+    /** Is called once the order is accepted, the plan is stored with the order and is used for all its trades */
+    fun compileFeePlan(order: Order) {
+        order.feePlan = feePlansCache.getPlan(order.fees ?: emptyList())
+    }
+
+    /** Returns the plan stored with the order, plan is compiled again only if assets or asset pairs are changed */
+    fun getFeePlan(order: Order): FeePlan {
+        val feePlan = order.feePlan
+        if (feePlan == null || !feePlansCache.isActual(feePlan)) {
+            compileFeePlan(order)
+        }
+        return order.feePlan!!
+    }
+
     fun processMakerFee(feeInstructions: List<FeeInstruction>,
                         receiptOperation: WalletOperation,
                         operations: MutableList<WalletOperation>,
                         relativeSpread: BigDecimal? = null,
                         convertPrices: Map<String, BigDecimal> = emptyMap(),
                         balances: MutableMap<String, MutableMap<String, BigDecimal>>? = null,
-                        balancesGetter: BalancesGetter) =
+                        balancesGetter: BalancesGetter,
+                        feePlan: FeePlan? = null) =
             processFees(feeInstructions,
                     receiptOperation,
                     operations,
@@ -46,14 +62,16 @@ class FeeProcessor(private val assetsHolder: AssetsHolder,
                     convertPrices,
                     true,
                     balances,
-                    balancesGetter)
+                    balancesGetter,
+                    feePlan)
 
     fun processFee(feeInstructions: List<FeeInstruction>?,
                    receiptOperation: WalletOperation,
                    operations: MutableList<WalletOperation>,
                    convertPrices: Map<String, BigDecimal> = emptyMap(),
                    balances: MutableMap<String, MutableMap<String, BigDecimal>>? = null,
-                   balancesGetter: BalancesGetter) =
+                   balancesGetter: BalancesGetter,
+                   feePlan: FeePlan? = null) =
             processFees(feeInstructions,
                     receiptOperation,
                     operations,
@@ -61,7 +79,8 @@ class FeeProcessor(private val assetsHolder: AssetsHolder,
                     convertPrices,
                     false,
                     balances,
-                    balancesGetter)
+                    balancesGetter,
+                    feePlan)
 
     private fun processFees(feeInstructions: List<FeeInstruction>?,
                             receiptOperation: WalletOperation,
@@ -70,7 +89,8 @@ class FeeProcessor(private val assetsHolder: AssetsHolder,
                             convertPrices: Map<String, BigDecimal>,
                             isMakerFee: Boolean,
                             externalBalances: MutableMap<String, MutableMap<String, BigDecimal>>? = null,
-                            balancesGetter: BalancesGetter): List<Fee> {
+                            balancesGetter: BalancesGetter,
+                            orderFeePlan: FeePlan?): List<Fee> {
         if (feeInstructions?.isNotEmpty() != true) {
             return listOf()
         }
@@ -80,28 +100,25 @@ class FeeProcessor(private val assetsHolder: AssetsHolder,
             balances.putAll(clientBalances.mapValues { HashMap<String, BigDecimal>(it.value) })
         }
         val newOperations = LinkedList(operations)
-        val fees = feeInstructions.map { feeInstruction ->
+        // orders pass the plan compiled on acceptance, operations compile it here once
+        val feePlan = orderFeePlan ?: feePlansCache.getPlan(feeInstructions)
+        val fees = feeInstructions.zip(feePlan.instructions) { feeInstruction, compiledInstruction ->
             val feeTransfer = if (isMakerFee) {
                 feeCoefCalculator as MakerFeeCoefCalculator
-                when (feeInstruction) {
-                    is LimitOrderFeeInstruction -> {
-                        feeCoefCalculator.feeModificator = null
-                        processFee(feeInstruction, receiptOperationWrapper, newOperations, feeInstruction.makerSizeType,
-                                feeInstruction.makerSize, feeCoefCalculator.calculate(), balances, balancesGetter, convertPrices)
-                    }
-                    is NewLimitOrderFeeInstruction -> {
-                        feeCoefCalculator.feeModificator = feeInstruction.makerFeeModificator
-                        processFee(feeInstruction, receiptOperationWrapper, newOperations, feeInstruction.makerSizeType, feeInstruction.makerSize,
-                                feeCoefCalculator.calculate(), balances, balancesGetter, convertPrices)
-                    }
-                    else -> throw FeeException("Fee instruction should be instance of LimitOrderFeeInstruction")
+                if (!compiledInstruction.isLimitOrderFee) {
+                    throw FeeException("Fee instruction should be instance of LimitOrderFeeInstruction")
                 }
+                feeCoefCalculator.feeModificator = compiledInstruction.makerFeeModificator
+                processFee(feeInstruction, compiledInstruction, feePlan, receiptOperationWrapper, newOperations, compiledInstruction.makerSizeType,
+                        compiledInstruction.makerSize, feeCoefCalculator.calculate(), balances, balancesGetter, convertPrices)
             } else {
                 processFee(feeInstruction,
+                        compiledInstruction,
+                        feePlan,
                         receiptOperationWrapper,
                         newOperations,
-                        feeInstruction.sizeType,
-                        feeInstruction.size,
+                        compiledInstruction.sizeType,
+                        compiledInstruction.size,
                         feeCoefCalculator.calculate(),
                         balances,
                         balancesGetter,
@@ -126,6 +143,8 @@ class FeeProcessor(private val assetsHolder: AssetsHolder,
     }
 
     private fun processFee(feeInstruction: FeeInstruction,
+                           compiledInstruction: CompiledFeeInstruction,
+                           feePlan: FeePlan,
                            receiptOperationWrapper: ReceiptOperationWrapper,
                            operations: MutableList<WalletOperation>,
                            feeSizeType: FeeSizeType?,
@@ -141,15 +160,15 @@ class FeeProcessor(private val assetsHolder: AssetsHolder,
             throw FeeException("Invalid fee instruction (size type: $feeSizeType, size: $feeSize, targetClientId: ${feeInstruction.targetClientId })")
         }
         val receiptOperation = receiptOperationWrapper.baseReceiptOperation
-        val operationAsset = assetsHolder.getAsset(receiptOperation.assetId)
-        val feeAsset = getFeeAsset(feeInstruction, operationAsset)
+        val operationAsset = feePlan.operationAssets.getOrPut(receiptOperation.assetId) { assetsHolder.getAsset(receiptOperation.assetId) }
+        val feeAsset = getFeeAsset(compiledInstruction, operationAsset)
         val isAnotherAsset = operationAsset.assetId != feeAsset.assetId
 
         val absFeeAmount = NumberUtils.setScaleRoundUp(when (feeSizeType) {
             FeeSizeType.PERCENTAGE -> {
                 // In case of cash out receipt operation has a negative amount, but fee amount should be positive
                 val absBaseAssetFeeAmount = receiptOperation.amount.abs() * feeSize
-                (if (isAnotherAsset) absBaseAssetFeeAmount * computeInvertCoef(operationAsset.assetId, feeAsset.assetId, convertPrices) else absBaseAssetFeeAmount) * (feeCoef ?: BigDecimal.ONE)
+                (if (isAnotherAsset) absBaseAssetFeeAmount * computeInvertCoef(getConversionAssetPair(compiledInstruction, operationAsset.assetId, feeAsset.assetId), feeAsset.assetId, convertPrices) else absBaseAssetFeeAmount) * (feeCoef ?: BigDecimal.ONE)
             }
             FeeSizeType.ABSOLUTE -> feeSize * (feeCoef ?: BigDecimal.ONE)
         }, feeAsset.accuracy)
@@ -225,20 +244,22 @@ class FeeProcessor(private val assetsHolder: AssetsHolder,
                 feeAsset.assetId, if (feeCoef != null) NumberUtils.setScaleRoundHalfUp(feeCoef, FEE_COEF_ACCURACY) else null)
     }
 
-    private fun getFeeAsset(feeInstruction: FeeInstruction, operationAsset: Asset): Asset {
-        val assetIds = when (feeInstruction) {
-            is NewFeeInstruction -> feeInstruction.assetIds
-            else -> listOf()
-        }
-        return if (assetIds.isNotEmpty()) assetsHolder.getAsset(assetIds.first()) else operationAsset
+    private fun getFeeAsset(compiledInstruction: CompiledFeeInstruction, operationAsset: Asset): Asset {
+        val feeAssetId = compiledInstruction.feeAssetId ?: return operationAsset
+        return compiledInstruction.feeAsset ?: assetsHolder.getAsset(feeAssetId)
     }
 
-    private fun computeInvertCoef(operationAssetId: String, feeAssetId: String, convertPrices: Map<String, BigDecimal>): BigDecimal {
-        val assetPair = try {
-            assetsPairsHolder.getAssetPair(operationAssetId, feeAssetId)
-        } catch (e: Exception) {
-            throw FeeException(e.message ?: "Unable to get asset pair for ($operationAssetId, $feeAssetId})")
+    private fun getConversionAssetPair(compiledInstruction: CompiledFeeInstruction, operationAssetId: String, feeAssetId: String): AssetPair {
+        return compiledInstruction.conversionAssetPairs.getOrPut(operationAssetId) {
+            try {
+                assetsPairsHolder.getAssetPair(operationAssetId, feeAssetId)
+            } catch (e: Exception) {
+                throw FeeException(e.message ?: "Unable to get asset pair for ($operationAssetId, $feeAssetId})")
+            }
         }
+    }
+
+    private fun computeInvertCoef(assetPair: AssetPair, feeAssetId: String, convertPrices: Map<String, BigDecimal>): BigDecimal {
         val price = if (convertPrices.containsKey(assetPair.assetPairId)) {
             convertPrices[assetPair.assetPairId]!!
         } else {
@@ -14,4 +14,6 @@ class AssetsHolder @Autowired constructor (private val assetsCache: AssetsCache)
     fun getAssetAllowNulls(assetId: String): Asset? {
         return assetsCache.getAsset(assetId)
     }
+
+    fun getVersion() = assetsCache.version
 }
\ No newline at end of file
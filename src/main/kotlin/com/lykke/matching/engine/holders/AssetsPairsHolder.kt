@@ -22,4 +22,6 @@ class AssetsPairsHolder @Autowired constructor(private val assetPairsCache: Asse
     fun getAssetPairsByAssetId(assetId: String): Set<AssetPair> {
         return assetPairsCache.getAssetPairByAssetId(assetId)
     }
+
+    fun getVersion() = assetPairsCache.version
 }
\ No newline at end of file
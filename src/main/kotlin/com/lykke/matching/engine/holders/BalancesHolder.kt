@@ -7,9 +7,14 @@ import com.lykke.matching.engine.daos.wallet.Wallet
 import com.lykke.matching.engine.database.PersistenceManager
 import com.lykke.matching.engine.database.common.entity.BalancesData
 import com.lykke.matching.engine.database.common.entity.PersistenceData
+import com.lykke.matching.engine.database.snapshot.EngineStateSnapshotLoader
 import com.lykke.matching.engine.deduplication.ProcessedMessage
+import com.lykke.matching.engine.outgoing.eventlog.OldFormatEventLog
+import com.lykke.matching.engine.outgoing.eventlog.OldFormatEventQueue
+import com.lykke.matching.engine.outgoing.eventlog.OutgoingEventLogHolder
 import com.lykke.matching.engine.outgoing.messages.BalanceUpdate
 import com.lykke.matching.engine.order.transaction.CurrentTransactionBalancesHolder
+import com.lykke.matching.engine.readmodel.ChangesTracker
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 import org.springframework.stereotype.Component
@@ -20,25 +25,33 @@ import java.util.concurrent.BlockingQueue
 class BalancesHolder(private val balancesDbAccessorsHolder: BalancesDatabaseAccessorsHolder,
                      private val persistenceManager: PersistenceManager,
                      private val assetsHolder: AssetsHolder,
-                     private val balanceUpdateQueue: BlockingQueue<BalanceUpdate>,
-                     private val applicationSettingsHolder: ApplicationSettingsHolder): BalancesGetter {
+                     balanceUpdateQueue: BlockingQueue<BalanceUpdate>,
+                     private val applicationSettingsHolder: ApplicationSettingsHolder,
+                     private val engineStateSnapshotLoader: EngineStateSnapshotLoader? = null,
+                     outgoingEventLogHolder: OutgoingEventLogHolder? = null): BalancesGetter {
 
     companion object {
         private val LOGGER = LoggerFactory.getLogger(BalancesHolder::class.java.name)
     }
 
+    private val balanceUpdateQueue = OldFormatEventQueue(balanceUpdateQueue, OldFormatEventLog.BALANCE_UPDATES, outgoingEventLogHolder)
+
     lateinit var wallets: MutableMap<String, Wallet>
     var initialClientsCount = 0
     var initialBalancesCount = 0
 
+    /** Clients with changed balances, is used to update the read model */
+    val changedClients = ChangesTracker()
+
     init {
         update()
     }
 
     private fun update() {
-        wallets = balancesDbAccessorsHolder.primaryAccessor.loadWallets()
+        wallets = engineStateSnapshotLoader?.takeWallets() ?: balancesDbAccessorsHolder.primaryAccessor.loadWallets()
         initialClientsCount = wallets.size
         initialBalancesCount = wallets.values.sumBy { it.balances.size }
+        changedClients.onAllChanged()
     }
 
     fun clientExists(clientId: String): Boolean {
@@ -147,6 +160,7 @@ class BalancesHolder(private val balancesDbAccessorsHolder: BalancesDatabaseAcce
     fun setWallets(wallets: Collection<Wallet>) {
         wallets.forEach { wallet ->
             this.wallets[wallet.clientId] = wallet
+            changedClients.onChanged(wallet.clientId)
         }
     }
 }
\ No newline at end of file
@@ -12,6 +12,9 @@ class MessageSequenceNumberHolder(messageSequenceNumberDatabaseAccessor: ReadOnl
     @Synchronized
     fun getNewValue() = ++sequenceNumber
 
+    @Synchronized
+    fun getValue() = sequenceNumber
+
     @Synchronized
     fun getValueToPersist(): Long? {
         return if (persistedSequenceNumber != sequenceNumber) {
@@ -22,4 +25,16 @@ class MessageSequenceNumberHolder(messageSequenceNumberDatabaseAccessor: ReadOnl
         }
     }
 
+    /** Is called by persistence manager after [value] is written to the database */
+    @Synchronized
+    fun setPersistedValue(value: Long) {
+        if (value > persistedSequenceNumber) {
+            persistedSequenceNumber = value
+        }
+    }
+
+    /** Returns true if [value] is already passed to persistence or written to the database */
+    @Synchronized
+    fun isPersisted(value: Long) = value <= persistedSequenceNumber
+
 }
\ No newline at end of file
@@ -1,7 +1,9 @@
 package com.lykke.matching.engine.holders
 
+import com.lykke.matching.engine.database.OrderBookDatabaseAccessor
 import com.lykke.matching.engine.database.Storage
 import com.lykke.matching.engine.database.file.FileOrderBookDatabaseAccessor
+import com.lykke.matching.engine.database.file.JournalFileOrderBookDatabaseAccessor
 import com.lykke.matching.engine.database.redis.accessor.impl.RedisOrderBookDatabaseAccessor
 import com.lykke.matching.engine.database.redis.connection.RedisConnection
 import com.lykke.matching.engine.utils.config.Config
@@ -26,14 +28,22 @@ class OrdersDatabaseAccessorsHolderFactory : FactoryBean<OrdersDatabaseAccessors
     override fun getObject(): OrdersDatabaseAccessorsHolder {
         return when (config.me.storage) {
             Storage.Azure ->
-                OrdersDatabaseAccessorsHolder(FileOrderBookDatabaseAccessor(config.me.orderBookPath), null)
+                OrdersDatabaseAccessorsHolder(createPrimaryFileAccessor(), null)
             Storage.Redis ->
-                OrdersDatabaseAccessorsHolder(RedisOrderBookDatabaseAccessor(initialLoadingRedisConnection.get(), config.me.redis.ordersDatabase),
+                OrdersDatabaseAccessorsHolder(RedisOrderBookDatabaseAccessor(initialLoadingRedisConnection.get(), config.me.redis.ordersDatabase, config.me.redis.initialLoad),
                         if (config.me.writeOrdersToSecondaryDb)
                             FileOrderBookDatabaseAccessor(config.me.secondaryOrderBookPath)
                         else null)
             Storage.RedisWithoutOrders ->
-                OrdersDatabaseAccessorsHolder(FileOrderBookDatabaseAccessor(config.me.orderBookPath), null)
+                OrdersDatabaseAccessorsHolder(createPrimaryFileAccessor(), null)
         }
     }
-}
\ No newline at end of file
+
+    private fun createPrimaryFileAccessor(): OrderBookDatabaseAccessor {
+        val journalConfig = config.me.orderBookJournal
+        return if (journalConfig != null)
+            JournalFileOrderBookDatabaseAccessor(config.me.orderBookPath, journalConfig)
+        else
+            FileOrderBookDatabaseAccessor(config.me.orderBookPath)
+    }
+}
@@ -1,7 +1,9 @@
 package com.lykke.matching.engine.holders
 
+import com.lykke.matching.engine.database.StopOrderBookDatabaseAccessor
 import com.lykke.matching.engine.database.Storage
 import com.lykke.matching.engine.database.file.FileStopOrderBookDatabaseAccessor
+import com.lykke.matching.engine.database.file.JournalFileStopOrderBookDatabaseAccessor
 import com.lykke.matching.engine.database.redis.accessor.impl.RedisStopOrderBookDatabaseAccessor
 import com.lykke.matching.engine.database.redis.connection.RedisConnection
 import com.lykke.matching.engine.utils.config.Config
@@ -26,14 +28,22 @@ class StopOrdersDatabaseAccessorsHolderFactory : FactoryBean<StopOrdersDatabaseA
     override fun getObject(): StopOrdersDatabaseAccessorsHolder {
         return when (config.me.storage) {
             Storage.Azure ->
-                StopOrdersDatabaseAccessorsHolder(FileStopOrderBookDatabaseAccessor(config.me.stopOrderBookPath), null)
+                StopOrdersDatabaseAccessorsHolder(createPrimaryFileAccessor(), null)
             Storage.Redis ->
-                StopOrdersDatabaseAccessorsHolder(RedisStopOrderBookDatabaseAccessor(initialLoadingRedisConnection.get(), config.me.redis.ordersDatabase),
+                StopOrdersDatabaseAccessorsHolder(RedisStopOrderBookDatabaseAccessor(initialLoadingRedisConnection.get(), config.me.redis.ordersDatabase, config.me.redis.initialLoad),
                         if (config.me.writeOrdersToSecondaryDb)
                             FileStopOrderBookDatabaseAccessor(config.me.secondaryStopOrderBookPath)
                         else null)
             Storage.RedisWithoutOrders ->
-                StopOrdersDatabaseAccessorsHolder(FileStopOrderBookDatabaseAccessor(config.me.stopOrderBookPath), null)
+                StopOrdersDatabaseAccessorsHolder(createPrimaryFileAccessor(), null)
         }
     }
-}
\ No newline at end of file
+
+    private fun createPrimaryFileAccessor(): StopOrderBookDatabaseAccessor {
+        val journalConfig = config.me.orderBookJournal
+        return if (journalConfig != null)
+            JournalFileStopOrderBookDatabaseAccessor(config.me.stopOrderBookPath, journalConfig)
+        else
+            FileStopOrderBookDatabaseAccessor(config.me.stopOrderBookPath)
+    }
+}
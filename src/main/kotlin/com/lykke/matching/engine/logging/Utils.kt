@@ -1,6 +1,8 @@
 package com.lykke.matching.engine.logging
 
 import com.lykke.matching.engine.daos.Message
+import com.lykke.matching.engine.outgoing.eventlog.EncodedEvent
+import com.lykke.matching.engine.outgoing.eventlog.OldFormatEncodedEvent
 import com.lykke.matching.engine.outgoing.messages.*
 import com.lykke.matching.engine.outgoing.messages.v2.events.Event
 import java.util.Date
@@ -19,6 +21,10 @@ fun toLogMessage(message: Any, stringRepresentation: String): Message {
                 val header = message.header
                 Message(header.sequenceNumber, header.messageId, header.requestId, header.eventType, header.timestamp, stringRepresentation)
             }
+            is EncodedEvent ->
+                Message(message.sequenceNumber, message.messageId, message.requestId, message.eventType, Date(message.timestamp), stringRepresentation)
+            is OldFormatEncodedEvent ->
+                Message(null, message.messageId, message.requestId, message.type, Date(message.timestamp), stringRepresentation)
             else -> {
                 throw IllegalArgumentException("Unknown message type: ${message::class.java.name}")
             }
@@ -18,29 +18,37 @@ import com.lykke.matching.engine.outgoing.messages.LimitOrderWithTrades
 import com.lykke.matching.engine.outgoing.messages.LimitOrdersReport
 import com.lykke.matching.engine.outgoing.messages.LimitTradeInfo
 import com.lykke.matching.engine.outgoing.messages.TradeInfo
-import com.lykke.matching.engine.outgoing.messages.v2.builders.bigDecimalToString
+import com.lykke.matching.engine.outgoing.messages.TradeVolumes
 import com.lykke.matching.engine.outgoing.messages.v2.enums.TradeRole
 import com.lykke.matching.engine.services.GenericLimitOrderService
 import com.lykke.matching.engine.order.transaction.ExecutionContext
+import com.lykke.matching.engine.services.utils.OrderBookQueue
+import com.lykke.matching.engine.utils.FixedPointMath
 import com.lykke.matching.engine.utils.NumberUtils
+import com.lykke.matching.engine.utils.ScaledDecimal
+import org.springframework.beans.factory.annotation.Value
 import org.springframework.stereotype.Component
 import java.math.BigDecimal
-import java.util.HashMap
-import java.util.HashSet
-import java.util.LinkedList
-import java.util.concurrent.PriorityBlockingQueue
+import java.util.Collections
 
 @Component
 class MatchingEngine(private val genericLimitOrderService: GenericLimitOrderService,
                      private val feeProcessor: FeeProcessor,
-                     private val uuidHolder: UUIDHolder) {
+                     private val uuidHolder: UUIDHolder,
+                     @Value("#{Config.me.fixedPointArithmetic}")
+                     fixedPointArithmetic: Boolean? = null) {
 
     companion object {
         private const val RELATIVE_SPREAD_ACCURACY = 4
     }
 
+    /** Volumes and balances of trades are calculated using scaled long values if possible, see [ScaledDecimal] */
+    private val fixedPointArithmetic = fixedPointArithmetic ?: false
+
+    private val scratchState = ThreadLocal.withInitial { MatchingScratchState(this.fixedPointArithmetic) }
+
     fun match(originOrder: Order,
-              orderBook: PriorityBlockingQueue<LimitOrder>,
+              orderBook: OrderBookQueue,
               messageId: String,
               balance: BigDecimal? = null,
               priceDeviationThreshold: BigDecimal? = null,
@@ -48,64 +56,68 @@ class MatchingEngine(private val genericLimitOrderService: GenericLimitOrderServ
         val balancesGetter = executionContext.walletOperationsProcessor
         val orderWrapper = CopyWrapper(originOrder)
         val order = orderWrapper.copy
+        val orderFeePlan = feeProcessor.getFeePlan(order)
         val isMarketOrder = isMarketOrder(order)
         val assetPair = executionContext.assetPairsById[order.assetPairId]!!
         val availableBalance = balance ?: getBalance(order, assetPair, balancesGetter)
-        val workingOrderBook = PriorityBlockingQueue(orderBook)
+        val workingOrderBook = orderBook.copy()
         val bestPrice = if (workingOrderBook.isNotEmpty()) workingOrderBook.peek().takePrice() else null
         val now = executionContext.date
 
         if (!isMarketOrder && !checkExecutionPriceDeviation(order.isBuySide(), order.takePrice()!!, bestPrice, priceDeviationThreshold)) {
-            executionContext.info("Too high price deviation (order id: ${order.externalId}): threshold: $priceDeviationThreshold, bestPrice: $bestPrice, price: ${order.takePrice()})")
+            executionContext.info { "Too high price deviation (order id: ${order.externalId}): threshold: $priceDeviationThreshold, bestPrice: $bestPrice, price: ${order.takePrice()})" }
             order.updateStatus(OrderStatus.TooHighPriceDeviation, now)
             return MatchingResult(orderWrapper, emptySet())
         }
 
-        var remainingVolume = order.getAbsVolume()
-        val matchedOrders = LinkedList<CopyWrapper<LimitOrder>>()
-        val skipLimitOrders = HashSet<LimitOrder>()
-        val cancelledLimitOrders = HashSet<CopyWrapper<LimitOrder>>()
-        var totalLimitPrice = BigDecimal.ZERO
-        var totalVolume = BigDecimal.ZERO
-        val limitReservedBalances = HashMap<String, BigDecimal>() // limit reserved balances for trades funds control
-        val availableBalances = HashMap<String, MutableMap<String, BigDecimal>>() // clientId -> assetId -> balance; available balances for market balance control and fee funds control
+        val scratch = scratchState.get()
+        scratch.reset()
+
+        val scaledRemainingVolume = scratch.remainingVolume.set(order.getAbsVolume())
+        val matchedOrders = ArrayList<CopyWrapper<LimitOrder>>()
+        val skipLimitOrders = scratch.skipLimitOrders
+        val cancelledLimitOrders = scratch.cancelledLimitOrders
+        val scaledTotalLimitPrice = scratch.totalLimitPrice
+        val scaledTotalVolume = scratch.totalVolume
+        val availableBalances = scratch.availableBalances
         val isBuy = order.isBuySide()
-        val lkkTrades = LinkedList<LkkTrade>()
-        val completedLimitOrders = LinkedList<CopyWrapper<LimitOrder>>()
+        val lkkTrades = ArrayList<LkkTrade>()
+        val completedLimitOrders = ArrayList<CopyWrapper<LimitOrder>>()
         var matchedUncompletedLimitOrderWrapper: CopyWrapper<LimitOrder>? = null
         var uncompletedLimitOrderWrapper: CopyWrapper<LimitOrder>? = null
-        val allOwnCashMovements = LinkedList<WalletOperation>()
-        val allOppositeCashMovements = LinkedList<WalletOperation>()
+        val allOwnCashMovements = ArrayList<WalletOperation>()
+        val allOppositeCashMovements = ArrayList<WalletOperation>()
         val baseAsset = executionContext.assetsById[assetPair.baseAssetId]!!
         val quotingAsset = executionContext.assetsById[assetPair.quotingAssetId]!!
         val asset = if (isBuy) quotingAsset else baseAsset
         val limitAsset = if (isBuy) baseAsset else quotingAsset
 
-        setMarketBalance(availableBalances, order, asset, availableBalance)
+        setMarketBalance(scratch, order, asset, availableBalance)
+        val scaledMarketBalance = scratch.marketBalance.set(availableBalance)
 
-        val marketOrderTrades = LinkedList<TradeInfo>()
+        val marketOrderTrades = ArrayList<TradeInfo>()
 
         val limitOrdersReport = LimitOrdersReport(messageId)
-        var totalLimitVolume = BigDecimal.ZERO
+        val scaledTotalLimitVolume = scratch.totalLimitVolume
         var matchedWithZeroLatestTrade = false
 
         if (checkOrderBook(order, workingOrderBook)) {
-            while (getMarketBalance(availableBalances, order, asset) >= BigDecimal.ZERO
+            while (scaledMarketBalance.signum() >= 0
                     && workingOrderBook.size > 0
-                    && !NumberUtils.equalsWithDefaultDelta(remainingVolume, BigDecimal.ZERO)
+                    && !scaledRemainingVolume.isZeroWithDefaultDelta()
                     && !matchedWithZeroLatestTrade
                     && (isMarketOrder || (if (isBuy) order.takePrice()!! >= workingOrderBook.peek().price else order.takePrice()!! <= workingOrderBook.peek().price))) {
                 val limitOrderOrigin = workingOrderBook.poll()
                 if (limitOrderOrigin.isExpired(now)) {
-                    executionContext.info("Added order (id: ${limitOrderOrigin.externalId}) to cancelled limit orders due to expired time")
+                    executionContext.info { "Added order (id: ${limitOrderOrigin.externalId}) to cancelled limit orders due to expired time" }
                     cancelledLimitOrders.add(CopyWrapper(limitOrderOrigin))
                     continue
                 }
                 if (order.clientId == limitOrderOrigin.clientId) {
                     if (!isMarketOrder) {
                         order.updateStatus(OrderStatus.LeadToNegativeSpread, now)
-                        executionContext.info("Order ${order.externalId} (client: ${order.clientId}) leads to negative spread with order ${limitOrderOrigin.externalId}")
-                        return MatchingResult(orderWrapper, cancelledLimitOrders)
+                        executionContext.info { "Order ${order.externalId} (client: ${order.clientId}) leads to negative spread with order ${limitOrderOrigin.externalId}" }
+                        return MatchingResult(orderWrapper, scratch.copyForResult(cancelledLimitOrders))
                     }
                     skipLimitOrders.add(limitOrderOrigin)
                     continue
@@ -116,58 +128,71 @@ class MatchingEngine(private val genericLimitOrderService: GenericLimitOrderServ
 
                 var isFullyMatched = false
 
-                val limitRemainingVolume = limitOrder.getAbsRemainingVolume()
-                val marketRemainingVolume = getCrossVolume(remainingVolume, order.isStraight(), limitOrder.price)
-                val volume = if (marketRemainingVolume > limitRemainingVolume) limitRemainingVolume else { isFullyMatched = true; marketRemainingVolume}
+                val limitPrice = scratch.limitPrice.set(limitOrder.price)
+                val limitRemainingVolume = scratch.limitRemainingVolume.set(limitOrder.getAbsRemainingVolume())
+                val marketRemainingVolume = if (order.isStraight()) scaledRemainingVolume else
+                    scratch.marketRemainingVolume.set(NumberUtils.divideWithMaxScale(scaledRemainingVolume.toBigDecimal(), limitOrder.price))
+                val volume = scratch.volume.set(if (marketRemainingVolume > limitRemainingVolume) limitRemainingVolume else { isFullyMatched = true; marketRemainingVolume})
 
 
-                var marketRoundedVolume = NumberUtils.setScale(if (isBuy) volume else -volume, baseAsset.accuracy, !isBuy)
-                var oppositeRoundedVolume = NumberUtils.setScale(if (isBuy) -limitOrder.price * volume else limitOrder.price * volume, quotingAsset.accuracy, isBuy)
+                val scaledMarketRoundedVolume = scratch.marketRoundedVolume.setScale(volume, !isBuy, baseAsset.accuracy, !isBuy)
+                val scaledOppositeRoundedVolume = scratch.oppositeRoundedVolume.multiplyAndSetScale(limitPrice, volume, isBuy, quotingAsset.accuracy, isBuy)
 
-                executionContext.info("Matching with limit order ${limitOrder.externalId}, client ${limitOrder.clientId}, price ${limitOrder.price}, " +
-                        "marketVolume ${NumberUtils.roundForPrint(if (isBuy) oppositeRoundedVolume else marketRoundedVolume)}, " +
-                        "limitVolume ${NumberUtils.roundForPrint(if (isBuy) marketRoundedVolume else oppositeRoundedVolume)}")
+                executionContext.info {
+                    "Matching with limit order ${limitOrder.externalId}, client ${limitOrder.clientId}, price ${limitOrder.price}, " +
+                            "marketVolume ${NumberUtils.roundForPrint((if (isBuy) scaledOppositeRoundedVolume else scaledMarketRoundedVolume).toBigDecimal())}, " +
+                            "limitVolume ${NumberUtils.roundForPrint((if (isBuy) scaledMarketRoundedVolume else scaledOppositeRoundedVolume).toBigDecimal())}"
+                }
 
                 if ((!order.isStraight()) && isFullyMatched) {
-                    oppositeRoundedVolume = BigDecimal.valueOf(order.volume.signum().toLong()) * (NumberUtils.setScale(order.volume.abs() - totalLimitVolume.abs(), quotingAsset.accuracy, isBuy))
-                    marketRoundedVolume = NumberUtils.setScale( NumberUtils.divideWithMaxScale(-oppositeRoundedVolume, limitOrder.price), baseAsset.accuracy, !isBuy)
-                    executionContext.info("Rounding last matched limit order trade: ${NumberUtils.roundForPrint(marketRoundedVolume)}")
+                    scaledOppositeRoundedVolume.set(BigDecimal.valueOf(order.volume.signum().toLong()) * (NumberUtils.setScale(order.volume.abs() - scaledTotalLimitVolume.toBigDecimal().abs(), quotingAsset.accuracy, isBuy)))
+                    scaledMarketRoundedVolume.set(NumberUtils.setScale( NumberUtils.divideWithMaxScale(-scaledOppositeRoundedVolume.toBigDecimal(), limitOrder.price), baseAsset.accuracy, !isBuy))
+                    executionContext.info { "Rounding last matched limit order trade: ${NumberUtils.roundForPrint(scaledMarketRoundedVolume.toBigDecimal())}" }
                 }
 
-                executionContext.info("Corrected volumes: " +
-                        "marketVolume ${NumberUtils.roundForPrint(if (isBuy) oppositeRoundedVolume else marketRoundedVolume)}, " +
-                        "limitVolume ${NumberUtils.roundForPrint(if (isBuy) marketRoundedVolume else oppositeRoundedVolume)}")
-
-                val limitOrderInfo = "id: ${limitOrder.externalId}, client: ${limitOrder.clientId}, asset: ${limitOrder.assetPairId}"
+                executionContext.info {
+                    "Corrected volumes: " +
+                            "marketVolume ${NumberUtils.roundForPrint((if (isBuy) scaledOppositeRoundedVolume else scaledMarketRoundedVolume).toBigDecimal())}, " +
+                            "limitVolume ${NumberUtils.roundForPrint((if (isBuy) scaledMarketRoundedVolume else scaledOppositeRoundedVolume).toBigDecimal())}"
+                }
 
                 if (!checkAndReduceBalance(limitOrder,
-                                if (isBuy) marketRoundedVolume else oppositeRoundedVolume,
-                                limitReservedBalances,
+                                if (isBuy) scaledMarketRoundedVolume else scaledOppositeRoundedVolume,
+                                scratch,
                                 executionContext)) {
-                    executionContext.info("Added order ($limitOrderInfo) to cancelled limit orders")
+                    executionContext.info { "Added order (${getOrderInfo(limitOrder)}) to cancelled limit orders" }
                     cancelledLimitOrders.add(limitOrderCopyWrapper)
                     continue
                 }
 
-                if (NumberUtils.equalsIgnoreScale(BigDecimal.ZERO, if (isBuy) marketRoundedVolume else oppositeRoundedVolume)) {
+                if ((if (isBuy) scaledMarketRoundedVolume else scaledOppositeRoundedVolume).signum() == 0) {
                     if (isFullyMatched) {
-                        executionContext.info("Skipped order ($limitOrderInfo) due to zero latest trade")
+                        executionContext.info { "Skipped order (${getOrderInfo(limitOrder)}) due to zero latest trade" }
                         matchedWithZeroLatestTrade = true
                         skipLimitOrders.add(limitOrderOrigin)
                     } else {
-                        executionContext.info("Added order ($limitOrderInfo) to cancelled limit orders due to zero trade")
+                        executionContext.info { "Added order (${getOrderInfo(limitOrder)}) to cancelled limit orders due to zero trade" }
                         cancelledLimitOrders.add(limitOrderCopyWrapper)
                     }
                     continue
                 }
 
+                val marketRoundedVolume = scaledMarketRoundedVolume.toBigDecimal()
+                val oppositeRoundedVolume = scaledOppositeRoundedVolume.toBigDecimal()
                 val baseAssetOperation = WalletOperation(order.clientId, assetPair.baseAssetId, marketRoundedVolume, BigDecimal.ZERO)
                 val quotingAssetOperation = WalletOperation(order.clientId, assetPair.quotingAssetId, oppositeRoundedVolume, BigDecimal.ZERO)
                 val limitBaseAssetOperation = WalletOperation(limitOrder.clientId, assetPair.baseAssetId, -marketRoundedVolume, if (-marketRoundedVolume < BigDecimal.ZERO) -marketRoundedVolume else BigDecimal.ZERO)
                 val limitQuotingAssetOperation = WalletOperation(limitOrder.clientId, assetPair.quotingAssetId, -oppositeRoundedVolume, if (-oppositeRoundedVolume < BigDecimal.ZERO) -oppositeRoundedVolume else BigDecimal.ZERO)
 
-                val ownCashMovements = mutableListOf(baseAssetOperation, quotingAssetOperation)
-                val oppositeCashMovements = mutableListOf(limitBaseAssetOperation, limitQuotingAssetOperation)
+                val ownCashMovements = scratch.ownCashMovements
+                ownCashMovements.clear()
+                ownCashMovements.add(baseAssetOperation)
+                ownCashMovements.add(quotingAssetOperation)
+                val oppositeCashMovements = scratch.oppositeCashMovements
+                oppositeCashMovements.clear()
+                oppositeCashMovements.add(limitBaseAssetOperation)
+                oppositeCashMovements.add(limitQuotingAssetOperation)
+                val feePrices = Collections.singletonMap(assetPair.assetPairId, limitOrder.price)
 
                 val bestAsk = if (isBuy) limitOrder.price else genericLimitOrderService.getOrderBook(limitOrder.assetPairId).getAskPrice()
                 val bestBid = if (isBuy) genericLimitOrderService.getOrderBook(limitOrder.assetPairId).getBidPrice() else limitOrder.price
@@ -175,17 +200,24 @@ class MatchingEngine(private val genericLimitOrderService: GenericLimitOrderServ
                 val absoluteSpread = if (validSpread) bestAsk - bestBid else null
                 val relativeSpread = if (validSpread) NumberUtils.divideWithMaxScale(absoluteSpread!!, bestAsk) else null
 
+                // market balance is passed to fee processor only if it can be used for fees
+                val feeMarketBalance = if (order.fees?.isNotEmpty() == true || limitOrder.fees?.isNotEmpty() == true)
+                    scaledMarketBalance.toBigDecimal().also { setMarketBalance(scratch, order, asset, it) }
+                else null
+
                 val makerFees = try {
                     feeProcessor.processMakerFee(limitOrder.fees ?: emptyList(),
                             if (isBuy) limitQuotingAssetOperation else limitBaseAssetOperation,
                             oppositeCashMovements,
                             relativeSpread,
-                            mapOf(Pair(assetPair.assetPairId, limitOrder.price)),
+                            feePrices,
                             availableBalances,
-                            balancesGetter)
+                            balancesGetter,
+                            feeProcessor.getFeePlan(limitOrder))
                 } catch (e: FeeException) {
-                    executionContext.info("Added order ($limitOrderInfo) to cancelled limit orders: ${e.message}")
+                    executionContext.info { "Added order (${getOrderInfo(limitOrder)}) to cancelled limit orders: ${e.message}" }
                     cancelledLimitOrders.add(limitOrderCopyWrapper)
+                    updateMarketBalanceAfterFees(scratch, order, asset, feeMarketBalance)
                     continue
                 }
 
@@ -193,30 +225,35 @@ class MatchingEngine(private val genericLimitOrderService: GenericLimitOrderServ
                     feeProcessor.processFee(order.fees ?: emptyList(),
                             if (isBuy) baseAssetOperation else quotingAssetOperation,
                             ownCashMovements,
-                            mapOf(Pair(assetPair.assetPairId, limitOrder.price)),
+                            feePrices,
                             availableBalances,
-                            balancesGetter)
+                            balancesGetter,
+                            orderFeePlan)
                 } catch (e: NotEnoughFundsFeeException) {
                     order.updateStatus(OrderStatus.NotEnoughFunds, now)
-                    executionContext.info("Not enough funds for fee for order id: ${order.externalId}, client: ${order.clientId}, asset: ${order.assetPairId}, volume: ${NumberUtils.roundForPrint(order.volume)}, price: ${order.takePrice()}, marketBalance: ${getMarketBalance(availableBalances, order, asset)} : ${e.message}")
-                    return MatchingResult(orderWrapper, cancelledLimitOrders)
+                    executionContext.info { "Not enough funds for fee for order id: ${order.externalId}, client: ${order.clientId}, asset: ${order.assetPairId}, volume: ${NumberUtils.roundForPrint(order.volume)}, price: ${order.takePrice()}, marketBalance: ${getMarketBalance(scratch, order, asset)} : ${e.message}" }
+                    return MatchingResult(orderWrapper, scratch.copyForResult(cancelledLimitOrders))
                 } catch (e: FeeException) {
                     order.updateStatus(OrderStatus.InvalidFee, now)
-                    executionContext.info("Invalid fee for order id: ${order.externalId}, client: ${order.clientId}, asset: ${order.assetPairId}, volume: ${NumberUtils.roundForPrint(order.volume)}, price: ${order.takePrice()}, marketBalance: ${getMarketBalance(availableBalances, order, asset)} : ${e.message}")
-                    return MatchingResult(orderWrapper, cancelledLimitOrders)
+                    executionContext.info { "Invalid fee for order id: ${order.externalId}, client: ${order.clientId}, asset: ${order.assetPairId}, volume: ${NumberUtils.roundForPrint(order.volume)}, price: ${order.takePrice()}, marketBalance: ${getMarketBalance(scratch, order, asset)} : ${e.message}" }
+                    return MatchingResult(orderWrapper, scratch.copyForResult(cancelledLimitOrders))
                 }
+                updateMarketBalanceAfterFees(scratch, order, asset, feeMarketBalance)
 
                 val matchedLimitOrderCopyWrapper = CopyWrapper(limitOrder)
                 val limitOrderCopy = matchedLimitOrderCopyWrapper.copy
                 if (limitOrderCopy.reservedLimitVolume != null && limitOrderCopy.reservedLimitVolume!! > BigDecimal.ZERO) {
-                    limitOrderCopy.reservedLimitVolume =  NumberUtils.setScaleRoundHalfUp(limitOrderCopy.reservedLimitVolume!! + if (-marketRoundedVolume < BigDecimal.ZERO) -marketRoundedVolume else -oppositeRoundedVolume, limitAsset.accuracy)
+                    limitOrderCopy.reservedLimitVolume = addAndSetScaleRoundHalfUp(limitOrderCopy.reservedLimitVolume!!,
+                            if (marketRoundedVolume.signum() > 0) marketRoundedVolume else oppositeRoundedVolume,
+                            true,
+                            limitAsset.accuracy)
                 }
 
-                val newRemainingVolume = NumberUtils.setScaleRoundHalfUp(limitOrderCopy.remainingVolume + marketRoundedVolume, baseAsset.accuracy)
+                val newRemainingVolume = addAndSetScaleRoundHalfUp(limitOrderCopy.remainingVolume, marketRoundedVolume, false, baseAsset.accuracy)
                 val isLimitMatched = newRemainingVolume.signum() != limitOrderCopy.remainingVolume.signum()
                 if (isLimitMatched) {
                     if (newRemainingVolume.signum() * limitOrderCopy.remainingVolume.signum() < 0) {
-                        executionContext.info("Matched volume is overflowed (previous: ${limitOrderCopy.remainingVolume}, current: $newRemainingVolume)")
+                        executionContext.info { "Matched volume is overflowed (previous: ${limitOrderCopy.remainingVolume}, current: $newRemainingVolume)" }
                     }
                     lkkTrades.add(LkkTrade(limitOrder.assetPairId, limitOrder.clientId, limitOrder.price, limitOrderCopy.remainingVolume, now))
                     lkkTrades.add(LkkTrade(limitOrder.assetPairId, order.clientId, limitOrder.price, -limitOrderCopy.remainingVolume, now))
@@ -236,9 +273,16 @@ class MatchingEngine(private val genericLimitOrderService: GenericLimitOrderServ
                     uncompletedLimitOrderWrapper = limitOrderCopyWrapper
                 }
 
-                setMarketBalance(availableBalances, order, asset, NumberUtils.setScaleRoundHalfUp(getMarketBalance(availableBalances, order, asset) - (if (isBuy) oppositeRoundedVolume else marketRoundedVolume).abs(), asset.accuracy))
+                // balance - |volume| and remainingVolume - |volume|
+                val scaledMarketVolume = if (isBuy) scaledOppositeRoundedVolume else scaledMarketRoundedVolume
+                scaledMarketBalance.addAndSetScaleRoundHalfUp(scaledMarketBalance, scaledMarketVolume, scaledMarketVolume.signum() > 0, asset.accuracy)
 
-                remainingVolume = if (isFullyMatched) BigDecimal.ZERO else NumberUtils.setScale(remainingVolume - getVolume(marketRoundedVolume.abs(), order.isStraight(), limitOrder.price), (if (order.isStraight()) baseAsset else quotingAsset).accuracy, order.isOrigBuySide())
+                val isPositiveMarketRoundedVolume = scaledMarketRoundedVolume.signum() > 0
+                when {
+                    isFullyMatched -> scaledRemainingVolume.setZero()
+                    order.isStraight() -> scaledRemainingVolume.addAndSetScale(scaledRemainingVolume, scaledMarketRoundedVolume, isPositiveMarketRoundedVolume, baseAsset.accuracy, order.isOrigBuySide())
+                    else -> scaledRemainingVolume.addProductAndSetScale(scaledRemainingVolume, scaledMarketRoundedVolume, limitPrice, isPositiveMarketRoundedVolume, quotingAsset.accuracy, order.isOrigBuySide())
+                }
                 limitOrderCopy.lastMatchTime = now
 
                 allOppositeCashMovements.addAll(oppositeCashMovements)
@@ -248,28 +292,13 @@ class MatchingEngine(private val genericLimitOrderService: GenericLimitOrderServ
                 val roundedAbsoluteSpread = if (absoluteSpread != null) NumberUtils.setScaleRoundHalfUp(absoluteSpread, assetPair.accuracy) else null
                 val roundedRelativeSpread = if (relativeSpread != null) NumberUtils.setScaleRoundHalfUp(relativeSpread, RELATIVE_SPREAD_ACCURACY) else null
 
-                val baseMarketVolume: String
-                val baseLimitVolume: String
-                val quotingMarketVolume: String
-                val quotingLimitVolume: String
-                if (isBuy) {
-                    baseMarketVolume = bigDecimalToString(marketRoundedVolume.abs())!!
-                    quotingMarketVolume = bigDecimalToString(-oppositeRoundedVolume.abs())!!
-                    baseLimitVolume = bigDecimalToString(-marketRoundedVolume.abs())!!
-                    quotingLimitVolume = bigDecimalToString(oppositeRoundedVolume.abs())!!
-                } else {
-                    baseMarketVolume = bigDecimalToString(-marketRoundedVolume.abs())!!
-                    quotingMarketVolume = bigDecimalToString(oppositeRoundedVolume.abs())!!
-                    baseLimitVolume = bigDecimalToString(marketRoundedVolume.abs())!!
-                    quotingLimitVolume = bigDecimalToString(-oppositeRoundedVolume.abs())!!
-                }
+                val tradeVolumes = TradeVolumes(marketRoundedVolume, oppositeRoundedVolume, isBuy, asset.accuracy, limitAsset.accuracy)
 
                 marketOrderTrades.add(TradeInfo(tradeId,
                         order.clientId,
-                        NumberUtils.setScaleRoundHalfUp((if (isBuy) oppositeRoundedVolume else marketRoundedVolume).abs(), asset.accuracy).toPlainString(),
+                        tradeVolumes,
                         asset.assetId,
                         limitOrder.clientId,
-                        NumberUtils.setScaleRoundHalfUp((if (isBuy) marketRoundedVolume else oppositeRoundedVolume).abs(), limitAsset.accuracy).toPlainString(),
                         limitAsset.assetId,
                         limitOrder.price,
                         limitOrder.id,
@@ -282,22 +311,19 @@ class MatchingEngine(private val genericLimitOrderService: GenericLimitOrderServ
                         roundedAbsoluteSpread,
                         roundedRelativeSpread,
                         baseAsset.assetId,
-                        baseMarketVolume,
-                        quotingAsset.assetId,
-                        quotingMarketVolume))
+                        quotingAsset.assetId))
 
                 limitOrdersReport.orders.add(LimitOrderWithTrades(limitOrder,
                         mutableListOf(LimitTradeInfo(tradeId,
                                 limitOrder.clientId,
                                 limitAsset.assetId,
-                                NumberUtils.setScaleRoundHalfUp((if (isBuy) marketRoundedVolume else oppositeRoundedVolume).abs(), limitAsset.accuracy).toPlainString(),
+                                tradeVolumes,
                                 limitOrder.price,
                                 now,
                                 order.id,
                                 order.externalId,
                                 asset.assetId,
                                 order.clientId,
-                                NumberUtils.setScaleRoundHalfUp((if (isBuy) oppositeRoundedVolume else marketRoundedVolume).abs(), asset.accuracy).toPlainString(),
                                 executionContext.tradeIndex,
                                 limitOrder.fee,
                                 singleFeeTransfer(limitOrder.fee, makerFees),
@@ -306,18 +332,21 @@ class MatchingEngine(private val genericLimitOrderService: GenericLimitOrderServ
                                 roundedRelativeSpread,
                                 TradeRole.MAKER,
                                 baseAsset.assetId,
-                                baseLimitVolume,
-                                quotingAsset.assetId,
-                                quotingLimitVolume))))
+                                quotingAsset.assetId))))
                 executionContext.tradeIndex++
 
-                totalVolume += volume
-                totalLimitPrice += volume * limitOrder.price
-                totalLimitVolume += (if (order.isStraight()) marketRoundedVolume else oppositeRoundedVolume).abs()
+                scaledTotalVolume.add(volume, false)
+                scaledTotalLimitPrice.addProduct(volume, limitPrice, false)
+                val scaledLimitVolume = if (order.isStraight()) scaledMarketRoundedVolume else scaledOppositeRoundedVolume
+                scaledTotalLimitVolume.add(scaledLimitVolume, scaledLimitVolume.signum() < 0)
                 matchedOrders.add(matchedLimitOrderCopyWrapper)
             }
         }
 
+        val remainingVolume = scaledRemainingVolume.toBigDecimal()
+        val totalVolume = scaledTotalVolume.toBigDecimal()
+        val totalLimitPrice = scaledTotalLimitPrice.toBigDecimal()
+
         if (isMarketOrder && remainingVolume > BigDecimal.ZERO) {
             if (matchedWithZeroLatestTrade) {
                 order.updateStatus(OrderStatus.InvalidVolumeAccuracy, now)
@@ -326,41 +355,41 @@ class MatchingEngine(private val genericLimitOrderService: GenericLimitOrderServ
                 order.updateStatus(OrderStatus.NoLiquidity, now)
                 executionContext.info("No liquidity, not enough funds on limit orders, for market order id: ${order.externalId}}, client: ${order.clientId}, asset: ${order.assetPairId}, volume: ${NumberUtils.roundForPrint(order.volume)} | Unfilled: ${NumberUtils.roundForPrint(remainingVolume)}, price: ${order.takePrice()}")
             }
-            return MatchingResult(orderWrapper, cancelledLimitOrders)
+            return MatchingResult(orderWrapper, scratch.copyForResult(cancelledLimitOrders))
         }
 
         if (order.calculateReservedVolume() > availableBalance) {
             order.updateStatus(OrderStatus.ReservedVolumeGreaterThanBalance, now)
             executionContext.info("Reserved volume (${order.calculateReservedVolume()}) greater than balance ($availableBalance) for order id: ${order.externalId}, client: ${order.clientId}, asset: ${order.assetPairId}, volume: ${NumberUtils.roundForPrint(order.volume)}, price: ${order.takePrice()}")
-            return MatchingResult(orderWrapper, cancelledLimitOrders)
+            return MatchingResult(orderWrapper, scratch.copyForResult(cancelledLimitOrders))
         }
 
         val reservedBalance = if (order.calculateReservedVolume() > BigDecimal.ZERO)  NumberUtils.setScale(order.calculateReservedVolume(), asset.accuracy, true) else availableBalance
-        val marketBalance = getMarketBalance(availableBalances, order, asset)
+        val marketBalance = scaledMarketBalance.toBigDecimal()
         if (marketBalance < BigDecimal.ZERO  || reservedBalance < NumberUtils.setScale((if (isBuy) totalLimitPrice else totalVolume), asset.accuracy, true)) {
             order.updateStatus(OrderStatus.NotEnoughFunds, now)
             executionContext.info("Not enough funds for order id: ${order.externalId}, " +
                     "client: ${order.clientId}, asset: ${order.assetPairId}, " +
                     "volume: ${NumberUtils.roundForPrint(order.volume)}, price: ${order.takePrice()}, " +
                     "marketBalance: $marketBalance : $reservedBalance < ${NumberUtils.setScaleRoundUp((if(isBuy) totalLimitPrice else totalVolume), asset.accuracy)}")
-            return MatchingResult(orderWrapper, cancelledLimitOrders)
+            return MatchingResult(orderWrapper, scratch.copyForResult(cancelledLimitOrders))
         }
 
         val executionPrice = calculateExecutionPrice(order, assetPair, totalLimitPrice, totalVolume)
         if (!checkMaxVolume(order, assetPair, executionPrice)) {
             order.updateStatus(OrderStatus.InvalidVolume, now)
             executionContext.info("Too large volume of market order (${order.externalId}): volume=${order.volume}, price=$executionPrice, maxVolume=${assetPair.maxVolume}, straight=${order.isStraight()}")
-            return MatchingResult(orderWrapper, cancelledLimitOrders)
+            return MatchingResult(orderWrapper, scratch.copyForResult(cancelledLimitOrders))
         }
         if (!checkMaxValue(order, assetPair, executionPrice)) {
             order.updateStatus(OrderStatus.InvalidValue, now)
             executionContext.info("Too large value of market order (${order.externalId}): volume=${order.volume}, price=$executionPrice, maxValue=${assetPair.maxValue}, straight=${order.isStraight()}")
-            return MatchingResult(orderWrapper, cancelledLimitOrders)
+            return MatchingResult(orderWrapper, scratch.copyForResult(cancelledLimitOrders))
         }
         if (isMarketOrder && !checkExecutionPriceDeviation(order.isBuySide(), executionPrice, bestPrice, priceDeviationThreshold)) {
             order.updateStatus(OrderStatus.TooHighPriceDeviation, now)
             executionContext.info("Too high price deviation (order id: ${order.externalId}): threshold: $priceDeviationThreshold, bestPrice: $bestPrice, executionPrice: $executionPrice)")
-            return MatchingResult(orderWrapper, cancelledLimitOrders)
+            return MatchingResult(orderWrapper, scratch.copyForResult(cancelledLimitOrders))
         }
 
         if (!isMarketOrder && remainingVolume > BigDecimal.ZERO) {
@@ -377,9 +406,9 @@ class MatchingEngine(private val genericLimitOrderService: GenericLimitOrderServ
         order.updatePrice(executionPrice)
 
         return MatchingResult(orderWrapper,
-                cancelledLimitOrders,
+                scratch.copyForResult(cancelledLimitOrders),
                 matchedOrders,
-                skipLimitOrders,
+                scratch.copyForResult(skipLimitOrders),
                 completedLimitOrders,
                 matchedUncompletedLimitOrderWrapper,
                 uncompletedLimitOrderWrapper,
@@ -394,30 +423,35 @@ class MatchingEngine(private val genericLimitOrderService: GenericLimitOrderServ
                 false)
     }
 
-    private fun checkOrderBook(order: Order, orderBook: PriorityBlockingQueue<LimitOrder>): Boolean =
+    private fun checkOrderBook(order: Order, orderBook: OrderBookQueue): Boolean =
             orderBook.isEmpty() || orderBook.peek().assetPairId == order.assetPairId && orderBook.peek().isBuySide() != order.isBuySide()
 
-    private fun getCrossVolume(volume: BigDecimal, straight: Boolean, price: BigDecimal): BigDecimal {
-        return if (straight) volume else NumberUtils.divideWithMaxScale(volume, price)
-    }
-
-    private fun getVolume(volume: BigDecimal, straight: Boolean, price: BigDecimal): BigDecimal {
-        return if (straight) volume else volume * price
-    }
-
     private fun getBalance(order: Order, assetPair: AssetPair, balancesGetter: BalancesGetter): BigDecimal {
         val asset = if (order.isBuySide()) assetPair.quotingAssetId else assetPair.baseAssetId
         return balancesGetter.getAvailableBalance(order.clientId, asset)
     }
 
-    private fun getMarketBalance(availableBalances: MutableMap<String, MutableMap<String, BigDecimal>>, order: Order, asset: Asset): BigDecimal {
-        return availableBalances.getOrPut(order.clientId) { HashMap() }[asset.assetId]!!
+    private fun getMarketBalance(scratch: MatchingScratchState, order: Order, asset: Asset): BigDecimal {
+        return scratch.getClientAvailableBalances(order.clientId)[asset.assetId]!!
     }
 
-    private fun setMarketBalance(availableBalances: MutableMap<String, MutableMap<String, BigDecimal>>, order: Order, asset: Asset, value: BigDecimal) {
-        availableBalances.getOrPut(order.clientId) { HashMap() }[asset.assetId] = value
+    private fun setMarketBalance(scratch: MatchingScratchState, order: Order, asset: Asset, value: BigDecimal) {
+        scratch.getClientAvailableBalances(order.clientId)[asset.assetId] = value
     }
 
+    /** Takes market balance charged by fee processor, [feeMarketBalance] is the balance passed to fee processor */
+    private fun updateMarketBalanceAfterFees(scratch: MatchingScratchState, order: Order, asset: Asset, feeMarketBalance: BigDecimal?) {
+        if (feeMarketBalance == null) {
+            return
+        }
+        val balance = getMarketBalance(scratch, order, asset)
+        if (balance !== feeMarketBalance) {
+            scratch.marketBalance.set(balance)
+        }
+    }
+
+    private fun getOrderInfo(order: LimitOrder) = "id: ${order.externalId}, client: ${order.clientId}, asset: ${order.assetPairId}"
+
     private fun calculateExecutionPrice(order: Order,
                                         assetPair: AssetPair,
                                         totalLimitPrice: BigDecimal,
@@ -468,18 +502,19 @@ class MatchingEngine(private val genericLimitOrderService: GenericLimitOrderServ
     }
 
     private fun checkAndReduceBalance(order: LimitOrder,
-                                      volume: BigDecimal,
-                                      limitBalances: MutableMap<String, BigDecimal>,
+                                      volume: ScaledDecimal,
+                                      scratch: MatchingScratchState,
                                       executionContext: ExecutionContext): Boolean {
         val balancesGetter = executionContext.walletOperationsProcessor
         val assetPair = executionContext.assetPairsById[order.assetPairId]!!
         val limitAssetId = if (order.isBuySide()) assetPair.quotingAssetId else assetPair.baseAssetId
-        val availableBalance = limitBalances[order.clientId] ?: balancesGetter.getAvailableReservedBalance(order.clientId, limitAssetId)
+        val limitBalances = scratch.limitReservedBalances
+        val availableBalance = limitBalances[order.clientId] ?: scratch.newDecimal().set(balancesGetter.getAvailableReservedBalance(order.clientId, limitAssetId))
         val accuracy = executionContext.assetsById[limitAssetId]!!.accuracy
         val result = availableBalance >= volume
-        executionContext.info("order=${order.externalId}, client=${order.clientId}, $limitAssetId : ${NumberUtils.roundForPrint(availableBalance)} >= ${NumberUtils.roundForPrint(volume)} = $result")
+        executionContext.info { "order=${order.externalId}, client=${order.clientId}, $limitAssetId : ${NumberUtils.roundForPrint(availableBalance.toBigDecimal())} >= ${NumberUtils.roundForPrint(volume.toBigDecimal())} = $result" }
         if (result) {
-            limitBalances[order.clientId] = NumberUtils.setScaleRoundHalfUp(availableBalance - volume, accuracy)
+            limitBalances[order.clientId] = availableBalance.addAndSetScaleRoundHalfUp(availableBalance, volume, true, accuracy)
         }
         return result
     }
@@ -487,4 +522,11 @@ class MatchingEngine(private val genericLimitOrderService: GenericLimitOrderServ
     private fun isMarketOrder(order: Order): Boolean {
         return order.takePrice() == null
     }
+
+    private fun addAndSetScaleRoundHalfUp(first: BigDecimal, second: BigDecimal, negateSecond: Boolean, accuracy: Int): BigDecimal {
+        if (fixedPointArithmetic) {
+            FixedPointMath.addAndSetScaleRoundHalfUp(first, second, negateSecond, accuracy)?.let { return it }
+        }
+        return NumberUtils.setScaleRoundHalfUp(if (negateSecond) first - second else first + second, accuracy)
+    }
 }
\ No newline at end of file
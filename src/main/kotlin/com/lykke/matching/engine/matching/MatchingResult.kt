@@ -7,8 +7,8 @@ import com.lykke.matching.engine.daos.Order
 import com.lykke.matching.engine.daos.WalletOperation
 import com.lykke.matching.engine.outgoing.messages.LimitOrdersReport
 import com.lykke.matching.engine.outgoing.messages.TradeInfo
+import com.lykke.matching.engine.services.utils.OrderBookQueue
 import java.math.BigDecimal
-import java.util.concurrent.PriorityBlockingQueue
 
 class MatchingResult(
         private val orderCopyWrapper: CopyWrapper<Order>,
@@ -23,7 +23,7 @@ class MatchingResult(
         val oppositeCashMovements: List<WalletOperation> = emptyList(),
         val marketOrderTrades: List<TradeInfo> = emptyList(),
         val limitOrdersReport: LimitOrdersReport? = null,
-        val orderBook: PriorityBlockingQueue<LimitOrder> = PriorityBlockingQueue(),
+        val orderBook: OrderBookQueue? = null,
         val marketBalance: BigDecimal? = null,
         val matchedWithZeroLatestTrade: Boolean = false,
         private val autoApply: Boolean = true
@@ -0,0 +1,89 @@
+package com.lykke.matching.engine.matching
+
+import com.lykke.matching.engine.daos.CopyWrapper
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.daos.WalletOperation
+import com.lykke.matching.engine.utils.ScaledDecimal
+import java.math.BigDecimal
+import java.util.ArrayDeque
+import java.util.HashMap
+import java.util.HashSet
+
+/**
+ * Temporary structures of one [MatchingEngine.match] call.
+ * Instance is confined to the matching thread and is reset at the beginning of each call,
+ * so nothing stored here may be referenced by the matching result.
+ */
+class MatchingScratchState(private val fixedPointArithmetic: Boolean) {
+
+    companion object {
+        private const val MAX_POOLED_BALANCE_MAPS = 16
+    }
+
+    /** clientId -> limit reserved balance; for trades funds control, values are taken by [newDecimal] */
+    val limitReservedBalances = HashMap<String, ScaledDecimal>()
+
+    /** Volumes and balances of the order which are updated by each trade, converted to BigDecimal after matching */
+    val remainingVolume = ScaledDecimal(fixedPointArithmetic)
+    val marketBalance = ScaledDecimal(fixedPointArithmetic)
+    val totalVolume = ScaledDecimal(fixedPointArithmetic)
+    val totalLimitPrice = ScaledDecimal(fixedPointArithmetic)
+    val totalLimitVolume = ScaledDecimal(fixedPointArithmetic)
+
+    /** Volumes of the current trade */
+    val limitPrice = ScaledDecimal(fixedPointArithmetic)
+    val limitRemainingVolume = ScaledDecimal(fixedPointArithmetic)
+    val marketRemainingVolume = ScaledDecimal(fixedPointArithmetic)
+    val volume = ScaledDecimal(fixedPointArithmetic)
+    val marketRoundedVolume = ScaledDecimal(fixedPointArithmetic)
+    val oppositeRoundedVolume = ScaledDecimal(fixedPointArithmetic)
+
+    /** clientId -> assetId -> balance; available balances for market balance control and fee funds control */
+    val availableBalances = HashMap<String, MutableMap<String, BigDecimal>>()
+
+    /** Cash movements of the current trade, copied to the matching result after fees are applied */
+    val ownCashMovements = ArrayList<WalletOperation>(4)
+    val oppositeCashMovements = ArrayList<WalletOperation>(4)
+
+    /** Orders of the opposite side skipped or cancelled during matching, passed to the matching result by [copyForResult] */
+    val skipLimitOrders = HashSet<LimitOrder>()
+    val cancelledLimitOrders = HashSet<CopyWrapper<LimitOrder>>()
+
+    private val pooledBalanceMaps = ArrayDeque<HashMap<String, BigDecimal>>()
+    private val pooledDecimals = ArrayList<ScaledDecimal>()
+    private var usedPooledDecimals = 0
+
+    fun reset() {
+        limitReservedBalances.clear()
+        usedPooledDecimals = 0
+        totalVolume.setZero()
+        totalLimitPrice.setZero()
+        totalLimitVolume.setZero()
+        availableBalances.values.forEach {
+            if (pooledBalanceMaps.size < MAX_POOLED_BALANCE_MAPS && it is HashMap) {
+                it.clear()
+                pooledBalanceMaps.add(it)
+            }
+        }
+        availableBalances.clear()
+        ownCashMovements.clear()
+        oppositeCashMovements.clear()
+        skipLimitOrders.clear()
+        cancelledLimitOrders.clear()
+    }
+
+    /** @return copy of the set which can be referenced by the matching result, nothing is allocated for empty set */
+    fun <T> copyForResult(set: Set<T>): Set<T> = if (set.isEmpty()) emptySet() else HashSet(set)
+
+    /** @return decimal which is valid until the next [reset] */
+    fun newDecimal(): ScaledDecimal {
+        if (usedPooledDecimals == pooledDecimals.size) {
+            pooledDecimals.add(ScaledDecimal(fixedPointArithmetic))
+        }
+        return pooledDecimals[usedPooledDecimals++]
+    }
+
+    fun getClientAvailableBalances(clientId: String): MutableMap<String, BigDecimal> {
+        return availableBalances.getOrPut(clientId) { pooledBalanceMaps.poll() ?: HashMap() }
+    }
+}
@@ -9,12 +9,14 @@ import com.lykke.matching.engine.holders.MessageSequenceNumberHolder
 import com.lykke.matching.engine.incoming.MessageRouter
 import com.lykke.matching.engine.outgoing.database.TransferOperationSaveService
 import com.lykke.matching.engine.performance.PerformanceStatsHolder
+import com.lykke.matching.engine.readmodel.ReadModelHolder
 import com.lykke.matching.engine.services.*
 import com.lykke.utils.logging.MetricsLogger
 import com.lykke.utils.logging.ThrottlingLogger
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Component
 import java.util.*
+import java.util.concurrent.TimeUnit
 import javax.annotation.PostConstruct
 
 @Component
@@ -24,6 +26,7 @@ class MessageProcessor : Thread(MessageProcessor::class.java.name) {
         val LOGGER = ThrottlingLogger.getLogger(MessageProcessor::class.java.name)
         val MONITORING_LOGGER = ThrottlingLogger.getLogger("${MessageProcessor::class.java.name}.monitoring")
         val METRICS_LOGGER = MetricsLogger.getLogger()
+        private const val MESSAGE_BOUNDARY_CHECK_INTERVAL = 100L
     }
 
     @Autowired
@@ -77,6 +80,9 @@ class MessageProcessor : Thread(MessageProcessor::class.java.name) {
     @Autowired
     private lateinit var messageSequenceNumberHolder: MessageSequenceNumberHolder
 
+    @Autowired
+    private lateinit var readModelHolder: ReadModelHolder
+
     private lateinit var servicesMap: Map<MessageType, AbstractService>
 
     @PostConstruct
@@ -88,7 +94,11 @@ class MessageProcessor : Thread(MessageProcessor::class.java.name) {
         transferOperationSaveService.start()
 
         while (true) {
-            processMessage(messageRouter.preProcessedMessageQueue.take())
+            val message = messageRouter.preProcessedMessageQueue.poll(MESSAGE_BOUNDARY_CHECK_INTERVAL, TimeUnit.MILLISECONDS)
+            if (message != null) {
+                processMessage(message)
+            }
+            readModelHolder.onMessageBoundary()
         }
     }
 
@@ -8,6 +8,8 @@ enum class MessageType (val type: Byte){
     ,CASH_TRANSFER_OPERATION(8)
     ,CASH_IN_OUT_OPERATION(9)
     ,ORDER_BOOK_SNAPSHOT(40)
+    ,ORDER_BOOK_LEVELS_UPDATE(41)
+    ,ORDER_BOOK_LEVELS_SNAPSHOT_REQUEST(42)
     ,LIMIT_ORDER(50)
     ,MULTI_LIMIT_ORDER(51)
     ,MARKET_ORDER(53)
@@ -7,40 +7,62 @@ import com.lykke.matching.engine.messages.MessageType
 import com.lykke.matching.engine.messages.MessageWrapper
 import com.lykke.utils.logging.MetricsLogger
 import com.lykke.utils.logging.ThrottlingLogger
+import org.springframework.beans.factory.annotation.Value
 import org.springframework.scheduling.annotation.Scheduled
 import org.springframework.stereotype.Component
 import java.util.Date
 import java.util.UUID
 
+/**
+ * Sends messages to cancel expired orders.
+ * Expired orders are split into messages of at most [batchSize] orders, the oldest expired orders are sent first.
+ */
 @Component
 class ExpiredOrdersCanceller(private val expiryOrdersQueue: ExpiryOrdersQueue,
-                             private val messageRouter: MessageRouter) {
+                             private val messageRouter: MessageRouter,
+                             @Value("\${expired.orders.cancel.batch.size}") batchSize: Int? = null,
+                             @Value("\${expired.orders.expiry.lag.warning.threshold}") expiryLagWarningThreshold: Long? = null) {
 
     companion object {
         private val LOGGER = ThrottlingLogger.getLogger(ExpiredOrdersCanceller::class.java.name)
         private val METRICS_LOGGER = MetricsLogger.getLogger()
         private val MESSAGE_TYPE = MessageType.LIMIT_ORDER_CANCEL
+        private const val DEFAULT_BATCH_SIZE = 100
+        private const val DEFAULT_EXPIRY_LAG_WARNING_THRESHOLD = 10000L
     }
 
+    private val batchSize = batchSize ?: DEFAULT_BATCH_SIZE
+    private val expiryLagWarningThreshold = expiryLagWarningThreshold ?: DEFAULT_EXPIRY_LAG_WARNING_THRESHOLD
+
     @Scheduled(fixedRateString = "\${expired.orders.cancel.interval}")
     fun cancelExpiredOrders() {
         try {
             val now = Date()
-            val ordersExternalIdsToCancel = expiryOrdersQueue.getExpiredOrdersExternalIds(now)
-            if (ordersExternalIdsToCancel.isEmpty()) {
+            val ordersToCancel = expiryOrdersQueue.getExpiredOrders(now)
+            if (ordersToCancel.isEmpty()) {
                 return
             }
 
-            val messageId = UUID.randomUUID().toString()
-            val requestId = UUID.randomUUID().toString()
-            LOGGER.info("Generating message to cancel expired orders: messageId=$messageId, requestId=$requestId, date=$now, orders=$ordersExternalIdsToCancel")
+            val expiryLag = now.time - ordersToCancel.first().expiryTime!!.time
+            if (expiryLag > expiryLagWarningThreshold) {
+                val message = "Expired orders are not cancelled in time: ${ordersToCancel.size} expired orders, max expiry lag: $expiryLag ms"
+                LOGGER.warn(message)
+                METRICS_LOGGER.logWarning(message)
+            }
 
-            val messageWrapper = createMessageWrapper(messageId,
-                    requestId,
-                    now,
-                    ordersExternalIdsToCancel)
+            ordersToCancel.asSequence().map { it.externalId }.chunked(batchSize).forEach { ordersExternalIdsToCancel ->
+                val messageId = UUID.randomUUID().toString()
+                val requestId = UUID.randomUUID().toString()
+                LOGGER.info("Generating message to cancel expired orders: messageId=$messageId, requestId=$requestId, date=$now, " +
+                        "max expiry lag=$expiryLag ms, orders=$ordersExternalIdsToCancel")
 
-            messageRouter.preProcessedMessageQueue.put(messageWrapper)
+                val messageWrapper = createMessageWrapper(messageId,
+                        requestId,
+                        now,
+                        ordersExternalIdsToCancel)
+
+                messageRouter.preProcessedMessageQueue.put(messageWrapper)
+            }
         } catch (e: Exception) {
             val message = "Unable to cancel expired orders"
             LOGGER.error(message, e)
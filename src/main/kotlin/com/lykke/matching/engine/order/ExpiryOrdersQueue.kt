@@ -2,33 +2,48 @@ package com.lykke.matching.engine.order
 
 import com.lykke.matching.engine.daos.LimitOrder
 import org.springframework.stereotype.Component
+import java.util.ArrayList
 import java.util.Date
-import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentSkipListMap
 
+/**
+ * Orders with expiry time ordered by expiry time, so only expired orders are visited to find them.
+ */
 @Component
 class ExpiryOrdersQueue {
 
-    private val ordersById = ConcurrentHashMap<String, LimitOrder>()
+    private class ExpiryKey(val expiryTime: Long, val orderId: String) : Comparable<ExpiryKey> {
+        override fun compareTo(other: ExpiryKey): Int {
+            val result = expiryTime.compareTo(other.expiryTime)
+            return if (result != 0) result else orderId.compareTo(other.orderId)
+        }
+    }
+
+    private val ordersByExpiryTime = ConcurrentSkipListMap<ExpiryKey, LimitOrder>()
 
     fun addIfOrderHasExpiryTime(order: LimitOrder): Boolean {
         return if (order.hasExpiryTime()) {
-            ordersById[order.id] = order
+            ordersByExpiryTime[getKey(order)] = order
             true
         } else false
     }
 
     fun removeIfOrderHasExpiryTime(order: LimitOrder): Boolean {
         return if (order.hasExpiryTime()) {
-            ordersById.remove(order.id)
+            ordersByExpiryTime.remove(getKey(order))
             true
         } else false
     }
 
     fun getExpiredOrdersExternalIds(date: Date): List<String> {
-        return ordersById.values
-                .asSequence()
-                .filter { it.isExpired(date) }
-                .map { it.externalId }
-                .toList()
+        return getExpiredOrders(date).map { it.externalId }
     }
-}
\ No newline at end of file
+
+    /** Expired orders ordered by expiry time */
+    fun getExpiredOrders(date: Date): List<LimitOrder> {
+        // empty order id precedes ids of all orders expiring at the same time
+        return ArrayList(ordersByExpiryTime.headMap(ExpiryKey(date.time + 1, ""), false).values)
+    }
+
+    private fun getKey(order: LimitOrder) = ExpiryKey(order.expiryTime!!.time, order.id)
+}
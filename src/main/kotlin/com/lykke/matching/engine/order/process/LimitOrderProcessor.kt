@@ -4,6 +4,7 @@ import com.lykke.matching.engine.balance.BalanceException
 import com.lykke.matching.engine.daos.LimitOrder
 import com.lykke.matching.engine.daos.WalletOperation
 import com.lykke.matching.engine.daos.order.OrderTimeInForce
+import com.lykke.matching.engine.fee.FeeProcessor
 import com.lykke.matching.engine.holders.ApplicationSettingsHolder
 import com.lykke.matching.engine.order.transaction.ExecutionContext
 import com.lykke.matching.engine.matching.MatchingEngine
@@ -11,8 +12,6 @@ import com.lykke.matching.engine.order.OrderStatus
 import com.lykke.matching.engine.order.process.common.MatchingResultHandlingHelper
 import com.lykke.matching.engine.order.process.context.LimitOrderExecutionContext
 import com.lykke.matching.engine.outgoing.messages.LimitOrderWithTrades
-import com.lykke.matching.engine.outgoing.messages.LimitTradeInfo
-import com.lykke.matching.engine.outgoing.messages.v2.enums.TradeRole
 import com.lykke.matching.engine.services.validators.business.LimitOrderBusinessValidator
 import com.lykke.matching.engine.services.validators.impl.OrderValidationException
 import com.lykke.matching.engine.services.validators.impl.OrderValidationResult
@@ -26,7 +25,8 @@ class LimitOrderProcessor(private val limitOrderInputValidator: LimitOrderInputV
                           private val limitOrderBusinessValidator: LimitOrderBusinessValidator,
                           private val applicationSettingsHolder: ApplicationSettingsHolder,
                           private val matchingEngine: MatchingEngine,
-                          private val matchingResultHandlingHelper: MatchingResultHandlingHelper) : OrderProcessor<LimitOrder> {
+                          private val matchingResultHandlingHelper: MatchingResultHandlingHelper,
+                          private val feeProcessor: FeeProcessor) : OrderProcessor<LimitOrder> {
 
     override fun processOrder(order: LimitOrder, executionContext: ExecutionContext): ProcessedOrder {
         val orderContext = LimitOrderExecutionContext(order, executionContext)
@@ -111,6 +111,7 @@ class LimitOrderProcessor(private val limitOrderInputValidator: LimitOrderInputV
 
     private fun processValidOrder(orderContext: LimitOrderExecutionContext): ProcessedOrder {
         val order = orderContext.order
+        feeProcessor.compileFeePlan(order)
         val orderBook = orderContext.executionContext.orderBooksHolder.getChangedCopyOrOriginalOrderBook(order.assetPairId)
         if (orderBook.leadToNegativeSpread(order)) {
             return matchOrder(orderContext)
@@ -276,12 +277,13 @@ class LimitOrderProcessor(private val limitOrderInputValidator: LimitOrderInputV
         if (matchingResult.uncompletedLimitOrderCopy != null) {
             matchingResultHandlingHelper.processUncompletedOppositeOrder(orderContext)
         }
-        matchingResult.skipLimitOrders.forEach { matchingResult.orderBook.put(it) }
+        val orderBook = matchingResult.orderBook!!
+        matchingResult.skipLimitOrders.forEach { orderBook.add(it) }
 
         val orderCopy = matchingResult.orderCopy as LimitOrder
         orderContext.executionContext.orderBooksHolder
                 .getChangedOrderBookCopy(orderCopy.assetPairId)
-                .setOrderBook(!orderCopy.isBuySide(), matchingResult.orderBook)
+                .setOrderBook(!orderCopy.isBuySide(), orderBook)
     }
 
 
@@ -291,30 +293,7 @@ class LimitOrderProcessor(private val limitOrderInputValidator: LimitOrderInputV
 
         val orderCopy = matchingResult.orderCopy as LimitOrder
         val limitOrderWithTrades = LimitOrderWithTrades(orderCopy,
-                matchingResult.marketOrderTrades.asSequence().map { it ->
-                    LimitTradeInfo(it.tradeId,
-                            it.marketClientId,
-                            it.marketAsset,
-                            it.marketVolume,
-                            it.price,
-                            it.timestamp,
-                            it.limitOrderId,
-                            it.limitOrderExternalId,
-                            it.limitAsset,
-                            it.limitClientId,
-                            it.limitVolume,
-                            it.index,
-                            it.feeInstruction,
-                            it.feeTransfer,
-                            it.fees,
-                            it.absoluteSpread,
-                            it.relativeSpread,
-                            TradeRole.TAKER,
-                            it.baseAssetId,
-                            it.baseVolume,
-                            it.quotingAssetId,
-                            it.quotingVolume)
-                }.toMutableList())
+                matchingResult.marketOrderTrades.asSequence().map { it.toLimitTradeInfo() }.toMutableList())
         orderContext.executionContext.addClientLimitOrderWithTrades(limitOrderWithTrades)
         matchingResult.limitOrdersReport?.orders?.let { orderContext.executionContext.addClientsLimitOrdersWithTrades(it) }
     }
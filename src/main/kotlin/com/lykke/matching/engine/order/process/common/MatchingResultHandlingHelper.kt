@@ -79,7 +79,7 @@ class MatchingResultHandlingHelper(private val applicationSettingsHolder: Applic
         if (orderExecutionContext.isUncompletedOrderCancelled) {
             orderExecutionContext.executionContext.orderBooksHolder.addCancelledOrders(listOf(uncompletedLimitOrder))
         } else {
-            orderExecutionContext.matchingResult!!.orderBook.put(uncompletedLimitOrder)
+            orderExecutionContext.matchingResult!!.orderBook!!.add(uncompletedLimitOrder)
         }
     }
 
@@ -70,7 +70,7 @@ abstract class AbstractTransactionOrderBooksHolder<AssetOrderBook : AbstractAsse
         }
     }
 
-    protected fun addChangedSide(order: LimitOrder) {
+    protected open fun addChangedSide(order: LimitOrder) {
         (if (order.isBuySide()) changedBuySides else changedSellSides).add(order.assetPairId)
     }
 
@@ -8,17 +8,26 @@ import com.lykke.matching.engine.database.common.entity.OrderBooksPersistenceDat
 import com.lykke.matching.engine.matching.UpdatedOrderBookAndOrder
 import com.lykke.matching.engine.services.AssetOrderBook
 import com.lykke.matching.engine.services.GenericLimitOrderService
+import com.lykke.matching.engine.services.utils.OrderBookQueue
+import java.math.BigDecimal
 import java.util.Date
 import java.util.HashMap
-import java.util.concurrent.PriorityBlockingQueue
+import java.util.TreeSet
 
-class CurrentTransactionOrderBooksHolder(private val genericLimitOrderService: GenericLimitOrderService)
+/**
+ * @param collectOrderBookLevels if true, total volumes of changed price levels are collected to [outgoingOrderBookLevels]
+ */
+class CurrentTransactionOrderBooksHolder(private val genericLimitOrderService: GenericLimitOrderService,
+                                         private val collectOrderBookLevels: Boolean = false)
     : AbstractTransactionOrderBooksHolder<AssetOrderBook, GenericLimitOrderService>(genericLimitOrderService) {
 
     private val orderCopyWrappersByOriginalOrder = HashMap<LimitOrder, CopyWrapper<LimitOrder>>()
+    private val changedBuyPrices = HashMap<String, MutableSet<BigDecimal>>()
+    private val changedSellPrices = HashMap<String, MutableSet<BigDecimal>>()
 
     val tradeInfoList = mutableListOf<TradeInfo>()
     val outgoingOrderBooks = ArrayList<OrderBookData>()
+    val outgoingOrderBookLevels = ArrayList<OrderBookLevelsData>()
 
     fun getOrPutOrderCopyWrapper(limitOrder: LimitOrder): CopyWrapper<LimitOrder> {
         return orderCopyWrappersByOriginalOrder.getOrPut(limitOrder) {
@@ -27,6 +36,15 @@ class CurrentTransactionOrderBooksHolder(private val genericLimitOrderService: G
         }
     }
 
+    override fun addChangedSide(order: LimitOrder) {
+        super.addChangedSide(order)
+        if (collectOrderBookLevels) {
+            (if (order.isBuySide()) changedBuyPrices else changedSellPrices)
+                    .getOrPut(order.assetPairId) { TreeSet() }
+                    .add(order.price)
+        }
+    }
+
     override fun getPersistenceData(): OrderBooksPersistenceData {
         val orderBookPersistenceDataList = mutableListOf<OrderBookPersistenceData>()
         val ordersToSaveByExternalId = HashMap(newOrdersByExternalId)
@@ -68,7 +86,7 @@ class CurrentTransactionOrderBooksHolder(private val genericLimitOrderService: G
         }
     }
 
-    private fun createUpdatedOrderBookAndOrder(orderBook: PriorityBlockingQueue<LimitOrder>): UpdatedOrderBookAndOrder {
+    private fun createUpdatedOrderBookAndOrder(orderBook: OrderBookQueue): UpdatedOrderBookAndOrder {
         val updatedOrderBook = ArrayList<LimitOrder>(orderBook)
 
         val bestOrder = orderBook.peek()
@@ -83,7 +101,10 @@ class CurrentTransactionOrderBooksHolder(private val genericLimitOrderService: G
     }
 
     override fun applySpecificPart(date: Date) {
-        orderCopyWrappersByOriginalOrder.forEach { it.value.applyToOrigin() }
+        orderCopyWrappersByOriginalOrder.forEach {
+            it.value.applyToOrigin()
+            genericLimitOrderService.onOrderChanged(it.key)
+        }
         assetOrderBookCopiesByAssetPairId.forEach { assetPairId, orderBook ->
             genericLimitOrderService.setOrderBook(assetPairId, orderBook)
             if (changedBuySides.contains(assetPairId)) {
@@ -107,10 +128,24 @@ class CurrentTransactionOrderBooksHolder(private val genericLimitOrderService: G
                 assetPairId,
                 date,
                 isBuySide))
+
+        if (collectOrderBookLevels) {
+            val changedPrices = (if (isBuySide) changedBuyPrices else changedSellPrices)[assetPairId] ?: return
+            outgoingOrderBookLevels.add(OrderBookLevelsData(assetPairId,
+                    isBuySide,
+                    date,
+                    orderBook.getOrderBook(isBuySide).getLevelVolumes(changedPrices)))
+        }
     }
 
     class OrderBookData(val volumePrices: Array<LimitOrder>,
                         val assetPair: String,
                         val date: Date,
                         val isBuySide: Boolean)
+
+    /** Total volumes of changed price levels, zero volume means the level is removed */
+    class OrderBookLevelsData(val assetPair: String,
+                              val isBuySide: Boolean,
+                              val date: Date,
+                              val volumesByPrice: Map<BigDecimal, BigDecimal>)
 }
\ No newline at end of file
@@ -76,10 +76,24 @@ class ExecutionContext(val messageId: String,
         logger.debug(getLogMessage(message))
     }
 
+    /** Builds message only if debug level is enabled */
+    inline fun debug(message: () -> String) {
+        if (logger.isDebugEnabled) {
+            debug(message())
+        }
+    }
+
     fun info(message: String) {
         logger.info(getLogMessage(message))
     }
 
+    /** Builds message only if info level is enabled */
+    inline fun info(message: () -> String) {
+        if (logger.isInfoEnabled) {
+            info(message())
+        }
+    }
+
     fun error(message: String) {
         logger.error(getLogMessage(message))
     }
@@ -0,0 +1,83 @@
+package com.lykke.matching.engine.outgoing.conflation
+
+import com.lykke.matching.engine.outgoing.messages.OrderBook
+import java.util.HashMap
+import java.util.LinkedHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * Queue of order books which keeps only the latest pending order book of each asset pair side.
+ * Order book replaced by a newer one before it is taken by the consumer is conflated and counted in [conflatedCount].
+ * Order books of the same asset pair side are taken not more often than once per [minTakeInterval] ms.
+ */
+class ConflatingOrderBookQueue(private val minTakeInterval: Long,
+                               private val conflatedCount: AtomicLong) {
+
+    private val lock = ReentrantLock()
+    private val changed = lock.newCondition()
+
+    /** Pending order books in order of the first pending version of the side */
+    private val pendingOrderBooks = LinkedHashMap<String, OrderBook>()
+    private val lastTakeTimes = HashMap<String, Long>()
+
+    fun put(orderBook: OrderBook) {
+        lock.withLock {
+            if (pendingOrderBooks.put(getKey(orderBook), orderBook) != null) {
+                conflatedCount.incrementAndGet()
+            }
+            changed.signal()
+        }
+    }
+
+    /** Returns order book which was not published back to the queue, it is ignored if a newer version is pending */
+    fun putBack(orderBook: OrderBook) {
+        lock.withLock {
+            val key = getKey(orderBook)
+            if (pendingOrderBooks.containsKey(key)) {
+                conflatedCount.incrementAndGet()
+                return
+            }
+            pendingOrderBooks[key] = orderBook
+            lastTakeTimes.remove(key)
+            changed.signal()
+        }
+    }
+
+    fun take(): OrderBook {
+        lock.withLock {
+            while (true) {
+                val now = System.currentTimeMillis()
+                var waitTime = Long.MAX_VALUE
+                val iterator = pendingOrderBooks.entries.iterator()
+                while (iterator.hasNext()) {
+                    val (key, orderBook) = iterator.next()
+                    val lastTakeTime = lastTakeTimes[key]
+                    if (lastTakeTime == null || now - lastTakeTime >= minTakeInterval) {
+                        iterator.remove()
+                        if (minTakeInterval > 0) {
+                            lastTakeTimes[key] = now
+                        }
+                        return orderBook
+                    }
+                    waitTime = Math.min(waitTime, minTakeInterval - (now - lastTakeTime))
+                }
+                if (waitTime == Long.MAX_VALUE) {
+                    changed.await()
+                } else {
+                    changed.await(waitTime, TimeUnit.MILLISECONDS)
+                }
+            }
+        }
+    }
+
+    fun size(): Int {
+        lock.withLock {
+            return pendingOrderBooks.size
+        }
+    }
+
+    private fun getKey(orderBook: OrderBook) = "${orderBook.assetPair}_${orderBook.isBuy}"
+}
@@ -0,0 +1,48 @@
+package com.lykke.matching.engine.outgoing.conflation
+
+import com.lykke.utils.logging.ThrottlingLogger
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Component
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import javax.annotation.PostConstruct
+import kotlin.concurrent.fixedRateTimer
+
+/**
+ * Creates conflating queues of order book subscribers and logs count of conflated order books by subscriber type.
+ */
+@Component
+class OrderBookConflation(@Value("#{Config.me.orderBookPublishMinInterval}")
+                          minPublishInterval: Long? = null) {
+
+    companion object {
+        private val LOGGER = ThrottlingLogger.getLogger(OrderBookConflation::class.java.name)
+        private const val STATS_LOG_INTERVAL = 60000L
+    }
+
+    private val minPublishInterval = minPublishInterval ?: 0L
+    private val conflatedCountsBySubscriberType = ConcurrentHashMap<String, AtomicLong>()
+
+    @PostConstruct
+    private fun init() {
+        fixedRateTimer(name = "OrderBookConflationStatsLogger", initialDelay = STATS_LOG_INTERVAL, period = STATS_LOG_INTERVAL) {
+            logStats()
+        }
+    }
+
+    fun createQueue(subscriberType: String): ConflatingOrderBookQueue {
+        return ConflatingOrderBookQueue(minPublishInterval, conflatedCountsBySubscriberType.getOrPut(subscriberType) { AtomicLong() })
+    }
+
+    /** Count of order books replaced by newer versions before publishing, by subscriber type */
+    fun getConflatedCounts(): Map<String, Long> {
+        return conflatedCountsBySubscriberType.mapValues { it.value.get() }
+    }
+
+    private fun logStats() {
+        val conflatedCounts = getConflatedCounts()
+        if (conflatedCounts.isNotEmpty()) {
+            LOGGER.info("Conflated order books (since start): $conflatedCounts")
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.lykke.matching.engine.outgoing.eventlog
+
+import com.lykke.matching.engine.outgoing.messages.v2.events.Event
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+
+/**
+ * Outgoing event stored in [EventLog]: header fields published as message properties,
+ * protobuf encoded event and its string representation if the event is logged by publishers.
+ */
+class EncodedEvent(val messageType: Int,
+                   val sequenceNumber: Long,
+                   val messageId: String,
+                   val requestId: String,
+                   val version: String,
+                   val timestamp: Long,
+                   val eventType: String,
+                   val body: ByteArray,
+                   val logMessage: String?) {
+
+    companion object {
+        fun create(event: Event<*>, logMessage: String?): EncodedEvent {
+            val header = event.header
+            return EncodedEvent(header.messageType.id,
+                    header.sequenceNumber,
+                    header.messageId,
+                    header.requestId,
+                    header.version,
+                    header.timestamp.time,
+                    header.eventType,
+                    event.buildGeneratedMessage().toByteArray(),
+                    logMessage)
+        }
+
+        fun decode(record: EventLogRecord): EncodedEvent {
+            val input = DataInputStream(ByteArrayInputStream(record.payload))
+            val event = EncodedEvent(input.readInt(),
+                    input.readLong(),
+                    readString(input),
+                    readString(input),
+                    readString(input),
+                    input.readLong(),
+                    readString(input),
+                    readBytes(input),
+                    if (input.readBoolean()) readString(input) else null)
+            event.nextLogPosition = record.nextPosition
+            return event
+        }
+
+        private fun readString(input: DataInputStream) = String(readBytes(input), Charsets.UTF_8)
+
+        private fun readBytes(input: DataInputStream): ByteArray {
+            val bytes = ByteArray(input.readInt())
+            input.readFully(bytes)
+            return bytes
+        }
+
+        private fun writeString(output: DataOutputStream, value: String) {
+            writeBytes(output, value.toByteArray(Charsets.UTF_8))
+        }
+
+        private fun writeBytes(output: DataOutputStream, value: ByteArray) {
+            output.writeInt(value.size)
+            output.write(value)
+        }
+    }
+
+    /** Position of the next record of the log, is set when the event is read from the log */
+    var nextLogPosition = 0L
+        private set
+
+    fun encode(): ByteArray {
+        val bytes = ByteArrayOutputStream(body.size + (logMessage?.length ?: 0) + 256)
+        val output = DataOutputStream(bytes)
+        output.writeInt(messageType)
+        output.writeLong(sequenceNumber)
+        writeString(output, messageId)
+        writeString(output, requestId)
+        writeString(output, version)
+        output.writeLong(timestamp)
+        writeString(output, eventType)
+        writeBytes(output, body)
+        output.writeBoolean(logMessage != null)
+        logMessage?.let { writeString(output, it) }
+        output.flush()
+        return bytes.toByteArray()
+    }
+}
@@ -0,0 +1,296 @@
+package com.lykke.matching.engine.outgoing.eventlog
+
+import com.lykke.utils.logging.MetricsLogger
+import com.lykke.utils.logging.ThrottlingLogger
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.ConcurrentSkipListMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.locks.ReentrantLock
+import java.util.stream.Collectors
+import java.util.zip.CRC32
+
+/**
+ * Append only log of outgoing events stored in memory-mapped segment files.
+ *
+ * Each record is framed with its length, CRC32 checksum and event sequence number. The length is written last,
+ * so a partially written record is visible neither to readers nor to recovery on the next start.
+ * A new segment is started when the current one has no room for a record.
+ * Events are read by [EventLogCursor]s, each of them saves position of the last published event,
+ * segments which are read by all cursors are deleted when a new segment is started.
+ *
+ * Events are appended by one thread at a time while cursors read them from other threads.
+ */
+class EventLog(logDir: String,
+               private val segmentSize: Int,
+               private val logName: String) {
+
+    companion object {
+        private val LOGGER = ThrottlingLogger.getLogger(EventLog::class.java.name)
+        private val METRICS_LOGGER = MetricsLogger.getLogger()
+        private const val SEGMENT_FILE_PREFIX = "segment_"
+        private const val CURSOR_FILE_SUFFIX = ".cursor"
+        private const val CURSOR_FILE_SIZE = 16L
+        private const val RECORD_HEADER_SIZE = 16
+        private const val CLEAR_CHUNK_SIZE = 4096
+
+        fun position(segmentIndex: Long, offset: Int) = (segmentIndex shl 32) or offset.toLong()
+
+        fun segmentIndex(position: Long) = position ushr 32
+
+        fun offset(position: Long) = (position and 0xFFFFFFFFL).toInt()
+    }
+
+    private class Segment(val index: Long, val buffer: MappedByteBuffer) {
+        @Volatile
+        var writePosition = 0
+
+        /** Is set after the next segment is started, write position of the sealed segment is not changed */
+        @Volatile
+        var sealed = false
+    }
+
+    private val logPath = Paths.get(logDir)
+    private val segments = ConcurrentSkipListMap<Long, Segment>()
+    private val cursors = CopyOnWriteArrayList<EventLogCursor>()
+
+    private val waitLock = ReentrantLock()
+    private val appendedCondition = waitLock.newCondition()
+    @Volatile
+    private var waitingReadersCount = 0
+
+    private var activeSegment: Segment
+
+    var lastSequenceNumber: Long? = null
+        private set
+
+    init {
+        Files.createDirectories(logPath)
+        getSegmentFiles().forEach { (index, path) -> segments[index] = openSegment(index, path) }
+        val lastSegment = segments.lastEntry()?.value
+        segments.values.forEach { it.sealed = it !== lastSegment }
+        activeSegment = lastSegment ?: createSegment(0, segmentSize)
+        segments[activeSegment.index] = activeSegment
+        LOGGER.info("$logName event log is opened, segments: ${segments.size}, last sequence number: $lastSequenceNumber")
+    }
+
+    @Synchronized
+    fun append(sequenceNumber: Long, payload: ByteArray) {
+        if (payload.isEmpty()) {
+            throw IllegalArgumentException("Empty record can not be appended to $logName event log")
+        }
+        val recordSize = RECORD_HEADER_SIZE + payload.size
+        var segment = activeSegment
+        if (segment.buffer.capacity() - segment.writePosition < recordSize) {
+            segment = startSegment(Math.max(segmentSize, recordSize))
+        }
+
+        val offset = segment.writePosition
+        val buffer = segment.buffer
+        val crc = CRC32()
+        crc.update(payload)
+        buffer.putInt(offset + 4, crc.value.toInt())
+        buffer.putLong(offset + 8, sequenceNumber)
+        val payloadBuffer = buffer.duplicate()
+        payloadBuffer.position(offset + RECORD_HEADER_SIZE)
+        payloadBuffer.put(payload)
+        buffer.putInt(offset, payload.size)
+
+        segment.writePosition = offset + recordSize
+        lastSequenceNumber = sequenceNumber
+        signalReaders()
+    }
+
+    /**
+     * Opens cursor saved in the log directory.
+     * New cursor starts from the end of the log, it does not read events appended before it is opened.
+     */
+    @Synchronized
+    fun openCursor(name: String): EventLogCursor {
+        val cursorPath = logPath.resolve(name + CURSOR_FILE_SUFFIX)
+        val isNew = !Files.exists(cursorPath)
+        val buffer = FileChannel.open(cursorPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE).use {
+            it.map(FileChannel.MapMode.READ_WRITE, 0, CURSOR_FILE_SIZE)
+        }
+        val endPosition = position(activeSegment.index, activeSegment.writePosition)
+
+        var cursorPosition = if (isNew) endPosition else buffer.getLong(0)
+        val sequenceNumber = if (isNew) lastSequenceNumber else buffer.getLong(8)
+        if (segmentIndex(cursorPosition) < segments.firstKey()) {
+            val message = "Segments of $logName event log cursor $name are deleted, it is moved to the first segment"
+            LOGGER.error(message)
+            METRICS_LOGGER.logError(message)
+            cursorPosition = position(segments.firstKey(), 0)
+        } else if (cursorPosition > endPosition) {
+            val message = "$logName event log cursor $name is beyond the end of the log, it is moved to the end"
+            LOGGER.error(message)
+            METRICS_LOGGER.logError(message)
+            cursorPosition = endPosition
+        }
+
+        val cursor = EventLogCursor(this, name, buffer, cursorPosition, sequenceNumber)
+        cursors.add(cursor)
+        LOGGER.info("$logName event log cursor $name is opened, last published sequence number: $sequenceNumber")
+        return cursor
+    }
+
+    /** @return record at [position] or null if it is not appended yet */
+    fun read(position: Long): EventLogRecord? {
+        var index = segmentIndex(position)
+        var offset = offset(position)
+        while (true) {
+            val segment = segments[index] ?: return null
+            // sealed flag is read first: write position of the sealed segment is final
+            val sealed = segment.sealed
+            if (offset < segment.writePosition) {
+                return readRecord(segment, offset)
+            }
+            if (!sealed) {
+                return null
+            }
+            index++
+            offset = 0
+        }
+    }
+
+    /** Waits until record at [position] is appended */
+    fun await(position: Long): EventLogRecord {
+        read(position)?.let { return it }
+        waitLock.lock()
+        try {
+            waitingReadersCount++
+            while (true) {
+                read(position)?.let { return it }
+                appendedCondition.await()
+            }
+        } finally {
+            waitingReadersCount--
+            waitLock.unlock()
+        }
+    }
+
+    private fun signalReaders() {
+        if (waitingReadersCount == 0) {
+            return
+        }
+        waitLock.lock()
+        try {
+            appendedCondition.signalAll()
+        } finally {
+            waitLock.unlock()
+        }
+    }
+
+    private fun readRecord(segment: Segment, offset: Int): EventLogRecord {
+        val buffer = segment.buffer
+        val length = buffer.getInt(offset)
+        val payload = ByteArray(length)
+        val payloadBuffer = buffer.duplicate()
+        payloadBuffer.position(offset + RECORD_HEADER_SIZE)
+        payloadBuffer.get(payload)
+        return EventLogRecord(buffer.getLong(offset + 8), payload, position(segment.index, offset + RECORD_HEADER_SIZE + length))
+    }
+
+    private fun startSegment(size: Int): Segment {
+        val previousSegment = activeSegment
+        val segment = createSegment(previousSegment.index + 1, size)
+        segments[segment.index] = segment
+        activeSegment = segment
+        // the next segment is available to readers before the previous one is sealed
+        previousSegment.sealed = true
+        deleteReadSegments()
+        return segment
+    }
+
+    private fun deleteReadSegments() {
+        val minCursorSegmentIndex = cursors.map { segmentIndex(it.committedPosition) }.min() ?: activeSegment.index
+        segments.headMap(Math.min(minCursorSegmentIndex, activeSegment.index)).keys.toList().forEach { index ->
+            segments.remove(index)
+            try {
+                Files.deleteIfExists(getSegmentPath(index))
+            } catch (e: Exception) {
+                LOGGER.error("Unable to delete $logName event log segment $index", e)
+            }
+        }
+    }
+
+    private fun createSegment(index: Long, size: Int): Segment {
+        val buffer = FileChannel.open(getSegmentPath(index), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE).use {
+            it.map(FileChannel.MapMode.READ_WRITE, 0, size.toLong())
+        }
+        return Segment(index, buffer)
+    }
+
+    private fun openSegment(index: Long, path: Path): Segment {
+        val buffer = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE).use {
+            it.map(FileChannel.MapMode.READ_WRITE, 0, it.size())
+        }
+        val segment = Segment(index, buffer)
+        segment.writePosition = recover(segment)
+        return segment
+    }
+
+    /** @return length of the valid part of the segment */
+    private fun recover(segment: Segment): Int {
+        val buffer = segment.buffer
+        val crc = CRC32()
+        var offset = 0
+        while (buffer.capacity() - offset >= RECORD_HEADER_SIZE) {
+            val length = buffer.getInt(offset)
+            if (length == 0) {
+                return offset
+            }
+            if (length < 0 || length > buffer.capacity() - offset - RECORD_HEADER_SIZE) {
+                break
+            }
+            val record = readRecord(segment, offset)
+            crc.reset()
+            crc.update(record.payload)
+            if (crc.value.toInt() != buffer.getInt(offset + 4)) {
+                break
+            }
+            lastSequenceNumber = record.sequenceNumber
+            offset += RECORD_HEADER_SIZE + length
+        }
+
+        if (buffer.capacity() - offset >= RECORD_HEADER_SIZE) {
+            val message = "$logName event log segment ${segment.index} has broken tail, valid length: $offset"
+            LOGGER.error(message)
+            METRICS_LOGGER.logError(message)
+            clear(buffer, offset)
+        }
+        return offset
+    }
+
+    /** Broken tail is cleared to not take its remains for records appended after it */
+    private fun clear(buffer: MappedByteBuffer, fromOffset: Int) {
+        val zeros = ByteArray(CLEAR_CHUNK_SIZE)
+        val tail = buffer.duplicate()
+        tail.position(fromOffset)
+        while (tail.hasRemaining()) {
+            tail.put(zeros, 0, Math.min(zeros.size, tail.remaining()))
+        }
+    }
+
+    /** @return files sorted by segment index */
+    private fun getSegmentFiles(): Map<Long, Path> {
+        val result = sortedMapOf<Long, Path>()
+        Files.list(logPath).use { paths ->
+            paths.collect(Collectors.toList()).forEach { path ->
+                val fileName = path.fileName.toString()
+                if (fileName.startsWith(SEGMENT_FILE_PREFIX)) {
+                    fileName.removePrefix(SEGMENT_FILE_PREFIX).toLongOrNull()?.let { result[it] = path }
+                }
+            }
+        }
+        return result
+    }
+
+    private fun getSegmentPath(index: Long): Path {
+        return logPath.resolve(SEGMENT_FILE_PREFIX + String.format("%020d", index))
+    }
+}
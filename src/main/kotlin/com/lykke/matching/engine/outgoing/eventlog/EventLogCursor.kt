@@ -0,0 +1,51 @@
+package com.lykke.matching.engine.outgoing.eventlog
+
+import java.nio.MappedByteBuffer
+
+/**
+ * Reads records of [EventLog] one by one.
+ * Position of the record following the last published one is saved to the memory-mapped cursor file by [commit],
+ * reading is continued from it after restart, so records are published at least once.
+ *
+ * Records are read by one thread, [commit] can be called by another one.
+ */
+class EventLogCursor internal constructor(private val eventLog: EventLog,
+                                          val name: String,
+                                          private val buffer: MappedByteBuffer,
+                                          position: Long,
+                                          sequenceNumber: Long?) {
+
+    private var readPosition = position
+
+    @Volatile
+    var committedPosition = position
+        private set
+
+    @Volatile
+    var committedSequenceNumber = sequenceNumber
+        private set
+
+    init {
+        buffer.putLong(0, position)
+        buffer.putLong(8, sequenceNumber ?: 0L)
+    }
+
+    /** Waits for the next record */
+    fun take(): EventLogRecord {
+        val record = eventLog.await(readPosition)
+        readPosition = record.nextPosition
+        return record
+    }
+
+    /** Is called when the record and all records before it are published */
+    fun commit(record: EventLogRecord) {
+        commit(record.nextPosition, record.sequenceNumber)
+    }
+
+    fun commit(nextPosition: Long, sequenceNumber: Long) {
+        buffer.putLong(8, sequenceNumber)
+        buffer.putLong(0, nextPosition)
+        committedSequenceNumber = sequenceNumber
+        committedPosition = nextPosition
+    }
+}
@@ -0,0 +1,6 @@
+package com.lykke.matching.engine.outgoing.eventlog
+
+class EventLogRecord(val sequenceNumber: Long,
+                     val payload: ByteArray,
+                     /** Position of the next record of the log */
+                     val nextPosition: Long)
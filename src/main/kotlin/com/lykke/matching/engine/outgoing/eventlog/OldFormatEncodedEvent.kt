@@ -0,0 +1,73 @@
+package com.lykke.matching.engine.outgoing.eventlog
+
+import com.lykke.matching.engine.logging.toLogMessage
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+
+/**
+ * Deprecated old format message stored in [EventLog]: json published as message body
+ * and fields of the message database log which are read from the original message when it is appended.
+ */
+class OldFormatEncodedEvent(val messageId: String,
+                            val requestId: String,
+                            val type: String,
+                            val timestamp: Long,
+                            val json: String) {
+
+    companion object {
+        fun create(message: Any, json: String): OldFormatEncodedEvent {
+            val logMessage = toLogMessage(message, json)
+            return OldFormatEncodedEvent(logMessage.messageId,
+                    logMessage.requestId,
+                    logMessage.type,
+                    logMessage.timestamp.time,
+                    json)
+        }
+
+        fun decode(record: EventLogRecord): OldFormatEncodedEvent {
+            val input = DataInputStream(ByteArrayInputStream(record.payload))
+            val event = OldFormatEncodedEvent(readString(input),
+                    readString(input),
+                    readString(input),
+                    input.readLong(),
+                    readString(input))
+            event.sequenceNumber = record.sequenceNumber
+            event.nextLogPosition = record.nextPosition
+            return event
+        }
+
+        private fun readString(input: DataInputStream): String {
+            val bytes = ByteArray(input.readInt())
+            input.readFully(bytes)
+            return String(bytes, Charsets.UTF_8)
+        }
+
+        private fun writeString(output: DataOutputStream, value: String) {
+            val bytes = value.toByteArray(Charsets.UTF_8)
+            output.writeInt(bytes.size)
+            output.write(bytes)
+        }
+    }
+
+    /** Sequence number of the record in the log, is set when the event is read from the log */
+    var sequenceNumber = 0L
+        private set
+
+    /** Position of the next record of the log, is set when the event is read from the log */
+    var nextLogPosition = 0L
+        private set
+
+    fun encode(): ByteArray {
+        val bytes = ByteArrayOutputStream(json.length + 256)
+        val output = DataOutputStream(bytes)
+        writeString(output, messageId)
+        writeString(output, requestId)
+        writeString(output, type)
+        output.writeLong(timestamp)
+        writeString(output, json)
+        output.flush()
+        return bytes.toByteArray()
+    }
+}
@@ -0,0 +1,14 @@
+package com.lykke.matching.engine.outgoing.eventlog
+
+/** Event logs of deprecated old format messages, each of them is published by one publisher */
+enum class OldFormatEventLog(val dirName: String) {
+    BALANCE_UPDATES("balanceUpdates"),
+    CASH_OPERATIONS("cashOperations"),
+    RESERVED_CASH_OPERATIONS("reservedCashOperations"),
+    TRANSFERS("transfers"),
+    MARKET_ORDERS("marketOrders"),
+    CLIENT_LIMIT_ORDERS("clientLimitOrders"),
+    TRUSTED_CLIENTS_LIMIT_ORDERS("trustedClientsLimitOrders");
+
+    val cursorName = "old_format_log_$dirName"
+}
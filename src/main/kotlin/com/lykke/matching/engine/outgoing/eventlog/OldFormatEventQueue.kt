@@ -0,0 +1,19 @@
+package com.lykke.matching.engine.outgoing.eventlog
+
+import java.util.concurrent.BlockingQueue
+
+/** Appends old format messages to [log] instead of [queue] if outgoing event log is configured */
+class OldFormatEventQueue<T : Any>(private val queue: BlockingQueue<T>,
+                                   private val log: OldFormatEventLog,
+                                   private val outgoingEventLogHolder: OutgoingEventLogHolder?) {
+
+    private val isEventLogEnabled = outgoingEventLogHolder?.isEnabled() ?: false
+
+    fun put(message: T) {
+        if (isEventLogEnabled) {
+            outgoingEventLogHolder!!.appendOldFormatEvent(log, message)
+            return
+        }
+        queue.put(message)
+    }
+}
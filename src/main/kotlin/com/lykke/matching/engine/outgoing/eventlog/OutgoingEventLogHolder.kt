@@ -0,0 +1,82 @@
+package com.lykke.matching.engine.outgoing.eventlog
+
+import com.google.gson.Gson
+import com.lykke.matching.engine.outgoing.messages.v2.events.Event
+import com.lykke.matching.engine.outgoing.messages.v2.events.ExecutionEvent
+import com.lykke.matching.engine.outgoing.rabbit.utils.RabbitEventUtils
+import com.lykke.matching.engine.utils.config.Config
+import org.springframework.stereotype.Component
+import java.nio.file.Paths
+import java.util.EnumMap
+
+/**
+ * Holds event logs of clients and trusted clients events and logs of old format messages if outgoing event log is configured.
+ * Cursors of all configured publishers are opened on start, so segments are not deleted before they are read by all publishers.
+ */
+@Component
+class OutgoingEventLogHolder(config: Config,
+                             private val gson: Gson) {
+
+    private companion object {
+        const val CLIENTS_EVENT_LOG_DIR = "clients"
+        const val TRUSTED_CLIENTS_EVENT_LOG_DIR = "trustedClients"
+        const val OLD_FORMAT_EVENT_LOGS_DIR = "oldFormat"
+    }
+
+    private val clientsEventLog: EventLog?
+    private val trustedClientsEventLog: EventLog?
+    private val oldFormatEventLogs = EnumMap<OldFormatEventLog, EventLog>(OldFormatEventLog::class.java)
+    private val cursors = HashMap<String, EventLogCursor>()
+
+    init {
+        val eventLogConfig = config.me.outgoingEventLog
+        if (eventLogConfig == null) {
+            clientsEventLog = null
+            trustedClientsEventLog = null
+        } else {
+            val clientsLog = EventLog(Paths.get(eventLogConfig.path, CLIENTS_EVENT_LOG_DIR).toString(), eventLogConfig.segmentSize, "Clients")
+            config.me.rabbitMqConfigs.events.forEachIndexed { index, rabbitConfig ->
+                val cursorName = RabbitEventUtils.getClientEventLogCursorName(rabbitConfig.exchange, index)
+                cursors[cursorName] = clientsLog.openCursor(cursorName)
+            }
+
+            val trustedClientsLog = EventLog(Paths.get(eventLogConfig.path, TRUSTED_CLIENTS_EVENT_LOG_DIR).toString(), eventLogConfig.segmentSize, "Trusted clients")
+            config.me.rabbitMqConfigs.trustedClientsEvents.forEachIndexed { index, rabbitConfig ->
+                val cursorName = RabbitEventUtils.getTrustedClientsEventLogCursorName(rabbitConfig.exchange, index)
+                cursors[cursorName] = trustedClientsLog.openCursor(cursorName)
+            }
+
+            OldFormatEventLog.values().forEach { log ->
+                val eventLog = EventLog(Paths.get(eventLogConfig.path, OLD_FORMAT_EVENT_LOGS_DIR, log.dirName).toString(), eventLogConfig.segmentSize, log.dirName)
+                cursors[log.cursorName] = eventLog.openCursor(log.cursorName)
+                oldFormatEventLogs[log] = eventLog
+            }
+
+            clientsEventLog = clientsLog
+            trustedClientsEventLog = trustedClientsLog
+        }
+    }
+
+    fun isEnabled() = clientsEventLog != null
+
+    fun appendClientsEvent(event: Event<*>) {
+        // clients events are logged by publishers
+        clientsEventLog!!.append(event.sequenceNumber(), EncodedEvent.create(event, gson.toJson(event)).encode())
+    }
+
+    fun appendTrustedClientsEvent(event: ExecutionEvent) {
+        trustedClientsEventLog!!.append(event.sequenceNumber(), EncodedEvent.create(event, null).encode())
+    }
+
+    /** Old format messages have no sequence numbers, records of their logs are numbered by the log */
+    fun appendOldFormatEvent(log: OldFormatEventLog, message: Any) {
+        val eventLog = oldFormatEventLogs[log]!!
+        val payload = OldFormatEncodedEvent.create(message, gson.toJson(message)).encode()
+        synchronized(eventLog) {
+            eventLog.append((eventLog.lastSequenceNumber ?: 0L) + 1, payload)
+        }
+    }
+
+    /** @return null if outgoing event log is not configured */
+    fun getCursor(name: String): EventLogCursor? = cursors[name]
+}
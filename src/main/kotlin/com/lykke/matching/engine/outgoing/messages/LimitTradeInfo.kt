@@ -1,5 +1,6 @@
 package com.lykke.matching.engine.outgoing.messages
 
+import com.google.gson.annotations.SerializedName
 import com.lykke.matching.engine.daos.v2.FeeInstruction
 import com.lykke.matching.engine.daos.FeeTransfer
 import com.lykke.matching.engine.daos.fee.v2.Fee
@@ -7,33 +8,76 @@ import com.lykke.matching.engine.outgoing.messages.v2.enums.TradeRole
 import java.math.BigDecimal
 import java.util.Date
 
+/** String volumes are formatted from [TradeVolumes] on the first access, see [formatVolumes] */
 class LimitTradeInfo(
         val tradeId: String,
         val clientId: String,
         val asset: String,
-        val volume: String,
-        val price: BigDecimal,
-        val timestamp: Date,
-
-        val oppositeOrderId: String,
-        val oppositeOrderExternalId: String,
-        val oppositeAsset: String,
-        val oppositeClientId: String,
-        val oppositeVolume: String,
-        val index: Long,
-        val feeInstruction: FeeInstruction?,
-        val feeTransfer: FeeTransfer?,
-        val fees: List<Fee>,
-        val absoluteSpread: BigDecimal?,
-        val relativeSpread: BigDecimal?,
+        @Transient
+        private val volumes: TradeVolumes,
+        price: BigDecimal,
+        timestamp: Date,
+
+        oppositeOrderId: String,
+        oppositeOrderExternalId: String,
+        oppositeAsset: String,
+        oppositeClientId: String,
+        index: Long,
+        feeInstruction: FeeInstruction?,
+        feeTransfer: FeeTransfer?,
+        fees: List<Fee>,
+        absoluteSpread: BigDecimal?,
+        relativeSpread: BigDecimal?,
         @Transient
         val role: TradeRole,
         @Transient
         val baseAssetId: String,
         @Transient
-        val baseVolume: String,
-        @Transient
-        val quotingAssetId: String,
-        @Transient
-        val quotingVolume: String
-)
\ No newline at end of file
+        val quotingAssetId: String
+) {
+    @SerializedName("volume")
+    private var formattedVolume: String? = null
+    val price = price
+    val timestamp = timestamp
+
+    val oppositeOrderId = oppositeOrderId
+    val oppositeOrderExternalId = oppositeOrderExternalId
+    val oppositeAsset = oppositeAsset
+    val oppositeClientId = oppositeClientId
+    @SerializedName("oppositeVolume")
+    private var formattedOppositeVolume: String? = null
+    val index = index
+    val feeInstruction = feeInstruction
+    val feeTransfer = feeTransfer
+    val fees = fees
+    val absoluteSpread = absoluteSpread
+    val relativeSpread = relativeSpread
+
+    val volume: String
+        get() {
+            if (formattedVolume == null) {
+                formattedVolume = if (role == TradeRole.TAKER) volumes.formatMarketVolume() else volumes.formatLimitVolume()
+            }
+            return formattedVolume!!
+        }
+
+    val oppositeVolume: String
+        get() {
+            if (formattedOppositeVolume == null) {
+                formattedOppositeVolume = if (role == TradeRole.TAKER) volumes.formatLimitVolume() else volumes.formatMarketVolume()
+            }
+            return formattedOppositeVolume!!
+        }
+
+    val baseVolume: String
+        get() = volumes.formatBaseVolume(role)
+
+    val quotingVolume: String
+        get() = volumes.formatQuotingVolume(role)
+
+    /** Formats volumes which are serialized to the report, is to be called before the report is passed to other threads */
+    fun formatVolumes() {
+        volume
+        oppositeVolume
+    }
+}
@@ -3,10 +3,10 @@ package com.lykke.matching.engine.outgoing.messages
 import com.fasterxml.jackson.annotation.JsonProperty
 import com.lykke.matching.engine.daos.LimitOrder
 import com.lykke.matching.engine.order.transaction.CurrentTransactionOrderBooksHolder
+import com.lykke.matching.engine.services.utils.OrderBookQueue
 import java.math.BigDecimal
 import java.util.ArrayList
 import java.util.Date
-import java.util.concurrent.PriorityBlockingQueue
 
 class OrderBook {
     val assetPair: String
@@ -25,7 +25,7 @@ class OrderBook {
         this.timestamp = timestamp
     }
 
-    constructor(assetPair: String, isBuy: Boolean, timestamp: Date, orders: PriorityBlockingQueue<LimitOrder>) {
+    constructor(assetPair: String, isBuy: Boolean, timestamp: Date, orders: OrderBookQueue) {
         this.assetPair = assetPair
         this.isBuy = isBuy
         this.timestamp = timestamp
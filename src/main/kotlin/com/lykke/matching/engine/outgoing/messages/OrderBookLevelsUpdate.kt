@@ -0,0 +1,17 @@
+package com.lykke.matching.engine.outgoing.messages
+
+import java.math.BigDecimal
+import java.util.Date
+
+/**
+ * Changed price levels of an asset pair order book side (all levels if [isSnapshot]).
+ * Level with zero volume is removed.
+ */
+class OrderBookLevelsUpdate(val assetPair: String,
+                            val isBuy: Boolean,
+                            val timestamp: Date,
+                            val sequenceNumber: Long,
+                            val isSnapshot: Boolean,
+                            val levels: List<OrderBookLevel>)
+
+class OrderBookLevel(val price: BigDecimal, val volume: BigDecimal)
@@ -1,35 +1,103 @@
 package com.lykke.matching.engine.outgoing.messages
 
+import com.google.gson.annotations.SerializedName
 import com.lykke.matching.engine.daos.v2.FeeInstruction
 import com.lykke.matching.engine.daos.FeeTransfer
 import com.lykke.matching.engine.daos.fee.v2.Fee
+import com.lykke.matching.engine.outgoing.messages.v2.enums.TradeRole
 import java.math.BigDecimal
 import java.util.Date
 
+/** String volumes are formatted from [TradeVolumes] on the first access, see [formatVolumes] */
 class TradeInfo(
         val tradeId: String,
         val marketClientId: String,
-        val marketVolume: String,
-        val marketAsset: String,
-        val limitClientId: String,
-        val limitVolume: String,
-        val limitAsset: String,
-        val price: BigDecimal,
-        val limitOrderId: String,
-        val limitOrderExternalId: String,
-        val timestamp: Date,
-        val index: Long,
-        val feeInstruction: FeeInstruction?,
-        val feeTransfer: FeeTransfer?,
-        val fees: List<Fee>,
-        val absoluteSpread: BigDecimal?,
-        val relativeSpread: BigDecimal?,
         @Transient
-        val baseAssetId: String,
-        @Transient
-        val baseVolume: String,
+        private val volumes: TradeVolumes,
+        marketAsset: String,
+        limitClientId: String,
+        limitAsset: String,
+        price: BigDecimal,
+        limitOrderId: String,
+        limitOrderExternalId: String,
+        timestamp: Date,
+        index: Long,
+        feeInstruction: FeeInstruction?,
+        feeTransfer: FeeTransfer?,
+        fees: List<Fee>,
+        absoluteSpread: BigDecimal?,
+        relativeSpread: BigDecimal?,
         @Transient
-        val quotingAssetId: String,
+        val baseAssetId: String,
         @Transient
-        val quotingVolume: String
-)
\ No newline at end of file
+        val quotingAssetId: String
+) {
+    @SerializedName("marketVolume")
+    private var formattedMarketVolume: String? = null
+    val marketAsset = marketAsset
+    val limitClientId = limitClientId
+    @SerializedName("limitVolume")
+    private var formattedLimitVolume: String? = null
+    val limitAsset = limitAsset
+    val price = price
+    val limitOrderId = limitOrderId
+    val limitOrderExternalId = limitOrderExternalId
+    val timestamp = timestamp
+    val index = index
+    val feeInstruction = feeInstruction
+    val feeTransfer = feeTransfer
+    val fees = fees
+    val absoluteSpread = absoluteSpread
+    val relativeSpread = relativeSpread
+
+    val marketVolume: String
+        get() {
+            if (formattedMarketVolume == null) {
+                formattedMarketVolume = volumes.formatMarketVolume()
+            }
+            return formattedMarketVolume!!
+        }
+
+    val limitVolume: String
+        get() {
+            if (formattedLimitVolume == null) {
+                formattedLimitVolume = volumes.formatLimitVolume()
+            }
+            return formattedLimitVolume!!
+        }
+
+    val baseVolume: String
+        get() = volumes.formatBaseVolume(TradeRole.TAKER)
+
+    val quotingVolume: String
+        get() = volumes.formatQuotingVolume(TradeRole.TAKER)
+
+    /** Formats volumes which are serialized to the report, is to be called before the report is passed to other threads */
+    fun formatVolumes() {
+        marketVolume
+        limitVolume
+    }
+
+    /** Trade of the market (taker) order for the report of the limit order */
+    fun toLimitTradeInfo(): LimitTradeInfo {
+        return LimitTradeInfo(tradeId,
+                marketClientId,
+                marketAsset,
+                volumes,
+                price,
+                timestamp,
+                limitOrderId,
+                limitOrderExternalId,
+                limitAsset,
+                limitClientId,
+                index,
+                feeInstruction,
+                feeTransfer,
+                fees,
+                absoluteSpread,
+                relativeSpread,
+                TradeRole.TAKER,
+                baseAssetId,
+                quotingAssetId)
+    }
+}
@@ -0,0 +1,40 @@
+package com.lykke.matching.engine.outgoing.messages
+
+import com.lykke.matching.engine.outgoing.messages.v2.builders.bigDecimalToString
+import com.lykke.matching.engine.outgoing.messages.v2.enums.TradeRole
+import com.lykke.matching.engine.utils.NumberUtils
+import java.math.BigDecimal
+
+/**
+ * Volumes of a trade as they are calculated by matching.
+ * String volumes of trade reports are formatted from them on the first access,
+ * so formatting is done by outgoing events threads instead of the matching thread.
+ */
+class TradeVolumes(private val marketVolume: BigDecimal,
+                   private val oppositeVolume: BigDecimal,
+                   private val isBuy: Boolean,
+                   private val marketAssetAccuracy: Int,
+                   private val limitAssetAccuracy: Int) {
+
+    /** Volume of the asset which is spent by market (taker) order */
+    fun formatMarketVolume(): String {
+        return NumberUtils.setScaleRoundHalfUp((if (isBuy) oppositeVolume else marketVolume).abs(), marketAssetAccuracy).toPlainString()
+    }
+
+    /** Volume of the asset which is spent by limit (maker) order */
+    fun formatLimitVolume(): String {
+        return NumberUtils.setScaleRoundHalfUp((if (isBuy) marketVolume else oppositeVolume).abs(), limitAssetAccuracy).toPlainString()
+    }
+
+    /** Signed volume of the base asset for the order of [role] */
+    fun formatBaseVolume(role: TradeRole): String {
+        val volume = if (isBuy) marketVolume.abs() else -marketVolume.abs()
+        return bigDecimalToString(if (role == TradeRole.TAKER) volume else -volume)!!
+    }
+
+    /** Signed volume of the quoting asset for the order of [role] */
+    fun formatQuotingVolume(role: TradeRole): String {
+        val volume = if (isBuy) -oppositeVolume.abs() else oppositeVolume.abs()
+        return bigDecimalToString(if (role == TradeRole.TAKER) volume else -volume)!!
+    }
+}
@@ -2,9 +2,14 @@ package com.lykke.matching.engine.outgoing.messages.v2.events
 
 import com.google.protobuf.GeneratedMessageV3
 import com.lykke.matching.engine.outgoing.messages.v2.events.common.Header
+import com.lykke.matching.engine.outgoing.rabbit.impl.publishers.SharedPublishRequest
 
 abstract class Event<out T : GeneratedMessageV3>(val header: Header) {
 
+    /** Event is dispatched to all publishers of the exchange type and is encoded by the first of them */
+    @Transient
+    val sharedPublishRequest = SharedPublishRequest()
+
     fun sequenceNumber() = header.sequenceNumber
 
     abstract fun buildGeneratedMessage(): T
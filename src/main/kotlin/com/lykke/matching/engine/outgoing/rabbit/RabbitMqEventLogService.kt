@@ -0,0 +1,18 @@
+package com.lykke.matching.engine.outgoing.rabbit
+
+import com.lykke.matching.engine.logging.DatabaseLogger
+import com.lykke.matching.engine.outgoing.eventlog.EncodedEvent
+import com.lykke.matching.engine.outgoing.eventlog.EventLogCursor
+import com.lykke.matching.engine.utils.config.RabbitConfig
+import com.rabbitmq.client.BuiltinExchangeType
+
+/** Starts publishers of events read from the outgoing event log */
+interface RabbitMqEventLogService {
+    fun startEventLogPublisher(config: RabbitConfig,
+                               publisherName: String,
+                               cursor: EventLogCursor,
+                               appName: String,
+                               appVersion: String,
+                               exchangeType: BuiltinExchangeType,
+                               messageDatabaseLogger: DatabaseLogger<EncodedEvent>? = null)
+}
@@ -0,0 +1,19 @@
+package com.lykke.matching.engine.outgoing.rabbit
+
+import com.lykke.matching.engine.logging.DatabaseLogger
+import com.lykke.matching.engine.outgoing.eventlog.EventLogCursor
+import com.lykke.matching.engine.outgoing.eventlog.OldFormatEncodedEvent
+import com.lykke.matching.engine.utils.config.RabbitConfig
+import com.rabbitmq.client.BuiltinExchangeType
+
+/** Starts publishers of old format messages read from the outgoing event log */
+@Deprecated("consider to use new message format")
+interface RabbitMqOldFormatEventLogService {
+    fun startOldFormatEventLogPublisher(config: RabbitConfig,
+                                        publisherName: String,
+                                        cursor: EventLogCursor,
+                                        appName: String,
+                                        appVersion: String,
+                                        exchangeType: BuiltinExchangeType,
+                                        messageDatabaseLogger: DatabaseLogger<OldFormatEncodedEvent>? = null)
+}
@@ -1,7 +1,10 @@
 package com.lykke.matching.engine.outgoing.rabbit.impl.listeners
 
 import com.lykke.matching.engine.logging.DatabaseLogger
+import com.lykke.matching.engine.outgoing.eventlog.OldFormatEventLog
+import com.lykke.matching.engine.outgoing.eventlog.OutgoingEventLogHolder
 import com.lykke.matching.engine.outgoing.messages.LimitOrdersReport
+import com.lykke.matching.engine.outgoing.rabbit.RabbitMqOldFormatEventLogService
 import com.lykke.matching.engine.outgoing.rabbit.RabbitMqService
 import com.lykke.matching.engine.outgoing.rabbit.events.RabbitFailureEvent
 import com.lykke.matching.engine.outgoing.rabbit.events.RabbitReadyEvent
@@ -29,6 +32,15 @@ class ClientLimitOrdersListener {
     @Autowired
     private lateinit var rabbitMqOldService: RabbitMqService<Any>
 
+    @Autowired
+    private lateinit var rabbitMqOldFormatEventLogService: RabbitMqOldFormatEventLogService
+
+    @Autowired
+    private lateinit var outgoingEventLogHolder: OutgoingEventLogHolder
+
+    @Autowired
+    private lateinit var eventLogPublishersHealthListener: EventLogPublishersHealthListener
+
     @Autowired
     private lateinit var config: Config
 
@@ -40,6 +52,19 @@ class ClientLimitOrdersListener {
 
     @PostConstruct
     fun initRabbitMqPublisher() {
+        val cursor = outgoingEventLogHolder.getCursor(OldFormatEventLog.CLIENT_LIMIT_ORDERS.cursorName)
+        if (cursor != null) {
+            eventLogPublishersHealthListener.register(cursor.name)
+            rabbitMqOldFormatEventLogService.startOldFormatEventLogPublisher(config.me.rabbitMqConfigs.trustedLimitOrders,
+                    cursor.name,
+                    cursor,
+                    config.me.name,
+                    AppVersion.VERSION,
+                    BuiltinExchangeType.FANOUT,
+                    clientLimitOrderDatabaseLogger)
+            return
+        }
+
         rabbitMqOldService.startPublisher(config.me.rabbitMqConfigs.trustedLimitOrders,
                 ClientLimitOrdersListener::class.java.simpleName,
                 clientLimitOrdersQueue,
@@ -4,7 +4,9 @@ import com.lykke.matching.engine.database.azure.AzureMessageLogDatabaseAccessor
 import com.lykke.matching.engine.holders.UUIDHolder
 import com.lykke.matching.engine.logging.DatabaseLogger
 import com.lykke.matching.engine.logging.MessageWrapper
+import com.lykke.matching.engine.outgoing.eventlog.OutgoingEventLogHolder
 import com.lykke.matching.engine.outgoing.messages.v2.events.Event
+import com.lykke.matching.engine.outgoing.rabbit.RabbitMqEventLogService
 import com.lykke.matching.engine.outgoing.rabbit.RabbitMqService
 import com.lykke.matching.engine.outgoing.rabbit.utils.RabbitEventUtils
 import com.lykke.matching.engine.utils.config.Config
@@ -23,15 +25,24 @@ class ClientsEventListener {
     @Autowired
     private lateinit var rabbitMqService: RabbitMqService<Event<*>>
 
+    @Autowired
+    private lateinit var rabbitMqEventLogService: RabbitMqEventLogService
+
     @Autowired
     private lateinit var config: Config
 
+    @Autowired
+    private lateinit var eventLogPublishersHealthListener: EventLogPublishersHealthListener
+
     @Autowired
     private lateinit var applicationContext: ApplicationContext
 
     @Autowired
     private lateinit var uuidHolder: UUIDHolder
 
+    @Autowired
+    private lateinit var outgoingEventLogHolder: OutgoingEventLogHolder
+
     @Value("\${azure.logs.blob.container}")
     private lateinit var logBlobName: String
 
@@ -41,6 +52,26 @@ class ClientsEventListener {
     @PostConstruct
     fun initRabbitMqPublisher() {
         config.me.rabbitMqConfigs.events.forEachIndexed { index, rabbitConfig ->
+            val messageDatabaseLogger = DatabaseLogger<Any>(
+                    AzureMessageLogDatabaseAccessor(config.me.db.messageLogConnString,
+                            "$logTable$index",
+                            "$logBlobName$index",
+                            uuidHolder),
+                    applicationContext.getBean(RabbitEventUtils.getDatabaseLogQueueName(rabbitConfig.exchange, index)) as BlockingQueue<MessageWrapper>)
+
+            val cursor = outgoingEventLogHolder.getCursor(RabbitEventUtils.getClientEventLogCursorName(rabbitConfig.exchange, index))
+            if (cursor != null) {
+                eventLogPublishersHealthListener.register(cursor.name)
+                rabbitMqEventLogService.startEventLogPublisher(rabbitConfig,
+                        cursor.name,
+                        cursor,
+                        config.me.name,
+                        AppVersion.VERSION,
+                        BuiltinExchangeType.DIRECT,
+                        messageDatabaseLogger)
+                return@forEachIndexed
+            }
+
             val clientsEventConsumerQueueName = RabbitEventUtils.getClientEventConsumerQueueName(rabbitConfig.exchange, index)
             val queue = applicationContext.getBean(clientsEventConsumerQueueName) as BlockingQueue<Event<*>>
 
@@ -48,12 +79,7 @@ class ClientsEventListener {
                     config.me.name,
                     AppVersion.VERSION,
                     BuiltinExchangeType.DIRECT,
-                    DatabaseLogger(
-                            AzureMessageLogDatabaseAccessor(config.me.db.messageLogConnString,
-                                    "$logTable$index",
-                                    "$logBlobName$index",
-                                    uuidHolder),
-                            applicationContext.getBean(RabbitEventUtils.getDatabaseLogQueueName(rabbitConfig.exchange, index)) as BlockingQueue<MessageWrapper>))
+                    messageDatabaseLogger)
         }
     }
 }
\ No newline at end of file
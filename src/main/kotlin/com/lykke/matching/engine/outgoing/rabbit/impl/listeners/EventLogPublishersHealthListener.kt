@@ -0,0 +1,42 @@
+package com.lykke.matching.engine.outgoing.rabbit.impl.listeners
+
+import com.lykke.matching.engine.outgoing.rabbit.events.RabbitFailureEvent
+import com.lykke.matching.engine.outgoing.rabbit.events.RabbitReadyEvent
+import com.lykke.matching.engine.utils.monitoring.HealthMonitorEvent
+import com.lykke.matching.engine.utils.monitoring.MonitoredComponent
+import org.springframework.context.ApplicationEventPublisher
+import org.springframework.context.event.EventListener
+import org.springframework.stereotype.Component
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Reports failures and recovery of outgoing event log publishers to health monitor.
+ * Event log publishers are not served by dispatchers and publish failed events again themselves,
+ * so listeners which start them only register their names here.
+ */
+@Component
+class EventLogPublishersHealthListener(private val applicationEventPublisher: ApplicationEventPublisher) {
+
+    private val publisherNames = ConcurrentHashMap.newKeySet<String>()
+    private val failedPublisherNames = ConcurrentHashMap.newKeySet<String>()
+
+    fun register(publisherName: String) {
+        publisherNames.add(publisherName)
+    }
+
+    @EventListener
+    fun onFailure(rabbitFailureEvent: RabbitFailureEvent<*>) {
+        if (publisherNames.contains(rabbitFailureEvent.publisherName) && failedPublisherNames.add(rabbitFailureEvent.publisherName)) {
+            logRmqFail(rabbitFailureEvent.publisherName)
+            applicationEventPublisher.publishEvent(HealthMonitorEvent(false, MonitoredComponent.RABBIT, rabbitFailureEvent.publisherName))
+        }
+    }
+
+    @EventListener
+    fun onReady(rabbitReadyEvent: RabbitReadyEvent) {
+        if (failedPublisherNames.remove(rabbitReadyEvent.publisherName)) {
+            logRmqRecover(rabbitReadyEvent.publisherName)
+            applicationEventPublisher.publishEvent(HealthMonitorEvent(true, MonitoredComponent.RABBIT, rabbitReadyEvent.publisherName))
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.lykke.matching.engine.outgoing.rabbit.impl.listeners
 
 import com.lykke.matching.engine.logging.DatabaseLogger
+import com.lykke.matching.engine.outgoing.eventlog.OldFormatEventLog
+import com.lykke.matching.engine.outgoing.eventlog.OutgoingEventLogHolder
 import com.lykke.matching.engine.outgoing.messages.MarketOrderWithTrades
+import com.lykke.matching.engine.outgoing.rabbit.RabbitMqOldFormatEventLogService
 import com.lykke.matching.engine.outgoing.rabbit.RabbitMqService
 import com.lykke.matching.engine.outgoing.rabbit.events.RabbitFailureEvent
 import com.lykke.matching.engine.outgoing.rabbit.events.RabbitReadyEvent
@@ -28,6 +31,15 @@ class MarketOrderWithTradesEventListener {
     @Autowired
     private lateinit var rabbitMqOldService: RabbitMqService<Any>
 
+    @Autowired
+    private lateinit var rabbitMqOldFormatEventLogService: RabbitMqOldFormatEventLogService
+
+    @Autowired
+    private lateinit var outgoingEventLogHolder: OutgoingEventLogHolder
+
+    @Autowired
+    private lateinit var eventLogPublishersHealthListener: EventLogPublishersHealthListener
+
     @Autowired
     private lateinit var config: Config
 
@@ -39,6 +51,19 @@ class MarketOrderWithTradesEventListener {
 
     @PostConstruct
     fun initRabbitMqPublisher() {
+        val cursor = outgoingEventLogHolder.getCursor(OldFormatEventLog.MARKET_ORDERS.cursorName)
+        if (cursor != null) {
+            eventLogPublishersHealthListener.register(cursor.name)
+            rabbitMqOldFormatEventLogService.startOldFormatEventLogPublisher(config.me.rabbitMqConfigs.marketOrders,
+                    cursor.name,
+                    cursor,
+                    config.me.name,
+                    AppVersion.VERSION,
+                    BuiltinExchangeType.FANOUT,
+                    marketOrderWithTradesDatabaseLogger)
+            return
+        }
+
         rabbitMqOldService.startPublisher(config.me.rabbitMqConfigs.marketOrders,
                 MarketOrderWithTradesEventListener::class.java.simpleName,
                 marketOrderWithTrades,
@@ -1,5 +1,7 @@
 package com.lykke.matching.engine.outgoing.rabbit.impl.listeners
 
+import com.lykke.matching.engine.outgoing.conflation.ConflatingOrderBookQueue
+import com.lykke.matching.engine.outgoing.conflation.OrderBookConflation
 import com.lykke.matching.engine.outgoing.messages.OrderBook
 import com.lykke.matching.engine.outgoing.rabbit.RabbitMqService
 import com.lykke.matching.engine.outgoing.rabbit.events.RabbitFailureEvent
@@ -14,10 +16,16 @@ import org.springframework.context.ApplicationEventPublisher
 import org.springframework.context.event.EventListener
 import org.springframework.stereotype.Component
 import java.util.concurrent.BlockingDeque
+import java.util.concurrent.SynchronousQueue
 import javax.annotation.PostConstruct
+import kotlin.concurrent.thread
 
 @Component
 class OrderBookListener {
+    private companion object {
+        const val SUBSCRIBER_TYPE = "rabbit"
+    }
+
     @Volatile
     private var failed = false
 
@@ -33,11 +41,31 @@ class OrderBookListener {
     @Autowired
     private lateinit var applicationEventPublisher: ApplicationEventPublisher
 
+    @Autowired
+    private lateinit var orderBookConflation: OrderBookConflation
+
+    private lateinit var conflatingQueue: ConflatingOrderBookQueue
+
+    /** Order book is passed to the publisher when it is ready to publish it, until then newer versions replace it */
+    private val publisherQueue = SynchronousQueue<OrderBook>()
+
     @PostConstruct
     fun initRabbitMqPublisher() {
+        conflatingQueue = orderBookConflation.createQueue(SUBSCRIBER_TYPE)
+        thread(name = "${OrderBookListener::class.java.simpleName}Conflation") {
+            while (true) {
+                conflatingQueue.put(rabbitOrderBookQueue.take())
+            }
+        }
+        thread(name = "${OrderBookListener::class.java.simpleName}ConflatedPublishing") {
+            while (true) {
+                publisherQueue.put(conflatingQueue.take())
+            }
+        }
+
         rabbitMqOldService.startPublisher(config.me.rabbitMqConfigs.orderBooks,
                 OrderBookListener::class.java.simpleName,
-                rabbitOrderBookQueue,
+                publisherQueue,
                 config.me.name,
                 AppVersion.VERSION,
                 BuiltinExchangeType.FANOUT)
@@ -49,7 +77,7 @@ class OrderBookListener {
             failed = true
             logRmqFail(rabbitFailureEvent.publisherName)
             rabbitFailureEvent.failedEvent?.let {
-                rabbitOrderBookQueue.putFirst(it as OrderBook)
+                conflatingQueue.putBack(it as OrderBook)
             }
             applicationEventPublisher.publishEvent(HealthMonitorEvent(false, MonitoredComponent.RABBIT, rabbitFailureEvent.publisherName))
         }
@@ -1,7 +1,9 @@
 package com.lykke.matching.engine.outgoing.rabbit.impl.listeners
 
+import com.lykke.matching.engine.outgoing.eventlog.OutgoingEventLogHolder
 import com.lykke.matching.engine.outgoing.messages.v2.events.Event
 import com.lykke.matching.engine.outgoing.messages.v2.events.ExecutionEvent
+import com.lykke.matching.engine.outgoing.rabbit.RabbitMqEventLogService
 import com.lykke.matching.engine.outgoing.rabbit.RabbitMqService
 import com.lykke.matching.engine.outgoing.rabbit.utils.RabbitEventUtils
 import com.lykke.matching.engine.utils.config.Config
@@ -19,15 +21,37 @@ class TrustedClientsEventsListener {
     @Autowired
     private lateinit var rabbitMqService: RabbitMqService<Event<*>>
 
+    @Autowired
+    private lateinit var rabbitMqEventLogService: RabbitMqEventLogService
+
     @Autowired
     private lateinit var config: Config
 
+    @Autowired
+    private lateinit var eventLogPublishersHealthListener: EventLogPublishersHealthListener
+
     @Autowired
     private lateinit var applicationContext: ApplicationContext
 
+    @Autowired
+    private lateinit var outgoingEventLogHolder: OutgoingEventLogHolder
+
     @PostConstruct
     fun initRabbitMqPublisher() {
         config.me.rabbitMqConfigs.trustedClientsEvents.forEachIndexed { index, rabbitConfig ->
+            val cursor = outgoingEventLogHolder.getCursor(RabbitEventUtils.getTrustedClientsEventLogCursorName(rabbitConfig.exchange, index))
+            if (cursor != null) {
+                eventLogPublishersHealthListener.register(cursor.name)
+                rabbitMqEventLogService.startEventLogPublisher(rabbitConfig,
+                        cursor.name,
+                        cursor,
+                        config.me.name,
+                        AppVersion.VERSION,
+                        BuiltinExchangeType.DIRECT,
+                        null)
+                return@forEachIndexed
+            }
+
             val trustedClientsEventConsumerQueue = RabbitEventUtils.getTrustedClientsEventConsumerQueueName(rabbitConfig.exchange, index)
             val queue = applicationContext.getBean(trustedClientsEventConsumerQueue) as BlockingQueue<ExecutionEvent>
             rabbitMqService.startPublisher(rabbitConfig,
@@ -1,47 +1,53 @@
 package com.lykke.matching.engine.outgoing.rabbit.impl.publishers
 
+import com.lmax.disruptor.BlockingWaitStrategy
+import com.lmax.disruptor.EventFactory
+import com.lmax.disruptor.EventHandler
+import com.lmax.disruptor.TimeoutBlockingWaitStrategy
+import com.lmax.disruptor.TimeoutHandler
+import com.lmax.disruptor.dsl.Disruptor
+import com.lmax.disruptor.dsl.ProducerType
 import com.lykke.matching.engine.logging.DatabaseLogger
 import com.lykke.matching.engine.outgoing.rabbit.events.RabbitFailureEvent
 import com.lykke.matching.engine.outgoing.rabbit.events.RabbitReadyEvent
-import com.lykke.matching.engine.utils.NumberUtils
-import com.lykke.matching.engine.utils.PrintUtils
+import com.lykke.matching.engine.utils.config.RabbitBatchPublishingConfig
 import com.lykke.utils.logging.MetricsLogger
 import com.lykke.utils.logging.ThrottlingLogger
 import com.rabbitmq.client.*
 import org.slf4j.Logger
 import org.springframework.context.ApplicationEventPublisher
-import java.util.concurrent.BlockingQueue
+import java.util.ArrayList
+import java.util.concurrent.ThreadFactory
 import java.util.concurrent.TimeUnit
 
 abstract class AbstractRabbitMqPublisher<T>(private val uri: String,
                                             private val exchangeName: String,
                                             private val queueName: String,
-                                            private val queue: BlockingQueue<out T>,
                                             private val appName: String,
                                             private val appVersion: String,
                                             private val exchangeType: BuiltinExchangeType,
                                             private val LOGGER: ThrottlingLogger,
                                             private val MESSAGES_LOGGER: Logger,
                                             private val METRICS_LOGGER: MetricsLogger,
-                                            private val STATS_LOGGER: Logger,
+                                            STATS_LOGGER: Logger,
                                             private val applicationEventPublisher: ApplicationEventPublisher,
                                             private val heartBeatTimeout: Long,
                                             private val handshakeTimeout: Long,
                                             /** null if do not need to log */
-                                            private val messageDatabaseLogger: DatabaseLogger<T>? = null) : Runnable {
+                                            private val messageDatabaseLogger: DatabaseLogger<T>? = null,
+                                            /** null if messages are published one by one */
+                                            private val batchConfig: RabbitBatchPublishingConfig? = null,
+                                            /** Time in milliseconds to wait for broker confirm of each message published one by one, null if confirms are not used */
+                                            private val confirmTimeout: Long? = null) : Runnable {
 
     companion object {
-        private const val LOG_COUNT = 1000
         private const val CONNECTION_NAME_FORMAT = "[Pub] %s %s to %s"
         private const val RECONNECTION_INTERVAL = 1000L
     }
 
     private var connection: Connection? = null
     private var channel: Channel? = null
-    private var messagesCount: Long = 0
-    private var totalPersistTime: Double = 0.0
-    private var totalTime: Double = 0.0
-
+    private val stats = RabbitPublisherStats(exchangeName, STATS_LOGGER)
 
     @Volatile
     private var currentlyPublishedItem: T? = null
@@ -55,11 +61,14 @@ abstract class AbstractRabbitMqPublisher<T>(private val uri: String,
         LOGGER.info("Connecting to RabbitMQ: ${factory.host}:${factory.port}, exchange: $exchangeName")
 
         try {
-            this.connection = factory.newConnection(CONNECTION_NAME_FORMAT.format(appName, appVersion, exchangeName))
+            this.connection = newConnection(factory, CONNECTION_NAME_FORMAT.format(appName, appVersion, exchangeName))
             (this.connection as Connection).addBlockedListener(RmqBlockListener())
 
             this.channel = connection!!.createChannel()
             channel!!.exchangeDeclare(exchangeName, exchangeType, true)
+            if (batchConfig != null || confirmTimeout != null) {
+                channel!!.confirmSelect()
+            }
 
             LOGGER.info("Connected to RabbitMQ: ${factory.host}:${factory.port}, exchange: $exchangeName")
             publishRabbitReadyEvent()
@@ -71,39 +80,73 @@ abstract class AbstractRabbitMqPublisher<T>(private val uri: String,
         }
     }
 
+    protected open fun newConnection(factory: ConnectionFactory, connectionName: String): Connection {
+        return factory.newConnection(connectionName)
+    }
+
+    /** Waits for the next item to publish */
+    protected abstract fun takeItem(): T
+
     protected abstract fun getRabbitPublishRequest(item: T): RabbitPublishRequest
 
+    /** Is called when the item and all items taken before it are published */
+    protected open fun onPublished(item: T) {
+    }
+
+    /** @return null if the item is published by this publisher only */
+    protected open fun getSharedPublishRequest(item: T): SharedPublishRequest? = null
+
+    private fun getPublishRequest(item: T): RabbitPublishRequest {
+        val sharedPublishRequest = getSharedPublishRequest(item) ?: return getRabbitPublishRequest(item)
+        var isCreated = false
+        val request = sharedPublishRequest.getOrCreate {
+            isCreated = true
+            getRabbitPublishRequest(item)
+        }
+        if (!isCreated) {
+            stats.onSharedRequestReused()
+        }
+        return request
+    }
+
     private fun publish(item: T) {
         var isLogged = false
         while (true) {
             try {
-                val startTime = System.nanoTime()
-
-                val rabbitPublishRequest = getRabbitPublishRequest(item)
+                val rabbitPublishRequest = getPublishRequest(item)
 
                 if (!isLogged) {
-                    logMessage(item, rabbitPublishRequest.stringRepresentation)
+                    logMessage(item, rabbitPublishRequest)
                     isLogged = true
                 }
 
-                val startPersistTime = System.nanoTime()
-                channel!!.basicPublish(exchangeName, rabbitPublishRequest.routingKey, rabbitPublishRequest.props, rabbitPublishRequest.body)
-
-                val endPersistTime = System.nanoTime()
-                val endTime = System.nanoTime()
-                fixTime(startTime, endTime, startPersistTime, endPersistTime)
+                val startPublishTime = System.nanoTime()
+                val channel = channel!!
+                channel.basicPublish(exchangeName, rabbitPublishRequest.routingKey, rabbitPublishRequest.props, rabbitPublishRequest.body)
+                val endPublishTime = System.nanoTime()
+                if (confirmTimeout != null) {
+                    channel.waitForConfirmsOrDie(confirmTimeout)
+                    stats.onBatchPublished(1, endPublishTime - startPublishTime, System.nanoTime() - endPublishTime)
+                } else {
+                    stats.onBatchPublished(1, endPublishTime - startPublishTime, null)
+                }
+                onPublished(item)
 
                 return
             } catch (exception: Exception) {
-                publishFailureEvent(item)
-                val message = "Exception during RabbitMQ publishing (uri: $uri, exchange name: $exchangeName): ${exception.message}"
-                LOGGER.error(message, exception)
-                METRICS_LOGGER.logError(message, exception)
-                tryConnectUntilSuccess()
+                onPublishFailure(item, exception)
             }
         }
     }
 
+    private fun onPublishFailure(item: T, exception: Exception) {
+        publishFailureEvent(item)
+        val message = "Exception during RabbitMQ publishing (uri: $uri, exchange name: $exchangeName): ${exception.message}"
+        LOGGER.error(message, exception)
+        METRICS_LOGGER.logError(message, exception)
+        tryConnectUntilSuccess()
+    }
+
     private fun publishRabbitReadyEvent() {
         applicationEventPublisher.publishEvent(RabbitReadyEvent(queueName))
     }
@@ -112,8 +155,12 @@ abstract class AbstractRabbitMqPublisher<T>(private val uri: String,
         applicationEventPublisher.publishEvent(RabbitFailureEvent(queueName, event))
     }
 
-    private fun logMessage(item: T, stringRepresentation: String?) {
-        if (messageDatabaseLogger != null && stringRepresentation != null) {
+    private fun logMessage(item: T, request: RabbitPublishRequest) {
+        if (messageDatabaseLogger == null) {
+            return
+        }
+        val stringRepresentation = request.stringRepresentation
+        if (stringRepresentation != null) {
             MESSAGES_LOGGER.info("$exchangeName : $stringRepresentation")
             messageDatabaseLogger.log(item, stringRepresentation)
         }
@@ -122,29 +169,114 @@ abstract class AbstractRabbitMqPublisher<T>(private val uri: String,
     override fun run() {
         Thread.currentThread().name = "RabbitPublisher_$queueName"
         tryConnectUntilSuccess()
+        if (batchConfig != null) {
+            runBatchPublishing(batchConfig)
+            return
+        }
         while (true) {
-            val item = queue.take()
+            val item = takeItem()
             currentlyPublishedItem = item
             publish(item)
         }
     }
 
+    /**
+     * Taken items are converted to publish requests on this thread and passed to the ring buffer,
+     * publishing thread takes them from the ring buffer by batches.
+     * This thread waits if the ring buffer is full, so count of items prepared for publishing is bounded.
+     */
+    private fun runBatchPublishing(batchConfig: RabbitBatchPublishingConfig) {
+        val maxBatchDelay = TimeUnit.MICROSECONDS.toNanos(batchConfig.maxBatchDelay)
+        val disruptor = Disruptor<PublishSlot<T>>(EventFactory { PublishSlot<T>() },
+                batchConfig.ringBufferSize,
+                ThreadFactory { runnable -> Thread(runnable, "RabbitBatchPublisher_$queueName") },
+                ProducerType.SINGLE,
+                if (maxBatchDelay > 0) TimeoutBlockingWaitStrategy(maxBatchDelay, TimeUnit.NANOSECONDS) else BlockingWaitStrategy())
+        disruptor.handleEventsWith(BatchPublisher(batchConfig, maxBatchDelay))
+        val ringBuffer = disruptor.start()
+
+        while (true) {
+            val item = takeItem()
+            val request = try {
+                getPublishRequest(item)
+            } catch (e: Exception) {
+                val message = "Unable to create RabbitMQ publish request (exchange name: $exchangeName), item is skipped: ${e.message}"
+                LOGGER.error(message, e)
+                METRICS_LOGGER.logError(message, e)
+                continue
+            }
+            val sequence = ringBuffer.next()
+            val slot = ringBuffer.get(sequence)
+            slot.item = item
+            slot.request = request
+            ringBuffer.publish(sequence)
+        }
+    }
+
     private fun tryConnectUntilSuccess() {
         while (!connect()) {
             Thread.sleep(RECONNECTION_INTERVAL)
         }
     }
 
-    private fun fixTime(startTime: Long, endTime: Long, startPersistTime: Long, endPersistTime: Long) {
-        messagesCount++
-        totalPersistTime += (endPersistTime - startPersistTime).toDouble() / LOG_COUNT
-        totalTime += (endTime - startTime).toDouble() / LOG_COUNT
+    private class PublishSlot<T> {
+        var item: T? = null
+        var request: RabbitPublishRequest? = null
+    }
+
+    /**
+     * Publishes batch once it contains [RabbitBatchPublishingConfig.maxBatchSize] items or no more items are available
+     * and the first item waits at least [maxBatchDelay] ns (or no items are available during [maxBatchDelay] ns).
+     * Items of the batch are logged only after the broker confirms the whole batch,
+     * whole batch is published again if confirms are not received.
+     */
+    private inner class BatchPublisher(private val batchConfig: RabbitBatchPublishingConfig,
+                                       private val maxBatchDelay: Long) : EventHandler<PublishSlot<T>>, TimeoutHandler {
+
+        private val items = ArrayList<T>(batchConfig.maxBatchSize)
+        private val requests = ArrayList<RabbitPublishRequest>(batchConfig.maxBatchSize)
+        private var batchStartTime = 0L
+
+        override fun onEvent(slot: PublishSlot<T>, sequence: Long, endOfBatch: Boolean) {
+            if (items.isEmpty()) {
+                batchStartTime = System.nanoTime()
+            }
+            items.add(slot.item!!)
+            requests.add(slot.request!!)
+            slot.item = null
+            slot.request = null
+
+            if (items.size >= batchConfig.maxBatchSize || endOfBatch && System.nanoTime() - batchStartTime >= maxBatchDelay) {
+                publishBatch()
+            }
+        }
+
+        override fun onTimeout(sequence: Long) {
+            if (items.isNotEmpty()) {
+                publishBatch()
+            }
+        }
+
+        private fun publishBatch() {
+            currentlyPublishedItem = items.first()
+            while (true) {
+                try {
+                    val startPublishTime = System.nanoTime()
+                    val channel = channel!!
+                    requests.forEach { channel.basicPublish(exchangeName, it.routingKey, it.props, it.body) }
+                    val endPublishTime = System.nanoTime()
+                    channel.waitForConfirmsOrDie(batchConfig.confirmTimeout)
+                    stats.onBatchPublished(items.size, endPublishTime - startPublishTime, System.nanoTime() - endPublishTime)
+                    break
+                } catch (exception: Exception) {
+                    onPublishFailure(items.first(), exception)
+                }
+            }
 
-        if (messagesCount % LOG_COUNT == 0L) {
-            STATS_LOGGER.info("Exchange: $exchangeName. Messages: $LOG_COUNT. Total: ${PrintUtils.convertToString(totalTime)}. " +
-                    " Persist: ${PrintUtils.convertToString(totalPersistTime)}, ${NumberUtils.roundForPrint2(100 * totalPersistTime / totalTime)} %")
-            totalPersistTime = 0.0
-            totalTime = 0.0
+            onPublished(items.last())
+            items.forEachIndexed { index, item -> logMessage(item, requests[index]) }
+            items.clear()
+            requests.clear()
         }
     }
 
@@ -160,4 +292,4 @@ abstract class AbstractRabbitMqPublisher<T>(private val uri: String,
             publishRabbitReadyEvent()
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package com.lykke.matching.engine.outgoing.rabbit.impl.publishers
+
+import com.lykke.matching.engine.logging.DatabaseLogger
+import com.lykke.matching.engine.outgoing.eventlog.EncodedEvent
+import com.lykke.matching.engine.outgoing.eventlog.EventLogCursor
+import com.lykke.matching.engine.utils.config.RabbitBatchPublishingConfig
+import com.lykke.utils.logging.MetricsLogger
+import com.lykke.utils.logging.ThrottlingLogger
+import com.rabbitmq.client.BuiltinExchangeType
+import org.slf4j.LoggerFactory
+import org.springframework.context.ApplicationEventPublisher
+
+/**
+ * Publishes events read from the outgoing event log by [cursor],
+ * cursor is moved once events are confirmed by the broker: by batches if batch publishing is configured,
+ * one by one waiting for [confirmTimeout] ms otherwise.
+ */
+class RabbitMqEventLogPublisher(uri: String,
+                                exchangeName: String,
+                                publisherName: String,
+                                private val cursor: EventLogCursor,
+                                appName: String,
+                                appVersion: String,
+                                exchangeType: BuiltinExchangeType,
+                                applicationEventPublisher: ApplicationEventPublisher,
+                                heartBeatTimeout: Long,
+                                handshakeTimeout: Long,
+                                messageDatabaseLogger: DatabaseLogger<EncodedEvent>? = null,
+                                batchConfig: RabbitBatchPublishingConfig?,
+                                confirmTimeout: Long) : AbstractRabbitMqPublisher<EncodedEvent>(uri, exchangeName, publisherName,
+        appName, appVersion, exchangeType, LOGGER,
+        MESSAGES_LOGGER, METRICS_LOGGER, STATS_LOGGER, applicationEventPublisher, heartBeatTimeout, handshakeTimeout, messageDatabaseLogger, batchConfig, confirmTimeout) {
+    companion object {
+        private val LOGGER = ThrottlingLogger.getLogger(RabbitMqEventLogPublisher::class.java.name)
+        private val MESSAGES_LOGGER = LoggerFactory.getLogger("${RabbitMqEventLogPublisher::class.java.name}.message")
+        private val METRICS_LOGGER = MetricsLogger.getLogger()
+        private val STATS_LOGGER = LoggerFactory.getLogger("${RabbitMqEventLogPublisher::class.java.name}.stats")
+    }
+
+    override fun takeItem(): EncodedEvent = EncodedEvent.decode(cursor.take())
+
+    override fun getRabbitPublishRequest(item: EncodedEvent): RabbitPublishRequest {
+        val props = RabbitMqPublisher.createProperties(item.messageType, item.sequenceNumber, item.messageId,
+                item.requestId, item.version, item.timestamp, item.eventType)
+        return RabbitPublishRequest(item.messageType.toString(), item.body, { item.logMessage }, props)
+    }
+
+    override fun onPublished(item: EncodedEvent) {
+        cursor.commit(item.nextLogPosition, item.sequenceNumber)
+    }
+}
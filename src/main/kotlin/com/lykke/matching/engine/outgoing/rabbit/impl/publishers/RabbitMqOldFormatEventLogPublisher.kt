@@ -0,0 +1,51 @@
+package com.lykke.matching.engine.outgoing.rabbit.impl.publishers
+
+import com.lykke.matching.engine.logging.DatabaseLogger
+import com.lykke.matching.engine.outgoing.eventlog.EventLogCursor
+import com.lykke.matching.engine.outgoing.eventlog.OldFormatEncodedEvent
+import com.lykke.matching.engine.utils.config.RabbitBatchPublishingConfig
+import com.lykke.utils.logging.MetricsLogger
+import com.lykke.utils.logging.ThrottlingLogger
+import com.rabbitmq.client.BuiltinExchangeType
+import com.rabbitmq.client.MessageProperties
+import org.apache.commons.lang3.StringUtils
+import org.slf4j.LoggerFactory
+import org.springframework.context.ApplicationEventPublisher
+
+/**
+ * Publishes old format messages read from the outgoing event log by [cursor],
+ * cursor is moved once messages are confirmed by the broker (see [RabbitMqEventLogPublisher]).
+ */
+@Deprecated("Deprecated rabbit publisher, please consider to use new format")
+class RabbitMqOldFormatEventLogPublisher(uri: String,
+                                         exchangeName: String,
+                                         publisherName: String,
+                                         private val cursor: EventLogCursor,
+                                         appName: String,
+                                         appVersion: String,
+                                         exchangeType: BuiltinExchangeType,
+                                         applicationEventPublisher: ApplicationEventPublisher,
+                                         heartBeatTimeout: Long,
+                                         handshakeTimeout: Long,
+                                         messageDatabaseLogger: DatabaseLogger<OldFormatEncodedEvent>? = null,
+                                         batchConfig: RabbitBatchPublishingConfig?,
+                                         confirmTimeout: Long) : AbstractRabbitMqPublisher<OldFormatEncodedEvent>(uri, exchangeName, publisherName,
+        appName, appVersion, exchangeType, LOGGER,
+        MESSAGES_LOGGER, METRICS_LOGGER, STATS_LOGGER, applicationEventPublisher, heartBeatTimeout, handshakeTimeout, messageDatabaseLogger, batchConfig, confirmTimeout) {
+    companion object {
+        private val LOGGER = ThrottlingLogger.getLogger(RabbitMqOldFormatEventLogPublisher::class.java.name)
+        private val MESSAGES_LOGGER = LoggerFactory.getLogger("${RabbitMqOldFormatEventLogPublisher::class.java.name}.message")
+        private val METRICS_LOGGER = MetricsLogger.getLogger()
+        private val STATS_LOGGER = LoggerFactory.getLogger("${RabbitMqOldFormatEventLogPublisher::class.java.name}.stats")
+    }
+
+    override fun takeItem(): OldFormatEncodedEvent = OldFormatEncodedEvent.decode(cursor.take())
+
+    override fun getRabbitPublishRequest(item: OldFormatEncodedEvent): RabbitPublishRequest {
+        return RabbitPublishRequest(StringUtils.EMPTY, item.json.toByteArray(), { item.json }, MessageProperties.MINIMAL_PERSISTENT_BASIC)
+    }
+
+    override fun onPublished(item: OldFormatEncodedEvent) {
+        cursor.commit(item.nextLogPosition, item.sequenceNumber)
+    }
+}
@@ -2,6 +2,7 @@ package com.lykke.matching.engine.outgoing.rabbit.impl.publishers
 
 import com.google.gson.Gson
 import com.lykke.matching.engine.logging.DatabaseLogger
+import com.lykke.matching.engine.utils.config.RabbitBatchPublishingConfig
 import com.lykke.utils.logging.MetricsLogger
 import com.lykke.utils.logging.ThrottlingLogger
 import com.rabbitmq.client.BuiltinExchangeType
@@ -15,7 +16,7 @@ import java.util.concurrent.BlockingQueue
 class RabbitMqOldFormatPublisher(uri: String,
                                  exchangeName: String,
                                  publisherName: String,
-                                 queue: BlockingQueue<out Any>,
+                                 private val queue: BlockingQueue<out Any>,
                                  appName: String,
                                  appVersion: String,
                                  exchangeType: BuiltinExchangeType,
@@ -23,9 +24,10 @@ class RabbitMqOldFormatPublisher(uri: String,
                                  applicationEventPublisher: ApplicationEventPublisher,
                                  heartBeatTimeout: Long,
                                  handshakeTimeout: Long,
-                                 messageDatabaseLogger: DatabaseLogger<Any>? = null) : AbstractRabbitMqPublisher<Any>(uri, exchangeName, publisherName,
-        queue, appName, appVersion, exchangeType, LOGGER,
-        MESSAGES_LOGGER, METRICS_LOGGER, STATS_LOGGER, applicationEventPublisher, heartBeatTimeout, handshakeTimeout, messageDatabaseLogger) {
+                                 messageDatabaseLogger: DatabaseLogger<Any>? = null,
+                                 batchConfig: RabbitBatchPublishingConfig? = null) : AbstractRabbitMqPublisher<Any>(uri, exchangeName, publisherName,
+        appName, appVersion, exchangeType, LOGGER,
+        MESSAGES_LOGGER, METRICS_LOGGER, STATS_LOGGER, applicationEventPublisher, heartBeatTimeout, handshakeTimeout, messageDatabaseLogger, batchConfig) {
 
     companion object {
         private val LOGGER = ThrottlingLogger.getLogger(RabbitMqOldFormatPublisher::class.java.name)
@@ -34,10 +36,12 @@ class RabbitMqOldFormatPublisher(uri: String,
         private val STATS_LOGGER = LoggerFactory.getLogger("${RabbitMqOldFormatPublisher::class.java.name}.stats")
     }
 
+    override fun takeItem(): Any = queue.take()
+
     override fun getRabbitPublishRequest(item: Any): RabbitPublishRequest {
         val jsonString = gson.toJson(item)
         val body = jsonString.toByteArray()
 
-        return RabbitPublishRequest(StringUtils.EMPTY, body, jsonString, MessageProperties.MINIMAL_PERSISTENT_BASIC)
+        return RabbitPublishRequest(StringUtils.EMPTY, body, { jsonString }, MessageProperties.MINIMAL_PERSISTENT_BASIC)
     }
 }
\ No newline at end of file
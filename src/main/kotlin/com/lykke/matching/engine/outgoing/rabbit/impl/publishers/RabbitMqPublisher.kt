@@ -3,6 +3,7 @@ package com.lykke.matching.engine.outgoing.rabbit.impl.publishers
 import com.google.gson.Gson
 import com.lykke.matching.engine.logging.DatabaseLogger
 import com.lykke.matching.engine.outgoing.messages.v2.events.Event
+import com.lykke.matching.engine.utils.config.RabbitBatchPublishingConfig
 import com.lykke.utils.logging.MetricsLogger
 import com.lykke.utils.logging.ThrottlingLogger
 import com.rabbitmq.client.AMQP
@@ -14,7 +15,7 @@ import java.util.concurrent.BlockingQueue
 class RabbitMqPublisher(uri: String,
                         exchangeName: String,
                         publisherName: String,
-                        queue: BlockingQueue<out Event<*>>,
+                        private val queue: BlockingQueue<out Event<*>>,
                         appName: String,
                         appVersion: String,
                         exchangeType: BuiltinExchangeType,
@@ -22,21 +23,47 @@ class RabbitMqPublisher(uri: String,
                         applicationEventPublisher: ApplicationEventPublisher,
                         heartBeatTimeout: Long,
                         handshakeTimeout: Long,
-                        private val messageDatabaseLogger: DatabaseLogger<Event<*>>? = null) : AbstractRabbitMqPublisher<Event<*>>(uri, exchangeName, publisherName,
-        queue, appName, appVersion, exchangeType, LOGGER,
-        MESSAGES_LOGGER, METRICS_LOGGER, STATS_LOGGER, applicationEventPublisher, heartBeatTimeout, handshakeTimeout, messageDatabaseLogger) {
+                        messageDatabaseLogger: DatabaseLogger<Event<*>>? = null,
+                        batchConfig: RabbitBatchPublishingConfig? = null) : AbstractRabbitMqPublisher<Event<*>>(uri, exchangeName, publisherName,
+        appName, appVersion, exchangeType, LOGGER,
+        MESSAGES_LOGGER, METRICS_LOGGER, STATS_LOGGER, applicationEventPublisher, heartBeatTimeout, handshakeTimeout, messageDatabaseLogger, batchConfig) {
     companion object {
         private val LOGGER = ThrottlingLogger.getLogger(RabbitMqPublisher::class.java.name)
         private val MESSAGES_LOGGER = LoggerFactory.getLogger("${RabbitMqPublisher::class.java.name}.message")
         private val METRICS_LOGGER = MetricsLogger.getLogger()
         private val STATS_LOGGER = LoggerFactory.getLogger("${RabbitMqPublisher::class.java.name}.stats")
+
+        fun createProperties(messageType: Int,
+                             sequenceNumber: Long,
+                             messageId: String,
+                             requestId: String,
+                             version: String,
+                             timestamp: Long,
+                             eventType: String): AMQP.BasicProperties {
+            val headers = mapOf(Pair("MessageType", messageType),
+                    Pair("SequenceNumber", sequenceNumber),
+                    Pair("MessageId", messageId),
+                    Pair("RequestId", requestId),
+                    Pair("Version", version),
+                    Pair("Timestamp", timestamp),
+                    Pair("EventType", eventType))
+
+            // MINIMAL_PERSISTENT_BASIC + headers
+            return AMQP.BasicProperties.Builder()
+                    .deliveryMode(2)
+                    .headers(headers)
+                    .build()
+        }
     }
 
-    override fun getRabbitPublishRequest(item: Event<*>): RabbitPublishRequest {
-        return RabbitPublishRequest(getRoutingKey(item), getBody(item), getLogMessage(item), getProps(item))
+    override fun takeItem(): Event<*> = queue.take()
 
+    override fun getRabbitPublishRequest(item: Event<*>): RabbitPublishRequest {
+        return RabbitPublishRequest(getRoutingKey(item), getBody(item), { getLogMessage(item) }, getProps(item))
     }
 
+    override fun getSharedPublishRequest(item: Event<*>) = item.sharedPublishRequest
+
     private fun getRoutingKey(item: Event<*>): String {
         return item.header.messageType.id.toString()
     }
@@ -46,22 +73,12 @@ class RabbitMqPublisher(uri: String,
     }
 
     private fun getProps(item: Event<*>): AMQP.BasicProperties {
-        val headers = mapOf(Pair("MessageType", item.header.messageType.id),
-                Pair("SequenceNumber", item.header.sequenceNumber),
-                Pair("MessageId", item.header.messageId),
-                Pair("RequestId", item.header.requestId),
-                Pair("Version", item.header.version),
-                Pair("Timestamp", item.header.timestamp.time),
-                Pair("EventType", item.header.eventType))
-
-        // MINIMAL_PERSISTENT_BASIC + headers
-        return AMQP.BasicProperties.Builder()
-                .deliveryMode(2)
-                .headers(headers)
-                .build()
+        val header = item.header
+        return createProperties(header.messageType.id, header.sequenceNumber, header.messageId,
+                header.requestId, header.version, header.timestamp.time, header.eventType)
     }
 
-    private fun getLogMessage(item: Event<*>): String? {
-        return messageDatabaseLogger?.let { gson.toJson(item) }
+    private fun getLogMessage(item: Event<*>): String {
+        return gson.toJson(item)
     }
 }
\ No newline at end of file
@@ -4,5 +4,9 @@ import com.rabbitmq.client.AMQP
 
 class RabbitPublishRequest(val routingKey: String,
                            val body: ByteArray,
-                           val stringRepresentation: String?,
-                           val props: AMQP.BasicProperties)
\ No newline at end of file
+                           stringRepresentation: () -> String?,
+                           val props: AMQP.BasicProperties) {
+
+    /** Is built on the first access, it is not built if messages are not logged */
+    val stringRepresentation: String? by lazy(stringRepresentation)
+}
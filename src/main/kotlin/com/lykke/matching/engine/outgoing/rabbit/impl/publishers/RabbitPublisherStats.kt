@@ -0,0 +1,70 @@
+package com.lykke.matching.engine.outgoing.rabbit.impl.publishers
+
+import com.lykke.matching.engine.utils.NumberUtils
+import com.lykke.matching.engine.utils.PrintUtils
+import org.slf4j.Logger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Throughput, publish time and broker confirm latency of rabbit publisher, logged every [LOG_COUNT] messages.
+ * Is used by the publishing thread only, except [onSharedRequestReused].
+ */
+class RabbitPublisherStats(private val exchangeName: String,
+                           private val statsLogger: Logger) {
+
+    companion object {
+        private const val LOG_COUNT = 1000
+    }
+
+    private var startTime = System.nanoTime()
+    private var messagesCount = 0L
+    private var batchesCount = 0L
+    private var publishTime = 0L
+    private var confirmTime = 0L
+    private var maxConfirmTime = 0L
+    private val sharedRequestsReusedCount = AtomicLong()
+
+    /** Is called when publish request created by another publisher is reused, so the message is not encoded again */
+    fun onSharedRequestReused() {
+        sharedRequestsReusedCount.incrementAndGet()
+    }
+
+    /**
+     * @param publishTime time of publishing messages of the batch in nanoseconds
+     * @param confirmTime time of waiting for broker confirms of the batch in nanoseconds, null if confirms are not used
+     */
+    fun onBatchPublished(batchSize: Int, publishTime: Long, confirmTime: Long?) {
+        messagesCount += batchSize
+        batchesCount++
+        this.publishTime += publishTime
+        if (confirmTime != null) {
+            this.confirmTime += confirmTime
+            maxConfirmTime = Math.max(maxConfirmTime, confirmTime)
+        }
+
+        if (messagesCount >= LOG_COUNT) {
+            log(confirmTime != null)
+            reset()
+        }
+    }
+
+    private fun log(confirmsUsed: Boolean) {
+        val elapsedTime = System.nanoTime() - startTime
+        statsLogger.info("Exchange: $exchangeName. Messages: $messagesCount" +
+                (if (confirmsUsed) ", batches: $batchesCount (${NumberUtils.roundForPrint2(messagesCount.toDouble() / batchesCount)} messages per batch)" else "") +
+                ". Throughput: ${NumberUtils.roundForPrint2(messagesCount * 1000000000.0 / elapsedTime)} messages per second. " +
+                "Publish: ${PrintUtils.convertToString(publishTime.toDouble() / messagesCount)} per message" +
+                (if (confirmsUsed) ". Confirm latency: ${PrintUtils.convertToString(confirmTime.toDouble() / batchesCount)}, " +
+                        "max: ${PrintUtils.convertToString(maxConfirmTime.toDouble())}" else "") +
+                ". Encodings saved by shared requests: ${sharedRequestsReusedCount.getAndSet(0)}")
+    }
+
+    private fun reset() {
+        startTime = System.nanoTime()
+        messagesCount = 0
+        batchesCount = 0
+        publishTime = 0
+        confirmTime = 0
+        maxConfirmTime = 0
+    }
+}
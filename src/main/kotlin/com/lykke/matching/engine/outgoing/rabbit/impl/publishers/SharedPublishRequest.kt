@@ -0,0 +1,18 @@
+package com.lykke.matching.engine.outgoing.rabbit.impl.publishers
+
+/**
+ * Publish request of an outgoing message which is published by several publishers.
+ * Request is created by the first publisher and is reused by others, so the message is encoded once.
+ */
+class SharedPublishRequest {
+
+    @Volatile
+    private var request: RabbitPublishRequest? = null
+
+    fun getOrCreate(factory: () -> RabbitPublishRequest): RabbitPublishRequest {
+        request?.let { return it }
+        synchronized(this) {
+            return request ?: factory().also { request = it }
+        }
+    }
+}
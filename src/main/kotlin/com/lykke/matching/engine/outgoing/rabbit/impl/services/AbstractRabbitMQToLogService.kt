@@ -26,6 +26,10 @@ abstract class AbstractRabbitMQToLogService<T>(private val gson: Gson, private v
     }
 
     private fun logMessage(exchange: String, publisherName: String, item: T) {
-        LOGGER.info("New rmq message (exchange: $exchange, publisher: $publisherName): ${gson.toJson(item)}")
+        logStringRepresentation(exchange, publisherName, gson.toJson(item))
+    }
+
+    protected fun logStringRepresentation(exchange: String, publisherName: String, stringRepresentation: String) {
+        LOGGER.info("New rmq message (exchange: $exchange, publisher: $publisherName): $stringRepresentation")
     }
 }
\ No newline at end of file
@@ -2,8 +2,14 @@ package com.lykke.matching.engine.outgoing.rabbit.impl.services
 
 import com.google.gson.Gson
 import com.lykke.matching.engine.logging.DatabaseLogger
+import com.lykke.matching.engine.outgoing.eventlog.EventLogCursor
+import com.lykke.matching.engine.outgoing.eventlog.OldFormatEncodedEvent
+import com.lykke.matching.engine.outgoing.rabbit.RabbitMqOldFormatEventLogService
 import com.lykke.matching.engine.outgoing.rabbit.RabbitMqService
+import com.lykke.matching.engine.outgoing.rabbit.impl.publishers.RabbitMqOldFormatEventLogPublisher
 import com.lykke.matching.engine.outgoing.rabbit.impl.publishers.RabbitMqOldFormatPublisher
+import com.lykke.matching.engine.utils.config.OutgoingEventLogConfig
+import com.lykke.matching.engine.utils.config.RabbitBatchPublishingConfig
 import com.lykke.matching.engine.utils.config.RabbitConfig
 import com.rabbitmq.client.BuiltinExchangeType
 import org.springframework.beans.factory.annotation.Qualifier
@@ -24,7 +30,11 @@ class RabbitMqOldServiceImpl(private val gson: Gson,
                              private val handshakeTimeout: Long,
                              private val applicationEventPublisher: ApplicationEventPublisher,
                              @Qualifier("rabbitPublishersThreadPool")
-                             private val rabbitPublishersThreadPool: TaskExecutor) : RabbitMqService<Any> {
+                             private val rabbitPublishersThreadPool: TaskExecutor,
+                             @Value("#{Config.me.rabbitMqConfigs.batchPublishing}")
+                             private val batchPublishingConfig: RabbitBatchPublishingConfig? = null,
+                             @Value("#{Config.me.outgoingEventLog}")
+                             private val outgoingEventLogConfig: OutgoingEventLogConfig? = null) : RabbitMqService<Any>, RabbitMqOldFormatEventLogService {
     override fun startPublisher(config: RabbitConfig,
                                 publisherName: String,
                                 queue: BlockingQueue<out Any>,
@@ -33,6 +43,15 @@ class RabbitMqOldServiceImpl(private val gson: Gson,
                                 exchangeType: BuiltinExchangeType,
                                 messageDatabaseLogger: DatabaseLogger<Any>?) {
         rabbitPublishersThreadPool.execute(RabbitMqOldFormatPublisher(config.uri, config.exchange, publisherName, queue, appName, appVersion, exchangeType,
-                gson, applicationEventPublisher, heartBeatTimeout, handshakeTimeout, messageDatabaseLogger))
+                gson, applicationEventPublisher, heartBeatTimeout, handshakeTimeout, messageDatabaseLogger, batchPublishingConfig))
+    }
+
+    override fun startOldFormatEventLogPublisher(config: RabbitConfig, publisherName: String,
+                                                 cursor: EventLogCursor, appName: String,
+                                                 appVersion: String, exchangeType: BuiltinExchangeType,
+                                                 messageDatabaseLogger: DatabaseLogger<OldFormatEncodedEvent>?) {
+        rabbitPublishersThreadPool.execute(RabbitMqOldFormatEventLogPublisher(config.uri, config.exchange, publisherName, cursor, appName, appVersion, exchangeType,
+                applicationEventPublisher, heartBeatTimeout, handshakeTimeout, messageDatabaseLogger, batchPublishingConfig,
+                outgoingEventLogConfig!!.confirmTimeout))
     }
 }
\ No newline at end of file
@@ -1,15 +1,39 @@
 package com.lykke.matching.engine.outgoing.rabbit.impl.services
 
 import com.google.gson.Gson
+import com.lykke.matching.engine.logging.DatabaseLogger
+import com.lykke.matching.engine.outgoing.eventlog.EventLogCursor
+import com.lykke.matching.engine.outgoing.eventlog.OldFormatEncodedEvent
+import com.lykke.matching.engine.outgoing.rabbit.RabbitMqOldFormatEventLogService
+import com.lykke.matching.engine.utils.config.RabbitConfig
+import com.rabbitmq.client.BuiltinExchangeType
 import org.slf4j.LoggerFactory
 import org.springframework.context.annotation.Profile
 import org.springframework.stereotype.Service
+import java.util.concurrent.Executors
 
 @Service("rabbitMqOldService")
 @Profile("local")
 @Deprecated("consider to use new message format")
-class RabbitMqOldServiceToLogService(gson: Gson) : AbstractRabbitMQToLogService<Any>(gson, LOGGER) {
+class RabbitMqOldServiceToLogService(gson: Gson) : AbstractRabbitMQToLogService<Any>(gson, LOGGER), RabbitMqOldFormatEventLogService {
     companion object {
         private val LOGGER = LoggerFactory.getLogger(RabbitMqOldServiceToLogService::class.java)
     }
+
+    override fun startOldFormatEventLogPublisher(config: RabbitConfig,
+                                                 publisherName: String,
+                                                 cursor: EventLogCursor,
+                                                 appName: String,
+                                                 appVersion: String,
+                                                 exchangeType: BuiltinExchangeType,
+                                                 messageDatabaseLogger: DatabaseLogger<OldFormatEncodedEvent>?) {
+        val executor = Executors.newSingleThreadExecutor()
+        executor.submit {
+            while (true) {
+                val event = OldFormatEncodedEvent.decode(cursor.take())
+                logStringRepresentation(config.exchange, publisherName, event.json)
+                cursor.commit(event.nextLogPosition, event.sequenceNumber)
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -2,9 +2,15 @@ package com.lykke.matching.engine.outgoing.rabbit.impl.services
 
 import com.google.gson.Gson
 import com.lykke.matching.engine.logging.DatabaseLogger
+import com.lykke.matching.engine.outgoing.eventlog.EncodedEvent
+import com.lykke.matching.engine.outgoing.eventlog.EventLogCursor
 import com.lykke.matching.engine.outgoing.messages.v2.events.Event
+import com.lykke.matching.engine.outgoing.rabbit.RabbitMqEventLogService
 import com.lykke.matching.engine.outgoing.rabbit.RabbitMqService
+import com.lykke.matching.engine.outgoing.rabbit.impl.publishers.RabbitMqEventLogPublisher
 import com.lykke.matching.engine.outgoing.rabbit.impl.publishers.RabbitMqPublisher
+import com.lykke.matching.engine.utils.config.OutgoingEventLogConfig
+import com.lykke.matching.engine.utils.config.RabbitBatchPublishingConfig
 import com.lykke.matching.engine.utils.config.RabbitConfig
 import com.rabbitmq.client.BuiltinExchangeType
 import org.springframework.beans.factory.annotation.Qualifier
@@ -24,12 +30,25 @@ class RabbitMqServiceImpl(private val gson: Gson,
                           private val handshakeTimeout: Long,
                           private val applicationEventPublisher: ApplicationEventPublisher,
                           @Qualifier("rabbitPublishersThreadPool")
-                          private val rabbitPublishersThreadPool: TaskExecutor) : RabbitMqService<Event<*>> {
+                          private val rabbitPublishersThreadPool: TaskExecutor,
+                          @Value("#{Config.me.rabbitMqConfigs.batchPublishing}")
+                          private val batchPublishingConfig: RabbitBatchPublishingConfig? = null,
+                          @Value("#{Config.me.outgoingEventLog}")
+                          private val outgoingEventLogConfig: OutgoingEventLogConfig? = null) : RabbitMqService<Event<*>>, RabbitMqEventLogService {
     override fun startPublisher(config: RabbitConfig, publisherName: String,
                                 queue: BlockingQueue<out Event<*>>, appName: String,
                                 appVersion: String, exchangeType: BuiltinExchangeType,
                                 messageDatabaseLogger: DatabaseLogger<Event<*>>?) {
         rabbitPublishersThreadPool.execute(RabbitMqPublisher(config.uri, config.exchange, publisherName, queue, appName, appVersion, exchangeType,
-                gson, applicationEventPublisher, heartBeatTimeout, handshakeTimeout, messageDatabaseLogger))
+                gson, applicationEventPublisher, heartBeatTimeout, handshakeTimeout, messageDatabaseLogger, batchPublishingConfig))
+    }
+
+    override fun startEventLogPublisher(config: RabbitConfig, publisherName: String,
+                                        cursor: EventLogCursor, appName: String,
+                                        appVersion: String, exchangeType: BuiltinExchangeType,
+                                        messageDatabaseLogger: DatabaseLogger<EncodedEvent>?) {
+        rabbitPublishersThreadPool.execute(RabbitMqEventLogPublisher(config.uri, config.exchange, publisherName, cursor, appName, appVersion, exchangeType,
+                applicationEventPublisher, heartBeatTimeout, handshakeTimeout, messageDatabaseLogger, batchPublishingConfig,
+                outgoingEventLogConfig!!.confirmTimeout))
     }
 }
\ No newline at end of file
@@ -1,15 +1,39 @@
 package com.lykke.matching.engine.outgoing.rabbit.impl.services
 
 import com.google.gson.Gson
+import com.lykke.matching.engine.logging.DatabaseLogger
+import com.lykke.matching.engine.outgoing.eventlog.EncodedEvent
+import com.lykke.matching.engine.outgoing.eventlog.EventLogCursor
 import com.lykke.matching.engine.outgoing.messages.v2.events.Event
+import com.lykke.matching.engine.outgoing.rabbit.RabbitMqEventLogService
+import com.lykke.matching.engine.utils.config.RabbitConfig
+import com.rabbitmq.client.BuiltinExchangeType
 import org.slf4j.LoggerFactory
 import org.springframework.context.annotation.Profile
 import org.springframework.stereotype.Service
+import java.util.concurrent.Executors
 
 @Service("rabbitMqService")
 @Profile("local")
-class RabbitMqServiceToLogService(gson: Gson) : AbstractRabbitMQToLogService<Event<*>>(gson, LOGGER) {
+class RabbitMqServiceToLogService(gson: Gson) : AbstractRabbitMQToLogService<Event<*>>(gson, LOGGER), RabbitMqEventLogService {
     companion object {
         private val LOGGER = LoggerFactory.getLogger(RabbitMqServiceToLogService::class.java)
     }
+
+    override fun startEventLogPublisher(config: RabbitConfig,
+                                        publisherName: String,
+                                        cursor: EventLogCursor,
+                                        appName: String,
+                                        appVersion: String,
+                                        exchangeType: BuiltinExchangeType,
+                                        messageDatabaseLogger: DatabaseLogger<EncodedEvent>?) {
+        val executor = Executors.newSingleThreadExecutor()
+        executor.submit {
+            while (true) {
+                val event = EncodedEvent.decode(cursor.take())
+                logStringRepresentation(config.exchange, publisherName, event.logMessage ?: "sequence number ${event.sequenceNumber}")
+                cursor.commit(event.nextLogPosition, event.sequenceNumber)
+            }
+        }
+    }
 }
\ No newline at end of file
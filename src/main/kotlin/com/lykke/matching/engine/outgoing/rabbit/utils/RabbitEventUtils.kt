@@ -10,6 +10,14 @@ class RabbitEventUtils {
             return "trusted_client_queue_${exchangeName}_$index"
         }
 
+        fun getClientEventLogCursorName(exchangeName: String, index: Int): String {
+            return "client_log_${exchangeName}_$index"
+        }
+
+        fun getTrustedClientsEventLogCursorName(exchangeName: String, index: Int): String {
+            return "trusted_client_log_${exchangeName}_$index"
+        }
+
         fun getDatabaseLogQueueName(exchangeName: String, index: Int): String {
             return "database_rabbit_log_${exchangeName}_$index"
         }
@@ -2,6 +2,7 @@ package com.lykke.matching.engine.outgoing.senders.impl
 
 import com.lykke.matching.engine.daos.ExecutionData
 import com.lykke.matching.engine.daos.OutgoingEventData
+import com.lykke.matching.engine.database.common.PersistenceBarrier
 import com.lykke.matching.engine.outgoing.messages.CashInOutEventData
 import com.lykke.matching.engine.outgoing.messages.CashTransferEventData
 import com.lykke.matching.engine.outgoing.messages.ReservedCashInOutEventData
@@ -19,7 +20,8 @@ import javax.annotation.PostConstruct
 class OutgoingEventProcessorImpl(private val outgoingEventDataQueue: BlockingQueue<OutgoingEventData>,
                                  private val specializedEventSendersHolder: SpecializedEventSendersHolder,
                                  @Qualifier("rabbitPublishersThreadPool")
-                                 private val rabbitPublishersThreadPool: TaskExecutor): OutgoingEventProcessor {
+                                 private val rabbitPublishersThreadPool: TaskExecutor,
+                                 private val persistenceBarrier: PersistenceBarrier): OutgoingEventProcessor {
 
     private companion object {
         val LOGGER = ThrottlingLogger.getLogger(OutgoingEventProcessorImpl::class.java.name)
@@ -57,7 +59,7 @@ class OutgoingEventProcessorImpl(private val outgoingEventDataQueue: BlockingQue
     }
 
     private fun submitEvent(outgoingEventData: OutgoingEventData) {
-        outgoingEventDataQueue.put(outgoingEventData)
+        persistenceBarrier.executeAfterPersist { outgoingEventDataQueue.put(outgoingEventData) }
     }
 
     private fun processEvent(eventData: OutgoingEventData) {
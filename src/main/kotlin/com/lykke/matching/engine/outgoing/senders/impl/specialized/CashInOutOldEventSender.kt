@@ -1,6 +1,9 @@
 package com.lykke.matching.engine.outgoing.senders.impl.specialized
 
 import com.lykke.matching.engine.messages.MessageType
+import com.lykke.matching.engine.outgoing.eventlog.OldFormatEventLog
+import com.lykke.matching.engine.outgoing.eventlog.OldFormatEventQueue
+import com.lykke.matching.engine.outgoing.eventlog.OutgoingEventLogHolder
 import com.lykke.matching.engine.outgoing.messages.CashInOutEventData
 import com.lykke.matching.engine.outgoing.messages.CashOperation
 import com.lykke.matching.engine.outgoing.senders.SpecializedEventSender
@@ -10,7 +13,11 @@ import java.util.concurrent.BlockingQueue
 
 @Deprecated("Old format of outgoing message is deprecated")
 @Component
-class CashInOutOldEventSender(private val rabbitCashInOutQueue: BlockingQueue<CashOperation>) : SpecializedEventSender<CashInOutEventData> {
+class CashInOutOldEventSender(rabbitCashInOutQueue: BlockingQueue<CashOperation>,
+                              outgoingEventLogHolder: OutgoingEventLogHolder? = null) : SpecializedEventSender<CashInOutEventData> {
+
+    private val rabbitCashInOutQueue = OldFormatEventQueue(rabbitCashInOutQueue, OldFormatEventLog.CASH_OPERATIONS, outgoingEventLogHolder)
+
     override fun getEventClass(): Class<CashInOutEventData> {
         return CashInOutEventData::class.java
     }
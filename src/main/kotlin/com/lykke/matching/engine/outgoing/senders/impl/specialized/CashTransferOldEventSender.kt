@@ -3,6 +3,9 @@ package com.lykke.matching.engine.outgoing.senders.impl.specialized
 import com.lykke.matching.engine.daos.TransferOperation
 import com.lykke.matching.engine.fee.singleFeeTransfer
 import com.lykke.matching.engine.messages.MessageType
+import com.lykke.matching.engine.outgoing.eventlog.OldFormatEventLog
+import com.lykke.matching.engine.outgoing.eventlog.OldFormatEventQueue
+import com.lykke.matching.engine.outgoing.eventlog.OutgoingEventLogHolder
 import com.lykke.matching.engine.outgoing.messages.CashTransferEventData
 import com.lykke.matching.engine.outgoing.messages.CashTransferOperation
 import com.lykke.matching.engine.outgoing.senders.SpecializedEventSender
@@ -13,7 +16,11 @@ import java.util.concurrent.BlockingQueue
 
 @Component
 @Deprecated("Old format of outgoing message is deprecated")
-class CashTransferOldEventSender(private val notificationQueue: BlockingQueue<CashTransferOperation>) : SpecializedEventSender<CashTransferEventData> {
+class CashTransferOldEventSender(notificationQueue: BlockingQueue<CashTransferOperation>,
+                                 outgoingEventLogHolder: OutgoingEventLogHolder? = null) : SpecializedEventSender<CashTransferEventData> {
+
+    private val notificationQueue = OldFormatEventQueue(notificationQueue, OldFormatEventLog.TRANSFERS, outgoingEventLogHolder)
+
     override fun getEventClass(): Class<CashTransferEventData> {
         return CashTransferEventData::class.java
     }
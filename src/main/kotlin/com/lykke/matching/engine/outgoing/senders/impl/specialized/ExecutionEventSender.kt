@@ -2,6 +2,7 @@ package com.lykke.matching.engine.outgoing.senders.impl.specialized
 
 import com.lykke.matching.engine.daos.ExecutionData
 import com.lykke.matching.engine.daos.LkkTrade
+import com.lykke.matching.engine.order.transaction.CurrentTransactionOrderBooksHolder.OrderBookLevelsData
 import com.lykke.matching.engine.order.transaction.ExecutionContext
 import com.lykke.matching.engine.outgoing.messages.OrderBook
 import com.lykke.matching.engine.outgoing.messages.v2.builders.EventFactory
@@ -19,7 +20,8 @@ class ExecutionEventSender(private val messageSender: MessageSender,
                            private val lkkTradesQueue: BlockingQueue<List<LkkTrade>>,
                            private val genericLimitOrderService: GenericLimitOrderService,
                            private val orderBookQueue: BlockingQueue<OrderBook>,
-                           private val rabbitOrderBookQueue: BlockingQueue<OrderBook>) : SpecializedEventSender<ExecutionData> {
+                           private val rabbitOrderBookQueue: BlockingQueue<OrderBook>,
+                           private val orderBookLevelsQueue: BlockingQueue<OrderBookLevelsData>? = null) : SpecializedEventSender<ExecutionData> {
     override fun getEventClass(): Class<ExecutionData> {
         return ExecutionData::class.java
     }
@@ -68,6 +70,9 @@ class ExecutionEventSender(private val messageSender: MessageSender,
             orderBookQueue.put(orderBook)
             rabbitOrderBookQueue.put(orderBook)
         }
+        executionContext.orderBooksHolder.outgoingOrderBookLevels.forEach {
+            orderBookLevelsQueue?.put(it)
+        }
     }
 
     private fun sendNonRabbitEvents(executionContext: ExecutionContext) {
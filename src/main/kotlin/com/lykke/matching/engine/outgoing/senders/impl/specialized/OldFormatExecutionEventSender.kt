@@ -2,6 +2,10 @@ package com.lykke.matching.engine.outgoing.senders.impl.specialized
 
 import com.lykke.matching.engine.daos.ExecutionData
 import com.lykke.matching.engine.order.transaction.ExecutionContext
+import com.lykke.matching.engine.outgoing.eventlog.OldFormatEventLog
+import com.lykke.matching.engine.outgoing.eventlog.OldFormatEventQueue
+import com.lykke.matching.engine.outgoing.eventlog.OutgoingEventLogHolder
+import com.lykke.matching.engine.outgoing.messages.LimitOrderWithTrades
 import com.lykke.matching.engine.outgoing.messages.LimitOrdersReport
 import com.lykke.matching.engine.outgoing.messages.MarketOrderWithTrades
 import com.lykke.matching.engine.outgoing.senders.SpecializedEventSender
@@ -12,9 +16,14 @@ import java.util.concurrent.BlockingQueue
 
 @Deprecated("Old format of outgoing message is deprecated")
 @Component
-class OldFormatExecutionEventSender(private val clientLimitOrdersQueue: BlockingQueue<LimitOrdersReport>,
-                                    private val trustedClientsLimitOrdersQueue: BlockingQueue<LimitOrdersReport>,
-                                    private val rabbitSwapQueue: BlockingQueue<MarketOrderWithTrades>) : SpecializedEventSender<ExecutionData> {
+class OldFormatExecutionEventSender(clientLimitOrdersQueue: BlockingQueue<LimitOrdersReport>,
+                                    trustedClientsLimitOrdersQueue: BlockingQueue<LimitOrdersReport>,
+                                    rabbitSwapQueue: BlockingQueue<MarketOrderWithTrades>,
+                                    outgoingEventLogHolder: OutgoingEventLogHolder? = null) : SpecializedEventSender<ExecutionData> {
+
+    private val clientLimitOrdersQueue = OldFormatEventQueue(clientLimitOrdersQueue, OldFormatEventLog.CLIENT_LIMIT_ORDERS, outgoingEventLogHolder)
+    private val trustedClientsLimitOrdersQueue = OldFormatEventQueue(trustedClientsLimitOrdersQueue, OldFormatEventLog.TRUSTED_CLIENTS_LIMIT_ORDERS, outgoingEventLogHolder)
+    private val rabbitSwapQueue = OldFormatEventQueue(rabbitSwapQueue, OldFormatEventLog.MARKET_ORDERS, outgoingEventLogHolder)
 
     override fun getEventClass(): Class<ExecutionData> {
         return ExecutionData::class.java
@@ -39,6 +48,7 @@ class OldFormatExecutionEventSender(private val clientLimitOrdersQueue: Blocking
         val trustedClientsLimitOrdersWithTrades = executionContext.getTrustedClientsLimitOrdersWithTrades()
 
         if (isThereTrustedClientEvent(trustedClientsLimitOrdersWithTrades)) {
+            formatTradeVolumes(trustedClientsLimitOrdersWithTrades)
             trustedClientsLimitOrdersQueue.put(LimitOrdersReport(executionContext.messageId, trustedClientsLimitOrdersWithTrades.toMutableList()))
         }
     }
@@ -47,9 +57,18 @@ class OldFormatExecutionEventSender(private val clientLimitOrdersQueue: Blocking
         val clientsLimitOrdersWithTrades = executionContext.getClientsLimitOrdersWithTrades()
         if (isThereClientEvent(clientsLimitOrdersWithTrades, executionContext.marketOrderWithTrades)) {
             if (clientsLimitOrdersWithTrades.isNotEmpty()) {
+                formatTradeVolumes(clientsLimitOrdersWithTrades)
                 clientLimitOrdersQueue.put(LimitOrdersReport(executionContext.messageId, clientsLimitOrdersWithTrades.toMutableList()))
             }
-            executionContext.marketOrderWithTrades?.let { rabbitSwapQueue.put(it) }
+            executionContext.marketOrderWithTrades?.let { marketOrderWithTrades ->
+                marketOrderWithTrades.trades.forEach { it.formatVolumes() }
+                rabbitSwapQueue.put(marketOrderWithTrades)
+            }
         }
     }
+
+    /** Volumes of trades are formatted on this thread, rabbit publishers serialize reports after they are taken from queues */
+    private fun formatTradeVolumes(limitOrdersWithTrades: Collection<LimitOrderWithTrades>) {
+        limitOrdersWithTrades.forEach { limitOrderWithTrades -> limitOrderWithTrades.trades.forEach { it.formatVolumes() } }
+    }
 }
\ No newline at end of file
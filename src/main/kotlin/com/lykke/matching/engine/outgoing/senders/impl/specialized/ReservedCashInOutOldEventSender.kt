@@ -1,6 +1,9 @@
 package com.lykke.matching.engine.outgoing.senders.impl.specialized
 
 import com.lykke.matching.engine.messages.MessageType
+import com.lykke.matching.engine.outgoing.eventlog.OldFormatEventLog
+import com.lykke.matching.engine.outgoing.eventlog.OldFormatEventQueue
+import com.lykke.matching.engine.outgoing.eventlog.OutgoingEventLogHolder
 import com.lykke.matching.engine.outgoing.messages.ReservedCashInOutEventData
 import com.lykke.matching.engine.outgoing.messages.ReservedCashOperation
 import com.lykke.matching.engine.outgoing.senders.SpecializedEventSender
@@ -10,7 +13,10 @@ import java.util.concurrent.BlockingQueue
 
 @Deprecated("Old format of outgoing message is deprecated")
 @Component
-class ReservedCashInOutOldEventSender(private val reservedCashOperationQueue: BlockingQueue<ReservedCashOperation>) : SpecializedEventSender<ReservedCashInOutEventData> {
+class ReservedCashInOutOldEventSender(reservedCashOperationQueue: BlockingQueue<ReservedCashOperation>,
+                                      outgoingEventLogHolder: OutgoingEventLogHolder? = null) : SpecializedEventSender<ReservedCashInOutEventData> {
+
+    private val reservedCashOperationQueue = OldFormatEventQueue(reservedCashOperationQueue, OldFormatEventLog.RESERVED_CASH_OPERATIONS, outgoingEventLogHolder)
 
     override fun getEventClass(): Class<ReservedCashInOutEventData> {
         return ReservedCashInOutEventData::class.java
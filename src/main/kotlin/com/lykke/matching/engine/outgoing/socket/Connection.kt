@@ -2,6 +2,7 @@ package com.lykke.matching.engine.outgoing.socket
 
 import com.lykke.matching.engine.holders.AssetsHolder
 import com.lykke.matching.engine.holders.AssetsPairsHolder
+import com.lykke.matching.engine.outgoing.conflation.ConflatingOrderBookQueue
 import com.lykke.matching.engine.messages.MessageType
 import com.lykke.matching.engine.messages.MessageType.ORDER_BOOK_SNAPSHOT
 import com.lykke.matching.engine.messages.ProtocolMessages
@@ -16,12 +17,11 @@ import java.io.DataInputStream
 import java.io.DataOutputStream
 import java.net.Socket
 import java.util.*
-import java.util.concurrent.BlockingQueue
 import java.util.concurrent.ConcurrentHashMap
 import kotlin.concurrent.thread
 
 class Connection(val socket: Socket,
-                 val inputQueue: BlockingQueue<OrderBook>,
+                 val inputQueue: ConflatingOrderBookQueue,
                  val orderBooks: ConcurrentHashMap<String, AssetOrderBook>,
                  val assetsCache: AssetsHolder,
                  val assetPairsCache: AssetsPairsHolder) : Thread(Connection::class.java.name) {
@@ -0,0 +1,109 @@
+package com.lykke.matching.engine.outgoing.socket
+
+import com.lykke.matching.engine.holders.AssetsHolder
+import com.lykke.matching.engine.holders.AssetsPairsHolder
+import com.lykke.matching.engine.messages.MessageType
+import com.lykke.matching.engine.messages.MessageType.ORDER_BOOK_LEVELS_UPDATE
+import com.lykke.matching.engine.messages.ProtocolMessages
+import com.lykke.matching.engine.outgoing.messages.OrderBookLevelsUpdate
+import com.lykke.matching.engine.utils.ByteHelper.Companion.toByteArray
+import com.lykke.matching.engine.utils.NumberUtils
+import com.lykke.utils.logging.ThrottlingLogger
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.net.Socket
+import java.util.concurrent.LinkedBlockingQueue
+import kotlin.concurrent.thread
+
+/**
+ * Sends order book levels snapshots on connect and on [MessageType.ORDER_BOOK_LEVELS_SNAPSHOT_REQUEST],
+ * changed levels otherwise.
+ */
+class OrderBookLevelsConnection(val socket: Socket,
+                                private val orderBookLevelsHolder: OrderBookLevelsHolder,
+                                private val assetsCache: AssetsHolder,
+                                private val assetPairsCache: AssetsPairsHolder) : Thread(OrderBookLevelsConnection::class.java.name) {
+
+    companion object {
+        val LOGGER = ThrottlingLogger.getLogger(OrderBookLevelsConnection::class.java.name)
+    }
+
+    private val inputQueue = LinkedBlockingQueue<OrderBookLevelsUpdate>()
+
+    var clientHostName = socket.inetAddress.canonicalHostName
+
+    override fun run() {
+        Thread.currentThread().name = "orderbook-levels-subscriber-connection-$clientHostName"
+        LOGGER.info("Got order book levels subscriber from $clientHostName.")
+        try {
+            val inputStream = DataInputStream(BufferedInputStream(socket.inputStream))
+            val outputStream = DataOutputStream(BufferedOutputStream(socket.outputStream))
+            outputStream.flush()
+
+            orderBookLevelsHolder.subscribe(inputQueue)
+
+            thread(name = "${OrderBookLevelsConnection::class.java.name}.inputStreamListener") {
+                try {
+                    while (!isClosed()) {
+                        val type = inputStream.readByte()
+                        when (type) {
+                            MessageType.PING.type -> {
+                                //do not read, send back ping
+                                synchronized(outputStream) {
+                                    outputStream.write(byteArrayOf(MessageType.PING.type))
+                                    outputStream.flush()
+                                }
+                            }
+                            MessageType.ORDER_BOOK_LEVELS_SNAPSHOT_REQUEST.type -> orderBookLevelsHolder.resync(inputQueue)
+                            else -> LOGGER.error("Unsupported message type: $type")
+                        }
+                    }
+                } catch (e: Exception) {}
+            }
+
+            while (true) {
+                val item = inputQueue.take()
+                writeUpdate(item, outputStream)
+            }
+        } catch (e: Exception) {
+            LOGGER.error("Order book levels subscriber disconnected: $clientHostName", e)
+        } finally {
+            LOGGER.info("Order book levels subscriber connection from $clientHostName closed.")
+            orderBookLevelsHolder.unsubscribe(inputQueue)
+            socket.close()
+        }
+    }
+
+    private fun writeUpdate(update: OrderBookLevelsUpdate, stream: DataOutputStream) {
+        val builder = ProtocolMessages.OrderBookLevelsUpdate.newBuilder()
+                .setAsset(update.assetPair)
+                .setIsBuy(update.isBuy)
+                .setTimestamp(update.timestamp.time)
+                .setSequenceNumber(update.sequenceNumber)
+                .setSnapshot(update.isSnapshot)
+        val pair = assetPairsCache.getAssetPair(update.assetPair)
+        val baseAsset = assetsCache.getAsset(pair.baseAssetId)
+        update.levels.forEach { level ->
+            builder.addLevels(ProtocolMessages.OrderBookLevelsUpdate.OrderBookLevel.newBuilder()
+                    .setPrice(NumberUtils.setScaleRoundHalfUp(level.price, pair.accuracy).toPlainString())
+                    .setVolume(NumberUtils.setScaleRoundHalfUp(level.volume, baseAsset.accuracy).toPlainString()).build())
+        }
+
+        val message = builder.build()
+
+        synchronized(stream) {
+            stream.write(toByteArray(ORDER_BOOK_LEVELS_UPDATE.type, message.serializedSize, message.toByteArray()))
+            stream.flush()
+        }
+    }
+
+    fun isClosed(): Boolean {
+        return socket.isClosed
+    }
+
+    override fun toString(): String {
+        return "OrderBookLevelsConnection, (clientHostName: $clientHostName)"
+    }
+}
@@ -0,0 +1,134 @@
+package com.lykke.matching.engine.outgoing.socket
+
+import com.lykke.matching.engine.order.transaction.CurrentTransactionOrderBooksHolder.OrderBookLevelsData
+import com.lykke.matching.engine.outgoing.messages.OrderBookLevel
+import com.lykke.matching.engine.outgoing.messages.OrderBookLevelsUpdate
+import com.lykke.matching.engine.services.GenericLimitOrderService
+import com.lykke.utils.logging.MetricsLogger
+import com.lykke.utils.logging.ThrottlingLogger
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Component
+import java.math.BigDecimal
+import java.util.ArrayList
+import java.util.Collections
+import java.util.Date
+import java.util.HashMap
+import java.util.TreeMap
+import java.util.concurrent.BlockingQueue
+import java.util.concurrent.CopyOnWriteArraySet
+import javax.annotation.PostConstruct
+import kotlin.concurrent.thread
+
+/**
+ * Keeps total volumes of order book price levels and sends changed levels to subscribers.
+ *
+ * Each asset pair order book side has its own sequence number, it is incremented by every update of the side.
+ * Subscriber gets snapshots of all sides with their current sequence numbers on subscribe and resync,
+ * then only updates with changed levels.
+ * Side without snapshot has no levels and sequence number 0.
+ */
+@Component
+class OrderBookLevelsHolder(private val genericLimitOrderService: GenericLimitOrderService,
+                            private val orderBookLevelsQueue: BlockingQueue<OrderBookLevelsData>,
+                            @Value("#{Config.me.serverOrderBookLevelsPort}")
+                            private val orderBookLevelsPort: Int? = null) {
+
+    companion object {
+        private val LOGGER = ThrottlingLogger.getLogger(OrderBookLevelsHolder::class.java.name)
+        private val METRICS_LOGGER = MetricsLogger.getLogger()
+    }
+
+    private class OrderBookSideLevels(val assetPair: String,
+                                      val isBuy: Boolean) {
+        val volumesByPrice = TreeMap<BigDecimal, BigDecimal>(if (isBuy) Collections.reverseOrder<BigDecimal>() else Comparator.naturalOrder<BigDecimal>())
+        var sequenceNumber = 0L
+        var timestamp = Date()
+    }
+
+    private val buySides = HashMap<String, OrderBookSideLevels>()
+    private val sellSides = HashMap<String, OrderBookSideLevels>()
+    private val subscribers = CopyOnWriteArraySet<BlockingQueue<OrderBookLevelsUpdate>>()
+
+    @PostConstruct
+    private fun init() {
+        if (orderBookLevelsPort == null) {
+            return
+        }
+
+        loadLevels()
+        thread(name = OrderBookLevelsHolder::class.java.name) {
+            while (true) {
+                val data = orderBookLevelsQueue.take()
+                try {
+                    process(data)
+                } catch (e: Exception) {
+                    val message = "Unable to process order book levels of ${data.assetPair}, isBuy: ${data.isBuySide}"
+                    LOGGER.error(message, e)
+                    METRICS_LOGGER.logError(message, e)
+                }
+            }
+        }
+    }
+
+    @Synchronized
+    fun subscribe(subscriber: BlockingQueue<OrderBookLevelsUpdate>) {
+        putSnapshots(subscriber)
+        subscribers.add(subscriber)
+    }
+
+    @Synchronized
+    fun resync(subscriber: BlockingQueue<OrderBookLevelsUpdate>) {
+        if (subscribers.contains(subscriber)) {
+            putSnapshots(subscriber)
+        }
+    }
+
+    fun unsubscribe(subscriber: BlockingQueue<OrderBookLevelsUpdate>) {
+        subscribers.remove(subscriber)
+    }
+
+    @Synchronized
+    fun process(data: OrderBookLevelsData) {
+        val side = getSide(data.assetPair, data.isBuySide)
+        val changedLevels = ArrayList<OrderBookLevel>(data.volumesByPrice.size)
+        data.volumesByPrice.forEach { (price, volume) ->
+            val previousVolume = if (volume.signum() == 0) side.volumesByPrice.remove(price) else side.volumesByPrice.put(price, volume)
+            if (previousVolume == null && volume.signum() != 0 || previousVolume != null && previousVolume.compareTo(volume) != 0) {
+                changedLevels.add(OrderBookLevel(price, volume))
+            }
+        }
+        if (changedLevels.isEmpty()) {
+            return
+        }
+
+        side.sequenceNumber++
+        side.timestamp = data.date
+        val update = OrderBookLevelsUpdate(side.assetPair, side.isBuy, side.timestamp, side.sequenceNumber, false, changedLevels)
+        subscribers.forEach { it.put(update) }
+    }
+
+    private fun loadLevels() {
+        genericLimitOrderService.getAllOrderBooks().values.forEach { orderBook ->
+            listOf(true, false).forEach { isBuy ->
+                val side = getSide(orderBook.assetPairId, isBuy)
+                orderBook.getOrderBook(isBuy).forEach { order ->
+                    side.volumesByPrice[order.price] = (side.volumesByPrice[order.price] ?: BigDecimal.ZERO) + order.remainingVolume
+                }
+            }
+        }
+    }
+
+    private fun getSide(assetPair: String, isBuy: Boolean): OrderBookSideLevels {
+        return (if (isBuy) buySides else sellSides).getOrPut(assetPair) { OrderBookSideLevels(assetPair, isBuy) }
+    }
+
+    private fun putSnapshots(subscriber: BlockingQueue<OrderBookLevelsUpdate>) {
+        listOf(buySides, sellSides).forEach { sides ->
+            sides.values.forEach { side ->
+                val levels = ArrayList<OrderBookLevel>(side.volumesByPrice.size)
+                side.volumesByPrice.forEach { (price, volume) -> levels.add(OrderBookLevel(price, volume)) }
+                subscriber.put(OrderBookLevelsUpdate(side.assetPair, side.isBuy, side.timestamp, side.sequenceNumber, true, levels))
+            }
+        }
+    }
+}
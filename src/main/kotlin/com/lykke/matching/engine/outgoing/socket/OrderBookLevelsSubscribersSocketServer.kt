@@ -0,0 +1,70 @@
+package com.lykke.matching.engine.outgoing.socket
+
+import com.lykke.matching.engine.holders.AssetsHolder
+import com.lykke.matching.engine.holders.AssetsPairsHolder
+import com.lykke.matching.engine.utils.config.Config
+import com.lykke.utils.logging.MetricsLogger
+import com.lykke.utils.logging.ThrottlingLogger
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor
+import org.springframework.stereotype.Component
+import java.net.ServerSocket
+import java.net.Socket
+import java.util.Optional
+import java.util.concurrent.RejectedExecutionException
+import javax.annotation.PostConstruct
+
+@Component
+class OrderBookLevelsSubscribersSocketServer(private val config: Config,
+                                             private val orderBookLevelsHolder: OrderBookLevelsHolder,
+                                             private val assetsHolder: AssetsHolder,
+                                             private val assetsPairsHolder: AssetsPairsHolder,
+                                             private val orderBookSubscribersThreadPool: Optional<ThreadPoolTaskExecutor>) : Thread(OrderBookLevelsSubscribersSocketServer::class.java.name) {
+
+    companion object {
+        private val LOGGER = ThrottlingLogger.getLogger(OrderBookLevelsSubscribersSocketServer::class.java.name)
+        private val METRICS_LOGGER = MetricsLogger.getLogger()
+    }
+
+    @PostConstruct
+    private fun init() {
+        if (config.me.serverOrderBookLevelsPort == null) {
+            return
+        }
+
+        this.start()
+    }
+
+    override fun run() {
+        val port = config.me.serverOrderBookLevelsPort
+        val socket = ServerSocket(port!!)
+        LOGGER.info("Waiting order book levels subscriber connection on port: $port.")
+        try {
+            while (true) {
+                submitClientConnection(socket.accept())
+            }
+        } catch (exception: Exception) {
+            LOGGER.error("Got exception: ", exception)
+        } finally {
+            socket.close()
+        }
+    }
+
+    private fun submitClientConnection(clientConnection: Socket) {
+        val connection = OrderBookLevelsConnection(clientConnection, orderBookLevelsHolder, assetsHolder, assetsPairsHolder)
+        try {
+            orderBookSubscribersThreadPool.get().submit(connection)
+        } catch (e: RejectedExecutionException) {
+            val message = "Task rejected from order book subscribe thread pool, " +
+                    "rejected task: [$connection], " +
+                    "active threads size ${orderBookSubscribersThreadPool.get().activeCount}, " +
+                    "max pool size ${orderBookSubscribersThreadPool.get().maxPoolSize}"
+            LOGGER.error(message)
+            METRICS_LOGGER.logError(message)
+            try {
+                clientConnection.close()
+            } catch (closeException: Exception) {
+                LOGGER.error("Error during connection close for connection: ${clientConnection.inetAddress.canonicalHostName}")
+            }
+        }
+    }
+}
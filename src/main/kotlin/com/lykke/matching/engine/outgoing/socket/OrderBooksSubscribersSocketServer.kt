@@ -2,7 +2,7 @@ package com.lykke.matching.engine.outgoing.socket
 
 import com.lykke.matching.engine.holders.AssetsHolder
 import com.lykke.matching.engine.holders.AssetsPairsHolder
-import com.lykke.matching.engine.outgoing.messages.OrderBook
+import com.lykke.matching.engine.outgoing.conflation.OrderBookConflation
 import com.lykke.matching.engine.services.GenericLimitOrderService
 import com.lykke.matching.engine.utils.config.Config
 import com.lykke.utils.logging.MetricsLogger
@@ -12,7 +12,6 @@ import org.springframework.stereotype.Component
 import java.net.ServerSocket
 import java.net.Socket
 import java.util.*
-import java.util.concurrent.LinkedBlockingQueue
 import java.util.concurrent.RejectedExecutionException
 import javax.annotation.PostConstruct
 
@@ -22,11 +21,13 @@ class OrderBooksSubscribersSocketServer(val config: Config,
                                         val genericLimitOrderService: GenericLimitOrderService,
                                         val assetsHolder: AssetsHolder,
                                         val assetsPairsHolder: AssetsPairsHolder,
-                                        private val orderBookSubscribersThreadPool: Optional<ThreadPoolTaskExecutor>): Thread(OrderBooksSubscribersSocketServer::class.java.name) {
+                                        private val orderBookSubscribersThreadPool: Optional<ThreadPoolTaskExecutor>,
+                                        private val orderBookConflation: OrderBookConflation): Thread(OrderBooksSubscribersSocketServer::class.java.name) {
 
     companion object {
         val LOGGER = ThrottlingLogger.getLogger(OrderBooksSubscribersSocketServer::class.java.name)
         val METRICS_LOGGER = MetricsLogger.getLogger()
+        private const val SUBSCRIBER_TYPE = "socket"
     }
 
     @PostConstruct
@@ -54,7 +55,7 @@ class OrderBooksSubscribersSocketServer(val config: Config,
     }
 
     private fun submitClientConnection(clientConnection: Socket) {
-        val connection = Connection(clientConnection, LinkedBlockingQueue<OrderBook>(),
+        val connection = Connection(clientConnection, orderBookConflation.createQueue(SUBSCRIBER_TYPE),
                 genericLimitOrderService.getAllOrderBooks(), assetsHolder, assetsPairsHolder)
         try {
             orderBookSubscribersThreadPool.get().submit(connection)
@@ -0,0 +1,75 @@
+package com.lykke.matching.engine.performance
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Lock-free histogram of latencies in nanoseconds with log-linear buckets (HdrHistogram-like):
+ * each power of 2 range is split into [SUB_BUCKETS_COUNT] buckets, so relative error of reported values is about 3%.
+ * Values are recorded without allocations and can be recorded by several threads.
+ */
+class LatencyHistogram {
+
+    companion object {
+        private const val SUB_BUCKET_BITS = 5
+        private const val SUB_BUCKETS_COUNT = 1 shl SUB_BUCKET_BITS
+        private const val BUCKETS_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS_COUNT
+
+        fun getBucketIndex(value: Long): Int {
+            if (value < SUB_BUCKETS_COUNT) {
+                return Math.max(value, 0L).toInt()
+            }
+            val exponent = 63 - java.lang.Long.numberOfLeadingZeros(value)
+            val subBucket = (value ushr (exponent - SUB_BUCKET_BITS)).toInt() - SUB_BUCKETS_COUNT
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS_COUNT + subBucket
+        }
+
+        /** The highest value of the bucket */
+        fun getBucketValue(index: Int): Long {
+            if (index < 2 * SUB_BUCKETS_COUNT) {
+                return index.toLong()
+            }
+            val shift = index / SUB_BUCKETS_COUNT - 1
+            val subBucket = index % SUB_BUCKETS_COUNT
+            return ((SUB_BUCKETS_COUNT + subBucket + 1).toLong() shl shift) - 1
+        }
+    }
+
+    private val counts = AtomicLongArray(BUCKETS_COUNT)
+    private val count = AtomicLong()
+    private val sum = AtomicLong()
+    private val max = AtomicLong()
+    private val intervalMax = AtomicLong()
+
+    fun record(value: Long) {
+        counts.incrementAndGet(getBucketIndex(value))
+        count.incrementAndGet()
+        sum.addAndGet(value)
+        updateMax(max, value)
+        updateMax(intervalMax, value)
+    }
+
+    /**
+     * @param resetIntervalMax if true max value recorded since the previous reset is returned as [LatencyHistogramSnapshot.max]
+     * and is reset, otherwise max value recorded since creation is returned
+     */
+    fun getSnapshot(resetIntervalMax: Boolean): LatencyHistogramSnapshot {
+        val snapshotCounts = LongArray(BUCKETS_COUNT)
+        for (i in 0 until BUCKETS_COUNT) {
+            snapshotCounts[i] = counts.get(i)
+        }
+        return LatencyHistogramSnapshot(snapshotCounts,
+                count.get(),
+                sum.get(),
+                if (resetIntervalMax) intervalMax.getAndSet(0) else max.get())
+    }
+
+    private fun updateMax(max: AtomicLong, value: Long) {
+        while (true) {
+            val current = max.get()
+            if (value <= current || max.compareAndSet(current, value)) {
+                return
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.lykke.matching.engine.performance
+
+class LatencyHistogramSnapshot(private val counts: LongArray,
+                               val count: Long,
+                               val sum: Long,
+                               val max: Long) {
+
+    /** Histogram of values recorded after [previous] snapshot was taken, max is kept from this snapshot */
+    fun minus(previous: LatencyHistogramSnapshot?): LatencyHistogramSnapshot {
+        if (previous == null) {
+            return this
+        }
+        val intervalCounts = LongArray(counts.size)
+        for (i in counts.indices) {
+            intervalCounts[i] = counts[i] - previous.counts[i]
+        }
+        return LatencyHistogramSnapshot(intervalCounts, count - previous.count, sum - previous.sum, max)
+    }
+
+    /** Value not exceeded by [percentile] % of recorded values (with histogram precision) */
+    fun getValueAtPercentile(percentile: Double): Long {
+        val totalCount = counts.sum()
+        if (totalCount == 0L) {
+            return 0
+        }
+        val countAtPercentile = Math.max(Math.ceil(totalCount * percentile / 100).toLong(), 1L)
+        var currentCount = 0L
+        for (i in counts.indices) {
+            currentCount += counts[i]
+            if (currentCount >= countAtPercentile) {
+                return Math.min(LatencyHistogram.getBucketValue(i), max)
+            }
+        }
+        return max
+    }
+}
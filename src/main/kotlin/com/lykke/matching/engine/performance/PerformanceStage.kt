@@ -0,0 +1,11 @@
+package com.lykke.matching.engine.performance
+
+enum class PerformanceStage {
+    INPUT_QUEUE,
+    PRE_PROCESSING,
+    PRE_PROCESSED_QUEUE,
+    PROCESSING,
+    PERSIST,
+    WRITE_RESPONSE,
+    TOTAL
+}
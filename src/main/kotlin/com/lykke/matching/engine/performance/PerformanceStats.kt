@@ -12,4 +12,5 @@ class PerformanceStats(
     var writeResponseTime: Long = 0
     var count: Long = 0
     var totalTime: Long = 0
+    var latencies: Map<PerformanceStage, LatencyHistogramSnapshot>? = null
 }
\ No newline at end of file
@@ -1,12 +1,28 @@
 package com.lykke.matching.engine.performance
 
 import org.springframework.stereotype.Component
+import java.util.EnumMap
 import java.util.HashMap
+import java.util.concurrent.atomic.AtomicReferenceArray
 
+/**
+ * Records latencies of message processing stages to [LatencyHistogram]s of message type.
+ * Histograms of message type are created on the first message of the type, recording is lock-free and allocation-free.
+ */
 @Component
 class PerformanceStatsHolder {
 
-    private var statsMap = HashMap<Byte, PerformanceStats>()
+    private class MessageTypeHistograms {
+        val histograms = Array(PerformanceStage.values().size) { LatencyHistogram() }
+
+        fun record(stage: PerformanceStage, value: Long) {
+            histograms[stage.ordinal].record(value)
+        }
+    }
+
+    private val histogramsByType = AtomicReferenceArray<MessageTypeHistograms>(256)
+    private var previousSnapshots = HashMap<Byte, Map<PerformanceStage, LatencyHistogramSnapshot>>()
+    private var persistenceBatchStats = PersistenceBatchStats()
 
     fun addMessage(type: Byte,
                    startTimestamp: Long,
@@ -15,28 +31,19 @@ class PerformanceStatsHolder {
                    messagePreProcessorEndTimestamp: Long?,
                    startMessageProcessingTime: Long,
                    endMessageProcessingTime: Long) {
-        val totalTime = endMessageProcessingTime - startTimestamp
-        val processingTime = endMessageProcessingTime - startMessageProcessingTime
-
-        val inputQueueTime = messagePreProcessorStartTimestamp?.let {
-            it - startTimestamp
+        val histograms = getHistograms(type)
+        if (messagePreProcessorStartTimestamp != null) {
+            histograms.record(PerformanceStage.INPUT_QUEUE, messagePreProcessorStartTimestamp - startTimestamp)
+            histograms.record(PerformanceStage.PRE_PROCESSING, messagePreProcessorEndTimestamp!! - messagePreProcessorStartTimestamp)
         }
 
-        val preProcessingTime = messagePreProcessorStartTimestamp?.let {
-            messagePreProcessorEndTimestamp!! - it
+        val preProcessedMessageQueueStartTime = messagePreProcessorEndTimestamp ?: startTimestamp
+        histograms.record(PerformanceStage.PRE_PROCESSED_QUEUE, startMessageProcessingTime - preProcessedMessageQueueStartTime)
+        histograms.record(PerformanceStage.PROCESSING, endMessageProcessingTime - startMessageProcessingTime)
+        if (writeResponseTime != null) {
+            histograms.record(PerformanceStage.WRITE_RESPONSE, writeResponseTime)
         }
-
-        val preProcessedMessageQueueStartTime = messagePreProcessorEndTimestamp
-                ?: startTimestamp
-        val preProcessedMessageQueueTime = startMessageProcessingTime - preProcessedMessageQueueStartTime
-
-        addMessage(type = type,
-                inputQueueTime = inputQueueTime,
-                preProcessedQueueTime = preProcessedMessageQueueTime,
-                preProcessingTime = preProcessingTime,
-                processingTime = processingTime,
-                writeResponseTime = writeResponseTime,
-                totalTime = totalTime)
+        histograms.record(PerformanceStage.TOTAL, endMessageProcessingTime - startTimestamp)
     }
 
     fun addMessage(type: Byte,
@@ -46,36 +53,97 @@ class PerformanceStatsHolder {
                    processingTime: Long,
                    writeResponseTime: Long?,
                    totalTime: Long) {
-        val stats = statsMap.getOrPut(type) { PerformanceStats(type) }
-        inputQueueTime?.let {
-            stats.inputQueueTime = stats.inputQueueTime ?: 0
-            stats.inputQueueTime = (stats.inputQueueTime as Long) + inputQueueTime
-        }
+        val histograms = getHistograms(type)
+        inputQueueTime?.let { histograms.record(PerformanceStage.INPUT_QUEUE, it) }
+        preProcessingTime?.let { histograms.record(PerformanceStage.PRE_PROCESSING, it) }
+        histograms.record(PerformanceStage.PRE_PROCESSED_QUEUE, preProcessedQueueTime)
+        histograms.record(PerformanceStage.PROCESSING, processingTime)
+        writeResponseTime?.let { histograms.record(PerformanceStage.WRITE_RESPONSE, it) }
+        histograms.record(PerformanceStage.TOTAL, totalTime)
+    }
+
+    fun addPersistTime(type: Byte, persistTime: Long) {
+        getHistograms(type).record(PerformanceStage.PERSIST, persistTime)
+    }
+
+    @Synchronized
+    fun addPersistenceBatch(messagesCount: Int, waitTime: Long, commitTime: Long) {
+        persistenceBatchStats.add(messagesCount, waitTime, commitTime)
+    }
+
+    @Synchronized
+    fun getPersistenceBatchStatsAndReset(): PersistenceBatchStats {
+        val result = persistenceBatchStats
+        persistenceBatchStats = PersistenceBatchStats()
+        return result
+    }
 
-        preProcessingTime?.let {
-            stats.preProcessingTime = stats.preProcessingTime ?: 0
-            stats.preProcessingTime = (stats.preProcessingTime as Long) + preProcessingTime
+    /** Stats of messages recorded since the previous call */
+    @Synchronized
+    fun getStatsAndReset(): Map<Byte, PerformanceStats> {
+        val result = HashMap<Byte, PerformanceStats>()
+        val snapshots = HashMap<Byte, Map<PerformanceStage, LatencyHistogramSnapshot>>()
+        forEachType { type, histograms ->
+            val typeSnapshots = getSnapshots(histograms, true)
+            snapshots[type] = typeSnapshots
+            val previousTypeSnapshots = previousSnapshots[type]
+            val intervalSnapshots = EnumMap<PerformanceStage, LatencyHistogramSnapshot>(PerformanceStage::class.java)
+            typeSnapshots.forEach { (stage, snapshot) -> intervalSnapshots[stage] = snapshot.minus(previousTypeSnapshots?.get(stage)) }
+            if (intervalSnapshots[PerformanceStage.TOTAL]!!.count > 0 || intervalSnapshots[PerformanceStage.PERSIST]!!.count > 0) {
+                result[type] = toPerformanceStats(type, intervalSnapshots)
+            }
         }
+        previousSnapshots = snapshots
+        return result
+    }
 
-        stats.preProcessedMessageQueueTime += preProcessedQueueTime
-        stats.processingTime += processingTime
+    /** Latencies of messages recorded since start */
+    fun getLatencies(): Map<Byte, Map<PerformanceStage, LatencyHistogramSnapshot>> {
+        val result = HashMap<Byte, Map<PerformanceStage, LatencyHistogramSnapshot>>()
+        forEachType { type, histograms -> result[type] = getSnapshots(histograms, false) }
+        return result
+    }
 
-        writeResponseTime?.let {
-            stats.writeResponseTime += writeResponseTime
+    private fun getHistograms(type: Byte): MessageTypeHistograms {
+        val index = type.toInt() and 0xFF
+        val histograms = histogramsByType.get(index)
+        if (histograms != null) {
+            return histograms
         }
-        stats.totalTime += totalTime
-        stats.count++
+        histogramsByType.compareAndSet(index, null, MessageTypeHistograms())
+        return histogramsByType.get(index)
     }
 
-    fun addPersistTime(type: Byte, persistTime: Long) {
-        val stats = statsMap.getOrPut(type) { PerformanceStats(type) }
-        stats.persistTime += persistTime
-        stats.persistsCount++
+    private fun forEachType(action: (Byte, MessageTypeHistograms) -> Unit) {
+        for (i in 0 until histogramsByType.length()) {
+            histogramsByType.get(i)?.let { action(i.toByte(), it) }
+        }
     }
 
-    fun getStatsAndReset(): Map<Byte, PerformanceStats> {
-        val result = statsMap
-        statsMap = HashMap()
+    private fun getSnapshots(histograms: MessageTypeHistograms, resetIntervalMax: Boolean): Map<PerformanceStage, LatencyHistogramSnapshot> {
+        val result = EnumMap<PerformanceStage, LatencyHistogramSnapshot>(PerformanceStage::class.java)
+        PerformanceStage.values().forEach { result[it] = histograms.histograms[it.ordinal].getSnapshot(resetIntervalMax) }
         return result
     }
-}
\ No newline at end of file
+
+    private fun toPerformanceStats(type: Byte, snapshots: Map<PerformanceStage, LatencyHistogramSnapshot>): PerformanceStats {
+        val stats = PerformanceStats(type)
+        val inputQueue = snapshots[PerformanceStage.INPUT_QUEUE]!!
+        if (inputQueue.count > 0) {
+            stats.inputQueueTime = inputQueue.sum
+        }
+        val preProcessing = snapshots[PerformanceStage.PRE_PROCESSING]!!
+        if (preProcessing.count > 0) {
+            stats.preProcessingTime = preProcessing.sum
+        }
+        stats.preProcessedMessageQueueTime = snapshots[PerformanceStage.PRE_PROCESSED_QUEUE]!!.sum
+        stats.processingTime = snapshots[PerformanceStage.PROCESSING]!!.sum
+        stats.persistTime = snapshots[PerformanceStage.PERSIST]!!.sum
+        stats.persistsCount = snapshots[PerformanceStage.PERSIST]!!.count
+        stats.writeResponseTime = snapshots[PerformanceStage.WRITE_RESPONSE]!!.sum
+        stats.totalTime = snapshots[PerformanceStage.TOTAL]!!.sum
+        stats.count = snapshots[PerformanceStage.TOTAL]!!.count
+        stats.latencies = snapshots
+        return stats
+    }
+}
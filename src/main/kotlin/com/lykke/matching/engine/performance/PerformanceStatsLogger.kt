@@ -41,7 +41,12 @@ class PerformanceStatsLogger @Autowired constructor(private val monitoringDataba
                     "processing time: $processingTime " +
                     "(persist time: $persistTime, write response time: $writeResponseTime), " +
                     "persist count: ${typeStats.persistsCount}, " +
-                    "total time: $totalTime")
+                    "total time: $totalTime" +
+                    (typeStats.latencies?.let { latencies ->
+                        ", percentiles: (" + latencies.entries
+                                .filter { it.value.count > 0 }
+                                .joinToString { "${it.key.name.toLowerCase()}: ${formatPercentiles(it.value)}" } + ")"
+                    } ?: ""))
 
             monitoringDatabaseAccessor.savePerformanceStats(TypePerformanceStats(timestamp =  now,
                     appVersion =  AppVersion.VERSION,
@@ -57,4 +62,47 @@ class PerformanceStatsLogger @Autowired constructor(private val monitoringDataba
                     persistCount =  typeStats.persistsCount))
         }
     }
-}
\ No newline at end of file
+
+    private fun formatPercentiles(snapshot: LatencyHistogramSnapshot): String {
+        return "p50: ${PrintUtils.convertToString2(snapshot.getValueAtPercentile(50.0).toDouble())}, " +
+                "p99: ${PrintUtils.convertToString2(snapshot.getValueAtPercentile(99.0).toDouble())}, " +
+                "p99.9: ${PrintUtils.convertToString2(snapshot.getValueAtPercentile(99.9).toDouble())}, " +
+                "max: ${PrintUtils.convertToString2(snapshot.max.toDouble())}"
+    }
+
+    fun logPersistenceBatchStats(stats: PersistenceBatchStats) {
+        if (stats.batchesCount == 0L) {
+            return
+        }
+        val histogram = PersistenceBatchStats.COMMIT_TIME_BUCKETS.indices.joinToString {
+            "<=${PrintUtils.convertToString2(PersistenceBatchStats.COMMIT_TIME_BUCKETS[it].toDouble())}: ${stats.commitTimeHistogram[it]}"
+        } + ", >: ${stats.commitTimeHistogram.last()}"
+        LOGGER.info("App version: ${AppVersion.VERSION}, persistence batches: count: ${stats.batchesCount}, " +
+                "messages per batch: ${PrintUtils.convertToString2(stats.messagesCount.toDouble() / stats.batchesCount)}, " +
+                "wait time: ${PrintUtils.convertToString2(stats.waitTime.toDouble() / stats.batchesCount)}, " +
+                "commit time: ${PrintUtils.convertToString2(stats.commitTime.toDouble() / stats.batchesCount)}, " +
+                "max commit time: ${PrintUtils.convertToString2(stats.maxCommitTime.toDouble())}, " +
+                "commit time histogram: ($histogram)")
+    }
+
+    fun logReplicationLag(name: String, lag: ReplicationLag) {
+        LOGGER.info("App version: ${AppVersion.VERSION}, $name secondary db replication: " +
+                "pending events: ${lag.pendingEventsCount}, " +
+                "oldest pending event age: ${lag.oldestPendingEventAge} ms")
+    }
+
+    fun logProcessedIdsIndexStats(type: String, stats: ProcessedIdsIndexStats) {
+        val checksCount = stats.notProcessedCount + stats.processedCount + stats.databaseChecksCount
+        if (checksCount == 0L) {
+            return
+        }
+        val messageType = MessageType.valueOf(type.toByte())?.name ?: type
+        LOGGER.info("App version: ${AppVersion.VERSION}, $messageType processed ids index: " +
+                "checks: $checksCount, " +
+                "hit rate: ${String.format("%.2f", (stats.notProcessedCount + stats.processedCount) * 100.0 / checksCount)}%, " +
+                "not processed: ${stats.notProcessedCount}, " +
+                "processed: ${stats.processedCount}, " +
+                "database checks: ${stats.databaseChecksCount}, " +
+                "false positives: ${stats.falsePositivesCount}")
+    }
+}
@@ -1,5 +1,7 @@
 package com.lykke.matching.engine.performance
 
+import com.lykke.matching.engine.database.listeners.AbstractCoalescingPersistListener
+import com.lykke.matching.engine.database.redis.accessor.impl.RedisCashOperationIdDatabaseAccessor
 import com.lykke.matching.engine.utils.config.Config
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.context.annotation.Profile
@@ -7,6 +9,7 @@ import org.springframework.scheduling.TaskScheduler
 import org.springframework.stereotype.Component
 import java.time.Duration
 import java.time.ZonedDateTime
+import java.util.Optional
 import javax.annotation.PostConstruct
 
 @Component
@@ -14,12 +17,21 @@ import javax.annotation.PostConstruct
 class PerformanceStatsLoggerStarter @Autowired constructor(private val performanceStatsLogger: PerformanceStatsLogger,
                                                            private val performanceStatsHolder: PerformanceStatsHolder,
                                                            private val taskScheduler: TaskScheduler,
-                                                           private val config: Config) {
+                                                           private val config: Config,
+                                                           private val persistListeners: Optional<List<AbstractCoalescingPersistListener<*, *, *>>>,
+                                                           private val redisCashOperationIdDatabaseAccessor: Optional<RedisCashOperationIdDatabaseAccessor>) {
     @PostConstruct
     fun start() {
         taskScheduler.scheduleAtFixedRate({
             Thread.currentThread().name = "PerformanceStatsLogger"
             performanceStatsLogger.logStats(performanceStatsHolder.getStatsAndReset().values)
+            performanceStatsLogger.logPersistenceBatchStats(performanceStatsHolder.getPersistenceBatchStatsAndReset())
+            persistListeners.ifPresent { listeners ->
+                listeners.forEach { performanceStatsLogger.logReplicationLag(it.name, it.getLag()) }
+            }
+            redisCashOperationIdDatabaseAccessor.ifPresent { accessor ->
+                accessor.getIndexStatsAndReset().forEach { performanceStatsLogger.logProcessedIdsIndexStats(it.key, it.value) }
+            }
         }, ZonedDateTime.now().toInstant().plusMillis(config.me.performanceStatsInterval),
                 Duration.ofMillis(config.me.performanceStatsInterval))
     }
@@ -0,0 +1,35 @@
+package com.lykke.matching.engine.performance
+
+import java.util.concurrent.TimeUnit
+
+class PersistenceBatchStats {
+    companion object {
+        /** Upper bounds of commit time histogram buckets, the last bucket has no upper bound */
+        val COMMIT_TIME_BUCKETS = longArrayOf(1, 2, 5, 10, 20, 50, 100, 200, 500)
+                .map { TimeUnit.MILLISECONDS.toNanos(it) }
+                .toLongArray()
+    }
+
+    var batchesCount: Long = 0
+    var messagesCount: Long = 0
+    var waitTime: Long = 0
+    var commitTime: Long = 0
+    var maxCommitTime: Long = 0
+    val commitTimeHistogram = LongArray(COMMIT_TIME_BUCKETS.size + 1)
+
+    fun add(messagesCount: Int, waitTime: Long, commitTime: Long) {
+        this.batchesCount++
+        this.messagesCount += messagesCount
+        this.waitTime += waitTime
+        this.commitTime += commitTime
+        if (commitTime > maxCommitTime) {
+            maxCommitTime = commitTime
+        }
+
+        var bucket = 0
+        while (bucket < COMMIT_TIME_BUCKETS.size && commitTime > COMMIT_TIME_BUCKETS[bucket]) {
+            bucket++
+        }
+        commitTimeHistogram[bucket]++
+    }
+}
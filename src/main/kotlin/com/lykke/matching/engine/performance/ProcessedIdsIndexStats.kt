@@ -0,0 +1,6 @@
+package com.lykke.matching.engine.performance
+
+class ProcessedIdsIndexStats(val notProcessedCount: Long,
+                             val processedCount: Long,
+                             val databaseChecksCount: Long,
+                             val falsePositivesCount: Long)
@@ -0,0 +1,4 @@
+package com.lykke.matching.engine.performance
+
+class ReplicationLag(val pendingEventsCount: Int,
+                     val oldestPendingEventAge: Long)
@@ -0,0 +1,47 @@
+package com.lykke.matching.engine.readmodel
+
+import java.util.Collections
+import java.util.HashSet
+
+/**
+ * Keys of entries changed since the last [takeChanges] call.
+ * Initially all entries are considered changed.
+ */
+class ChangesTracker {
+
+    companion object {
+        private val NO_CHANGES = Changes(Collections.emptySet(), false)
+    }
+
+    class Changes(val keys: Set<String>,
+                  val all: Boolean) {
+        fun isEmpty() = !all && keys.isEmpty()
+    }
+
+    private var changedKeys = HashSet<String>()
+    private var allChanged = true
+
+    @Synchronized
+    fun onChanged(key: String) {
+        if (!allChanged) {
+            changedKeys.add(key)
+        }
+    }
+
+    @Synchronized
+    fun onAllChanged() {
+        allChanged = true
+        changedKeys.clear()
+    }
+
+    @Synchronized
+    fun takeChanges(): Changes {
+        if (!allChanged && changedKeys.isEmpty()) {
+            return NO_CHANGES
+        }
+        val result = Changes(changedKeys, allChanged)
+        changedKeys = HashSet()
+        allChanged = false
+        return result
+    }
+}
@@ -0,0 +1,24 @@
+package com.lykke.matching.engine.readmodel
+
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.daos.wallet.AssetBalance
+
+/**
+ * Immutable copy of balances and orders corresponding to the message with [asOfSequenceNumber].
+ * Orders of order book sides are in no particular order.
+ */
+class ReadModel(val asOfSequenceNumber: Long,
+                val timestamp: Long,
+                val balancesByClientId: ShardedImmutableMap<String, Map<String, AssetBalance>>,
+                val ordersByClientId: ShardedImmutableMap<String, List<LimitOrder>>,
+                val stopOrdersByClientId: ShardedImmutableMap<String, List<LimitOrder>>,
+                val orderBooksByAssetPairId: Map<String, ReadModelOrderBook>,
+                val stopOrderBooksByAssetPairId: Map<String, ReadModelStopOrderBook>)
+
+class ReadModelOrderBook(val buyOrders: List<LimitOrder>,
+                         val sellOrders: List<LimitOrder>)
+
+class ReadModelStopOrderBook(val lowerBuyOrders: List<LimitOrder>,
+                             val upperBuyOrders: List<LimitOrder>,
+                             val lowerSellOrders: List<LimitOrder>,
+                             val upperSellOrders: List<LimitOrder>)
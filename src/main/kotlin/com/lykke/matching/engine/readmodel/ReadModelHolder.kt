@@ -0,0 +1,184 @@
+package com.lykke.matching.engine.readmodel
+
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.daos.wallet.AssetBalance
+import com.lykke.matching.engine.holders.BalancesHolder
+import com.lykke.matching.engine.holders.MessageSequenceNumberHolder
+import com.lykke.matching.engine.services.AbstractGenericLimitOrderService
+import com.lykke.matching.engine.services.GenericLimitOrderService
+import com.lykke.matching.engine.services.GenericStopLimitOrderService
+import com.lykke.utils.logging.MetricsLogger
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Component
+import java.util.ArrayList
+import java.util.Collections
+import java.util.HashMap
+import java.util.IdentityHashMap
+import javax.annotation.PostConstruct
+
+/**
+ * Publishes [ReadModel] for queries of balances and orders from other threads.
+ *
+ * [onMessageBoundary] is called by the message processor thread between messages,
+ * at most once per [publishInterval] ms it copies entries changed since the previous publication
+ * and publishes a new read model sharing unchanged entries with the previous one.
+ * Readers take the current read model without locking.
+ */
+@Component
+class ReadModelHolder(private val balancesHolder: BalancesHolder,
+                      private val genericLimitOrderService: GenericLimitOrderService,
+                      private val genericStopLimitOrderService: GenericStopLimitOrderService,
+                      private val messageSequenceNumberHolder: MessageSequenceNumberHolder,
+                      @Value("\${read.model.publish.interval}")
+                      publishInterval: Long? = null) {
+
+    companion object {
+        private val LOGGER = LoggerFactory.getLogger(ReadModelHolder::class.java.name)
+        private val METRICS_LOGGER = MetricsLogger.getLogger()
+        private const val DEFAULT_PUBLISH_INTERVAL = 100L
+    }
+
+    private val publishInterval = publishInterval ?: DEFAULT_PUBLISH_INTERVAL
+    private var lastPublishTime = 0L
+
+    @Volatile
+    var readModel = ReadModel(0,
+            0,
+            ShardedImmutableMap.empty(),
+            ShardedImmutableMap.empty(),
+            ShardedImmutableMap.empty(),
+            emptyMap(),
+            emptyMap())
+        private set
+
+    @PostConstruct
+    private fun init() {
+        publish()
+    }
+
+    fun onMessageBoundary() {
+        val now = System.currentTimeMillis()
+        if (now - lastPublishTime < publishInterval) {
+            return
+        }
+        lastPublishTime = now
+        try {
+            publish()
+        } catch (e: Exception) {
+            val message = "Unable to publish read model"
+            LOGGER.error(message, e)
+            METRICS_LOGGER.logError(message, e)
+        }
+    }
+
+    private fun publish() {
+        val sequenceNumber = messageSequenceNumberHolder.getValue()
+        val walletsChanges = balancesHolder.changedClients.takeChanges()
+        val ordersChanges = genericLimitOrderService.changedClients.takeChanges()
+        val orderBooksChanges = genericLimitOrderService.changedAssetPairs.takeChanges()
+        val stopOrdersChanges = genericStopLimitOrderService.changedClients.takeChanges()
+        val stopOrderBooksChanges = genericStopLimitOrderService.changedAssetPairs.takeChanges()
+
+        val current = readModel
+        if (sequenceNumber == current.asOfSequenceNumber && walletsChanges.isEmpty() && ordersChanges.isEmpty() &&
+                orderBooksChanges.isEmpty() && stopOrdersChanges.isEmpty() && stopOrderBooksChanges.isEmpty()) {
+            return
+        }
+
+        // the same order is copied once even if both its client and order book are changed
+        val orderCopies = IdentityHashMap<LimitOrder, LimitOrder>()
+        val copy: (LimitOrder) -> LimitOrder = { order -> orderCopies.getOrPut(order) { order.copy() } }
+
+        readModel = ReadModel(sequenceNumber,
+                System.currentTimeMillis(),
+                updateBalances(current.balancesByClientId, walletsChanges),
+                updateClientOrders(current.ordersByClientId, ordersChanges, genericLimitOrderService, copy),
+                updateClientOrders(current.stopOrdersByClientId, stopOrdersChanges, genericStopLimitOrderService, copy),
+                updateOrderBooks(current.orderBooksByAssetPairId, orderBooksChanges, copy),
+                updateStopOrderBooks(current.stopOrderBooksByAssetPairId, stopOrderBooksChanges, copy))
+    }
+
+    private fun updateBalances(balances: ShardedImmutableMap<String, Map<String, AssetBalance>>,
+                               changes: ChangesTracker.Changes): ShardedImmutableMap<String, Map<String, AssetBalance>> {
+        val wallets = balancesHolder.wallets
+        val clientIds = if (changes.all) wallets.keys else changes.keys
+        val changedBalances = HashMap<String, Map<String, AssetBalance>?>()
+        clientIds.forEach { clientId ->
+            changedBalances[clientId] = wallets[clientId]?.let { wallet ->
+                val walletBalances = HashMap<String, AssetBalance>()
+                wallet.balances.values.forEach { walletBalances[it.asset] = AssetBalance(it.clientId, it.asset, it.balance, it.reserved) }
+                Collections.unmodifiableMap(walletBalances)
+            }
+        }
+        return (if (changes.all) ShardedImmutableMap.empty() else balances).withChanges(changedBalances)
+    }
+
+    private fun updateClientOrders(orders: ShardedImmutableMap<String, List<LimitOrder>>,
+                                   changes: ChangesTracker.Changes,
+                                   service: AbstractGenericLimitOrderService<*>,
+                                   copy: (LimitOrder) -> LimitOrder): ShardedImmutableMap<String, List<LimitOrder>> {
+        val changedOrders = HashMap<String, List<LimitOrder>?>()
+        if (changes.all) {
+            val ordersByClientId = HashMap<String, MutableList<LimitOrder>>()
+            service.searchOrders(null, null, null).forEach { order ->
+                ordersByClientId.getOrPut(order.clientId) { ArrayList() }.add(copy(order))
+            }
+            ordersByClientId.forEach { (clientId, clientOrders) -> changedOrders[clientId] = Collections.unmodifiableList(clientOrders) }
+        } else {
+            changes.keys.forEach { clientId ->
+                val clientOrders = service.searchOrders(clientId, null, null)
+                changedOrders[clientId] = if (clientOrders.isEmpty()) null else Collections.unmodifiableList(clientOrders.map(copy))
+            }
+        }
+        return (if (changes.all) ShardedImmutableMap.empty() else orders).withChanges(changedOrders)
+    }
+
+    private fun updateOrderBooks(orderBooks: Map<String, ReadModelOrderBook>,
+                                 changes: ChangesTracker.Changes,
+                                 copy: (LimitOrder) -> LimitOrder): Map<String, ReadModelOrderBook> {
+        if (changes.isEmpty()) {
+            return orderBooks
+        }
+        val allOrderBooks = genericLimitOrderService.getAllOrderBooks()
+        val result = if (changes.all) HashMap() else HashMap(orderBooks)
+        (if (changes.all) allOrderBooks.keys else changes.keys).forEach { assetPairId ->
+            val orderBook = allOrderBooks[assetPairId]
+            if (orderBook == null) {
+                result.remove(assetPairId)
+            } else {
+                result[assetPairId] = ReadModelOrderBook(copyOrders(orderBook.getOrderBook(true), copy),
+                        copyOrders(orderBook.getOrderBook(false), copy))
+            }
+        }
+        return Collections.unmodifiableMap(result)
+    }
+
+    private fun updateStopOrderBooks(orderBooks: Map<String, ReadModelStopOrderBook>,
+                                     changes: ChangesTracker.Changes,
+                                     copy: (LimitOrder) -> LimitOrder): Map<String, ReadModelStopOrderBook> {
+        if (changes.isEmpty()) {
+            return orderBooks
+        }
+        val allOrderBooks = genericStopLimitOrderService.getAllOrderBooks()
+        val result = if (changes.all) HashMap() else HashMap(orderBooks)
+        (if (changes.all) allOrderBooks.keys else changes.keys).forEach { assetPairId ->
+            val orderBook = allOrderBooks[assetPairId]
+            if (orderBook == null) {
+                result.remove(assetPairId)
+            } else {
+                result[assetPairId] = ReadModelStopOrderBook(copyOrders(orderBook.getOrderBook(true, true), copy),
+                        copyOrders(orderBook.getOrderBook(true, false), copy),
+                        copyOrders(orderBook.getOrderBook(false, true), copy),
+                        copyOrders(orderBook.getOrderBook(false, false), copy))
+            }
+        }
+        return Collections.unmodifiableMap(result)
+    }
+
+    private fun copyOrders(orders: Collection<LimitOrder>, copy: (LimitOrder) -> LimitOrder): List<LimitOrder> {
+        val result = ArrayList<LimitOrder>(orders.size)
+        orders.forEach { result.add(copy(it)) }
+        return Collections.unmodifiableList(result)
+    }
+}
@@ -0,0 +1,61 @@
+package com.lykke.matching.engine.readmodel
+
+import java.util.ArrayList
+import java.util.Collections
+import java.util.HashMap
+
+/**
+ * Immutable map split into a fixed count of shards.
+ * [withChanges] creates a new map sharing all shards with this map except the changed ones,
+ * so a change costs a copy of the changed shards only.
+ */
+class ShardedImmutableMap<K, V> private constructor(private val shards: List<Map<K, V>>,
+                                                    val size: Int) {
+
+    companion object {
+        private const val SHARDS_COUNT = 256
+
+        fun <K, V> empty(): ShardedImmutableMap<K, V> {
+            return ShardedImmutableMap(Collections.nCopies(SHARDS_COUNT, emptyMap<K, V>()), 0)
+        }
+    }
+
+    operator fun get(key: K): V? {
+        return shards[shardIndex(key)][key]
+    }
+
+    fun containsKey(key: K): Boolean {
+        return shards[shardIndex(key)].containsKey(key)
+    }
+
+    fun forEach(action: (K, V) -> Unit) {
+        shards.forEach { shard -> shard.forEach { (key, value) -> action(key, value) } }
+    }
+
+    /** Returns the map with the given entries changed, null value removes the entry */
+    fun withChanges(changes: Map<K, V?>): ShardedImmutableMap<K, V> {
+        if (changes.isEmpty()) {
+            return this
+        }
+
+        val changedShards = HashMap<Int, HashMap<K, V>>()
+        changes.forEach { (key, value) ->
+            val index = shardIndex(key)
+            val shard = changedShards.getOrPut(index) { HashMap(shards[index]) }
+            if (value == null) shard.remove(key) else shard[key] = value
+        }
+
+        val newShards = ArrayList<Map<K, V>>(shards)
+        var newSize = size
+        changedShards.forEach { (index, shard) ->
+            newSize += shard.size - shards[index].size
+            newShards[index] = if (shard.isEmpty()) emptyMap() else Collections.unmodifiableMap(shard)
+        }
+        return ShardedImmutableMap(newShards, newSize)
+    }
+
+    private fun shardIndex(key: K): Int {
+        val hash = key?.hashCode() ?: 0
+        return (hash xor (hash ushr 16)) and (SHARDS_COUNT - 1)
+    }
+}
@@ -2,11 +2,20 @@ package com.lykke.matching.engine.services
 
 import com.lykke.matching.engine.daos.LimitOrder
 import com.lykke.matching.engine.order.OrderStatus
+import com.lykke.matching.engine.readmodel.ChangesTracker
 import com.lykke.matching.engine.services.utils.AbstractAssetOrderBook
+import com.lykke.matching.engine.services.utils.ClientOrdersIndex
 import java.util.Date
 
 abstract class AbstractGenericLimitOrderService<T : AbstractAssetOrderBook> {
 
+    /** Clients with changed orders, is used to update the read model */
+    val changedClients = ChangesTracker()
+    /** Asset pairs with changed order books, is used to update the read model */
+    val changedAssetPairs = ChangesTracker()
+
+    protected val clientOrdersIndex = ClientOrdersIndex()
+
     abstract fun getOrderBook(assetPairId: String): T
     abstract fun setOrderBook(assetPairId: String, assetOrderBook: T)
     abstract fun removeOrdersFromMapsAndSetStatus(orders: Collection<LimitOrder>, status: OrderStatus? = null, date: Date? = null)
@@ -14,22 +23,12 @@ abstract class AbstractGenericLimitOrderService<T : AbstractAssetOrderBook> {
 
     fun searchOrders(clientId: String?, assetPairId: String?, isBuy: Boolean?): List<LimitOrder> {
         return when {
-            clientId != null -> searchClientOrders(clientId, assetPairId, isBuy)
+            clientId != null -> clientOrdersIndex.search(clientId, assetPairId, isBuy)
             assetPairId != null -> searchAssetPairOrders(assetPairId, isBuy)
             else -> getOrderBooksByAssetPairIdMap().keys.flatMap { searchAssetPairOrders(it, isBuy) }
         }
     }
 
-    private fun searchClientOrders(clientId: String, assetPairId: String?, isBuy: Boolean?): List<LimitOrder> {
-        val result = mutableListOf<LimitOrder>()
-        getLimitOrdersByClientIdMap()[clientId]?.forEach { limitOrder ->
-            if ((assetPairId == null || limitOrder.assetPairId == assetPairId) && (isBuy == null || limitOrder.isBuySide() == isBuy)) {
-                result.add(limitOrder)
-            }
-        }
-        return result
-    }
-
     private fun searchAssetPairOrders(assetPairId: String, isBuy: Boolean?): List<LimitOrder> {
         val orderBook = getOrderBooksByAssetPairIdMap()[assetPairId] ?: return emptyList()
         val result = mutableListOf<LimitOrder>()
@@ -42,7 +41,16 @@ abstract class AbstractGenericLimitOrderService<T : AbstractAssetOrderBook> {
         return result
     }
 
-    protected abstract fun getLimitOrdersByClientIdMap(): Map<String, Collection<LimitOrder>>
+    fun onOrderChanged(order: LimitOrder) {
+        changedClients.onChanged(order.clientId)
+        changedAssetPairs.onChanged(order.assetPairId)
+    }
+
+    protected fun onAllOrdersChanged() {
+        changedClients.onAllChanged()
+        changedAssetPairs.onAllChanged()
+    }
+
     protected abstract fun getOrderBooksByAssetPairIdMap(): Map<String, T>
     abstract fun getTotalSize(): Int
 }
\ No newline at end of file
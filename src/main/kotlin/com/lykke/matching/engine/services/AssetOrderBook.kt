@@ -2,11 +2,17 @@ package com.lykke.matching.engine.services
 
 import com.lykke.matching.engine.daos.LimitOrder
 import com.lykke.matching.engine.services.utils.AbstractAssetOrderBook
+import com.lykke.matching.engine.services.utils.CopyOnWriteOrderBookQueue
+import com.lykke.matching.engine.services.utils.OrderBookQueue
+import com.lykke.matching.engine.services.utils.OrderBookType
+import com.lykke.matching.engine.services.utils.PriceLevelOrderBookQueue
+import com.lykke.matching.engine.services.utils.PriorityOrderBookQueue
 import java.math.BigDecimal
 import java.util.*
-import java.util.concurrent.PriorityBlockingQueue
 
-open class AssetOrderBook(assetId: String) : AbstractAssetOrderBook(assetId) {
+open class AssetOrderBook private constructor(assetId: String,
+                                              private var askOrderBook: OrderBookQueue,
+                                              private var bidOrderBook: OrderBookQueue) : AbstractAssetOrderBook(assetId) {
     companion object {
         private val SELL_COMPARATOR = Comparator<LimitOrder> { o1, o2 ->
             var result = o1.price.compareTo(o2.price)
@@ -30,15 +36,22 @@ open class AssetOrderBook(assetId: String) : AbstractAssetOrderBook(assetId) {
             Arrays.sort(orders, if (isBuySide) BUY_COMPARATOR else SELL_COMPARATOR)
             return orders
         }
-    }
 
+        private fun createOrderBookQueue(type: OrderBookType, isBuySide: Boolean): OrderBookQueue {
+            return when (type) {
+                OrderBookType.PRIORITY_QUEUE -> PriorityOrderBookQueue(if (isBuySide) BUY_COMPARATOR else SELL_COMPARATOR)
+                OrderBookType.COPY_ON_WRITE -> CopyOnWriteOrderBookQueue(isBuySide)
+                OrderBookType.PRICE_LEVEL -> PriceLevelOrderBookQueue(isBuySide)
+            }
+        }
+    }
 
-    private var askOrderBook = PriorityBlockingQueue<LimitOrder>(50, SELL_COMPARATOR)
-    private var bidOrderBook = PriorityBlockingQueue<LimitOrder>(50, BUY_COMPARATOR)
+    constructor(assetId: String, type: OrderBookType = OrderBookType.PRIORITY_QUEUE)
+            : this(assetId, createOrderBookQueue(type, false), createOrderBookQueue(type, true))
 
     override fun getOrderBook(isBuySide: Boolean) = if (isBuySide) bidOrderBook else askOrderBook
 
-    fun setOrderBook(isBuySide: Boolean, queue: PriorityBlockingQueue<LimitOrder>) = if (isBuySide) bidOrderBook = queue else askOrderBook = queue
+    fun setOrderBook(isBuySide: Boolean, queue: OrderBookQueue) = if (isBuySide) bidOrderBook = queue else askOrderBook = queue
 
     override fun addOrder(order: LimitOrder) = getOrderBook(order.isBuySide()).add(order)
 
@@ -62,16 +75,6 @@ open class AssetOrderBook(assetId: String) : AbstractAssetOrderBook(assetId) {
     }
 
     override fun copy(): AssetOrderBook {
-        val book = AssetOrderBook(assetPairId)
-
-        askOrderBook.forEach {
-            book.askOrderBook.put(it)
-        }
-
-        bidOrderBook.forEach {
-            book.bidOrderBook.put(it)
-        }
-
-        return book
+        return AssetOrderBook(assetPairId, askOrderBook.copy(), bidOrderBook.copy())
     }
 }
\ No newline at end of file
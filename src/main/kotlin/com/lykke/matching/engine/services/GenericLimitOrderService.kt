@@ -3,15 +3,17 @@ package com.lykke.matching.engine.services
 import com.lykke.matching.engine.daos.BestPrice
 import com.lykke.matching.engine.daos.LimitOrder
 import com.lykke.matching.engine.daos.TradeInfo
+import com.lykke.matching.engine.database.snapshot.EngineStateSnapshotLoader
 import com.lykke.matching.engine.holders.OrdersDatabaseAccessorsHolder
 import com.lykke.matching.engine.order.ExpiryOrdersQueue
 import com.lykke.matching.engine.order.OrderStatus
 import com.lykke.matching.engine.order.OrderStatus.Cancelled
 import com.lykke.matching.engine.order.transaction.CurrentTransactionOrderBooksHolder
+import com.lykke.matching.engine.services.utils.OrderBookType
 import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
 import org.springframework.stereotype.Component
 import java.math.BigDecimal
-import java.util.ArrayList
 import java.util.Date
 import java.util.HashMap
 import java.util.LinkedList
@@ -22,12 +24,19 @@ import java.util.concurrent.ConcurrentHashMap
 @Component
 class GenericLimitOrderService @Autowired constructor(private val orderBookDatabaseAccessorHolder: OrdersDatabaseAccessorsHolder,
                                                       private val tradeInfoQueue: Optional<BlockingQueue<TradeInfo>>,
-                                                      private val expiryOrdersQueue: ExpiryOrdersQueue) : AbstractGenericLimitOrderService<AssetOrderBook>() {
+                                                      private val expiryOrdersQueue: ExpiryOrdersQueue,
+                                                      @Value("#{Config.me.orderBookType}")
+                                                      orderBookType: OrderBookType? = null,
+                                                      private val engineStateSnapshotLoader: EngineStateSnapshotLoader? = null,
+                                                      @Value("#{Config.me.serverOrderBookLevelsPort}")
+                                                      orderBookLevelsPort: Int? = null) : AbstractGenericLimitOrderService<AssetOrderBook>() {
+
+    private val orderBookType = orderBookType ?: OrderBookType.PRIORITY_QUEUE
+    private val collectOrderBookLevels = orderBookLevelsPort != null
 
     //asset -> orderBook
     private val limitOrdersQueues = ConcurrentHashMap<String, AssetOrderBook>()
     private val limitOrdersMap = HashMap<String, LimitOrder>()
-    private val clientLimitOrdersMap = HashMap<String, MutableList<LimitOrder>>()
     var initialOrdersCount = 0
 
     init {
@@ -40,24 +49,33 @@ class GenericLimitOrderService @Autowired constructor(private val orderBookDatab
         }
         limitOrdersQueues.clear()
         limitOrdersMap.clear()
-        clientLimitOrdersMap.clear()
-        val orders = orderBookDatabaseAccessorHolder.primaryAccessor.loadLimitOrders()
-        for (order in orders) {
+        clientOrdersIndex.clear()
+        onAllOrdersChanged()
+        var ordersCount = 0
+        val consumer: (LimitOrder) -> Unit = { order ->
             addToOrderBook(order)
+            ordersCount++
+        }
+        val snapshotOrders = engineStateSnapshotLoader?.takeOrders()
+        if (snapshotOrders != null) {
+            snapshotOrders.forEach(consumer)
+        } else {
+            orderBookDatabaseAccessorHolder.primaryAccessor.loadLimitOrders(consumer)
         }
-        initialOrdersCount = orders.size
+        initialOrdersCount = ordersCount
     }
 
     private fun addToOrderBook(order: LimitOrder) {
-        val orderBook = limitOrdersQueues.getOrPut(order.assetPairId) { AssetOrderBook(order.assetPairId) }
+        val orderBook = limitOrdersQueues.getOrPut(order.assetPairId) { AssetOrderBook(order.assetPairId, orderBookType) }
         orderBook.addOrder(order)
         addOrder(order)
     }
 
     fun addOrder(order: LimitOrder) {
         limitOrdersMap[order.externalId] = order
-        clientLimitOrdersMap.getOrPut(order.clientId) { ArrayList() }.add(order)
+        clientOrdersIndex.add(order)
         expiryOrdersQueue.addIfOrderHasExpiryTime(order)
+        onOrderChanged(order)
     }
 
     override fun addOrders(orders: Collection<LimitOrder>) {
@@ -68,14 +86,13 @@ class GenericLimitOrderService @Autowired constructor(private val orderBookDatab
 
     fun getAllOrderBooks() = limitOrdersQueues
 
-    override fun getOrderBook(assetPairId: String) = limitOrdersQueues[assetPairId] ?: AssetOrderBook(assetPairId)
+    override fun getOrderBook(assetPairId: String) = limitOrdersQueues[assetPairId] ?: AssetOrderBook(assetPairId, orderBookType)
 
     override fun setOrderBook(assetPairId: String, assetOrderBook: AssetOrderBook) {
         limitOrdersQueues[assetPairId] = assetOrderBook
+        changedAssetPairs.onChanged(assetPairId)
     }
 
-    override fun getLimitOrdersByClientIdMap() = clientLimitOrdersMap
-
     override fun getOrderBooksByAssetPairIdMap() = limitOrdersQueues
 
     fun getOrder(uid: String) = limitOrdersMap[uid]
@@ -85,24 +102,21 @@ class GenericLimitOrderService @Autowired constructor(private val orderBookDatab
         expiryOrdersQueue.removeIfOrderHasExpiryTime(order)
 
         if (removeFromClientMap) {
-            removeFromClientMap(uid)
+            clientOrdersIndex.remove(order)
         }
 
         getOrderBook(order.assetPairId).removeOrder(order)
         order.updateStatus(Cancelled, date)
+        onOrderChanged(order)
         return order
     }
 
-    private fun removeFromClientMap(uid: String): Boolean {
-        val order: LimitOrder = clientLimitOrdersMap.values.firstOrNull { it.any { it.externalId == uid } }?.firstOrNull { it.externalId == uid } ?: return false
-        return clientLimitOrdersMap[order.clientId]?.remove(order) ?: false
-    }
-
     override fun removeOrdersFromMapsAndSetStatus(orders: Collection<LimitOrder>, status: OrderStatus?, date: Date?) {
         orders.forEach { order ->
             val removedOrder = limitOrdersMap.remove(order.externalId)
-            clientLimitOrdersMap[order.clientId]?.remove(removedOrder)
+            removedOrder?.let { clientOrdersIndex.remove(it) }
             expiryOrdersQueue.removeIfOrderHasExpiryTime(order)
+            onOrderChanged(order)
             if (removedOrder != null && status != null) {
                 removedOrder.updateStatus(status, date!!)
             }
@@ -129,7 +143,7 @@ class GenericLimitOrderService @Autowired constructor(private val orderBookDatab
         return result
     }
 
-    fun createCurrentTransactionOrderBooksHolder() = CurrentTransactionOrderBooksHolder(this)
+    fun createCurrentTransactionOrderBooksHolder() = CurrentTransactionOrderBooksHolder(this, collectOrderBookLevels)
 
     override fun getTotalSize(): Int {
         return limitOrdersMap.size
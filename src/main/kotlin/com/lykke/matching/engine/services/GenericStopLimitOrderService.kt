@@ -1,24 +1,24 @@
 package com.lykke.matching.engine.services
 
 import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.database.snapshot.EngineStateSnapshotLoader
 import com.lykke.matching.engine.holders.StopOrdersDatabaseAccessorsHolder
 import com.lykke.matching.engine.order.ExpiryOrdersQueue
 import com.lykke.matching.engine.order.OrderStatus
 import com.lykke.matching.engine.order.transaction.CurrentTransactionStopOrderBooksHolder
 import org.springframework.stereotype.Component
-import java.util.ArrayList
 import java.util.Date
 import java.util.HashMap
 import java.util.concurrent.ConcurrentHashMap
 
 @Component
 class GenericStopLimitOrderService(private val stopOrdersDatabaseAccessorsHolder: StopOrdersDatabaseAccessorsHolder,
-                                   private val expiryOrdersQueue: ExpiryOrdersQueue) : AbstractGenericLimitOrderService<AssetStopOrderBook>() {
+                                   private val expiryOrdersQueue: ExpiryOrdersQueue,
+                                   private val engineStateSnapshotLoader: EngineStateSnapshotLoader? = null) : AbstractGenericLimitOrderService<AssetStopOrderBook>() {
 
     var initialStopOrdersCount = 0
     private val stopLimitOrdersQueues = ConcurrentHashMap<String, AssetStopOrderBook>()
     private val stopLimitOrdersMap = HashMap<String, LimitOrder>()
-    private val clientStopLimitOrdersMap = HashMap<String, MutableList<LimitOrder>>()
 
     init {
         update()
@@ -30,14 +30,22 @@ class GenericStopLimitOrderService(private val stopOrdersDatabaseAccessorsHolder
         }
         stopLimitOrdersQueues.clear()
         stopLimitOrdersMap.clear()
-        clientStopLimitOrdersMap.clear()
+        clientOrdersIndex.clear()
+        onAllOrdersChanged()
 
-        val stopOrders = stopOrdersDatabaseAccessorsHolder.primaryAccessor.loadStopLimitOrders()
-        stopOrders.forEach { order ->
+        var stopOrdersCount = 0
+        val consumer: (LimitOrder) -> Unit = { order ->
             getOrderBook(order.assetPairId).addOrder(order)
             addOrder(order)
+            stopOrdersCount++
         }
-        initialStopOrdersCount = stopOrders.size
+        val snapshotStopOrders = engineStateSnapshotLoader?.takeStopOrders()
+        if (snapshotStopOrders != null) {
+            snapshotStopOrders.forEach(consumer)
+        } else {
+            stopOrdersDatabaseAccessorsHolder.primaryAccessor.loadStopLimitOrders(consumer)
+        }
+        initialStopOrdersCount = stopOrdersCount
     }
 
     fun getAllOrderBooks() = stopLimitOrdersQueues
@@ -45,7 +53,8 @@ class GenericStopLimitOrderService(private val stopOrdersDatabaseAccessorsHolder
     fun addOrder(order: LimitOrder) {
         stopLimitOrdersMap[order.externalId] = order
         expiryOrdersQueue.addIfOrderHasExpiryTime(order)
-        clientStopLimitOrdersMap.getOrPut(order.clientId) { ArrayList() }.add(order)
+        clientOrdersIndex.add(order)
+        onOrderChanged(order)
     }
 
     override fun addOrders(orders: Collection<LimitOrder>) {
@@ -57,8 +66,9 @@ class GenericStopLimitOrderService(private val stopOrdersDatabaseAccessorsHolder
     override fun removeOrdersFromMapsAndSetStatus(orders: Collection<LimitOrder>, status: OrderStatus?, date: Date?) {
         orders.forEach { order ->
             val removedOrder = stopLimitOrdersMap.remove(order.externalId)
-            clientStopLimitOrdersMap[order.clientId]?.remove(removedOrder)
+            removedOrder?.let { clientOrdersIndex.remove(it) }
             expiryOrdersQueue.removeIfOrderHasExpiryTime(order)
+            onOrderChanged(order)
             if (removedOrder != null && status != null) {
                 removedOrder.updateStatus(status, date!!)
             }
@@ -71,10 +81,9 @@ class GenericStopLimitOrderService(private val stopOrdersDatabaseAccessorsHolder
 
     override fun setOrderBook(assetPairId: String, assetOrderBook: AssetStopOrderBook) {
         stopLimitOrdersQueues[assetPairId] = assetOrderBook
+        changedAssetPairs.onChanged(assetPairId)
     }
 
-    override fun getLimitOrdersByClientIdMap() = clientStopLimitOrdersMap
-
     override fun getOrderBooksByAssetPairIdMap() = stopLimitOrdersQueues
 
     fun createCurrentTransactionOrderBooksHolder() = CurrentTransactionStopOrderBooksHolder(this)
@@ -22,6 +22,9 @@ import com.lykke.matching.engine.order.OrderStatus.NotEnoughFunds
 import com.lykke.matching.engine.order.OrderStatus.Processing
 import com.lykke.matching.engine.order.OrderStatus.ReservedVolumeGreaterThanBalance
 import com.lykke.matching.engine.order.OrderStatus.TooHighPriceDeviation
+import com.lykke.matching.engine.outgoing.eventlog.OldFormatEventLog
+import com.lykke.matching.engine.outgoing.eventlog.OldFormatEventQueue
+import com.lykke.matching.engine.outgoing.eventlog.OutgoingEventLogHolder
 import com.lykke.matching.engine.services.validators.impl.OrderValidationException
 import com.lykke.matching.engine.outgoing.messages.MarketOrderWithTrades
 import com.lykke.matching.engine.services.validators.MarketOrderValidator
@@ -55,19 +58,22 @@ class MarketOrderService @Autowired constructor(
         private val executionDataApplyService: ExecutionDataApplyService,
         private val matchingResultHandlingHelper: MatchingResultHandlingHelper,
         private val genericLimitOrderService: GenericLimitOrderService,
-        private val rabbitSwapQueue: BlockingQueue<MarketOrderWithTrades>,
+        rabbitSwapQueue: BlockingQueue<MarketOrderWithTrades>,
         private val messageSequenceNumberHolder: MessageSequenceNumberHolder,
         private val messageSender: MessageSender,
         private val assetsPairsHolder: AssetsPairsHolder,
         private val marketOrderValidator: MarketOrderValidator,
         private val applicationSettingsHolder: ApplicationSettingsHolder,
         private val messageProcessingStatusHolder: MessageProcessingStatusHolder,
-        private val uuidHolder: UUIDHolder) : AbstractService {
+        private val uuidHolder: UUIDHolder,
+        outgoingEventLogHolder: OutgoingEventLogHolder? = null) : AbstractService {
     companion object {
         private val LOGGER = LoggerFactory.getLogger(MarketOrderService::class.java.name)
         private val STATS_LOGGER = LoggerFactory.getLogger("${MarketOrderService::class.java.name}.stats")
     }
 
+    private val rabbitSwapQueue = OldFormatEventQueue(rabbitSwapQueue, OldFormatEventLog.MARKET_ORDERS, outgoingEventLogHolder)
+
     private var messagesCount: Long = 0
     private var logCount = 100
     private var totalTime: Double = 0.0
@@ -179,11 +185,12 @@ class MarketOrderService @Autowired constructor(
                         matchingResultHandlingHelper.processUncompletedOppositeOrder(marketOrderExecutionContext)
                     }
 
-                    matchingResult.skipLimitOrders.forEach { matchingResult.orderBook.put(it) }
+                    val orderBook = matchingResult.orderBook!!
+                    matchingResult.skipLimitOrders.forEach { orderBook.add(it) }
 
                     marketOrderExecutionContext.executionContext.orderBooksHolder
                             .getChangedOrderBookCopy(order.assetPairId)
-                            .setOrderBook(!order.isBuySide(), matchingResult.orderBook)
+                            .setOrderBook(!order.isBuySide(), orderBook)
                     marketOrderExecutionContext.executionContext.lkkTrades.addAll(matchingResult.lkkTrades)
 
                     marketOrderExecutionContext.executionContext.marketOrderWithTrades = MarketOrderWithTrades(messageWrapper.messageId!!, order, matchingResult.marketOrderTrades)
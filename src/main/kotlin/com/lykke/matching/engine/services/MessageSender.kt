@@ -1,19 +1,32 @@
 package com.lykke.matching.engine.services
 
+import com.lykke.matching.engine.outgoing.eventlog.OutgoingEventLogHolder
 import com.lykke.matching.engine.outgoing.messages.v2.events.Event
 import com.lykke.matching.engine.outgoing.messages.v2.events.ExecutionEvent
 import org.springframework.stereotype.Component
 import java.util.concurrent.BlockingQueue
 
+/** Events are appended to the outgoing event log instead of the queues if the log is configured */
 @Component
 class MessageSender(private val clientsEventsQueue: BlockingQueue<Event<*>>,
-                    private val trustedClientsEventsQueue: BlockingQueue<ExecutionEvent>) {
+                    private val trustedClientsEventsQueue: BlockingQueue<ExecutionEvent>,
+                    private val outgoingEventLogHolder: OutgoingEventLogHolder? = null) {
+
+    private val isEventLogEnabled = outgoingEventLogHolder?.isEnabled() ?: false
 
     fun sendTrustedClientsMessage(message: ExecutionEvent) {
+        if (isEventLogEnabled) {
+            outgoingEventLogHolder!!.appendTrustedClientsEvent(message)
+            return
+        }
         trustedClientsEventsQueue.put(message)
     }
 
     fun sendMessage(message: Event<*>) {
+        if (isEventLogEnabled) {
+            outgoingEventLogHolder!!.appendClientsEvent(message)
+            return
+        }
         clientsEventsQueue.put(message)
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package com.lykke.matching.engine.services.utils
+
+import com.lykke.matching.engine.daos.LimitOrder
+import java.util.ArrayList
+import java.util.HashMap
+import java.util.LinkedHashMap
+
+/**
+ * Orders indexed by client, asset pair and side.
+ * Orders of the same client, asset pair and side are kept in insertion order,
+ * add and remove take O(1), search by client, asset pair and side reads only the matching orders.
+ */
+class ClientOrdersIndex {
+
+    private class AssetPairOrders {
+        val buyOrders = LinkedHashMap<String, LimitOrder>()
+        val sellOrders = LinkedHashMap<String, LimitOrder>()
+
+        fun getOrders(isBuy: Boolean) = if (isBuy) buyOrders else sellOrders
+
+        fun isEmpty() = buyOrders.isEmpty() && sellOrders.isEmpty()
+    }
+
+    private val ordersByClientId = HashMap<String, HashMap<String, AssetPairOrders>>()
+
+    fun add(order: LimitOrder) {
+        ordersByClientId.getOrPut(order.clientId) { HashMap() }
+                .getOrPut(order.assetPairId) { AssetPairOrders() }
+                .getOrders(order.isBuySide())[order.externalId] = order
+    }
+
+    /** Removes the order if it is indexed (the same instance) */
+    fun remove(order: LimitOrder): Boolean {
+        val clientOrders = ordersByClientId[order.clientId] ?: return false
+        val assetPairOrders = clientOrders[order.assetPairId] ?: return false
+        if (!assetPairOrders.getOrders(order.isBuySide()).remove(order.externalId, order)) {
+            return false
+        }
+        if (assetPairOrders.isEmpty()) {
+            clientOrders.remove(order.assetPairId)
+            if (clientOrders.isEmpty()) {
+                ordersByClientId.remove(order.clientId)
+            }
+        }
+        return true
+    }
+
+    fun search(clientId: String, assetPairId: String?, isBuy: Boolean?): List<LimitOrder> {
+        val result = ArrayList<LimitOrder>()
+        forEach(clientId, assetPairId, isBuy) { result.add(it) }
+        return result
+    }
+
+    fun forEach(clientId: String, assetPairId: String?, isBuy: Boolean?, action: (LimitOrder) -> Unit) {
+        val clientOrders = ordersByClientId[clientId] ?: return
+        if (assetPairId != null) {
+            clientOrders[assetPairId]?.let { forEach(it, isBuy, action) }
+        } else {
+            clientOrders.values.forEach { forEach(it, isBuy, action) }
+        }
+    }
+
+    fun clear() {
+        ordersByClientId.clear()
+    }
+
+    private fun forEach(assetPairOrders: AssetPairOrders, isBuy: Boolean?, action: (LimitOrder) -> Unit) {
+        if (isBuy == null || isBuy) {
+            assetPairOrders.buyOrders.values.forEach(action)
+        }
+        if (isBuy == null || !isBuy) {
+            assetPairOrders.sellOrders.values.forEach(action)
+        }
+    }
+}
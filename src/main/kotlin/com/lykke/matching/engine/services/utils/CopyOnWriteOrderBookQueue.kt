@@ -0,0 +1,184 @@
+package com.lykke.matching.engine.services.utils
+
+import com.lykke.matching.engine.daos.LimitOrder
+import java.math.BigDecimal
+import java.util.AbstractQueue
+import java.util.ArrayDeque
+import java.util.Collections
+import java.util.NoSuchElementException
+import java.util.TreeMap
+
+/**
+ * Order book side stored as a map of price levels, each level keeps orders sorted by creation date.
+ *
+ * [copy] takes O(1): the copy and the original share the price level map and all price levels.
+ * The map is cloned on the first change of either of them (only references to levels are copied),
+ * a price level is cloned only when it is changed. Iterator works with a snapshot of the side,
+ * so the side can be changed while it is being read.
+ */
+class CopyOnWriteOrderBookQueue private constructor(private val isBuySide: Boolean,
+                                                    private var levels: TreeMap<BigDecimal, PriceLevel>,
+                                                    private var ordersCount: Int,
+                                                    private var isLevelsMapShared: Boolean) : AbstractQueue<LimitOrder>(), OrderBookQueue {
+
+    constructor(isBuySide: Boolean) : this(isBuySide,
+            TreeMap<BigDecimal, PriceLevel>(if (isBuySide) Collections.reverseOrder<BigDecimal>() else Comparator.naturalOrder<BigDecimal>()),
+            0,
+            false)
+
+    /** Levels created or cloned by this instance since the last copy can be changed in place */
+    private var owner = Any()
+
+    @Synchronized
+    override fun copy(): CopyOnWriteOrderBookQueue {
+        share()
+        return CopyOnWriteOrderBookQueue(isBuySide, levels, ordersCount, true)
+    }
+
+    @Synchronized
+    override fun offer(order: LimitOrder): Boolean {
+        val level = getWritableLevel(order.price)
+        if (level == null) {
+            val newLevel = PriceLevel(owner)
+            newLevel.orders.add(order)
+            getWritableLevels()[order.price] = newLevel
+        } else {
+            level.add(order)
+        }
+        ordersCount++
+        return true
+    }
+
+    @Synchronized
+    override fun poll(): LimitOrder? {
+        val bestLevelEntry = levels.firstEntry() ?: return null
+        val level = getWritableLevel(bestLevelEntry.key)!!
+        val order = level.orders.pollFirst()
+        if (level.orders.isEmpty()) {
+            getWritableLevels().remove(bestLevelEntry.key)
+        }
+        ordersCount--
+        return order
+    }
+
+    @Synchronized
+    override fun peek(): LimitOrder? {
+        return levels.firstEntry()?.value?.orders?.peekFirst()
+    }
+
+    @Synchronized
+    override fun remove(element: LimitOrder): Boolean {
+        val level = levels[element.price] ?: return false
+        if (!level.orders.contains(element)) {
+            return false
+        }
+        val writableLevel = getWritableLevel(element.price)!!
+        writableLevel.orders.removeFirstOccurrence(element)
+        if (writableLevel.orders.isEmpty()) {
+            getWritableLevels().remove(element.price)
+        }
+        ordersCount--
+        return true
+    }
+
+    @Synchronized
+    override fun contains(element: LimitOrder): Boolean {
+        return levels[element.price]?.orders?.contains(element) ?: false
+    }
+
+    @Synchronized
+    override fun clear() {
+        levels = TreeMap(levels.comparator())
+        isLevelsMapShared = false
+        ordersCount = 0
+    }
+
+    override val size: Int
+        @Synchronized get() = ordersCount
+
+    /** Looks through the levels of the given prices only */
+    @Synchronized
+    override fun getLevelVolumes(prices: Collection<BigDecimal>): Map<BigDecimal, BigDecimal> {
+        val result = TreeMap<BigDecimal, BigDecimal>()
+        prices.forEach { price ->
+            var volume = BigDecimal.ZERO
+            levels[price]?.orders?.forEach { volume += it.remainingVolume }
+            result[price] = volume
+        }
+        return result
+    }
+
+    @Synchronized
+    override fun iterator(): MutableIterator<LimitOrder> {
+        share()
+        return SnapshotIterator(levels.values.iterator())
+    }
+
+    /** Makes all current levels and level map read only for this instance */
+    private fun share() {
+        isLevelsMapShared = true
+        owner = Any()
+    }
+
+    private fun getWritableLevels(): TreeMap<BigDecimal, PriceLevel> {
+        if (isLevelsMapShared) {
+            levels = TreeMap(levels)
+            isLevelsMapShared = false
+        }
+        return levels
+    }
+
+    private fun getWritableLevel(price: BigDecimal): PriceLevel? {
+        val level = levels[price] ?: return null
+        if (level.owner === owner) {
+            return level
+        }
+        val levelCopy = PriceLevel(owner, ArrayDeque(level.orders))
+        getWritableLevels()[price] = levelCopy
+        return levelCopy
+    }
+
+    private class PriceLevel(val owner: Any,
+                             val orders: ArrayDeque<LimitOrder> = ArrayDeque()) {
+
+        fun add(order: LimitOrder) {
+            if (orders.isEmpty() || orders.peekLast().createdAt <= order.createdAt) {
+                orders.addLast(order)
+                return
+            }
+
+            // order is older than the last order of level (the order was returned to the order book or is being loaded)
+            val newerOrders = ArrayDeque<LimitOrder>()
+            while (orders.isNotEmpty() && orders.peekLast().createdAt > order.createdAt) {
+                newerOrders.addFirst(orders.pollLast())
+            }
+            orders.addLast(order)
+            orders.addAll(newerOrders)
+        }
+    }
+
+    private class SnapshotIterator(private val levelsIterator: Iterator<PriceLevel>) : MutableIterator<LimitOrder> {
+        private var ordersIterator: Iterator<LimitOrder>? = null
+
+        override fun hasNext(): Boolean {
+            while (ordersIterator?.hasNext() != true) {
+                if (!levelsIterator.hasNext()) {
+                    return false
+                }
+                ordersIterator = levelsIterator.next().orders.iterator()
+            }
+            return true
+        }
+
+        override fun next(): LimitOrder {
+            if (!hasNext()) {
+                throw NoSuchElementException()
+            }
+            return ordersIterator!!.next()
+        }
+
+        override fun remove() {
+            throw UnsupportedOperationException("Order book snapshot can not be changed")
+        }
+    }
+}
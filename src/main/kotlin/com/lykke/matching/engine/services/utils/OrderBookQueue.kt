@@ -0,0 +1,33 @@
+package com.lykke.matching.engine.services.utils
+
+import com.lykke.matching.engine.daos.LimitOrder
+import java.math.BigDecimal
+import java.util.Queue
+import java.util.TreeMap
+
+/**
+ * One side of an asset pair order book.
+ * Head of the queue is the best order (best price, then earliest creation date).
+ */
+interface OrderBookQueue : Queue<LimitOrder> {
+    /**
+     * Returns an independent copy of the side; changes of the copy are not visible in the original and vice versa
+     */
+    fun copy(): OrderBookQueue
+
+    /**
+     * Returns total remaining volumes of orders by the given prices (zero for a price without orders).
+     * Default implementation looks through the whole side once
+     */
+    fun getLevelVolumes(prices: Collection<BigDecimal>): Map<BigDecimal, BigDecimal> {
+        val result = TreeMap<BigDecimal, BigDecimal>()
+        prices.forEach { result[it] = BigDecimal.ZERO }
+        forEach { order ->
+            val volume = result[order.price]
+            if (volume != null) {
+                result[order.price] = volume + order.remainingVolume
+            }
+        }
+        return result
+    }
+}
@@ -0,0 +1,10 @@
+package com.lykke.matching.engine.services.utils
+
+enum class OrderBookType {
+    /** Binary heap per side, copy re-inserts every order */
+    PRIORITY_QUEUE,
+    /** Copy-on-write map of price levels, copy shares levels until they are changed */
+    COPY_ON_WRITE,
+    /** Map of price levels with FIFO order lists and order id index, cancel does not scan the side */
+    PRICE_LEVEL
+}
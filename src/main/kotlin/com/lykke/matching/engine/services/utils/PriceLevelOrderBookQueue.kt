@@ -0,0 +1,202 @@
+package com.lykke.matching.engine.services.utils
+
+import com.lykke.matching.engine.daos.LimitOrder
+import java.math.BigDecimal
+import java.util.AbstractQueue
+import java.util.ArrayList
+import java.util.Collections
+import java.util.HashMap
+import java.util.TreeMap
+
+/**
+ * Order book side stored as a sorted map of price levels, each level is an intrusive FIFO list of orders.
+ * Nodes are indexed by order id.
+ *
+ * Insert takes O(log L) (L is a count of price levels), remove by order takes O(1)
+ * (plus O(log L) if the level becomes empty), best order is available in O(1).
+ * Iterator works with a snapshot of the side, so the side can be changed while it is being read.
+ */
+class PriceLevelOrderBookQueue(private val isBuySide: Boolean) : AbstractQueue<LimitOrder>(), OrderBookQueue {
+
+    private val levels = TreeMap<BigDecimal, PriceLevel>(if (isBuySide) Collections.reverseOrder<BigDecimal>() else Comparator.naturalOrder<BigDecimal>())
+    private val nodesByOrderId = HashMap<String, Node>()
+    private var bestLevel: PriceLevel? = null
+    private var ordersCount = 0
+
+    @Synchronized
+    override fun copy(): PriceLevelOrderBookQueue {
+        val copy = PriceLevelOrderBookQueue(isBuySide)
+        // levels are visited in price order and orders in level order, so every order is appended to the tail
+        levels.values.forEach { level ->
+            var node = level.head
+            while (node != null) {
+                copy.offer(node.order)
+                node = node.next
+            }
+        }
+        return copy
+    }
+
+    @Synchronized
+    override fun offer(order: LimitOrder): Boolean {
+        var level = levels[order.price]
+        if (level == null) {
+            level = PriceLevel(order.price)
+            levels[order.price] = level
+            val currentBestLevel = bestLevel
+            if (currentBestLevel == null || levels.comparator().compare(order.price, currentBestLevel.price) < 0) {
+                bestLevel = level
+            }
+        }
+        val node = Node(order, level)
+        level.add(node)
+        nodesByOrderId[order.id] = node
+        ordersCount++
+        return true
+    }
+
+    @Synchronized
+    override fun poll(): LimitOrder? {
+        val node = bestLevel?.head ?: return null
+        removeNode(node)
+        return node.order
+    }
+
+    @Synchronized
+    override fun peek(): LimitOrder? {
+        return bestLevel?.head?.order
+    }
+
+    @Synchronized
+    override fun remove(element: LimitOrder): Boolean {
+        val node = getNode(element) ?: return false
+        removeNode(node)
+        return true
+    }
+
+    @Synchronized
+    override fun contains(element: LimitOrder): Boolean {
+        return getNode(element) != null
+    }
+
+    @Synchronized
+    override fun clear() {
+        levels.clear()
+        nodesByOrderId.clear()
+        bestLevel = null
+        ordersCount = 0
+    }
+
+    override val size: Int
+        @Synchronized get() = ordersCount
+
+    /** Looks through the levels of the given prices only */
+    @Synchronized
+    override fun getLevelVolumes(prices: Collection<BigDecimal>): Map<BigDecimal, BigDecimal> {
+        val result = TreeMap<BigDecimal, BigDecimal>()
+        prices.forEach { price ->
+            var volume = BigDecimal.ZERO
+            var node = levels[price]?.head
+            while (node != null) {
+                volume += node.order.remainingVolume
+                node = node.next
+            }
+            result[price] = volume
+        }
+        return result
+    }
+
+    @Synchronized
+    override fun iterator(): MutableIterator<LimitOrder> {
+        val orders = ArrayList<LimitOrder>(ordersCount)
+        levels.values.forEach { level ->
+            var node = level.head
+            while (node != null) {
+                orders.add(node.order)
+                node = node.next
+            }
+        }
+        return SnapshotIterator(orders.iterator())
+    }
+
+    private fun getNode(order: LimitOrder): Node? {
+        val node = nodesByOrderId[order.id] ?: return null
+        if (node.order === order) {
+            return node
+        }
+
+        // another order with the same id is indexed, look through the level
+        var levelNode = levels[order.price]?.head
+        while (levelNode != null && levelNode.order !== order) {
+            levelNode = levelNode.next
+        }
+        return levelNode
+    }
+
+    private fun removeNode(node: Node) {
+        val level = node.level
+        level.remove(node)
+        if (nodesByOrderId[node.order.id] === node) {
+            nodesByOrderId.remove(node.order.id)
+        }
+        if (level.head == null) {
+            levels.remove(level.price)
+            if (bestLevel === level) {
+                bestLevel = levels.firstEntry()?.value
+            }
+        }
+        ordersCount--
+    }
+
+    private class Node(val order: LimitOrder,
+                       val level: PriceLevel) {
+        var prev: Node? = null
+        var next: Node? = null
+    }
+
+    private class PriceLevel(val price: BigDecimal) {
+        var head: Node? = null
+        var tail: Node? = null
+
+        fun add(node: Node) {
+            // order can be older than the last order of level (the order was returned to the order book or is being loaded)
+            var prev = tail
+            while (prev != null && prev.order.createdAt > node.order.createdAt) {
+                prev = prev.prev
+            }
+
+            val next = if (prev == null) head else prev.next
+            node.prev = prev
+            node.next = next
+            if (prev == null) head = node else prev.next = node
+            if (next == null) tail = node else next.prev = node
+        }
+
+        fun remove(node: Node) {
+            val prev = node.prev
+            val next = node.next
+            if (prev == null) head = next else prev.next = next
+            if (next == null) tail = prev else next.prev = prev
+            node.prev = null
+            node.next = null
+        }
+    }
+
+    private inner class SnapshotIterator(private val ordersIterator: Iterator<LimitOrder>) : MutableIterator<LimitOrder> {
+        private var lastOrder: LimitOrder? = null
+
+        override fun hasNext() = ordersIterator.hasNext()
+
+        override fun next(): LimitOrder {
+            val order = ordersIterator.next()
+            lastOrder = order
+            return order
+        }
+
+        override fun remove() {
+            val order = lastOrder ?: throw IllegalStateException()
+            this@PriceLevelOrderBookQueue.remove(order)
+            lastOrder = null
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.lykke.matching.engine.services.utils
+
+import com.lykke.matching.engine.daos.LimitOrder
+import java.math.BigDecimal
+import java.util.TreeMap
+import java.util.concurrent.PriorityBlockingQueue
+import java.util.concurrent.TimeUnit
+
+/**
+ * Keeps orders of each price in a separate index updated on every add and remove,
+ * so [getLevelVolumes] looks through the orders of the given prices only.
+ * Volumes are not cached by price because remaining volumes of orders in the queue are changed in place.
+ */
+class PriorityOrderBookQueue(private val comparator: Comparator<LimitOrder>)
+    : PriorityBlockingQueue<LimitOrder>(50, comparator), OrderBookQueue {
+
+    private val ordersByPrice = TreeMap<BigDecimal, MutableSet<LimitOrder>>()
+
+    override fun copy(): PriorityOrderBookQueue {
+        val queue = PriorityOrderBookQueue(comparator)
+        forEach {
+            queue.put(it)
+        }
+        return queue
+    }
+
+    override fun offer(element: LimitOrder): Boolean {
+        val result = super.offer(element)
+        if (result) {
+            addToIndex(element)
+        }
+        return result
+    }
+
+    override fun poll(): LimitOrder? {
+        return super.poll()?.also { removeFromIndex(it) }
+    }
+
+    override fun poll(timeout: Long, unit: TimeUnit): LimitOrder? {
+        return super.poll(timeout, unit)?.also { removeFromIndex(it) }
+    }
+
+    override fun take(): LimitOrder {
+        return super.take().also { removeFromIndex(it) }
+    }
+
+    override fun remove(element: LimitOrder): Boolean {
+        val result = super.remove(element)
+        if (result) {
+            removeFromIndex(element)
+        }
+        return result
+    }
+
+    override fun drainTo(c: MutableCollection<in LimitOrder>): Int {
+        return drainTo(c, Int.MAX_VALUE)
+    }
+
+    override fun drainTo(c: MutableCollection<in LimitOrder>, maxElements: Int): Int {
+        val orders = ArrayList<LimitOrder>()
+        val result = super.drainTo(orders, maxElements)
+        orders.forEach { removeFromIndex(it) }
+        c.addAll(orders)
+        return result
+    }
+
+    override fun clear() {
+        synchronized(ordersByPrice) {
+            super.clear()
+            ordersByPrice.clear()
+        }
+    }
+
+    override fun iterator(): MutableIterator<LimitOrder> {
+        val iterator = super.iterator()
+        return object : MutableIterator<LimitOrder> {
+            private var last: LimitOrder? = null
+
+            override fun hasNext() = iterator.hasNext()
+
+            override fun next(): LimitOrder {
+                val order = iterator.next()
+                last = order
+                return order
+            }
+
+            override fun remove() {
+                iterator.remove()
+                last?.let { removeFromIndex(it) }
+                last = null
+            }
+        }
+    }
+
+    /** Looks through the orders of the given prices only */
+    override fun getLevelVolumes(prices: Collection<BigDecimal>): Map<BigDecimal, BigDecimal> {
+        val result = TreeMap<BigDecimal, BigDecimal>()
+        synchronized(ordersByPrice) {
+            prices.forEach { price ->
+                var volume = BigDecimal.ZERO
+                ordersByPrice[price]?.forEach { volume += it.remainingVolume }
+                result[price] = volume
+            }
+        }
+        return result
+    }
+
+    private fun addToIndex(order: LimitOrder) {
+        synchronized(ordersByPrice) {
+            ordersByPrice.getOrPut(order.price) { HashSet() }.add(order)
+        }
+    }
+
+    private fun removeFromIndex(order: LimitOrder) {
+        synchronized(ordersByPrice) {
+            val orders = ordersByPrice[order.price] ?: return
+            orders.remove(order)
+            if (orders.isEmpty()) {
+                ordersByPrice.remove(order.price)
+            }
+        }
+    }
+}
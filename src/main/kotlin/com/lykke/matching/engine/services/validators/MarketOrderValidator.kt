@@ -2,12 +2,11 @@ package com.lykke.matching.engine.services.validators
 
 import com.lykke.matching.engine.daos.v2.FeeInstruction
 import com.lykke.matching.engine.daos.MarketOrder
-import com.lykke.matching.engine.daos.LimitOrder
 import com.lykke.matching.engine.daos.fee.v2.NewFeeInstruction
-import java.util.concurrent.PriorityBlockingQueue
+import com.lykke.matching.engine.services.utils.OrderBookQueue
 
 
 interface MarketOrderValidator {
-    fun performValidation(order: MarketOrder, orderBook: PriorityBlockingQueue<LimitOrder>,
+    fun performValidation(order: MarketOrder, orderBook: OrderBookQueue,
                                    feeInstruction: FeeInstruction?, feeInstructions: List<NewFeeInstruction>?)
 }
\ No newline at end of file
@@ -2,13 +2,13 @@ package com.lykke.matching.engine.services.validators.impl
 
 import com.lykke.matching.engine.daos.v2.FeeInstruction
 import com.lykke.matching.engine.daos.MarketOrder
-import com.lykke.matching.engine.daos.LimitOrder
 import com.lykke.matching.engine.daos.fee.v2.NewFeeInstruction
 import com.lykke.matching.engine.fee.checkFee
 import com.lykke.matching.engine.holders.ApplicationSettingsHolder
 import com.lykke.matching.engine.holders.AssetsHolder
 import com.lykke.matching.engine.holders.AssetsPairsHolder
 import com.lykke.matching.engine.order.OrderStatus
+import com.lykke.matching.engine.services.utils.OrderBookQueue
 import com.lykke.matching.engine.services.validators.MarketOrderValidator
 import com.lykke.matching.engine.services.validators.common.OrderValidationUtils
 import com.lykke.matching.engine.utils.NumberUtils
@@ -16,7 +16,6 @@ import org.slf4j.LoggerFactory
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Component
 import java.math.BigDecimal
-import java.util.concurrent.PriorityBlockingQueue
 
 @Component
 class MarketOrderValidatorImpl
@@ -28,7 +27,7 @@ class MarketOrderValidatorImpl
         private val LOGGER = LoggerFactory.getLogger(MarketOrderValidatorImpl::class.java.name)
     }
 
-    override fun performValidation(order: MarketOrder, orderBook: PriorityBlockingQueue<LimitOrder>,
+    override fun performValidation(order: MarketOrder, orderBook: OrderBookQueue,
                                    feeInstruction: FeeInstruction?, feeInstructions: List<NewFeeInstruction>?) {
         isAssetKnown(order)
         isAssetEnabled(order)
@@ -39,7 +38,7 @@ class MarketOrderValidatorImpl
         isPriceAccuracyValid(order)
     }
 
-    private fun isOrderBookValid(order: MarketOrder, orderBook: PriorityBlockingQueue<LimitOrder>) {
+    private fun isOrderBookValid(order: MarketOrder, orderBook: OrderBookQueue) {
         if (orderBook.size == 0) {
             LOGGER.info("No liquidity, no orders in order book, for $order")
             throw OrderValidationException(OrderStatus.NoLiquidity)
@@ -1,9 +1,12 @@
 package com.lykke.matching.engine.socket
 
 import com.lykke.matching.engine.AppInitialData
+import com.lykke.matching.engine.database.common.PersistenceBarrier
 import com.lykke.matching.engine.incoming.MessageRouter
 import com.lykke.matching.engine.messages.MessageProcessor
 import com.lykke.matching.engine.socket.impl.ClientHandlerImpl
+import com.lykke.matching.engine.socket.impl.NioClientHandler
+import com.lykke.matching.engine.socket.impl.NioIoLoop
 import com.lykke.matching.engine.utils.config.Config
 import com.lykke.utils.AppVersion
 import com.lykke.utils.logging.MetricsLogger
@@ -12,8 +15,11 @@ import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.scheduling.annotation.Scheduled
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor
 import org.springframework.stereotype.Component
+import java.net.InetSocketAddress
 import java.net.ServerSocket
 import java.net.Socket
+import java.nio.channels.ServerSocketChannel
+import java.nio.channels.SocketChannel
 import java.util.concurrent.CopyOnWriteArraySet
 import java.util.concurrent.RejectedExecutionException
 import java.util.regex.Pattern
@@ -29,6 +35,9 @@ class ClientsRequestsSocketServer(private val messageProcessor: MessageProcessor
     @Autowired
     private lateinit var messageRouter: MessageRouter
 
+    @Autowired
+    private lateinit var persistenceBarrier: PersistenceBarrier
+
     companion object {
         private val LOGGER = ThrottlingLogger.getLogger(ClientsRequestsSocketServer::class.java.name)
         private val METRICS_LOGGER = MetricsLogger.getLogger()
@@ -45,6 +54,11 @@ class ClientsRequestsSocketServer(private val messageProcessor: MessageProcessor
                 "stop orders,${appInitialData.balancesCount} " +
                 "balances for ${appInitialData.clientsCount} clients")
 
+        if (config.me.socket.nio != null) {
+            runNio()
+            return
+        }
+
         val port = config.me.socket.port
         val socket = ServerSocket(port)
         LOGGER.info("Waiting connection on port: $port.")
@@ -60,9 +74,63 @@ class ClientsRequestsSocketServer(private val messageProcessor: MessageProcessor
         }
     }
 
+    private fun runNio() {
+        val nioConfig = config.me.socket.nio!!
+        val ioLoops = (1..nioConfig.ioThreads).map { NioIoLoop("client-io-$it", nioConfig.readBufferSize) }
+        ioLoops.forEach { it.start() }
+
+        val port = config.me.socket.port
+        val serverChannel = ServerSocketChannel.open()
+        LOGGER.info("Waiting connection on port: $port, io threads: ${ioLoops.size}.")
+        try {
+            serverChannel.bind(InetSocketAddress(port))
+            var connectionsCount = 0L
+            while (true) {
+                submitClientConnection(serverChannel.accept(), ioLoops[(connectionsCount++ % ioLoops.size).toInt()])
+            }
+        } catch (exception: Exception) {
+            LOGGER.error("Got exception: ", exception)
+            METRICS_LOGGER.logError("Fatal exception", exception)
+        } finally {
+            serverChannel.close()
+            ioLoops.forEach { it.close() }
+        }
+    }
+
+    private fun submitClientConnection(clientChannel: SocketChannel, ioLoop: NioIoLoop) {
+        val clientConnection = clientChannel.socket()
+        if (!isConnectionAllowed(getWhiteList(), clientConnection.inetAddress.hostAddress)) {
+            closeClientConnection(clientConnection)
+            LOGGER.info("Connection from host ${clientConnection.inetAddress.hostAddress} is not allowed.")
+            return
+        }
+        if (connections.size >= config.me.socket.maxConnections) {
+            LOGGER.error("Max connections count (${config.me.socket.maxConnections}) is reached, " +
+                    "connection from ${clientConnection.inetAddress.hostAddress} is rejected")
+            METRICS_LOGGER.logError("Max connections count is reached, client can not be connected to ME")
+            closeClientConnection(clientConnection)
+            return
+        }
+
+        val nioConfig = config.me.socket.nio!!
+        clientChannel.configureBlocking(false)
+        clientChannel.socket().tcpNoDelay = true
+        val handler = NioClientHandler(messageRouter,
+                persistenceBarrier,
+                clientChannel,
+                ioLoop,
+                this,
+                config.me.socket.lifeTimeMinutes ?: DEFAULT_LIFE_TIME_MINUTES,
+                nioConfig.outboundQueueSize,
+                nioConfig.maxMessageSize)
+        connect(handler)
+        ioLoop.register(handler)
+    }
+
     fun submitClientConnection(clientConnection: Socket) {
         if (isConnectionAllowed(getWhiteList(), clientConnection.inetAddress.hostAddress)) {
             val handler = ClientHandlerImpl(messageRouter,
+                    persistenceBarrier,
                     clientConnection,
                     this,
                     config.me.socket.lifeTimeMinutes ?: DEFAULT_LIFE_TIME_MINUTES)
@@ -1,5 +1,6 @@
 package com.lykke.matching.engine.socket.impl
 
+import com.lykke.matching.engine.database.common.PersistenceBarrier
 import com.lykke.matching.engine.incoming.MessageRouter
 import com.lykke.matching.engine.messages.MessageType
 import com.lykke.matching.engine.messages.MessageWrapper
@@ -16,6 +17,7 @@ import java.time.LocalDateTime
 
 class ClientHandlerImpl(
         private val messageRouter: MessageRouter,
+        persistenceBarrier: PersistenceBarrier,
         private val socket: Socket,
         private val socketServer: ClientsRequestsSocketServer,
         private val lifeTimeMinutes: Long) : Thread(ClientHandlerImpl::class.java.name), ClientHandler {
@@ -33,6 +35,9 @@ class ClientHandlerImpl(
 
     override var clientHostName = socket.inetAddress.hostAddress
 
+    /** Responses to messages are written by message processing threads, pings are answered directly */
+    private val responseHandler = persistenceBarrier.wrap(this)
+
     var inputStream: DataInputStream? = null
     var outputStream: DataOutputStream? = null
 
@@ -83,7 +88,7 @@ class ClientHandlerImpl(
         val serializedData = ByteArray(size)
         inputStream.readFully(serializedData, 0, size)
         incomingSize += 1 + size
-        messageRouter.process(MessageWrapper(clientHostName, type, serializedData, this))
+        messageRouter.process(MessageWrapper(clientHostName, type, serializedData, responseHandler))
     }
 
     override fun writeOutput(byteArray: ByteArray) {
@@ -0,0 +1,74 @@
+package com.lykke.matching.engine.socket.impl
+
+import com.lykke.matching.engine.messages.MessageType
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+/**
+ * Decodes client messages framed as type byte, little endian payload size and payload.
+ * Ping message consists of the type byte only.
+ * Message may be split between several read buffers, incomplete header and payload are kept between [decode] calls.
+ */
+class ClientMessageDecoder(private val maxMessageSize: Int) {
+
+    companion object {
+        private const val HEADER_SIZE = 5
+    }
+
+    private val header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+    private var type: Byte = 0
+    private var payload: ByteArray? = null
+    private var payloadPosition = 0
+
+    /**
+     * Decodes all complete messages from [buffer] (in read mode), [buffer] is fully consumed.
+     * Payload is null for ping messages.
+     */
+    fun decode(buffer: ByteBuffer, consumer: (type: Byte, payload: ByteArray?) -> Unit) {
+        while (buffer.hasRemaining()) {
+            val currentPayload = payload
+            if (currentPayload != null) {
+                val length = Math.min(buffer.remaining(), currentPayload.size - payloadPosition)
+                buffer.get(currentPayload, payloadPosition, length)
+                payloadPosition += length
+                completePayload(consumer)
+                continue
+            }
+
+            if (header.position() == 0 && buffer.get(buffer.position()) == MessageType.PING.type) {
+                buffer.get()
+                consumer(MessageType.PING.type, null)
+                continue
+            }
+
+            while (header.hasRemaining() && buffer.hasRemaining()) {
+                header.put(buffer.get())
+            }
+            if (!header.hasRemaining()) {
+                readHeader()
+                completePayload(consumer)
+            }
+        }
+    }
+
+    private fun readHeader() {
+        header.flip()
+        type = header.get()
+        val size = header.int
+        header.clear()
+        if (size < 0 || size > maxMessageSize) {
+            throw IOException("Invalid message size: $size, type: $type")
+        }
+        payload = ByteArray(size)
+        payloadPosition = 0
+    }
+
+    private fun completePayload(consumer: (type: Byte, payload: ByteArray?) -> Unit) {
+        val currentPayload = payload
+        if (currentPayload != null && payloadPosition == currentPayload.size) {
+            payload = null
+            consumer(type, currentPayload)
+        }
+    }
+}
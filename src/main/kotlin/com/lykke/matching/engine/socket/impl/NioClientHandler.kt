@@ -0,0 +1,182 @@
+package com.lykke.matching.engine.socket.impl
+
+import com.lykke.matching.engine.database.common.PersistenceBarrier
+import com.lykke.matching.engine.incoming.MessageRouter
+import com.lykke.matching.engine.messages.MessageType
+import com.lykke.matching.engine.messages.MessageWrapper
+import com.lykke.matching.engine.socket.ClientHandler
+import com.lykke.matching.engine.socket.ClientsRequestsSocketServer
+import com.lykke.utils.logging.MetricsLogger
+import com.lykke.utils.logging.ThrottlingLogger
+import java.nio.ByteBuffer
+import java.nio.channels.SelectionKey
+import java.nio.channels.Selector
+import java.nio.channels.SocketChannel
+import java.time.LocalDateTime
+import java.util.ArrayDeque
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Client connection served by [NioIoLoop].
+ *
+ * [writeOutput] never blocks: responses are put to the bounded outbound queue and written to socket by the io loop thread.
+ * Connection is closed if client does not read responses and the outbound queue is full.
+ */
+class NioClientHandler(private val messageRouter: MessageRouter,
+                       persistenceBarrier: PersistenceBarrier,
+                       private val channel: SocketChannel,
+                       private val ioLoop: NioIoLoop,
+                       private val socketServer: ClientsRequestsSocketServer,
+                       private val lifeTimeMinutes: Long,
+                       private val outboundQueueSize: Int,
+                       maxMessageSize: Int) : ClientHandler {
+
+    companion object {
+        private val LOGGER = ThrottlingLogger.getLogger(NioClientHandler::class.java.name)
+        private val METRICS_LOGGER = MetricsLogger.getLogger()
+        private const val MAX_BUFFERS_PER_WRITE = 64
+        private val PING_RESPONSE = byteArrayOf(MessageType.PING.type)
+    }
+
+    override var clientHostName: String? = channel.socket().inetAddress.hostAddress
+
+    /** Responses to messages are written by message processing threads, pings are answered directly */
+    private val responseHandler = persistenceBarrier.wrap(this)
+
+    private val outboundQueue = ArrayBlockingQueue<ByteArray>(outboundQueueSize)
+    private val writeScheduled = AtomicBoolean(false)
+    private val closed = AtomicBoolean(false)
+
+    @Volatile
+    private var lastMessageAt: LocalDateTime = LocalDateTime.now()
+
+    // accessed by io loop thread only
+    private val decoder = ClientMessageDecoder(maxMessageSize)
+    private val pendingBuffers = ArrayDeque<ByteBuffer>()
+    private val writeBuffers = arrayOfNulls<ByteBuffer>(MAX_BUFFERS_PER_WRITE)
+    private var key: SelectionKey? = null
+    private var incomingSize = 0L
+
+    fun register(selector: Selector) {
+        key = channel.register(selector, SelectionKey.OP_READ, this)
+    }
+
+    override fun writeOutput(byteArray: ByteArray) {
+        if (closed.get()) {
+            return
+        }
+        if (!outboundQueue.offer(byteArray)) {
+            val message = "Outbound queue of connection from $clientHostName is full (size: $outboundQueueSize), connection is closed"
+            LOGGER.error(message)
+            METRICS_LOGGER.logError(message)
+            disconnect()
+            return
+        }
+        if (writeScheduled.compareAndSet(false, true)) {
+            ioLoop.scheduleWrite(this)
+        }
+    }
+
+    fun onReadable(readBuffer: ByteBuffer) {
+        try {
+            val readBytes = channel.read(readBuffer)
+            if (readBytes < 0) {
+                close(null)
+                return
+            }
+            lastMessageAt = LocalDateTime.now()
+            readBuffer.flip()
+            decoder.decode(readBuffer) { type, payload ->
+                if (payload == null) {
+                    LOGGER.debug("Got ping request from $clientHostName.")
+                    incomingSize++
+                    writeOutput(PING_RESPONSE)
+                } else {
+                    if (incomingSize == 0L) {
+                        LOGGER.info("Got connection from $clientHostName.")
+                    }
+                    incomingSize += 1 + payload.size
+                    messageRouter.process(MessageWrapper(clientHostName, type, payload, responseHandler))
+                }
+            }
+        } catch (e: Exception) {
+            close(e)
+        }
+    }
+
+    fun onWriteScheduled() {
+        writeScheduled.set(false)
+        flush()
+    }
+
+    fun onWritable() {
+        flush()
+    }
+
+    private fun flush() {
+        val currentKey = key
+        if (currentKey == null || !currentKey.isValid) {
+            return
+        }
+        try {
+            var completed = false
+            var written = true
+            while (written && !completed) {
+                while (pendingBuffers.size < MAX_BUFFERS_PER_WRITE) {
+                    val next = outboundQueue.poll() ?: break
+                    pendingBuffers.add(ByteBuffer.wrap(next))
+                }
+                if (pendingBuffers.isEmpty()) {
+                    completed = true
+                } else {
+                    written = writePendingBuffers()
+                }
+            }
+            currentKey.interestOps(if (completed) SelectionKey.OP_READ else SelectionKey.OP_READ or SelectionKey.OP_WRITE)
+        } catch (e: Exception) {
+            close(e)
+        }
+    }
+
+    /** @return true if all pending buffers are written */
+    private fun writePendingBuffers(): Boolean {
+        val count = pendingBuffers.size
+        pendingBuffers.forEachIndexed { index, buffer -> writeBuffers[index] = buffer }
+        channel.write(writeBuffers, 0, count)
+        while (!pendingBuffers.isEmpty() && !pendingBuffers.peekFirst().hasRemaining()) {
+            pendingBuffers.pollFirst()
+        }
+        writeBuffers.fill(null, 0, count)
+        return pendingBuffers.isEmpty()
+    }
+
+    private fun close(e: Exception?) {
+        if (incomingSize > 0) {
+            LOGGER.info("Connection from $clientHostName disconnected.${if (e != null) " [${e.message}]" else ""}")
+        }
+        disconnect()
+    }
+
+    override fun isConnected(): Boolean {
+        val now = LocalDateTime.now()
+        return now.minusMinutes(lifeTimeMinutes).isBefore(lastMessageAt)
+    }
+
+    override fun disconnect() {
+        if (!closed.compareAndSet(false, true)) {
+            return
+        }
+        try {
+            channel.close()
+        } catch (e: Exception) {
+            LOGGER.info("Unable to close connection to $clientHostName")
+        }
+        outboundQueue.clear()
+        socketServer.disconnect(this)
+    }
+
+    override fun toString(): String {
+        return "NIO client handler, (clientHostName: $clientHostName)"
+    }
+}
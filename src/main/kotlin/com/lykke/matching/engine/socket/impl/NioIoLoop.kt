@@ -0,0 +1,100 @@
+package com.lykke.matching.engine.socket.impl
+
+import com.lykke.utils.logging.MetricsLogger
+import com.lykke.utils.logging.ThrottlingLogger
+import java.nio.ByteBuffer
+import java.nio.channels.ClosedSelectorException
+import java.nio.channels.Selector
+import java.util.concurrent.ConcurrentLinkedQueue
+
+/**
+ * Serves reads and writes of the assigned client connections on one thread.
+ * Read buffer is allocated once and reused by all connections of the loop.
+ */
+class NioIoLoop(name: String, readBufferSize: Int) : Thread(name) {
+
+    companion object {
+        private val LOGGER = ThrottlingLogger.getLogger(NioIoLoop::class.java.name)
+        private val METRICS_LOGGER = MetricsLogger.getLogger()
+    }
+
+    private val selector = Selector.open()
+    private val readBuffer = ByteBuffer.allocateDirect(readBufferSize)
+    private val newConnections = ConcurrentLinkedQueue<NioClientHandler>()
+    private val scheduledWrites = ConcurrentLinkedQueue<NioClientHandler>()
+
+    init {
+        isDaemon = true
+    }
+
+    fun register(handler: NioClientHandler) {
+        newConnections.add(handler)
+        selector.wakeup()
+    }
+
+    fun scheduleWrite(handler: NioClientHandler) {
+        scheduledWrites.add(handler)
+        selector.wakeup()
+    }
+
+    override fun run() {
+        try {
+            while (!isInterrupted) {
+                selector.select()
+                registerNewConnections()
+                processScheduledWrites()
+                processSelectedKeys()
+            }
+        } catch (e: ClosedSelectorException) {
+            LOGGER.info("Selector of $name is closed")
+        } catch (e: Exception) {
+            LOGGER.error("Unexpected error in $name", e)
+            METRICS_LOGGER.logError("Unexpected error in $name", e)
+        } finally {
+            selector.keys().forEach { (it.attachment() as NioClientHandler).disconnect() }
+            selector.close()
+        }
+    }
+
+    private fun registerNewConnections() {
+        var handler = newConnections.poll()
+        while (handler != null) {
+            try {
+                handler.register(selector)
+            } catch (e: Exception) {
+                LOGGER.error("Unable to register connection from ${handler.clientHostName}", e)
+                handler.disconnect()
+            }
+            handler = newConnections.poll()
+        }
+    }
+
+    private fun processScheduledWrites() {
+        var handler = scheduledWrites.poll()
+        while (handler != null) {
+            handler.onWriteScheduled()
+            handler = scheduledWrites.poll()
+        }
+    }
+
+    private fun processSelectedKeys() {
+        val iterator = selector.selectedKeys().iterator()
+        while (iterator.hasNext()) {
+            val key = iterator.next()
+            iterator.remove()
+            val handler = key.attachment() as NioClientHandler
+            if (key.isValid && key.isReadable) {
+                readBuffer.clear()
+                handler.onReadable(readBuffer)
+            }
+            if (key.isValid && key.isWritable) {
+                handler.onWritable()
+            }
+        }
+    }
+
+    fun close() {
+        interrupt()
+        selector.wakeup()
+    }
+}
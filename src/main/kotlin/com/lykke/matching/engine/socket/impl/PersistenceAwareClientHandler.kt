@@ -0,0 +1,27 @@
+package com.lykke.matching.engine.socket.impl
+
+import com.lykke.matching.engine.database.common.PersistenceBarrier
+import com.lykke.matching.engine.socket.ClientHandler
+import com.lykke.utils.logging.ThrottlingLogger
+import java.io.IOException
+
+/**
+ * Writes responses to client only after data of the processed messages is persisted
+ */
+class PersistenceAwareClientHandler(private val clientHandler: ClientHandler,
+                                    private val persistenceBarrier: PersistenceBarrier) : ClientHandler by clientHandler {
+
+    companion object {
+        private val LOGGER = ThrottlingLogger.getLogger(PersistenceAwareClientHandler::class.java.name)
+    }
+
+    override fun writeOutput(byteArray: ByteArray) {
+        persistenceBarrier.executeAfterPersist {
+            try {
+                clientHandler.writeOutput(byteArray)
+            } catch (e: IOException) {
+                LOGGER.error("[${clientHandler.clientHostName}]: Unable to write response: ${e.message}", e)
+            }
+        }
+    }
+}
@@ -3,5 +3,6 @@ package com.lykke.matching.engine.utils.config
 data class IpEndpoint(
     val port: Int,
     val maxConnections: Int,
-    val lifeTimeMinutes: Long?
-)
\ No newline at end of file
+    val lifeTimeMinutes: Long?,
+    val nio: NioSocketConfig?
+)
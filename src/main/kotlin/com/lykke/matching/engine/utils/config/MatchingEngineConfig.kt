@@ -2,6 +2,7 @@ package com.lykke.matching.engine.utils.config
 
 import com.google.gson.annotations.SerializedName
 import com.lykke.matching.engine.database.Storage
+import com.lykke.matching.engine.services.utils.OrderBookType
 import com.lykke.utils.alivestatus.config.AliveStatusConfig
 import com.lykke.utils.files.clean.config.LogFilesCleanerConfig
 import com.lykke.utils.keepalive.http.KeepAliveConfig
@@ -13,6 +14,8 @@ data class MatchingEngineConfig(
         val socket: IpEndpoint,
         val serverOrderBookPort: Int?,
         val serverOrderBookMaxConnections: Int?,
+        val serverOrderBookLevelsPort: Int?,
+        val orderBookPublishMinInterval: Long?,
         val httpOrderBookPort: Int,
         val httpApiPort: Int,
         val rabbitMqConfigs: RabbitMqConfigs,
@@ -43,5 +46,11 @@ data class MatchingEngineConfig(
         val disableBlobHistory: Boolean?,
         val disableBestPriceHistory: Boolean?,
         val disableCandlesHistory: Boolean?,
-        val disableHourCandlesHistory: Boolean?
+        val disableHourCandlesHistory: Boolean?,
+        val orderBookType: OrderBookType?,
+        val orderBookJournal: OrderBookJournalConfig?,
+        val fixedPointArithmetic: Boolean?,
+        val stateSnapshot: StateSnapshotConfig?,
+        val secondaryDbFlushInterval: Long?,
+        val outgoingEventLog: OutgoingEventLogConfig?
 )
\ No newline at end of file
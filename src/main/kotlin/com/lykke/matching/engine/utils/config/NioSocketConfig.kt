@@ -0,0 +1,8 @@
+package com.lykke.matching.engine.utils.config
+
+data class NioSocketConfig(
+        val ioThreads: Int,
+        val readBufferSize: Int,
+        val outboundQueueSize: Int,
+        val maxMessageSize: Int
+)
@@ -0,0 +1,5 @@
+package com.lykke.matching.engine.utils.config
+
+data class OrderBookJournalConfig(val segmentSize: Long,
+                                  val compactionInterval: Long,
+                                  val syncOnWrite: Boolean)
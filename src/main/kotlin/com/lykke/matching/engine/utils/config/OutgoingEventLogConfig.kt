@@ -0,0 +1,6 @@
+package com.lykke.matching.engine.utils.config
+
+data class OutgoingEventLogConfig(val path: String,
+                                  val segmentSize: Int,
+                                  /** Time in milliseconds to wait for broker confirm of each event if batch publishing is not configured */
+                                  val confirmTimeout: Long)
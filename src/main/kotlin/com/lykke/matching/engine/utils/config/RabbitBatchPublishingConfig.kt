@@ -0,0 +1,12 @@
+package com.lykke.matching.engine.utils.config
+
+data class RabbitBatchPublishingConfig(
+        /** Max count of messages published before waiting for confirms */
+        val maxBatchSize: Int,
+        /** Max time in microseconds to wait for next messages of the batch */
+        val maxBatchDelay: Long,
+        /** Time in milliseconds to wait for broker confirms of the batch */
+        val confirmTimeout: Long,
+        /** Count of messages prepared for publishing, power of 2 */
+        val ringBufferSize: Int
+)
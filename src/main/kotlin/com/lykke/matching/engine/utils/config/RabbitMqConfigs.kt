@@ -26,5 +26,6 @@ data class RabbitMqConfigs(
         @SerializedName("HeartBeatTimeout")
         val heartBeatTimeout: Long,
         @SerializedName("HandshakeTimeout")
-        val handshakeTimeout: Long
+        val handshakeTimeout: Long,
+        val batchPublishing: RabbitBatchPublishingConfig?
 )
\ No newline at end of file
@@ -0,0 +1,4 @@
+package com.lykke.matching.engine.utils.config
+
+data class RedisCashOperationIdsIndexConfig(val expectedIdsCount: Long,
+                                            val falsePositiveProbability: Double)
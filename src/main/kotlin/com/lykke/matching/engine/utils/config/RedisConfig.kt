@@ -11,5 +11,8 @@ data class RedisConfig(
     val processedCashMessageDatabase: Int,
     val ordersDatabase: Int,
     val pingDatabase: Int,
-    val sequenceNumberDatabase: Int
-)
\ No newline at end of file
+    val sequenceNumberDatabase: Int,
+    val groupCommit: RedisGroupCommitConfig?,
+    val initialLoad: RedisInitialLoadConfig?,
+    val cashOperationIdsIndex: RedisCashOperationIdsIndexConfig?
+)
@@ -0,0 +1,5 @@
+package com.lykke.matching.engine.utils.config
+
+data class RedisGroupCommitConfig(val batchSize: Int,
+                                  val maxWait: Long,
+                                  val maxPendingBatches: Int)
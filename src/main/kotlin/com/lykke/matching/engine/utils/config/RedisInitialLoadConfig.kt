@@ -0,0 +1,5 @@
+package com.lykke.matching.engine.utils.config
+
+data class RedisInitialLoadConfig(val chunkSize: Int,
+                                  val pipelineChunks: Int,
+                                  val parallelism: Int)
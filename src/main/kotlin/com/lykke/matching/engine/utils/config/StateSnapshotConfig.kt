@@ -0,0 +1,4 @@
+package com.lykke.matching.engine.utils.config
+
+data class StateSnapshotConfig(val path: String,
+                               val interval: Long)
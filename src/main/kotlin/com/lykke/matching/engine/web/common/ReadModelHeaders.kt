@@ -0,0 +1,4 @@
+package com.lykke.matching.engine.web.common
+
+/** Sequence number of the last message reflected in the response */
+const val AS_OF_SEQUENCE_NUMBER_HEADER = "As-Of-Sequence-Number"
@@ -1,12 +1,14 @@
 package com.lykke.matching.engine.web.controllers
 
 import com.lykke.matching.engine.daos.wallet.AssetBalance
-import com.lykke.matching.engine.holders.BalancesHolder
+import com.lykke.matching.engine.readmodel.ReadModelHolder
+import com.lykke.matching.engine.web.common.AS_OF_SEQUENCE_NUMBER_HEADER
 import com.lykke.matching.engine.web.dto.BalanceDto
 import io.swagger.annotations.Api
 import io.swagger.annotations.ApiOperation
 import org.apache.commons.lang3.StringUtils
 import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.http.HttpHeaders
 import org.springframework.http.HttpStatus
 import org.springframework.http.MediaType
 import org.springframework.http.ResponseEntity
@@ -18,28 +20,31 @@ import org.springframework.web.bind.annotation.RestController
 @Api(description = "Read only api, returns balance information for supplied client")
 class BalancesController {
     @Autowired
-    private lateinit var balancesHolder: BalancesHolder
+    private lateinit var readModelHolder: ReadModelHolder
 
     @GetMapping("/balances", produces = [MediaType.APPLICATION_JSON_VALUE])
     @ApiOperation("Returns balance information for supplied client and assetId")
     fun getBalances(@RequestParam("clientId") clientId: String,
                     @RequestParam(name = "assetId", required = false, defaultValue = "") assetId: String): ResponseEntity<*> {
 
-        val balances = balancesHolder.getBalances(clientId)
+        val readModel = readModelHolder.readModel
+        val balances = readModel.balancesByClientId[clientId] ?: emptyMap()
+        val headers = HttpHeaders()
+        headers.set(AS_OF_SEQUENCE_NUMBER_HEADER, readModel.asOfSequenceNumber.toString())
 
         if (balances.isEmpty()) {
-            return ResponseEntity("Requested client has no balances", HttpStatus.NOT_FOUND)
+            return ResponseEntity("Requested client has no balances", headers, HttpStatus.NOT_FOUND)
         }
 
         if (StringUtils.isNoneBlank(assetId)) {
-            val clientBalance = balances[assetId] ?: return ResponseEntity("No balance found for client, for supplied asset", HttpStatus.NOT_FOUND)
-            return ResponseEntity.ok(listOf(toBalanceDto(assetId, clientBalance)))
+            val clientBalance = balances[assetId] ?: return ResponseEntity("No balance found for client, for supplied asset", headers, HttpStatus.NOT_FOUND)
+            return ResponseEntity(listOf(toBalanceDto(assetId, clientBalance)), headers, HttpStatus.OK)
         }
 
-        return ResponseEntity.ok(balances
+        return ResponseEntity(balances
                 .mapValues { entry -> toBalanceDto(entry.value.asset, entry.value) }
                 .values
-                .toList())
+                .toList(), headers, HttpStatus.OK)
     }
 
     private fun toBalanceDto(assetId: String, assetBalance: AssetBalance): BalanceDto? {
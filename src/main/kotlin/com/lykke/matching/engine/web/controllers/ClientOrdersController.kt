@@ -1,9 +1,9 @@
 package com.lykke.matching.engine.web.controllers
 
+import com.lykke.matching.engine.daos.LimitOrder
 import com.lykke.matching.engine.holders.AssetsPairsHolder
-import com.lykke.matching.engine.holders.BalancesHolder
-import com.lykke.matching.engine.services.GenericLimitOrderService
-import com.lykke.matching.engine.services.GenericStopLimitOrderService
+import com.lykke.matching.engine.readmodel.ReadModelHolder
+import com.lykke.matching.engine.web.common.AS_OF_SEQUENCE_NUMBER_HEADER
 import com.lykke.matching.engine.web.dto.ClientOrdersDto
 import io.swagger.annotations.Api
 import io.swagger.annotations.ApiOperation
@@ -21,17 +21,11 @@ import javax.servlet.http.HttpServletRequest
 class ClientOrdersController {
 
     @Autowired
-    private lateinit var genericLimitOrderService: GenericLimitOrderService
-
-    @Autowired
-    private lateinit var genericStopLimitOrderService: GenericStopLimitOrderService
+    private lateinit var readModelHolder: ReadModelHolder
 
     @Autowired
     private lateinit var assetPairsHolder: AssetsPairsHolder
 
-    @Autowired
-    private lateinit var balancesHolder: BalancesHolder
-
     @GetMapping("wallet/{walletId}/orders", produces = [MediaType.APPLICATION_JSON_VALUE])
     @ApiOperation("Endpoint to access orders from current order book for given wallet of the client")
     @ApiResponses(
@@ -44,7 +38,8 @@ class ClientOrdersController {
                   @RequestParam(required = false) assetPairId: String?,
                   @RequestParam(required = false) isBuy: Boolean?): ResponseEntity<ClientOrdersDto> {
 
-        if (!balancesHolder.clientExists(walletId)) {
+        val readModel = readModelHolder.readModel
+        if (!readModel.balancesByClientId.containsKey(walletId)) {
             throw WalletNotFoundException()
         }
 
@@ -52,10 +47,16 @@ class ClientOrdersController {
             throw IllegalArgumentException("Asset pair is not supported")
         }
 
-        val limitOrders = genericLimitOrderService.searchOrders(walletId, assetPairId, isBuy)
-        val stopOrders = genericStopLimitOrderService.searchOrders(walletId, assetPairId, isBuy)
+        val limitOrders = filterOrders(readModel.ordersByClientId[walletId], assetPairId, isBuy)
+        val stopOrders = filterOrders(readModel.stopOrdersByClientId[walletId], assetPairId, isBuy)
+
+        return ResponseEntity.ok()
+                .header(AS_OF_SEQUENCE_NUMBER_HEADER, readModel.asOfSequenceNumber.toString())
+                .body(ClientOrdersDto(limitOrders, stopOrders))
+    }
 
-        return ResponseEntity.ok(ClientOrdersDto(limitOrders, stopOrders))
+    private fun filterOrders(orders: List<LimitOrder>?, assetPairId: String?, isBuy: Boolean?): List<LimitOrder> {
+        return orders?.filter { (assetPairId == null || it.assetPairId == assetPairId) && (isBuy == null || it.isBuySide() == isBuy) } ?: emptyList()
     }
 
     @ExceptionHandler
@@ -2,8 +2,9 @@ package com.lykke.matching.engine.web.controllers
 
 import com.lykke.matching.engine.daos.LimitOrder
 import com.lykke.matching.engine.outgoing.messages.OrderBook
-import com.lykke.matching.engine.services.GenericLimitOrderService
-import com.lykke.matching.engine.services.GenericStopLimitOrderService
+import com.lykke.matching.engine.readmodel.ReadModelHolder
+import com.lykke.matching.engine.services.AssetOrderBook
+import com.lykke.matching.engine.web.common.AS_OF_SEQUENCE_NUMBER_HEADER
 import com.lykke.matching.engine.web.dto.StopOrder
 import com.lykke.matching.engine.web.dto.StopOrderBook
 import com.lykke.utils.logging.ThrottlingLogger
@@ -28,45 +29,46 @@ class OrderBooksController {
     }
 
     @Autowired
-    private lateinit var genericLimitOrderService: GenericLimitOrderService
-
-    @Autowired
-    private lateinit var genericStopLimitOrderService: GenericStopLimitOrderService
+    private lateinit var readModelHolder: ReadModelHolder
 
     @GetMapping("/orderBooks", produces = [MediaType.APPLICATION_JSON_VALUE])
     @ApiOperation("Endpoint to get all limit order books")
-    fun getOrderBooks(request: HttpServletRequest): LinkedList<OrderBook> {
+    fun getOrderBooks(request: HttpServletRequest): ResponseEntity<List<OrderBook>> {
+        val readModel = readModelHolder.readModel
         val books = LinkedList<OrderBook>()
-        val now = Date()
+        val timestamp = Date(readModel.timestamp)
 
-        genericLimitOrderService.getAllOrderBooks().values.forEach {
-            val orderBook = it.copy()
-            books.add(OrderBook(orderBook.assetPairId, true, now, orderBook.getOrderBook(true)))
-            books.add(OrderBook(orderBook.assetPairId, false, now, orderBook.getOrderBook(false)))
+        readModel.orderBooksByAssetPairId.forEach { (assetPairId, orderBook) ->
+            books.add(OrderBook(assetPairId, true, timestamp, AssetOrderBook.sort(true, orderBook.buyOrders.toTypedArray())))
+            books.add(OrderBook(assetPairId, false, timestamp, AssetOrderBook.sort(false, orderBook.sellOrders.toTypedArray())))
         }
 
         LOGGER.info("Order book snapshot sent to ${request.remoteAddr}")
 
-        return books
+        return ResponseEntity.ok()
+                .header(AS_OF_SEQUENCE_NUMBER_HEADER, readModel.asOfSequenceNumber.toString())
+                .body(books)
     }
 
     @GetMapping("/stopOrderBooks", produces = [MediaType.APPLICATION_JSON_VALUE])
     @ApiOperation("Endpoint to get all stop order books")
-    fun getStopOrderBooks(request: HttpServletRequest): List<StopOrderBook> {
+    fun getStopOrderBooks(request: HttpServletRequest): ResponseEntity<List<StopOrderBook>> {
+        val readModel = readModelHolder.readModel
         val books = LinkedList<StopOrderBook>()
-        val now = Date()
+        val timestamp = Date(readModel.timestamp)
 
-        genericStopLimitOrderService.getAllOrderBooks().values.forEach {
-            val orderBook = it.copy()
-            books.add(StopOrderBook(orderBook.assetPairId, true, true, now, toStopOrderDto(orderBook.getOrderBook(true, true))))
-            books.add(StopOrderBook(orderBook.assetPairId, true, false, now, toStopOrderDto(orderBook.getOrderBook(true, false))))
-            books.add(StopOrderBook(orderBook.assetPairId, false, true, now, toStopOrderDto(orderBook.getOrderBook(false, true))))
-            books.add(StopOrderBook(orderBook.assetPairId, false, false, now, toStopOrderDto(orderBook.getOrderBook(false, false))))
+        readModel.stopOrderBooksByAssetPairId.forEach { (assetPairId, orderBook) ->
+            books.add(StopOrderBook(assetPairId, true, true, timestamp, toStopOrderDto(orderBook.lowerBuyOrders)))
+            books.add(StopOrderBook(assetPairId, true, false, timestamp, toStopOrderDto(orderBook.upperBuyOrders)))
+            books.add(StopOrderBook(assetPairId, false, true, timestamp, toStopOrderDto(orderBook.lowerSellOrders)))
+            books.add(StopOrderBook(assetPairId, false, false, timestamp, toStopOrderDto(orderBook.upperSellOrders)))
         }
 
         LOGGER.info("Stop order book snapshot sent to ${request.remoteAddr}")
 
-        return books
+        return ResponseEntity.ok()
+                .header(AS_OF_SEQUENCE_NUMBER_HEADER, readModel.asOfSequenceNumber.toString())
+                .body(books)
     }
 
     private fun toStopOrderDto(limitOrders: Collection<LimitOrder>): List<StopOrder> {
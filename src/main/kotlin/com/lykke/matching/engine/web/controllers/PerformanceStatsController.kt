@@ -0,0 +1,45 @@
+package com.lykke.matching.engine.web.controllers
+
+import com.lykke.matching.engine.messages.MessageType
+import com.lykke.matching.engine.performance.PerformanceStatsHolder
+import com.lykke.matching.engine.web.dto.LatencyStatsDto
+import io.swagger.annotations.Api
+import io.swagger.annotations.ApiOperation
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.http.MediaType
+import org.springframework.web.bind.annotation.GetMapping
+import org.springframework.web.bind.annotation.RequestParam
+import org.springframework.web.bind.annotation.RestController
+
+@RestController
+@Api(description = "Read only api, returns latencies of message processing stages")
+class PerformanceStatsController {
+
+    @Autowired
+    private lateinit var performanceStatsHolder: PerformanceStatsHolder
+
+    @GetMapping("/latencies", produces = [MediaType.APPLICATION_JSON_VALUE])
+    @ApiOperation("Returns latency percentiles (in nanoseconds) of message processing stages since start, optionally for supplied message type")
+    fun getLatencies(@RequestParam(name = "messageType", required = false) messageType: String?): List<LatencyStatsDto> {
+        val result = ArrayList<LatencyStatsDto>()
+        performanceStatsHolder.getLatencies().forEach { (type, stages) ->
+            val typeName = MessageType.valueOf(type)?.name ?: type.toString()
+            if (messageType != null && messageType != typeName) {
+                return@forEach
+            }
+            stages.forEach { (stage, snapshot) ->
+                if (snapshot.count > 0) {
+                    result.add(LatencyStatsDto(typeName,
+                            stage.name,
+                            snapshot.count,
+                            snapshot.sum / snapshot.count,
+                            snapshot.getValueAtPercentile(50.0),
+                            snapshot.getValueAtPercentile(99.0),
+                            snapshot.getValueAtPercentile(99.9),
+                            snapshot.max))
+                }
+            }
+        }
+        return result
+    }
+}
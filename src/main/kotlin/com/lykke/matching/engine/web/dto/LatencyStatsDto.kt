@@ -0,0 +1,11 @@
+package com.lykke.matching.engine.web.dto
+
+/** Latencies in nanoseconds */
+class LatencyStatsDto(val messageType: String,
+                      val stage: String,
+                      val count: Long,
+                      val mean: Long,
+                      val p50: Long,
+                      val p99: Long,
+                      val p999: Long,
+                      val max: Long)
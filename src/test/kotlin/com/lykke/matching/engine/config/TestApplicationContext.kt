@@ -10,6 +10,8 @@ import com.lykke.matching.engine.database.*
 import com.lykke.matching.engine.database.cache.ApplicationSettingsCache
 import com.lykke.matching.engine.database.cache.AssetPairsCache
 import com.lykke.matching.engine.database.cache.AssetsCache
+import com.lykke.matching.engine.database.common.NoOpPersistenceBarrier
+import com.lykke.matching.engine.database.common.PersistenceBarrier
 import com.lykke.matching.engine.deduplication.ProcessedMessagesCache
 import com.lykke.matching.engine.fee.FeeProcessor
 import com.lykke.matching.engine.incoming.parsers.impl.SingleLimitOrderContextParser
@@ -54,6 +56,7 @@ import com.lykke.matching.engine.services.validators.MarketOrderValidator
 import com.lykke.matching.engine.services.validators.ReservedCashInOutOperationValidator
 import com.lykke.matching.engine.services.validators.business.*
 import com.lykke.matching.engine.services.validators.business.impl.*
+import com.lykke.matching.engine.services.utils.OrderBookType
 import com.lykke.matching.engine.services.validators.impl.MarketOrderValidatorImpl
 import com.lykke.matching.engine.services.validators.impl.ReservedCashInOutOperationValidatorImpl
 import com.lykke.matching.engine.services.validators.input.LimitOrderInputValidator
@@ -74,6 +77,7 @@ import com.lykke.matching.engine.utils.order.AllOrdersCanceller
 import com.lykke.matching.engine.utils.order.MinVolumeOrderCanceller
 import com.lykke.utils.logging.ThrottlingLogger
 import org.mockito.Mockito
+import org.springframework.beans.factory.annotation.Value
 import org.springframework.context.ApplicationEventPublisher
 import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.Configuration
@@ -235,10 +239,17 @@ open class TestApplicationContext {
 
     @Bean
     open fun persistenceManager(ordersDatabaseAccessorsHolder: OrdersDatabaseAccessorsHolder,
-                                stopOrdersDatabaseAccessorsHolder: StopOrdersDatabaseAccessorsHolder): PersistenceManager {
+                                stopOrdersDatabaseAccessorsHolder: StopOrdersDatabaseAccessorsHolder,
+                                messageSequenceNumberHolder: MessageSequenceNumberHolder): PersistenceManager {
         return TestPersistenceManager(balancesDatabaseAccessorsHolder().primaryAccessor,
                 ordersDatabaseAccessorsHolder,
-                stopOrdersDatabaseAccessorsHolder)
+                stopOrdersDatabaseAccessorsHolder,
+                messageSequenceNumberHolder)
+    }
+
+    @Bean
+    open fun persistenceBarrier(): PersistenceBarrier {
+        return NoOpPersistenceBarrier()
     }
 
     @Bean
@@ -342,10 +353,12 @@ open class TestApplicationContext {
     @Bean
     open fun genericLimitOrderService(testOrderDatabaseAccessor: OrdersDatabaseAccessorsHolder,
                                       tradeInfoQueue: Optional<BlockingQueue<TradeInfo>>,
-                                      expiryOrdersQueue: ExpiryOrdersQueue): GenericLimitOrderService {
+                                      expiryOrdersQueue: ExpiryOrdersQueue,
+                                      @Value("\${matching.order.book.type:PRIORITY_QUEUE}") orderBookType: OrderBookType): GenericLimitOrderService {
         return GenericLimitOrderService(testOrderDatabaseAccessor,
                 tradeInfoQueue,
-                expiryOrdersQueue)
+                expiryOrdersQueue,
+                orderBookType)
     }
 
     @Bean
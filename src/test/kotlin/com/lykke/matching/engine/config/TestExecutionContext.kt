@@ -4,6 +4,7 @@ import com.lykke.matching.engine.daos.ExecutionData
 import com.lykke.matching.engine.daos.LkkTrade
 import com.lykke.matching.engine.daos.OutgoingEventData
 import com.lykke.matching.engine.database.PersistenceManager
+import com.lykke.matching.engine.database.common.PersistenceBarrier
 import com.lykke.matching.engine.fee.FeeProcessor
 import com.lykke.matching.engine.holders.ApplicationSettingsHolder
 import com.lykke.matching.engine.holders.AssetsHolder
@@ -57,6 +58,7 @@ import com.lykke.matching.engine.utils.SyncQueue
 import org.mockito.Mock
 import org.springframework.beans.factory.annotation.Qualifier
 import org.springframework.context.annotation.Bean
+import org.springframework.beans.factory.annotation.Value
 import org.springframework.context.annotation.Configuration
 import org.springframework.core.task.TaskExecutor
 import java.util.concurrent.BlockingQueue
@@ -70,10 +72,12 @@ open class TestExecutionContext {
     @Bean
     open fun matchingEngine(genericLimitOrderService: GenericLimitOrderService,
                             feeProcessor: FeeProcessor,
-                            uuidHolder: UUIDHolder): MatchingEngine {
+                            uuidHolder: UUIDHolder,
+                            @Value("\${matching.fixed.point.arithmetic:false}") fixedPointArithmetic: Boolean): MatchingEngine {
         return MatchingEngine(genericLimitOrderService,
                 feeProcessor,
-                uuidHolder)
+                uuidHolder,
+                fixedPointArithmetic)
     }
 
     @Bean
@@ -101,8 +105,9 @@ open class TestExecutionContext {
     @Bean
     open fun outgoingEventProcessor(specializedEventSendersHolder: SpecializedEventSendersHolder,
                                     @Qualifier("rabbitPublishersThreadPool")
-                                    rabbitPublishersThreadPool: TaskExecutor): OutgoingEventProcessor {
-        return OutgoingEventProcessorImpl(outgoingEvents, specializedEventSendersHolder, rabbitPublishersThreadPool)
+                                    rabbitPublishersThreadPool: TaskExecutor,
+                                    persistenceBarrier: PersistenceBarrier): OutgoingEventProcessor {
+        return OutgoingEventProcessorImpl(outgoingEvents, specializedEventSendersHolder, rabbitPublishersThreadPool, persistenceBarrier)
     }
 
     @Bean
@@ -169,12 +174,14 @@ open class TestExecutionContext {
                                  limitOrderBusinessValidator: LimitOrderBusinessValidator,
                                  applicationSettingsHolder: ApplicationSettingsHolder,
                                  matchingEngine: MatchingEngine,
-                                 matchingResultHandlingHelper: MatchingResultHandlingHelper): LimitOrderProcessor {
+                                 matchingResultHandlingHelper: MatchingResultHandlingHelper,
+                                 feeProcessor: FeeProcessor): LimitOrderProcessor {
         return LimitOrderProcessor(limitOrderInputValidator,
                 limitOrderBusinessValidator,
                 applicationSettingsHolder,
                 matchingEngine,
-                matchingResultHandlingHelper)
+                matchingResultHandlingHelper,
+                feeProcessor)
     }
 
     @Bean
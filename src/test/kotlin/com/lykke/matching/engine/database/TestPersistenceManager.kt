@@ -1,12 +1,14 @@
 package com.lykke.matching.engine.database
 
 import com.lykke.matching.engine.database.common.entity.PersistenceData
+import com.lykke.matching.engine.holders.MessageSequenceNumberHolder
 import com.lykke.matching.engine.holders.OrdersDatabaseAccessorsHolder
 import com.lykke.matching.engine.holders.StopOrdersDatabaseAccessorsHolder
 
 class TestPersistenceManager(private val walletDatabaseAccessor: WalletDatabaseAccessor,
                              private val orderBookDatabaseAccessorHolder: OrdersDatabaseAccessorsHolder,
-                             private val stopOrdersDatabaseAccessorsHolder: StopOrdersDatabaseAccessorsHolder) : PersistenceManager {
+                             private val stopOrdersDatabaseAccessorsHolder: StopOrdersDatabaseAccessorsHolder,
+                             private val messageSequenceNumberHolder: MessageSequenceNumberHolder? = null) : PersistenceManager {
 
     var persistenceErrorMode = false
 
@@ -33,6 +35,7 @@ class TestPersistenceManager(private val walletDatabaseAccessor: WalletDatabaseA
                 stopOrdersDatabaseAccessorsHolder.secondaryAccessor!!.updateStopOrderBook(it.assetPairId, it.isBuy, it.orders)
             }
         }
+        data.messageSequenceNumber?.let { messageSequenceNumberHolder?.setPersistedValue(it) }
         return true
     }
 }
\ No newline at end of file
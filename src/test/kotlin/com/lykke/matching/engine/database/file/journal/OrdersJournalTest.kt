@@ -0,0 +1,89 @@
+package com.lykke.matching.engine.database.file.journal
+
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.utils.MessageBuilder.Companion.buildLimitOrder
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.RandomAccessFile
+import java.nio.file.Files
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class OrdersJournalTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    @Test
+    fun testLoadAppendedUpdates() {
+        val journal = createJournal()
+        val order1 = buildLimitOrder(uid = "1")
+        val order2 = buildLimitOrder(uid = "2", volume = -10.0)
+        val order3 = buildLimitOrder(uid = "3")
+
+        journal.init(listOf(order1))
+        journal.appendUpdate(listOf(order2, order3), emptyList())
+        journal.appendUpdate(emptyList(), listOf(order1))
+
+        assertOrders(setOf("2", "3"), createJournal().load())
+    }
+
+    @Test
+    fun testOrderBookSideReplacesSideOrders() {
+        val journal = createJournal()
+        journal.appendUpdate(listOf(buildLimitOrder(uid = "1"),
+                buildLimitOrder(uid = "2", volume = -10.0),
+                buildLimitOrder(uid = "3", assetId = "BTCUSD")), emptyList())
+        journal.appendOrderBookSide("EURUSD", true, listOf(buildLimitOrder(uid = "4")))
+
+        assertOrders(setOf("2", "3", "4"), createJournal().load())
+    }
+
+    @Test
+    fun testCompaction() {
+        val journal = createJournal(segmentSize = 1)
+        (1..10).forEach { journal.appendUpdate(listOf(buildLimitOrder(uid = it.toString())), emptyList()) }
+        journal.compact()
+        (11..15).forEach { journal.appendUpdate(listOf(buildLimitOrder(uid = it.toString())), emptyList()) }
+        journal.appendUpdate(emptyList(), listOf(buildLimitOrder(uid = "1")))
+        journal.compact()
+
+        val files = Files.list(folder.root.toPath()).use { it.count() }
+        assertTrue(files < 10)
+        assertOrders((2..15).map { it.toString() }.toSet(), createJournal().load())
+    }
+
+    @Test
+    fun testBrokenTailIsIgnored() {
+        val journal = createJournal()
+        journal.appendUpdate(listOf(buildLimitOrder(uid = "1")), emptyList())
+        journal.appendUpdate(listOf(buildLimitOrder(uid = "2")), emptyList())
+
+        val segment = Files.list(folder.root.toPath()).use { it.filter { it.fileName.toString().startsWith("segment_") }.findFirst().get() }
+        RandomAccessFile(segment.toFile(), "rw").use { it.setLength(it.length() - 1) }
+
+        val reopenedJournal = createJournal()
+        assertOrders(setOf("1"), reopenedJournal.load())
+
+        reopenedJournal.appendUpdate(listOf(buildLimitOrder(uid = "3")), emptyList())
+        assertOrders(setOf("1", "3"), createJournal().load())
+    }
+
+    @Test
+    fun testReopenedJournalContinuesSequence() {
+        createJournal().appendUpdate(listOf(buildLimitOrder(uid = "1")), emptyList())
+        val journal = createJournal()
+        journal.appendUpdate(emptyList(), listOf(buildLimitOrder(uid = "1")))
+        journal.appendUpdate(listOf(buildLimitOrder(uid = "2")), emptyList())
+        journal.compact()
+
+        assertOrders(setOf("2"), createJournal().load())
+    }
+
+    private fun createJournal(segmentSize: Long = 1024 * 1024) = OrdersJournal(folder.root.absolutePath, segmentSize, false)
+
+    private fun assertOrders(expectedIds: Set<String>, orders: List<LimitOrder>) {
+        assertEquals(expectedIds, orders.map { it.id }.toSet())
+    }
+}
@@ -0,0 +1,61 @@
+package com.lykke.matching.engine.database.listeners
+
+import com.lykke.matching.engine.daos.wallet.AssetBalance
+import com.lykke.matching.engine.daos.wallet.Wallet
+import com.lykke.matching.engine.database.WalletDatabaseAccessor
+import com.lykke.matching.engine.database.reconciliation.events.AccountPersistEvent
+import org.junit.Test
+import java.math.BigDecimal
+import java.util.HashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class WalletOperationsPersistListenerTest {
+
+    private val writtenBatches = CopyOnWriteArrayList<List<Wallet>>()
+
+    @Test
+    fun testEventsAreMergedByClient() {
+        val queue = LinkedBlockingQueue<AccountPersistEvent>()
+        queue.put(AccountPersistEvent(listOf(wallet("Client1", "1"), wallet("Client2", "2"))))
+        queue.put(AccountPersistEvent(listOf(wallet("Client1", "3"))))
+        queue.put(AccountPersistEvent(listOf(wallet("Client1", "4"))))
+
+        val writeLatch = CountDownLatch(1)
+        WalletOperationsPersistListener(queue, TestAccessor(writeLatch), 60000).init()
+
+        assertTrue(writeLatch.await(5, TimeUnit.SECONDS))
+        assertEquals(1, writtenBatches.size)
+        val balances = writtenBatches.first().associateBy({ it.clientId }, { it.balances["USD"]!!.balance })
+        assertEquals(mapOf("Client1" to BigDecimal("4"), "Client2" to BigDecimal("2")), balances)
+    }
+
+    @Test
+    fun testLag() {
+        val queue = LinkedBlockingQueue<AccountPersistEvent>()
+        val listener = WalletOperationsPersistListener(queue, TestAccessor(CountDownLatch(1)), 60000)
+        queue.put(AccountPersistEvent(listOf(wallet("Client1", "1")), System.currentTimeMillis() - 1000))
+        queue.put(AccountPersistEvent(listOf(wallet("Client1", "2"))))
+
+        val lag = listener.getLag()
+        assertEquals(2, lag.pendingEventsCount)
+        assertTrue(lag.oldestPendingEventAge >= 1000)
+    }
+
+    private fun wallet(clientId: String, balance: String): Wallet {
+        return Wallet(clientId, listOf(AssetBalance(clientId, "USD", BigDecimal(balance))))
+    }
+
+    private inner class TestAccessor(private val writeLatch: CountDownLatch) : WalletDatabaseAccessor {
+        override fun loadWallets() = HashMap<String, Wallet>()
+
+        override fun insertOrUpdateWallets(wallets: List<Wallet>) {
+            writtenBatches.add(wallets)
+            writeLatch.countDown()
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.lykke.matching.engine.database.redis
+
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.daos.wallet.AssetBalance
+import com.lykke.matching.engine.daos.wallet.Wallet
+import com.lykke.matching.engine.database.redis.accessor.impl.RedisOrderBookDatabaseAccessor
+import com.lykke.matching.engine.database.redis.accessor.impl.RedisStopOrderBookDatabaseAccessor
+import com.lykke.matching.engine.database.redis.accessor.impl.RedisWalletDatabaseAccessor
+import com.lykke.matching.engine.database.redis.connection.RedisConnection
+import com.lykke.matching.engine.utils.MessageBuilder.Companion.buildLimitOrder
+import com.lykke.matching.engine.utils.config.RedisInitialLoadConfig
+import com.nhaarman.mockito_kotlin.any
+import com.nhaarman.mockito_kotlin.doAnswer
+import org.junit.Before
+import org.junit.Test
+import org.mockito.Mockito
+import org.nustaq.serialization.FSTConfiguration
+import redis.clients.jedis.Jedis
+import redis.clients.jedis.Pipeline
+import redis.clients.jedis.Response
+import redis.clients.jedis.ScanParams
+import redis.clients.jedis.ScanResult
+import redis.clients.jedis.Transaction
+import java.math.BigDecimal
+import java.util.TreeMap
+import kotlin.test.assertEquals
+
+class RedisChunkedLoaderTest {
+
+    companion object {
+        /** Keys returned by one SCAN call, differs from chunk size to not align pages with chunks */
+        private const val SCAN_PAGE_SIZE = 7
+    }
+
+    /** Values stored in redis by key, keys are sorted to make SCAN order stable */
+    private val storage = TreeMap<String, ByteArray>()
+    private val conf = FSTConfiguration.createDefaultConfiguration()
+    private val initialLoadConfig = RedisInitialLoadConfig(10, 3, 2)
+    private lateinit var redisConnection: RedisConnection
+    private lateinit var transaction: Transaction
+
+    @Before
+    fun setUp() {
+        val jedis = Mockito.mock(Jedis::class.java)
+        doAnswer { invocation -> scan(invocation.arguments[0] as String, invocation.arguments[1] as ScanParams) }
+                .`when`(jedis).scan(Mockito.anyString(), any<ScanParams>())
+        doAnswer { createPipeline() }.`when`(jedis).pipelined()
+
+        transaction = Mockito.mock(Transaction::class.java)
+        doAnswer { invocation ->
+            storage[String(invocation.arguments[0] as ByteArray)] = invocation.arguments[1] as ByteArray
+            null
+        }.`when`(transaction).set(any<ByteArray>(), any<ByteArray>())
+
+        redisConnection = object : RedisConnection {
+            override fun resource(unitOfWork: (Jedis) -> Unit) = unitOfWork(jedis)
+            override fun transactionalResource(unitOfWork: (transaction: Transaction) -> Unit) = unitOfWork(transaction)
+            override fun reconnect() {}
+        }
+    }
+
+    @Test
+    fun testLoadOrders() {
+        val accessor = RedisOrderBookDatabaseAccessor(redisConnection, 0, initialLoadConfig)
+        val orders = (1..95).map { buildLimitOrder(uid = "order$it", assetId = if (it % 2 == 0) "EURUSD" else "BTCUSD", clientId = "Client${it % 5}", price = 1.0 + it / 100.0, volume = if (it % 3 == 0) -1.0 else 1.0) }
+        accessor.updateOrders(transaction, orders, emptyList())
+        saveStopOrders(5)
+
+        val expectedOrders = loadPerKey<LimitOrder>("LimitOrder:")
+        assertEquals(95, expectedOrders.size)
+        assertEquals(describeOrders(expectedOrders), describeOrders(accessor.loadLimitOrders()))
+
+        val consumedOrders = ArrayList<LimitOrder>()
+        accessor.loadLimitOrders { consumedOrders.add(it) }
+        assertEquals(describeOrders(expectedOrders), describeOrders(consumedOrders))
+    }
+
+    @Test
+    fun testLoadStopOrders() {
+        val accessor = RedisStopOrderBookDatabaseAccessor(redisConnection, 0, initialLoadConfig)
+        saveStopOrders(43)
+        RedisOrderBookDatabaseAccessor(redisConnection, 0, initialLoadConfig)
+                .updateOrders(transaction, listOf(buildLimitOrder(uid = "order1")), emptyList())
+
+        val expectedOrders = loadPerKey<LimitOrder>("StopLimitOrder:")
+        assertEquals(43, expectedOrders.size)
+        assertEquals(describeOrders(expectedOrders), describeOrders(accessor.loadStopLimitOrders()))
+
+        val consumedOrders = ArrayList<LimitOrder>()
+        accessor.loadStopLimitOrders { consumedOrders.add(it) }
+        assertEquals(describeOrders(expectedOrders), describeOrders(consumedOrders))
+    }
+
+    @Test
+    fun testLoadWallets() {
+        val accessor = RedisWalletDatabaseAccessor(redisConnection, 0, initialLoadConfig)
+        val balances = (1..30).flatMap { clientIndex ->
+            listOf("USD", "EUR", "BTC").map { AssetBalance("Client$clientIndex", it, BigDecimal.valueOf(clientIndex * 10L), BigDecimal.valueOf(clientIndex.toLong())) }
+        }
+        accessor.insertOrUpdateBalances(transaction, balances)
+
+        val expectedBalances = loadPerKey<AssetBalance>("Balances:")
+        assertEquals(90, expectedBalances.size)
+        val expectedWallets = HashMap<String, Wallet>()
+        expectedBalances.forEach { expectedWallets.getOrPut(it.clientId) { Wallet(it.clientId) }.balances[it.asset] = it }
+
+        assertEquals(describeWallets(expectedWallets), describeWallets(accessor.loadWallets()))
+    }
+
+    private fun saveStopOrders(count: Int) {
+        val stopOrders = (1..count).map { buildLimitOrder(uid = "stopOrder$it", clientId = "Client${it % 4}", price = 1.0 + it / 100.0) }
+        RedisStopOrderBookDatabaseAccessor(redisConnection, 0, initialLoadConfig).updateOrders(transaction, stopOrders, emptyList())
+    }
+
+    /** Loads values of keys one by one as it was done before chunked loading */
+    private fun <T> loadPerKey(keyPrefix: String): List<T> {
+        @Suppress("UNCHECKED_CAST")
+        return storage.filterKeys { it.startsWith(keyPrefix) }.values.map { conf.asObject(it) as T }
+    }
+
+    private fun describeOrders(orders: Collection<LimitOrder>): List<String> {
+        return orders.map { "${it.id} ${it.externalId} ${it.assetPairId} ${it.clientId} ${it.price} ${it.volume} ${it.remainingVolume} ${it.status}" }.sorted()
+    }
+
+    private fun describeWallets(wallets: Map<String, Wallet>): Map<String, Map<String, String>> {
+        return wallets.mapValues { (_, wallet) -> wallet.balances.mapValues { (_, balance) -> "${balance.clientId} ${balance.balance} ${balance.reserved}" } }
+    }
+
+    /** Returns keys of the next page, the last key of the previous page is returned again as SCAN can return the same key several times */
+    private fun scan(cursor: String, params: ScanParams): ScanResult<String> {
+        val keyPattern = getMatchPattern(params)
+        val keys = storage.keys.toList()
+        val start = cursor.toInt()
+        val end = Math.min(start + SCAN_PAGE_SIZE, keys.size)
+        val pageKeys = keys.subList(Math.max(start - 1, 0), end).filter { it.startsWith(keyPattern.removeSuffix("*")) }
+        return ScanResult(if (end == keys.size) ScanParams.SCAN_POINTER_START else end.toString(), pageKeys)
+    }
+
+    private fun getMatchPattern(params: ScanParams): String {
+        val rawParams = params.params.map { String(it) }
+        return rawParams[rawParams.indexOfFirst { it.equals("MATCH", true) } + 1]
+    }
+
+    private fun createPipeline(): Pipeline {
+        val pipeline = Mockito.mock(Pipeline::class.java)
+        doAnswer { invocation ->
+            val values = invocation.arguments.map { storage[String(it as ByteArray)] }
+            val response = Mockito.mock(Response::class.java)
+            Mockito.`when`(response.get()).thenReturn(values)
+            response
+        }.`when`(pipeline).mget(Mockito.any<ByteArray>())
+        return pipeline
+    }
+}
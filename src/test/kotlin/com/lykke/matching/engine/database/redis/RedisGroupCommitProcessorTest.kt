@@ -0,0 +1,118 @@
+package com.lykke.matching.engine.database.redis
+
+import com.lykke.matching.engine.database.common.entity.PersistenceData
+import com.lykke.matching.engine.performance.PerformanceStatsHolder
+import com.lykke.matching.engine.utils.config.RedisGroupCommitConfig
+import org.junit.After
+import org.junit.Test
+import org.mockito.Mockito
+import org.springframework.context.ApplicationEventPublisher
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.TimeUnit
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class RedisGroupCommitProcessorTest {
+
+    private val committedBatches = CopyOnWriteArrayList<List<Long?>>()
+    private val performanceStatsHolder = PerformanceStatsHolder()
+    private var processor: RedisGroupCommitProcessor? = null
+
+    @After
+    fun tearDown() {
+        processor?.interrupt()
+    }
+
+    @Test
+    fun testBatchIsCommittedWhenBatchSizeIsReached() {
+        val commitLatch = CountDownLatch(1)
+        val processor = createProcessor(RedisGroupCommitConfig(3, 60000, 10), afterCommit = {
+            commitLatch.countDown()
+        })
+
+        (1L..3L).forEach { processor.submit(PersistenceData(null, it)) }
+
+        assertTrue(commitLatch.await(5, TimeUnit.SECONDS))
+        assertEquals(listOf(listOf<Long?>(1, 2, 3)), committedBatches)
+    }
+
+    @Test
+    fun testBatchIsCommittedAfterMaxWait() {
+        val commitLatch = CountDownLatch(1)
+        val processor = createProcessor(RedisGroupCommitConfig(100, 10, 10), afterCommit = {
+            commitLatch.countDown()
+        })
+
+        processor.submit(PersistenceData(null, 1))
+        processor.submit(PersistenceData(null, 2))
+
+        assertTrue(commitLatch.await(5, TimeUnit.SECONDS))
+        assertEquals(listOf(listOf<Long?>(1, 2)), committedBatches)
+    }
+
+    @Test
+    fun testActionsAreExecutedInOrderAfterCommit() {
+        val commitAllowed = CountDownLatch(1)
+        val actionsLatch = CountDownLatch(3)
+        val executedActions = Collections.synchronizedList(ArrayList<String>())
+        val processor = createProcessor(RedisGroupCommitConfig(1, 60000, 10), beforeCommit = {
+            commitAllowed.await()
+        })
+
+        processor.executeAfterCommit { executedActions.add("before data") }
+        processor.submit(PersistenceData(null, 1))
+        processor.executeAfterCommit {
+            executedActions.add("first")
+            actionsLatch.countDown()
+        }
+        processor.submit(PersistenceData(null, 2))
+        processor.executeAfterCommit {
+            executedActions.add("second")
+            actionsLatch.countDown()
+        }
+
+        assertEquals(listOf("before data"), executedActions)
+
+        commitAllowed.countDown()
+        processor.executeAfterCommit { actionsLatch.countDown() }
+        assertTrue(actionsLatch.await(5, TimeUnit.SECONDS))
+        assertEquals(listOf("before data", "first", "second"), executedActions)
+    }
+
+    @Test
+    fun testFailedBatchIsRetried() {
+        val commitLatch = CountDownLatch(1)
+        var attempts = 0
+        val processor = createProcessor(RedisGroupCommitConfig(1, 60000, 10), beforeCommit = {
+            if (attempts++ == 0) {
+                throw Exception("Test redis failure")
+            }
+        }, afterCommit = {
+            commitLatch.countDown()
+        })
+
+        processor.submit(PersistenceData(null, 1))
+
+        assertTrue(commitLatch.await(5, TimeUnit.SECONDS))
+        assertEquals(2, attempts)
+        assertEquals(listOf(listOf<Long?>(1)), committedBatches)
+    }
+
+    private fun createProcessor(config: RedisGroupCommitConfig,
+                                beforeCommit: () -> Unit = {},
+                                afterCommit: () -> Unit = {}): RedisGroupCommitProcessor {
+        val processor = RedisGroupCommitProcessor(config,
+                { batch ->
+                    beforeCommit()
+                    committedBatches.add(batch.map { it.messageSequenceNumber })
+                    afterCommit()
+                },
+                performanceStatsHolder,
+                Mockito.mock(ApplicationEventPublisher::class.java))
+        processor.start()
+        this.processor = processor
+        return processor
+    }
+}
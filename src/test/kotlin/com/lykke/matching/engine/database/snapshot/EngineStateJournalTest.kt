@@ -0,0 +1,134 @@
+package com.lykke.matching.engine.database.snapshot
+
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.daos.wallet.AssetBalance
+import com.lykke.matching.engine.daos.wallet.Wallet
+import com.lykke.matching.engine.database.ReadOnlyMessageSequenceNumberDatabaseAccessor
+import com.lykke.matching.engine.database.Storage
+import com.lykke.matching.engine.database.common.entity.BalancesData
+import com.lykke.matching.engine.database.common.entity.OrderBooksPersistenceData
+import com.lykke.matching.engine.database.common.entity.PersistenceData
+import com.lykke.matching.engine.utils.MessageBuilder.Companion.buildLimitOrder
+import com.lykke.matching.engine.utils.config.StateSnapshotConfig
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.math.BigDecimal
+import kotlin.test.assertEquals
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+
+class EngineStateJournalTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val order1 = buildLimitOrder(uid = "order1", clientId = "Client1")
+    private val order2 = buildLimitOrder(uid = "order2", clientId = "Client2")
+    private val stopOrder = buildLimitOrder(uid = "stopOrder1", clientId = "Client1")
+
+    @Test
+    fun testSnapshotIsCaughtUp() {
+        val journal = createJournal(0)
+        journal.append(data(1, balances = listOf(balance("Client1", 100))))
+        journal.append(data(2, ordersToSave = listOf(order1, order2), stopOrdersToSave = listOf(stopOrder)))
+        journal.append(data(3, balances = listOf(balance("Client1", 50), balance("Client2", 10)), ordersToRemove = listOf(order1)))
+
+        val state = journal.catchUp(snapshot(1, listOf(balance("Client1", 100))), 3)
+
+        assertNotNull(state)
+        assertEquals(3L, state!!.sequenceNumber)
+        assertEquals(mapOf("Client1" to BigDecimal.valueOf(50), "Client2" to BigDecimal.valueOf(10)), getBalances(state))
+        assertEquals(listOf("order2"), state.orders.map { it.id })
+        assertEquals(listOf("stopOrder1"), state.stopOrders.map { it.id })
+    }
+
+    @Test
+    fun testSnapshotIsNotCaughtUpIfJournalMissesChanges() {
+        val journal = createJournal(0)
+        journal.append(data(1, balances = listOf(balance("Client1", 100))))
+        journal.append(data(2, balances = listOf(balance("Client1", 200))))
+
+        assertNull(journal.catchUp(snapshot(1, listOf(balance("Client1", 100))), 3))
+    }
+
+    @Test
+    fun testJournalIsContinuedAfterRestart() {
+        createJournal(0).append(data(1, balances = listOf(balance("Client1", 100))))
+        createJournal(1).append(data(2, balances = listOf(balance("Client1", 200))))
+
+        val state = createJournal(2).catchUp(snapshot(0, emptyList()), 2)
+
+        assertNotNull(state)
+        assertEquals(mapOf("Client1" to BigDecimal.valueOf(200)), getBalances(state!!))
+    }
+
+    @Test
+    fun testJournalIsRestartedIfItIsBehindDatabase() {
+        createJournal(0).append(data(1, balances = listOf(balance("Client1", 100))))
+        val journal = createJournal(5)
+        journal.append(data(6, balances = listOf(balance("Client1", 600))))
+
+        assertNull(journal.catchUp(snapshot(1, listOf(balance("Client1", 100))), 6))
+        assertNotNull(journal.catchUp(snapshot(5, listOf(balance("Client1", 500))), 6))
+    }
+
+    @Test
+    fun testJournalIsRestartedAfterChangesWithoutSequenceNumber() {
+        val journal = createJournal(0)
+        journal.append(data(1, balances = listOf(balance("Client1", 100))))
+        journal.append(data(null, balances = listOf(balance("Client2", 100))))
+        journal.append(data(2, balances = listOf(balance("Client1", 200))))
+        journal.append(data(3, balances = listOf(balance("Client1", 300))))
+
+        assertNull(journal.catchUp(snapshot(1, listOf(balance("Client1", 100))), 3))
+        val state = journal.catchUp(snapshot(2, listOf(balance("Client1", 200), balance("Client2", 100))), 3)
+        assertNotNull(state)
+        assertEquals(mapOf("Client1" to BigDecimal.valueOf(300), "Client2" to BigDecimal.valueOf(100)), getBalances(state!!))
+    }
+
+    @Test
+    fun testSegmentsAreDeletedAfterSnapshot() {
+        createJournal(0).append(data(1, balances = listOf(balance("Client1", 100))))
+        val journal = createJournal(1)
+        journal.append(data(2, balances = listOf(balance("Client1", 200))))
+        journal.append(data(3, balances = listOf(balance("Client1", 300))))
+
+        journal.onSnapshotWritten(2)
+
+        assertNull(journal.catchUp(snapshot(0, emptyList()), 3))
+        val state = journal.catchUp(snapshot(2, listOf(balance("Client1", 200))), 3)
+        assertNotNull(state)
+        assertEquals(mapOf("Client1" to BigDecimal.valueOf(300)), getBalances(state!!))
+    }
+
+    private fun createJournal(databaseSequenceNumber: Long): EngineStateJournal {
+        return EngineStateJournal(StateSnapshotConfig(folder.root.resolve("snapshot").absolutePath, 0),
+                Storage.Redis,
+                object : ReadOnlyMessageSequenceNumberDatabaseAccessor {
+                    override fun getSequenceNumber() = databaseSequenceNumber
+                })
+    }
+
+    private fun data(sequenceNumber: Long?,
+                     balances: List<AssetBalance> = emptyList(),
+                     ordersToSave: List<LimitOrder> = emptyList(),
+                     ordersToRemove: List<LimitOrder> = emptyList(),
+                     stopOrdersToSave: List<LimitOrder> = emptyList()): PersistenceData {
+        return PersistenceData(BalancesData(emptyList(), balances),
+                null,
+                OrderBooksPersistenceData(emptyList(), ordersToSave, ordersToRemove),
+                OrderBooksPersistenceData(emptyList(), stopOrdersToSave, emptyList()),
+                sequenceNumber)
+    }
+
+    private fun balance(clientId: String, balance: Long) = AssetBalance(clientId, "USD", BigDecimal.valueOf(balance), BigDecimal.ZERO)
+
+    private fun snapshot(sequenceNumber: Long, balances: List<AssetBalance>): EngineStateSnapshot {
+        return EngineStateSnapshot(sequenceNumber, 0, balances.map { Wallet(it.clientId, listOf(it)) }, emptyList(), emptyList())
+    }
+
+    private fun getBalances(state: EngineStateSnapshot): Map<String, BigDecimal> {
+        return state.wallets.associateBy({ it.clientId }, { it.balances["USD"]!!.balance })
+    }
+}
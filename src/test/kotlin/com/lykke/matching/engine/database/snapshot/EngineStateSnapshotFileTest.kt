@@ -0,0 +1,72 @@
+package com.lykke.matching.engine.database.snapshot
+
+import com.lykke.matching.engine.daos.wallet.AssetBalance
+import com.lykke.matching.engine.daos.wallet.Wallet
+import com.lykke.matching.engine.utils.MessageBuilder.Companion.buildLimitOrder
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.math.BigDecimal
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+
+class EngineStateSnapshotFileTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    @Test
+    fun testWriteAndRead() {
+        val file = createFile()
+        val wallets = listOf(Wallet("Client1", listOf(AssetBalance("Client1", "USD", BigDecimal("1000.5"), BigDecimal("10.25")),
+                AssetBalance("Client1", "EUR", BigDecimal("-0.00000001"), BigDecimal.ZERO))),
+                Wallet("Client2", listOf(AssetBalance("Client2", "BTC", BigDecimal("123456789012345678901234.12345678"), BigDecimal("1")))))
+        val orders = listOf(buildLimitOrder(uid = "1"), buildLimitOrder(uid = "2", volume = -10.0))
+        val stopOrders = listOf(buildLimitOrder(uid = "3"))
+
+        file.write(EngineStateSnapshot(5, 1000, wallets, orders, stopOrders))
+        val snapshot = createFile().read()
+
+        assertEquals(5, snapshot.sequenceNumber)
+        assertEquals(1000, snapshot.timestamp)
+        assertEquals(2, snapshot.wallets.size)
+        val balances = snapshot.wallets.flatMap { it.balances.values }.associateBy { it.clientId + it.asset }
+        assertEquals(3, balances.size)
+        assertEquals(BigDecimal("1000.5"), balances["Client1USD"]!!.balance)
+        assertEquals(BigDecimal("10.25"), balances["Client1USD"]!!.reserved)
+        assertEquals(BigDecimal("-0.00000001"), balances["Client1EUR"]!!.balance)
+        assertEquals(BigDecimal("123456789012345678901234.12345678"), balances["Client2BTC"]!!.balance)
+        assertEquals(listOf("1", "2"), snapshot.orders.map { it.externalId })
+        assertEquals(BigDecimal.valueOf(-10.0), snapshot.orders.last().volume)
+        assertEquals(listOf("3"), snapshot.stopOrders.map { it.externalId })
+    }
+
+    @Test
+    fun testNewSnapshotReplacesPrevious() {
+        val file = createFile()
+        file.write(EngineStateSnapshot(1, 1000, emptyList(), listOf(buildLimitOrder(uid = "1")), emptyList()))
+        file.write(EngineStateSnapshot(2, 2000, emptyList(), emptyList(), emptyList()))
+
+        val snapshot = createFile().read()
+        assertEquals(2, snapshot.sequenceNumber)
+        assertEquals(0, snapshot.orders.size)
+    }
+
+    @Test
+    fun testBrokenSnapshotIsNotRead() {
+        createFile().write(EngineStateSnapshot(1, 1000, emptyList(), listOf(buildLimitOrder(uid = "1")), emptyList()))
+
+        RandomAccessFile(folder.root.resolve("snapshot"), "rw").use {
+            it.seek(it.length() - 1)
+            val lastByte = it.read()
+            it.seek(it.length() - 1)
+            it.write(lastByte xor 0xFF)
+        }
+
+        assertFailsWith(IOException::class) { createFile().read() }
+    }
+
+    private fun createFile() = EngineStateSnapshotFile(folder.root.resolve("snapshot").absolutePath)
+}
@@ -0,0 +1,121 @@
+package com.lykke.matching.engine.database.snapshot
+
+import com.lykke.matching.engine.AbstractTest
+import com.lykke.matching.engine.config.TestApplicationContext
+import com.lykke.matching.engine.daos.Asset
+import com.lykke.matching.engine.database.BackOfficeDatabaseAccessor
+import com.lykke.matching.engine.database.Storage
+import com.lykke.matching.engine.database.TestBackOfficeDatabaseAccessor
+import com.lykke.matching.engine.database.TestMessageSequenceNumberDatabaseAccessor
+import com.lykke.matching.engine.holders.MessageSequenceNumberHolder
+import com.lykke.matching.engine.readmodel.ReadModelHolder
+import com.lykke.matching.engine.utils.MessageBuilder
+import com.lykke.matching.engine.utils.assertEquals
+import com.lykke.matching.engine.utils.config.StateSnapshotConfig
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.boot.test.context.TestConfiguration
+import org.springframework.context.annotation.Bean
+import org.springframework.context.annotation.Primary
+import org.springframework.test.annotation.DirtiesContext
+import org.springframework.test.context.junit4.SpringRunner
+import java.math.BigDecimal
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+@RunWith(SpringRunner::class)
+@SpringBootTest(classes = [(TestApplicationContext::class), (EngineStateSnapshotWriterTest.Config::class)])
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class EngineStateSnapshotWriterTest : AbstractTest() {
+
+    @TestConfiguration
+    open class Config {
+        @Bean
+        @Primary
+        open fun testBackOfficeDatabaseAccessor(): BackOfficeDatabaseAccessor {
+            val testBackOfficeDatabaseAccessor = TestBackOfficeDatabaseAccessor()
+            testBackOfficeDatabaseAccessor.addAsset(Asset("Asset1", 2))
+            return testBackOfficeDatabaseAccessor
+        }
+    }
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    @Autowired
+    private lateinit var messageBuilder: MessageBuilder
+
+    @Autowired
+    private lateinit var messageSequenceNumberHolder: MessageSequenceNumberHolder
+
+    private lateinit var readModelHolder: ReadModelHolder
+
+    @Before
+    fun setUp() {
+        testBalanceHolderWrapper.updateBalance("Client1", "Asset1", 100.0)
+        initServices()
+        readModelHolder = ReadModelHolder(balancesHolder, genericLimitOrderService, genericStopLimitOrderService, messageSequenceNumberHolder, 0L)
+    }
+
+    @Test
+    fun testSnapshotIsWrittenAfterCashInIsPersisted() {
+        val writer = createWriter(Storage.Redis)
+
+        cashInOutOperationService.processMessage(messageBuilder.buildCashInOutWrapper("Client1", "Asset1", 50.0))
+        readModelHolder.onMessageBoundary()
+        writer.takeSnapshot()
+
+        val snapshot = readSnapshot()
+        assertEquals(messageSequenceNumberHolder.getValue(), snapshot.sequenceNumber)
+        val balance = snapshot.wallets.single { it.clientId == "Client1" }.balances["Asset1"]!!
+        assertEquals(BigDecimal.valueOf(150.0), balance.balance)
+    }
+
+    @Test
+    fun testSnapshotIsNotWrittenIfSequenceNumberIsNotPersisted() {
+        val writer = createWriter(Storage.Redis)
+
+        persistenceManager.persistenceErrorMode = true
+        cashInOutOperationService.processMessage(messageBuilder.buildCashInOutWrapper("Client1", "Asset1", 50.0))
+        persistenceManager.persistenceErrorMode = false
+        readModelHolder.onMessageBoundary()
+        writer.takeSnapshot()
+
+        assertFalse(snapshotFile().exists())
+    }
+
+    @Test
+    fun testSnapshotIsNotWrittenWithAzureStorage() {
+        val writer = createWriter(Storage.Azure)
+
+        cashInOutOperationService.processMessage(messageBuilder.buildCashInOutWrapper("Client1", "Asset1", 50.0))
+        readModelHolder.onMessageBoundary()
+        writer.takeSnapshot()
+
+        assertFalse(snapshotFile().exists())
+    }
+
+    private fun createWriter(storage: Storage): EngineStateSnapshotWriter {
+        return EngineStateSnapshotWriter(StateSnapshotConfig(snapshotPath(), 0),
+                storage,
+                readModelHolder,
+                messageSequenceNumberHolder,
+                EngineStateJournal(StateSnapshotConfig(snapshotPath(), 0), storage, TestMessageSequenceNumberDatabaseAccessor()))
+    }
+
+    private fun readSnapshot(): EngineStateSnapshot {
+        val file = snapshotFile()
+        assertTrue(file.exists())
+        return file.read()
+    }
+
+    private fun snapshotFile() = EngineStateSnapshotFile(snapshotPath())
+
+    private fun snapshotPath() = folder.root.resolve("snapshot").absolutePath
+}
@@ -0,0 +1,59 @@
+package com.lykke.matching.engine.deduplication
+
+import com.lykke.matching.engine.deduplication.ProcessedIdsIndex.CheckResult
+import org.junit.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNotEquals
+import kotlin.test.assertTrue
+
+class ProcessedIdsIndexTest {
+
+    @Test
+    fun testCheck() {
+        val index = ProcessedIdsIndex(1000, 0.01, 60000)
+        index.addProcessed("recent", System.currentTimeMillis())
+        index.addProcessed("old", System.currentTimeMillis() - 120000)
+        index.addKnown("notCommitted")
+
+        assertEquals(CheckResult.PROCESSED, index.check("recent"))
+        assertEquals(CheckResult.UNKNOWN, index.check("old"))
+        assertEquals(CheckResult.UNKNOWN, index.check("notCommitted"))
+        assertEquals(CheckResult.NOT_PROCESSED, index.check("new"))
+
+        val stats = index.getStatsAndReset()
+        assertEquals(1, stats.processedCount)
+        assertEquals(2, stats.databaseChecksCount)
+        assertEquals(1, stats.notProcessedCount)
+        assertEquals(0, index.getStatsAndReset().processedCount)
+    }
+
+    @Test
+    fun testAddedIdsAreNeverNotProcessed() {
+        val index = ProcessedIdsIndex(10000, 0.01, 60000)
+        (1..10000).forEach { index.addProcessed("id$it", 0) }
+
+        (1..10000).forEach { assertNotEquals(CheckResult.NOT_PROCESSED, index.check("id$it")) }
+        val falsePositivesCount = (10001..20000).count { index.check("id$it") != CheckResult.NOT_PROCESSED }
+        assertTrue(falsePositivesCount < 300, "False positives count: $falsePositivesCount")
+    }
+
+    @Test
+    fun testFilterIsRebuiltWhenItIsSaturated() {
+        val index = ProcessedIdsIndex(100, 0.01, 0)
+        val storedIds = (1..300).map { "id$it" }
+        storedIds.forEach { index.addProcessed(it, 0) }
+        assertTrue(index.isRebuildNeeded())
+
+        index.rebuild { consumer ->
+            storedIds.forEach(consumer)
+            index.addKnown("notCommitted")
+            index.addProcessed("committedDuringRebuild", 0)
+        }
+
+        assertFalse(index.isRebuildNeeded())
+        (storedIds + listOf("notCommitted", "committedDuringRebuild")).forEach { assertNotEquals(CheckResult.NOT_PROCESSED, index.check(it)) }
+        val falsePositivesCount = (301..1300).count { index.check("id$it") != CheckResult.NOT_PROCESSED }
+        assertTrue(falsePositivesCount < 50, "False positives count: $falsePositivesCount")
+    }
+}
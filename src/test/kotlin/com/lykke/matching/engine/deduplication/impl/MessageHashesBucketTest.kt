@@ -0,0 +1,91 @@
+package com.lykke.matching.engine.deduplication.impl
+
+import com.google.common.hash.Hashing
+import org.junit.Test
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.util.Random
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class MessageHashesBucketTest {
+
+    private val hasher = MessageIdHasher()
+
+    @Test
+    fun testHashIsMurmur3() {
+        listOf("", "a", "abcd", "abcdefg", "abcdefgh", "9f2b5c6e-3d1a-4f7b-8c2e-1a2b3c4d5e6f").forEach { id ->
+            val expected = ByteBuffer.wrap(Hashing.murmur3_128(5).hashUnencodedChars(id).asBytes()).order(ByteOrder.LITTLE_ENDIAN)
+            hasher.hash(5, id)
+            assertEquals(expected.getLong(0), hasher.high, id)
+            assertEquals(expected.getLong(8), hasher.low, id)
+        }
+    }
+
+    @Test
+    fun testAddAndContains() {
+        val bucket = MessageHashesBucket(16)
+        (1..10000).forEach { assertTrue(add(bucket, 1, "id$it")) }
+        assertFalse(add(bucket, 1, "id1"))
+        assertEquals(10000, bucket.size)
+
+        (1..10000).forEach { assertTrue(contains(bucket, 1, "id$it")) }
+        assertFalse(contains(bucket, 1, "id10001"))
+        assertFalse(contains(bucket, 2, "id1"))
+    }
+
+    @Test
+    fun testClear() {
+        val bucket = MessageHashesBucket(16)
+        (1..100).forEach { add(bucket, 1, "id$it") }
+        val allocatedBytes = bucket.allocatedBytes
+
+        bucket.clear()
+        assertEquals(0, bucket.size)
+        assertFalse(contains(bucket, 1, "id1"))
+        assertEquals(allocatedBytes, bucket.allocatedBytes)
+    }
+
+    @Test
+    fun testContainsDuringConcurrentAdds() {
+        val bucket = MessageHashesBucket(16)
+        val addedCount = AtomicInteger()
+        val missedIds = ConcurrentLinkedQueue<String>()
+        val reader = Thread {
+            val readerHasher = MessageIdHasher()
+            val random = Random(1)
+            while (addedCount.get() < 100000) {
+                val count = addedCount.get()
+                if (count > 0) {
+                    val id = "id${random.nextInt(count) + 1}"
+                    readerHasher.hash(1, id)
+                    if (!bucket.contains(readerHasher.high, readerHasher.low)) {
+                        missedIds.add(id)
+                    }
+                }
+            }
+        }
+        reader.start()
+
+        (1..100000).forEach {
+            add(bucket, 1, "id$it")
+            addedCount.set(it)
+        }
+        reader.join()
+
+        assertEquals(emptyList(), missedIds.toList())
+    }
+
+    private fun add(bucket: MessageHashesBucket, type: Byte, id: String): Boolean {
+        hasher.hash(type, id)
+        return bucket.add(hasher.high, hasher.low)
+    }
+
+    private fun contains(bucket: MessageHashesBucket, type: Byte, id: String): Boolean {
+        hasher.hash(type, id)
+        return bucket.contains(hasher.high, hasher.low)
+    }
+}
@@ -0,0 +1,85 @@
+package com.lykke.matching.engine.fee
+
+import com.lykke.matching.engine.daos.Asset
+import com.lykke.matching.engine.daos.AssetPair
+import com.lykke.matching.engine.daos.FeeType
+import com.lykke.matching.engine.database.DictionariesDatabaseAccessor
+import com.lykke.matching.engine.database.TestBackOfficeDatabaseAccessor
+import com.lykke.matching.engine.database.TestDictionariesDatabaseAccessor
+import com.lykke.matching.engine.database.cache.AssetPairsCache
+import com.lykke.matching.engine.database.cache.AssetsCache
+import com.lykke.matching.engine.holders.AssetsHolder
+import com.lykke.matching.engine.holders.AssetsPairsHolder
+import com.lykke.matching.engine.utils.MessageBuilder.Companion.buildFeeInstruction
+import com.lykke.matching.engine.utils.MessageBuilder.Companion.buildLimitOrderFeeInstruction
+import org.junit.Before
+import org.junit.Test
+import org.springframework.context.ApplicationEventPublisher
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNotSame
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class FeePlansCacheTest {
+
+    private val testBackOfficeDatabaseAccessor = TestBackOfficeDatabaseAccessor()
+    private val testDictionariesDatabaseAccessor = TestDictionariesDatabaseAccessor()
+    private lateinit var assetPairsCache: AssetPairsCache
+    private lateinit var feePlansCache: FeePlansCache
+
+    @Before
+    fun setUp() {
+        testBackOfficeDatabaseAccessor.addAsset(Asset("USD", 2))
+        testBackOfficeDatabaseAccessor.addAsset(Asset("EUR", 2))
+        testDictionariesDatabaseAccessor.addAssetPair(AssetPair("EURUSD", "EUR", "USD", 5))
+        // database accessors load a new map each time, cached and loaded data are compared on update
+        val dictionariesDatabaseAccessor = object : DictionariesDatabaseAccessor by testDictionariesDatabaseAccessor {
+            override fun loadAssetPairs() = HashMap(testDictionariesDatabaseAccessor.loadAssetPairs())
+        }
+        assetPairsCache = AssetPairsCache(dictionariesDatabaseAccessor, ApplicationEventPublisher {})
+        feePlansCache = FeePlansCache(AssetsHolder(AssetsCache(testBackOfficeDatabaseAccessor)), AssetsPairsHolder(assetPairsCache))
+    }
+
+    @Test
+    fun testPlanIsSharedByEqualInstructions() {
+        val plan = feePlansCache.getPlan(listOf(buildFeeInstruction(FeeType.CLIENT_FEE, size = 0.01, targetClientId = "Client3", assetIds = listOf("EUR"))!!))
+
+        assertSame(plan, feePlansCache.getPlan(listOf(buildFeeInstruction(FeeType.CLIENT_FEE, size = 0.01, targetClientId = "Client3", assetIds = listOf("EUR"))!!)))
+        assertNotSame(plan, feePlansCache.getPlan(listOf(buildFeeInstruction(FeeType.CLIENT_FEE, size = 0.02, targetClientId = "Client3", assetIds = listOf("EUR"))!!)))
+    }
+
+    @Test
+    fun testCompiledInstructions() {
+        val plan = feePlansCache.getPlan(listOf(
+                buildFeeInstruction(FeeType.CLIENT_FEE, size = 0.01, targetClientId = "Client3", assetIds = listOf("EUR"))!!,
+                buildLimitOrderFeeInstruction(FeeType.CLIENT_FEE, takerSize = 0.01, makerSize = 0.02, targetClientId = "Client3")!!))
+
+        val feeInstruction = plan.instructions[0]
+        assertFalse(feeInstruction.isLimitOrderFee)
+        assertEquals("EUR", feeInstruction.feeAsset!!.assetId)
+
+        val limitOrderFeeInstruction = plan.instructions[1]
+        assertTrue(limitOrderFeeInstruction.isLimitOrderFee)
+        assertEquals(0.02, limitOrderFeeInstruction.makerSize!!.toDouble())
+        assertNull(limitOrderFeeInstruction.feeAssetId)
+    }
+
+    @Test
+    fun testPlanIsCompiledAgainAfterDictionaryChange() {
+        val feeInstructions = listOf(buildFeeInstruction(FeeType.CLIENT_FEE, size = 0.01, targetClientId = "Client3")!!)
+        val plan = feePlansCache.getPlan(feeInstructions)
+
+        assetPairsCache.update()
+        assertSame(plan, feePlansCache.getPlan(feeInstructions))
+
+        testDictionariesDatabaseAccessor.addAssetPair(AssetPair("EURCHF", "EUR", "CHF", 5))
+        assetPairsCache.update()
+
+        assertFalse(feePlansCache.isActual(plan))
+        val newPlan = feePlansCache.getPlan(feeInstructions)
+        assertNotSame(plan, newPlan)
+        assertSame(newPlan, feePlansCache.getPlan(feeInstructions))
+    }
+}
@@ -15,6 +15,7 @@ import com.lykke.matching.engine.messages.MessageType
 import com.lykke.matching.engine.order.OrderStatus
 import com.lykke.matching.engine.order.utils.TestOrderBookWrapper
 import com.lykke.matching.engine.services.GenericLimitOrderService
+import com.lykke.matching.engine.services.utils.OrderBookQueue
 import com.lykke.matching.engine.order.transaction.ExecutionContext
 import com.lykke.matching.engine.order.transaction.ExecutionContextFactory
 import org.junit.After
@@ -28,7 +29,6 @@ import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.Primary
 import java.math.BigDecimal
 import java.util.Date
-import java.util.concurrent.PriorityBlockingQueue
 import kotlin.test.assertNotNull
 import kotlin.test.assertNull
 import kotlin.test.assertTrue
@@ -109,7 +109,7 @@ abstract class MatchingEngineTest {
     }
 
     protected fun match(order: Order,
-                        orderBook: PriorityBlockingQueue<LimitOrder>,
+                        orderBook: OrderBookQueue,
                         priceDeviationThreshold: BigDecimal? = null): MatchingResult {
         return matchingEngine.match(order,
                 orderBook,
@@ -204,7 +204,7 @@ abstract class MatchingEngineTest {
         assertEquals(completedLimitOrdersSize, matchingResult.completedLimitOrders.size)
         assertEquals(skipSize, matchingResult.skipLimitOrders.size)
         assertEquals(limitOrdersReportSize, matchingResult.limitOrdersReport?.orders?.size ?: 0)
-        assertEquals(orderBookSize, matchingResult.orderBook.size)
+        assertEquals(orderBookSize, matchingResult.orderBook!!.size)
         assertEquals(matchedWithZeroLatestTrade, matchingResult.matchedWithZeroLatestTrade)
     }
 
@@ -227,7 +227,7 @@ abstract class MatchingEngineTest {
         assertTrue { expected.containsAll(actual) }
     }
 
-    protected fun getOrderBook(assetPairId: String, isBuySide: Boolean): PriorityBlockingQueue<LimitOrder> =
+    protected fun getOrderBook(assetPairId: String, isBuySide: Boolean): OrderBookQueue =
             genericService.getOrderBook(assetPairId).getOrderBook(isBuySide)
 
 }
\ No newline at end of file
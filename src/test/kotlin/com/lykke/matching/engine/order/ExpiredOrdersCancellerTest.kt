@@ -64,5 +64,16 @@ class ExpiredOrdersCancellerTest : AbstractTest() {
         assertEquals("2", messageContext.limitOrderIds.single())
     }
 
+    @Test
+    fun testCancelExpiredOrdersByBatches() {
+        val queue = messagesRouter.preProcessedMessageQueue
+        val service = ExpiredOrdersCanceller(expiryOrdersQueue, messagesRouter, 1)
+
+        Thread.sleep(1600)
+        service.cancelExpiredOrders()
+        assertEquals(2, queue.size)
+        assertEquals(listOf("1", "2"), queue.map { (it.context as LimitOrderCancelOperationContext).limitOrderIds.single() })
+    }
+
     private fun date(date: Date, delta: Long) = Date(date.time + delta)
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import com.lykke.matching.engine.utils.MessageBuilder.Companion.buildLimitOrder
 import org.junit.Before
 import org.junit.Test
 import org.mockito.Mockito
+import java.math.BigDecimal
 import java.util.Date
 import kotlin.test.assertEquals
 
@@ -38,4 +39,26 @@ class CurrentTransactionOrderBooksHolderTest {
         assertEquals(2, persistenceData.ordersToSave.size)
         assertEquals(OrderStatus.Processing.name, persistenceData.ordersToSave.single { it.externalId == "NewOrderToChange" }.status)
     }
-}
\ No newline at end of file
+
+    @Test
+    fun testOrderBookLevelsOfChangedPrices() {
+        val orderBook = AssetOrderBook("EURUSD")
+        orderBook.addOrder(buildLimitOrder(assetId = "EURUSD", price = 1.2, volume = 5.0))
+        orderBook.addOrder(buildLimitOrder(assetId = "EURUSD", price = 1.1, volume = 3.0))
+        val genericLimitOrderService = Mockito.mock(GenericLimitOrderService::class.java)
+        Mockito.`when`(genericLimitOrderService.getOrderBook("EURUSD"))
+                .thenReturn(orderBook)
+        val holder = CurrentTransactionOrderBooksHolder(genericLimitOrderService, true)
+
+        holder.addOrder(buildLimitOrder(assetId = "EURUSD", price = 1.2, volume = 2.0))
+        holder.addOrder(buildLimitOrder(assetId = "EURUSD", price = 1.3, volume = 1.0))
+        holder.apply(Date())
+
+        assertEquals(1, holder.outgoingOrderBookLevels.size)
+        val levels = holder.outgoingOrderBookLevels.single()
+        assertEquals(true, levels.isBuySide)
+        assertEquals(2, levels.volumesByPrice.size)
+        assertEquals(0, BigDecimal.valueOf(7.0).compareTo(levels.volumesByPrice[BigDecimal.valueOf(1.2)]))
+        assertEquals(0, BigDecimal.valueOf(1.0).compareTo(levels.volumesByPrice[BigDecimal.valueOf(1.3)]))
+    }
+}
@@ -0,0 +1,64 @@
+package com.lykke.matching.engine.outgoing.conflation
+
+import com.lykke.matching.engine.outgoing.messages.OrderBook
+import org.junit.Test
+import java.util.Date
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.test.assertEquals
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class ConflatingOrderBookQueueTest {
+
+    private val conflatedCount = AtomicLong()
+
+    @Test
+    fun testLatestVersionIsTaken() {
+        val queue = ConflatingOrderBookQueue(0, conflatedCount)
+        val eurUsdBuy1 = OrderBook("EURUSD", true, Date())
+        val btcUsdBuy = OrderBook("BTCUSD", true, Date())
+        val eurUsdBuy2 = OrderBook("EURUSD", true, Date())
+        val eurUsdSell = OrderBook("EURUSD", false, Date())
+        listOf(eurUsdBuy1, btcUsdBuy, eurUsdBuy2, eurUsdSell).forEach { queue.put(it) }
+
+        assertEquals(3, queue.size())
+        assertEquals(1, conflatedCount.get())
+        assertSame(eurUsdBuy2, queue.take())
+        assertSame(btcUsdBuy, queue.take())
+        assertSame(eurUsdSell, queue.take())
+        assertEquals(0, queue.size())
+    }
+
+    @Test
+    fun testPutBack() {
+        val queue = ConflatingOrderBookQueue(0, conflatedCount)
+        val orderBook1 = OrderBook("EURUSD", true, Date())
+        val orderBook2 = OrderBook("EURUSD", true, Date())
+
+        queue.putBack(orderBook1)
+        assertSame(orderBook1, queue.take())
+
+        queue.put(orderBook2)
+        queue.putBack(orderBook1)
+        assertEquals(1, conflatedCount.get())
+        assertSame(orderBook2, queue.take())
+    }
+
+    @Test
+    fun testMinTakeInterval() {
+        val queue = ConflatingOrderBookQueue(200, conflatedCount)
+        queue.put(OrderBook("EURUSD", true, Date()))
+        queue.take()
+
+        val orderBook = OrderBook("EURUSD", true, Date())
+        val otherOrderBook = OrderBook("BTCUSD", true, Date())
+        queue.put(orderBook)
+        queue.put(otherOrderBook)
+        val startTime = System.currentTimeMillis()
+        assertSame(otherOrderBook, queue.take())
+        assertTrue(System.currentTimeMillis() - startTime < 200)
+
+        assertSame(orderBook, queue.take())
+        assertTrue(System.currentTimeMillis() - startTime >= 150)
+    }
+}
@@ -0,0 +1,115 @@
+package com.lykke.matching.engine.outgoing.eventlog
+
+import com.lykke.matching.engine.outgoing.messages.CashOperation
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.nio.file.Files
+import java.util.Date
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class EventLogTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    @Test
+    fun testRecordsAreReadAcrossSegments() {
+        val log = createLog(segmentSize = 64)
+        val cursor = log.openCursor("cursor")
+        (1L..10L).forEach { log.append(it, payload(it, 30)) }
+
+        (1L..10L).forEach {
+            val record = cursor.take()
+            assertEquals(it, record.sequenceNumber)
+            assertEquals(String(payload(it, 30)), String(record.payload))
+        }
+        assertNull(log.read(log.openCursor("end").committedPosition))
+    }
+
+    @Test
+    fun testNewCursorStartsFromEnd() {
+        val log = createLog()
+        log.append(1, payload(1, 10))
+        val cursor = log.openCursor("cursor")
+        log.append(2, payload(2, 10))
+
+        assertEquals(2L, cursor.take().sequenceNumber)
+    }
+
+    @Test
+    fun testReopenedCursorContinuesAfterCommittedRecord() {
+        val log = createLog(segmentSize = 64)
+        val cursor = log.openCursor("cursor")
+        (1L..5L).forEach { log.append(it, payload(it, 20)) }
+        cursor.take()
+        cursor.commit(cursor.take())
+        cursor.take()
+
+        val reopenedLog = createLog(segmentSize = 64)
+        assertEquals(5L, reopenedLog.lastSequenceNumber)
+        val reopenedCursor = reopenedLog.openCursor("cursor")
+        assertEquals(2L, reopenedCursor.committedSequenceNumber)
+        assertEquals(3L, reopenedCursor.take().sequenceNumber)
+        reopenedLog.append(6, payload(6, 20))
+        assertEquals(listOf(4L, 5L, 6L), (1..3).map { reopenedCursor.take().sequenceNumber })
+    }
+
+    @Test
+    fun testReadSegmentsAreDeleted() {
+        val log = createLog(segmentSize = 64)
+        val cursor = log.openCursor("cursor")
+        (1L..20L).forEach {
+            log.append(it, payload(it, 30))
+            cursor.commit(cursor.take())
+        }
+
+        val segmentsCount = Files.list(folder.root.toPath()).use { paths -> paths.filter { it.fileName.toString().startsWith("segment_") }.count() }
+        assertTrue(segmentsCount <= 2)
+    }
+
+    @Test
+    fun testEncodedEvent() {
+        val log = createLog()
+        val cursor = log.openCursor("cursor")
+        val event = EncodedEvent(4, 10, "messageId", "requestId", "1", 1000, "ORDER", byteArrayOf(1, 2, 3), "{}")
+        log.append(event.sequenceNumber, event.encode())
+
+        val record = cursor.take()
+        val decodedEvent = EncodedEvent.decode(record)
+        assertEquals(4, decodedEvent.messageType)
+        assertEquals(10L, decodedEvent.sequenceNumber)
+        assertEquals("messageId", decodedEvent.messageId)
+        assertEquals("requestId", decodedEvent.requestId)
+        assertEquals("1", decodedEvent.version)
+        assertEquals(1000L, decodedEvent.timestamp)
+        assertEquals("ORDER", decodedEvent.eventType)
+        assertEquals(listOf<Byte>(1, 2, 3), decodedEvent.body.toList())
+        assertEquals("{}", decodedEvent.logMessage)
+        assertEquals(record.nextPosition, decodedEvent.nextLogPosition)
+    }
+
+    @Test
+    fun testOldFormatEncodedEvent() {
+        val log = createLog()
+        val cursor = log.openCursor("cursor")
+        val operation = CashOperation("id", "Client1", Date(1000), "10", "USD", "messageId", emptyList())
+        log.append(7, OldFormatEncodedEvent.create(operation, "{\"id\":\"id\"}").encode())
+
+        val record = cursor.take()
+        val decodedEvent = OldFormatEncodedEvent.decode(record)
+        assertEquals("messageId", decodedEvent.messageId)
+        assertEquals("id", decodedEvent.requestId)
+        assertEquals("CashOperation", decodedEvent.type)
+        assertEquals(1000L, decodedEvent.timestamp)
+        assertEquals("{\"id\":\"id\"}", decodedEvent.json)
+        assertEquals(7L, decodedEvent.sequenceNumber)
+        assertEquals(record.nextPosition, decodedEvent.nextLogPosition)
+    }
+
+    private fun createLog(segmentSize: Int = 1024) = EventLog(folder.root.absolutePath, segmentSize, "Test")
+
+    private fun payload(sequenceNumber: Long, size: Int) = sequenceNumber.toString().padEnd(size, 'x').toByteArray()
+}
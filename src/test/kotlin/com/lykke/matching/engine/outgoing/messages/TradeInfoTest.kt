@@ -0,0 +1,60 @@
+package com.lykke.matching.engine.outgoing.messages
+
+import com.google.gson.JsonParser
+import com.lykke.matching.engine.config.spring.JsonConfig
+import com.lykke.matching.engine.outgoing.messages.v2.enums.TradeRole
+import org.junit.Test
+import java.math.BigDecimal
+import java.util.Date
+import kotlin.test.assertEquals
+
+class TradeInfoTest {
+
+    private val gson = JsonConfig().gson()
+
+    // buy 0.5 BTC for 3000.25 USD
+    private val tradeVolumes = TradeVolumes(BigDecimal("0.50"), BigDecimal("-3000.25"), true, 2, 8)
+
+    @Test
+    fun testTradeInfo() {
+        val trade = TradeInfo("trade1", "Client1", tradeVolumes, "USD", "Client2", "BTC", BigDecimal("6000.5"),
+                "1", "ext1", Date(), 0, null, null, emptyList(), null, null, "BTC", "USD")
+
+        assertEquals("3000.25", trade.marketVolume)
+        assertEquals("0.50000000", trade.limitVolume)
+        assertEquals("0.5", trade.baseVolume)
+        assertEquals("-3000.25", trade.quotingVolume)
+
+        val json = JsonParser().parse(gson.toJson(trade)).asJsonObject
+        assertEquals(listOf("tradeId", "marketClientId", "marketVolume", "marketAsset", "limitClientId", "limitVolume",
+                "limitAsset", "price", "limitOrderId", "limitOrderExternalId", "timestamp", "index", "fees"),
+                json.keySet().toList())
+        assertEquals("3000.25", json["marketVolume"].asString)
+        assertEquals("0.50000000", json["limitVolume"].asString)
+    }
+
+    @Test
+    fun testLimitTradeInfo() {
+        val trade = TradeInfo("trade1", "Client1", tradeVolumes, "USD", "Client2", "BTC", BigDecimal("6000.5"),
+                "1", "ext1", Date(), 0, null, null, emptyList(), null, null, "BTC", "USD")
+        val takerTrade = trade.toLimitTradeInfo()
+        val makerTrade = LimitTradeInfo("trade1", "Client2", "BTC", tradeVolumes, BigDecimal("6000.5"), Date(),
+                "2", "ext2", "USD", "Client1", 0, null, null, emptyList(), null, null, TradeRole.MAKER, "BTC", "USD")
+
+        assertEquals("3000.25", takerTrade.volume)
+        assertEquals("0.50000000", takerTrade.oppositeVolume)
+        assertEquals("0.5", takerTrade.baseVolume)
+        assertEquals("-3000.25", takerTrade.quotingVolume)
+
+        assertEquals("0.50000000", makerTrade.volume)
+        assertEquals("3000.25", makerTrade.oppositeVolume)
+        assertEquals("-0.5", makerTrade.baseVolume)
+        assertEquals("3000.25", makerTrade.quotingVolume)
+
+        makerTrade.formatVolumes()
+        val json = JsonParser().parse(gson.toJson(makerTrade)).asJsonObject
+        assertEquals(listOf("tradeId", "clientId", "asset", "volume", "price", "timestamp", "oppositeOrderId",
+                "oppositeOrderExternalId", "oppositeAsset", "oppositeClientId", "oppositeVolume", "index", "fees"),
+                json.keySet().toList())
+    }
+}
@@ -0,0 +1,154 @@
+package com.lykke.matching.engine.outgoing.rabbit.impl.publishers
+
+import com.lykke.matching.engine.outgoing.rabbit.events.RabbitFailureEvent
+import com.lykke.matching.engine.utils.config.RabbitBatchPublishingConfig
+import com.lykke.utils.logging.MetricsLogger
+import com.lykke.utils.logging.ThrottlingLogger
+import com.nhaarman.mockito_kotlin.any
+import com.nhaarman.mockito_kotlin.doAnswer
+import com.rabbitmq.client.AMQP
+import com.rabbitmq.client.BuiltinExchangeType
+import com.rabbitmq.client.Channel
+import com.rabbitmq.client.Connection
+import com.rabbitmq.client.ConnectionFactory
+import org.junit.Test
+import org.mockito.Mockito
+import org.slf4j.LoggerFactory
+import org.springframework.context.ApplicationEventPublisher
+import java.io.IOException
+import java.util.concurrent.BlockingQueue
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class AbstractRabbitMqPublisherTest {
+
+    companion object {
+        private val LOGGER = ThrottlingLogger.getLogger(AbstractRabbitMqPublisherTest::class.java.name)
+        private val MESSAGES_LOGGER = LoggerFactory.getLogger("${AbstractRabbitMqPublisherTest::class.java.name}.message")
+        private val METRICS_LOGGER = MetricsLogger.getLogger()
+        private val STATS_LOGGER = LoggerFactory.getLogger("${AbstractRabbitMqPublisherTest::class.java.name}.stats")
+        private const val CONFIRM = "confirm"
+        private const val FAILED_CONFIRM = "failed confirm"
+    }
+
+    private val itemsToPublish = LinkedBlockingQueue<Long>()
+    private val publishedItems = LinkedBlockingQueue<Long>()
+    /** Published items and confirms in the order of channel calls */
+    private val channelActions = CopyOnWriteArrayList<String>()
+    private val applicationEvents = CopyOnWriteArrayList<Any>()
+    private var confirmsCount = 0
+
+    @Test
+    fun testBatchIsPublishedWhenMaxBatchSizeIsReached() {
+        (1L..6L).forEach { itemsToPublish.put(it) }
+        startPublisher(RabbitBatchPublishingConfig(3, TimeUnit.SECONDS.toMicros(60), 1000, 16))
+
+        assertEquals(listOf(3L, 6L), takePublishedItems(2))
+        assertEquals(listOf("1", "2", "3", CONFIRM, "4", "5", "6", CONFIRM), channelActions)
+    }
+
+    @Test
+    fun testBatchIsPublishedAfterMaxBatchDelay() {
+        itemsToPublish.put(1)
+        itemsToPublish.put(2)
+        startPublisher(RabbitBatchPublishingConfig(100, TimeUnit.MILLISECONDS.toMicros(50), 1000, 16))
+
+        assertEquals(listOf(2L), takePublishedItems(1))
+        assertEquals(listOf("1", "2", CONFIRM), channelActions)
+    }
+
+    @Test
+    fun testBatchIsPublishedAgainIfConfirmsAreNotReceived() {
+        (1L..4L).forEach { itemsToPublish.put(it) }
+        startPublisher(RabbitBatchPublishingConfig(2, TimeUnit.SECONDS.toMicros(60), 1000, 16), failedConfirms = setOf(0))
+
+        assertEquals(listOf(2L, 4L), takePublishedItems(2))
+        assertEquals(listOf("1", "2", FAILED_CONFIRM, "1", "2", CONFIRM, "3", "4", CONFIRM), channelActions)
+        val failureEvents = applicationEvents.filterIsInstance(RabbitFailureEvent::class.java)
+        assertEquals(1, failureEvents.size)
+        assertEquals(1L, failureEvents.single().failedEvent)
+    }
+
+    @Test
+    fun testItemsAreNotLostOrReordered() {
+        val itemsCount = 500L
+        startPublisher(RabbitBatchPublishingConfig(7, 1000, 1000, 8), failedConfirms = (0 until 1000 step 3).toSet())
+        (1L..itemsCount).forEach { itemsToPublish.put(it) }
+
+        val lastPublishedItems = ArrayList<Long>()
+        while (lastPublishedItems.lastOrNull() != itemsCount) {
+            val item = publishedItems.poll(5, TimeUnit.SECONDS)
+            assertTrue(item != null, "Items are not published, last published item: ${lastPublishedItems.lastOrNull()}")
+            lastPublishedItems.add(item!!)
+        }
+        assertEquals(lastPublishedItems.sorted(), lastPublishedItems)
+
+        val confirmedItems = ArrayList<Long>()
+        val batch = ArrayList<Long>()
+        channelActions.forEach { action ->
+            when (action) {
+                CONFIRM -> {
+                    confirmedItems.addAll(batch)
+                    batch.clear()
+                }
+                FAILED_CONFIRM -> batch.clear()
+                else -> batch.add(action.toLong())
+            }
+        }
+        assertEquals((1L..itemsCount).toList(), confirmedItems)
+    }
+
+    private fun takePublishedItems(count: Int): List<Long> {
+        return (1..count).map {
+            val item = publishedItems.poll(5, TimeUnit.SECONDS)
+            assertTrue(item != null, "Items are not published")
+            item!!
+        }
+    }
+
+    private fun startPublisher(batchConfig: RabbitBatchPublishingConfig, failedConfirms: Set<Int> = emptySet()) {
+        val channel = Mockito.mock(Channel::class.java)
+        doAnswer { invocation ->
+            channelActions.add(String(invocation.arguments[3] as ByteArray))
+            null
+        }.`when`(channel).basicPublish(Mockito.anyString(), Mockito.anyString(), any<AMQP.BasicProperties>(), any<ByteArray>())
+        doAnswer {
+            if (failedConfirms.contains(confirmsCount++)) {
+                channelActions.add(FAILED_CONFIRM)
+                throw IOException("Confirms are not received")
+            }
+            channelActions.add(CONFIRM)
+            null
+        }.`when`(channel).waitForConfirmsOrDie(Mockito.anyLong())
+
+        val connection = Mockito.mock(Connection::class.java)
+        Mockito.`when`(connection.createChannel()).thenReturn(channel)
+
+        val publisherThread = Thread(TestPublisher(connection, itemsToPublish, batchConfig))
+        publisherThread.isDaemon = true
+        publisherThread.start()
+    }
+
+    private inner class TestPublisher(private val connection: Connection,
+                                      private val queue: BlockingQueue<Long>,
+                                      batchConfig: RabbitBatchPublishingConfig)
+        : AbstractRabbitMqPublisher<Long>("amqp://localhost", "TestExchange", "TestPublisher", "TestApp", "1",
+            BuiltinExchangeType.DIRECT, LOGGER, MESSAGES_LOGGER, METRICS_LOGGER, STATS_LOGGER,
+            ApplicationEventPublisher { applicationEvents.add(it) }, 1000, 1000, null, batchConfig) {
+
+        override fun newConnection(factory: ConnectionFactory, connectionName: String) = connection
+
+        override fun takeItem(): Long = queue.take()
+
+        override fun getRabbitPublishRequest(item: Long): RabbitPublishRequest {
+            return RabbitPublishRequest("", item.toString().toByteArray(), { null }, AMQP.BasicProperties())
+        }
+
+        override fun onPublished(item: Long) {
+            publishedItems.put(item)
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.lykke.matching.engine.outgoing.rabbit.impl.publishers
+
+import com.rabbitmq.client.MessageProperties
+import org.junit.Test
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.test.assertEquals
+import kotlin.test.assertSame
+
+class SharedPublishRequestTest {
+
+    @Test
+    fun testRequestIsCreatedOnce() {
+        val sharedPublishRequest = SharedPublishRequest()
+        val createdCount = AtomicInteger()
+        val logMessagesCount = AtomicInteger()
+        val startLatch = CountDownLatch(1)
+        val executor = Executors.newFixedThreadPool(4)
+
+        val futures = (1..4).map {
+            executor.submit(Callable<RabbitPublishRequest> {
+                startLatch.await()
+                sharedPublishRequest.getOrCreate {
+                    createdCount.incrementAndGet()
+                    RabbitPublishRequest("1", ByteArray(0), {
+                        logMessagesCount.incrementAndGet()
+                        "message"
+                    }, MessageProperties.MINIMAL_PERSISTENT_BASIC)
+                }
+            })
+        }
+        startLatch.countDown()
+        val requests = futures.map { it.get() }
+        executor.shutdown()
+
+        assertEquals(1, createdCount.get())
+        requests.forEach { assertSame(requests.first(), it) }
+
+        assertEquals(0, logMessagesCount.get())
+        requests.forEach { assertEquals("message", it.stringRepresentation) }
+        assertEquals(1, logMessagesCount.get())
+    }
+}
@@ -0,0 +1,65 @@
+package com.lykke.matching.engine.outgoing.socket
+
+import com.lykke.matching.engine.order.transaction.CurrentTransactionOrderBooksHolder.OrderBookLevelsData
+import com.lykke.matching.engine.outgoing.messages.OrderBookLevelsUpdate
+import com.lykke.matching.engine.services.GenericLimitOrderService
+import org.junit.Before
+import org.junit.Test
+import org.mockito.Mockito
+import java.math.BigDecimal
+import java.util.Date
+import java.util.concurrent.LinkedBlockingQueue
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class OrderBookLevelsHolderTest {
+
+    private lateinit var holder: OrderBookLevelsHolder
+    private val subscriber = LinkedBlockingQueue<OrderBookLevelsUpdate>()
+
+    @Before
+    fun setUp() {
+        holder = OrderBookLevelsHolder(Mockito.mock(GenericLimitOrderService::class.java), LinkedBlockingQueue())
+        holder.subscribe(subscriber)
+    }
+
+    @Test
+    fun testOnlyChangedLevelsAreSent() {
+        holder.process(levels("1.1" to "5", "1.2" to "3"))
+        holder.process(levels("1.1" to "5", "1.2" to "0", "1.3" to "0"))
+        holder.process(levels("1.1" to "5.00"))
+
+        assertEquals(2, subscriber.size)
+        val firstUpdate = subscriber.poll()
+        assertFalse(firstUpdate.isSnapshot)
+        assertEquals(1, firstUpdate.sequenceNumber)
+        assertEquals(2, firstUpdate.levels.size)
+
+        val secondUpdate = subscriber.poll()
+        assertEquals(2, secondUpdate.sequenceNumber)
+        assertEquals(1, secondUpdate.levels.size)
+        assertEquals(BigDecimal("1.2"), secondUpdate.levels.single().price)
+        assertEquals(0, secondUpdate.levels.single().volume.signum())
+    }
+
+    @Test
+    fun testSnapshotOnResync() {
+        holder.process(levels("1.1" to "5", "1.2" to "3"))
+        holder.process(levels("1.2" to "4"))
+        subscriber.clear()
+
+        holder.resync(subscriber)
+
+        assertEquals(1, subscriber.size)
+        val snapshot = subscriber.poll()
+        assertTrue(snapshot.isSnapshot)
+        assertEquals(2, snapshot.sequenceNumber)
+        assertEquals(listOf(BigDecimal("1.2"), BigDecimal("1.1")), snapshot.levels.map { it.price })
+        assertEquals(listOf(BigDecimal("4"), BigDecimal("5")), snapshot.levels.map { it.volume })
+    }
+
+    private fun levels(vararg volumesByPrice: Pair<String, String>): OrderBookLevelsData {
+        return OrderBookLevelsData("EURUSD", true, Date(), volumesByPrice.associate { BigDecimal(it.first) to BigDecimal(it.second) })
+    }
+}
@@ -221,7 +221,8 @@ abstract class AbstractPerformanceTest {
                 LimitOrderBusinessValidatorImpl(OrderBookMaxTotalSizeHolderImpl(null)),
                 applicationSettingsHolder,
                 matchingEngine,
-                matchingResultHandlingHelper)
+                matchingResultHandlingHelper,
+                feeProcessor)
 
         val stopOrderProcessor = StopLimitOrderProcessor(limitOrderInputValidator,
                 StopOrderBusinessValidatorImpl(OrderBookMaxTotalSizeHolderImpl(null)),
@@ -0,0 +1,50 @@
+package com.lykke.matching.engine.performance
+
+import org.junit.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class LatencyHistogramTest {
+
+    @Test
+    fun testBuckets() {
+        listOf(0L, 1L, 31L, 32L, 63L, 64L, 65L, 1000L, 123456789L, Long.MAX_VALUE).forEach { value ->
+            val bucketValue = LatencyHistogram.getBucketValue(LatencyHistogram.getBucketIndex(value))
+            assertTrue(bucketValue >= value && bucketValue - value <= value / 32, "value: $value, bucket value: $bucketValue")
+        }
+    }
+
+    @Test
+    fun testPercentiles() {
+        val histogram = LatencyHistogram()
+        (1..1000L).forEach { histogram.record(it * 1000) }
+
+        val snapshot = histogram.getSnapshot(false)
+        assertEquals(1000, snapshot.count)
+        assertEquals(1000000, snapshot.max)
+        assertNear(500000, snapshot.getValueAtPercentile(50.0))
+        assertNear(990000, snapshot.getValueAtPercentile(99.0))
+        assertNear(999000, snapshot.getValueAtPercentile(99.9))
+        assertEquals(1000000, snapshot.getValueAtPercentile(100.0))
+    }
+
+    @Test
+    fun testInterval() {
+        val histogram = LatencyHistogram()
+        histogram.record(1000000)
+        val firstSnapshot = histogram.getSnapshot(true)
+        histogram.record(1000)
+        histogram.record(2000)
+
+        val interval = histogram.getSnapshot(true).minus(firstSnapshot)
+        assertEquals(2, interval.count)
+        assertEquals(3000, interval.sum)
+        assertEquals(2000, interval.max)
+        assertNear(2000, interval.getValueAtPercentile(99.0))
+        assertEquals(1000000, histogram.getSnapshot(false).max)
+    }
+
+    private fun assertNear(expected: Long, actual: Long) {
+        assertTrue(Math.abs(actual - expected) <= expected / 32, "expected: $expected, actual: $actual")
+    }
+}
@@ -0,0 +1,41 @@
+package com.lykke.matching.engine.readmodel
+
+import org.junit.Test
+import java.util.HashMap
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class ShardedImmutableMapTest {
+
+    @Test
+    fun testChangesDoNotAffectPreviousVersion() {
+        val initialValues = HashMap<String, Int?>()
+        (0 until 1000).forEach { initialValues["Client$it"] = it }
+        val first = ShardedImmutableMap.empty<String, Int>().withChanges(initialValues)
+
+        val second = first.withChanges(mapOf("Client1" to 100, "Client2" to null, "NewClient" to 1))
+
+        assertEquals(1000, first.size)
+        assertEquals(1, first["Client1"])
+        assertEquals(2, first["Client2"])
+        assertFalse(first.containsKey("NewClient"))
+
+        assertEquals(1000, second.size)
+        assertEquals(100, second["Client1"])
+        assertNull(second["Client2"])
+        assertTrue(second.containsKey("NewClient"))
+        assertEquals(3, second["Client3"])
+    }
+
+    @Test
+    fun testForEach() {
+        val map = ShardedImmutableMap.empty<String, Int>().withChanges(mapOf("Client1" to 1, "Client2" to 2))
+        val result = HashMap<String, Int>()
+
+        map.forEach { key, value -> result[key] = value }
+
+        assertEquals(mapOf("Client1" to 1, "Client2" to 2), result)
+    }
+}
@@ -0,0 +1,183 @@
+package com.lykke.matching.engine.services
+
+import com.lykke.matching.engine.daos.LimitOrder
+import com.lykke.matching.engine.services.utils.OrderBookType
+import com.lykke.matching.engine.utils.MessageBuilder.Companion.buildLimitOrder
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.math.BigDecimal
+import java.util.Date
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+@RunWith(Parameterized::class)
+class AssetOrderBookTest(private val orderBookType: OrderBookType) {
+
+    companion object {
+        @JvmStatic
+        @Parameterized.Parameters(name = "{0}")
+        fun orderBookTypes() = OrderBookType.values().map { arrayOf<Any>(it) }
+    }
+
+    private lateinit var orderBook: AssetOrderBook
+
+    @Before
+    fun setUp() {
+        orderBook = AssetOrderBook("EURUSD", orderBookType)
+    }
+
+    @Test
+    fun testOrdering() {
+        orderBook.addOrder(buildLimitOrder(uid = "sell3", price = 1.3, volume = -1.0, registered = Date(1)))
+        orderBook.addOrder(buildLimitOrder(uid = "sell1", price = 1.2, volume = -1.0, registered = Date(3)))
+        orderBook.addOrder(buildLimitOrder(uid = "sell2", price = 1.2, volume = -1.0, registered = Date(4)))
+        orderBook.addOrder(buildLimitOrder(uid = "buy2", price = 1.1, registered = Date(2)))
+        orderBook.addOrder(buildLimitOrder(uid = "buy1", price = 1.15, registered = Date(5)))
+        orderBook.addOrder(buildLimitOrder(uid = "buy3", price = 1.1, registered = Date(6)))
+
+        assertEquals(listOf("sell1", "sell2", "sell3"), pollAll(false))
+        assertEquals(listOf("buy1", "buy2", "buy3"), pollAll(true))
+    }
+
+    @Test
+    fun testOlderOrderIsAddedBeforeNewerOrdersWithTheSamePrice() {
+        orderBook.addOrder(buildLimitOrder(uid = "3", price = 1.2, volume = -1.0, registered = Date(3)))
+        orderBook.addOrder(buildLimitOrder(uid = "2", price = 1.2, volume = -1.0, registered = Date(2)))
+        orderBook.addOrder(buildLimitOrder(uid = "4", price = 1.2, volume = -1.0, registered = Date(4)))
+        orderBook.addOrder(buildLimitOrder(uid = "1", price = 1.2, volume = -1.0, registered = Date(1)))
+
+        assertEquals(listOf("1", "2", "3", "4"), orderedIds(orderBook, false))
+    }
+
+    @Test
+    fun testBestPrices() {
+        assertEquals(BigDecimal.ZERO, orderBook.getAskPrice())
+        assertEquals(BigDecimal.ZERO, orderBook.getBidPrice())
+
+        orderBook.addOrder(buildLimitOrder(price = 1.3, volume = -1.0))
+        orderBook.addOrder(buildLimitOrder(price = 1.2, volume = -1.0))
+        orderBook.addOrder(buildLimitOrder(price = 1.1))
+        orderBook.addOrder(buildLimitOrder(price = 1.15))
+
+        assertEquals(0, BigDecimal.valueOf(1.2).compareTo(orderBook.getAskPrice()))
+        assertEquals(0, BigDecimal.valueOf(1.15).compareTo(orderBook.getBidPrice()))
+
+        assertTrue(orderBook.leadToNegativeSpread(buildLimitOrder(price = 1.2)))
+        assertFalse(orderBook.leadToNegativeSpread(buildLimitOrder(price = 1.19)))
+        assertTrue(orderBook.leadToNegativeSpread(buildLimitOrder(price = 1.15, volume = -1.0)))
+        assertFalse(orderBook.leadToNegativeSpread(buildLimitOrder(price = 1.16, volume = -1.0)))
+    }
+
+    @Test
+    fun testRemoveOrder() {
+        val order1 = buildLimitOrder(uid = "1", price = 1.2, volume = -1.0, registered = Date(1))
+        val order2 = buildLimitOrder(uid = "2", price = 1.2, volume = -1.0, registered = Date(2))
+        val order3 = buildLimitOrder(uid = "3", price = 1.3, volume = -1.0, registered = Date(3))
+        val order4 = buildLimitOrder(uid = "4", price = 1.2, volume = -1.0, registered = Date(4))
+        listOf(order1, order2, order3, order4).forEach { orderBook.addOrder(it) }
+
+        assertTrue(orderBook.removeOrder(order2))
+        assertFalse(orderBook.removeOrder(order2))
+        assertFalse(orderBook.removeOrder(order1.copy()))
+        assertEquals(3, orderBook.getOrderBook(false).size)
+        assertEquals(listOf("1", "4", "3"), orderedIds(orderBook, false))
+
+        assertTrue(orderBook.removeOrder(order1))
+        assertTrue(orderBook.removeOrder(order4))
+        assertEquals(0, BigDecimal.valueOf(1.3).compareTo(orderBook.getAskPrice()))
+
+        assertTrue(orderBook.removeOrder(order3))
+        assertTrue(orderBook.getOrderBook(false).isEmpty())
+        assertNull(orderBook.getOrderBook(false).peek())
+        assertEquals(BigDecimal.ZERO, orderBook.getAskPrice())
+    }
+
+    @Test
+    fun testCopy() {
+        val order1 = buildLimitOrder(uid = "1", price = 1.2, volume = -1.0, registered = Date(1))
+        val order2 = buildLimitOrder(uid = "2", price = 1.3, volume = -1.0, registered = Date(2))
+        val order3 = buildLimitOrder(uid = "3", price = 1.1, registered = Date(3))
+        listOf(order1, order2, order3).forEach { orderBook.addOrder(it) }
+
+        val copy = orderBook.copy()
+        assertEquals(listOf("1", "2"), orderedIds(copy, false))
+        assertEquals(listOf("3"), copy.getOrderBook(true).map { it.externalId })
+
+        copy.removeOrder(order1)
+        copy.addOrder(buildLimitOrder(uid = "4", price = 1.15, registered = Date(4)))
+
+        assertEquals(listOf("1", "2"), orderedIds(orderBook, false))
+        assertEquals(listOf("3"), orderBook.getOrderBook(true).map { it.externalId })
+        assertEquals(listOf("2"), copy.getOrderBook(false).map { it.externalId })
+        assertEquals(listOf("4", "3"), orderedIds(copy, true))
+
+        orderBook.getOrderBook(false).poll()
+        assertEquals(listOf("2"), orderBook.getOrderBook(false).map { it.externalId })
+        assertEquals(listOf("2"), copy.getOrderBook(false).map { it.externalId })
+    }
+
+    @Test
+    fun testSetOrderBook() {
+        orderBook.addOrder(buildLimitOrder(uid = "1", price = 1.2, volume = -1.0, registered = Date(1)))
+        orderBook.addOrder(buildLimitOrder(uid = "2", price = 1.3, volume = -1.0, registered = Date(2)))
+
+        val workingOrderBook = orderBook.getOrderBook(false).copy()
+        val matchedOrder = workingOrderBook.poll()
+        assertEquals("1", matchedOrder.externalId)
+        orderBook.setOrderBook(false, workingOrderBook)
+
+        assertEquals(listOf("2"), orderBook.getOrderBook(false).map { it.externalId })
+        assertEquals(0, BigDecimal.valueOf(1.3).compareTo(orderBook.getAskPrice()))
+    }
+
+    @Test
+    fun testSideCanBeChangedWhileIterating() {
+        val orders = (1..5).map { buildLimitOrder(uid = it.toString(), price = 1.0 + it / 10.0, volume = -1.0, registered = Date(it.toLong())) }
+        orders.forEach { orderBook.addOrder(it) }
+
+        val iteratedOrders = ArrayList<LimitOrder>()
+        orderBook.getOrderBook(false).forEach {
+            iteratedOrders.add(it)
+            orderBook.removeOrder(it)
+        }
+
+        assertEquals(orders.map { it.externalId }, iteratedOrders.map { it.externalId })
+        assertTrue(orderBook.getOrderBook(false).isEmpty())
+    }
+
+    @Test
+    fun testLevelVolumes() {
+        val order1 = buildLimitOrder(uid = "1", price = 1.2, volume = -1.0, registered = Date(1))
+        val order2 = buildLimitOrder(uid = "2", price = 1.2, volume = -2.0, registered = Date(2))
+        val order3 = buildLimitOrder(uid = "3", price = 1.3, volume = -3.0, registered = Date(3))
+        listOf(order1, order2, order3).forEach { orderBook.addOrder(it) }
+        val prices = listOf(BigDecimal.valueOf(1.2), BigDecimal.valueOf(1.3), BigDecimal.valueOf(1.4))
+
+        assertEquals(listOf(BigDecimal.valueOf(-3.0), BigDecimal.valueOf(-3.0), BigDecimal.ZERO),
+                orderBook.getOrderBook(false).getLevelVolumes(prices).values.toList())
+
+        val copy = orderBook.getOrderBook(false).copy()
+        copy.poll()
+        copy.remove(order3)
+        order2.remainingVolume = BigDecimal.valueOf(-1.5)
+        assertEquals(listOf(BigDecimal.valueOf(-1.5), BigDecimal.ZERO, BigDecimal.ZERO),
+                copy.getLevelVolumes(prices).values.toList())
+        assertEquals(listOf(BigDecimal.valueOf(-2.5), BigDecimal.valueOf(-3.0), BigDecimal.ZERO),
+                orderBook.getOrderBook(false).getLevelVolumes(prices).values.toList())
+    }
+
+    /** Polls a copy of the side: iteration order of the priority queue side is not sorted */
+    private fun orderedIds(orderBook: AssetOrderBook, isBuySide: Boolean): List<String> {
+        val side = orderBook.getOrderBook(isBuySide).copy()
+        return generateSequence { side.poll() }.map { it.externalId }.toList()
+    }
+
+    private fun pollAll(isBuySide: Boolean): List<String> {
+        val side = orderBook.getOrderBook(isBuySide)
+        return generateSequence { side.poll() }.map { it.externalId }.toList()
+    }
+}
@@ -0,0 +1,46 @@
+package com.lykke.matching.engine.services.utils
+
+import com.lykke.matching.engine.utils.MessageBuilder.Companion.buildLimitOrder
+import org.junit.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class ClientOrdersIndexTest {
+
+    @Test
+    fun testSearch() {
+        val index = ClientOrdersIndex()
+        val buyOrder1 = buildLimitOrder(uid = "1", clientId = "Client1", assetId = "EURUSD", volume = 1.0)
+        val sellOrder = buildLimitOrder(uid = "2", clientId = "Client1", assetId = "EURUSD", volume = -1.0)
+        val buyOrder2 = buildLimitOrder(uid = "3", clientId = "Client1", assetId = "EURUSD", volume = 2.0)
+        val otherAssetPairOrder = buildLimitOrder(uid = "4", clientId = "Client1", assetId = "BTCUSD", volume = 1.0)
+        val otherClientOrder = buildLimitOrder(uid = "5", clientId = "Client2", assetId = "EURUSD", volume = 1.0)
+        listOf(buyOrder1, sellOrder, buyOrder2, otherAssetPairOrder, otherClientOrder).forEach { index.add(it) }
+
+        assertEquals(listOf("1", "3"), index.search("Client1", "EURUSD", true).map { it.externalId })
+        assertEquals(listOf("2"), index.search("Client1", "EURUSD", false).map { it.externalId })
+        assertEquals(listOf("1", "3", "2"), index.search("Client1", "EURUSD", null).map { it.externalId })
+        assertEquals(setOf("1", "3", "4"), index.search("Client1", null, true).map { it.externalId }.toSet())
+        assertEquals(setOf("1", "2", "3", "4"), index.search("Client1", null, null).map { it.externalId }.toSet())
+        assertEquals(listOf("5"), index.search("Client2", null, null).map { it.externalId })
+        assertTrue(index.search("Client3", null, null).isEmpty())
+    }
+
+    @Test
+    fun testRemove() {
+        val index = ClientOrdersIndex()
+        val order1 = buildLimitOrder(uid = "1", clientId = "Client1", volume = 1.0)
+        val order2 = buildLimitOrder(uid = "2", clientId = "Client1", volume = 1.0)
+        index.add(order1)
+        index.add(order2)
+
+        assertFalse(index.remove(order1.copy()))
+        assertTrue(index.remove(order1))
+        assertFalse(index.remove(order1))
+        assertEquals(listOf("2"), index.search("Client1", null, null).map { it.externalId })
+
+        assertTrue(index.remove(order2))
+        assertTrue(index.search("Client1", null, null).isEmpty())
+    }
+}
@@ -0,0 +1,88 @@
+package com.lykke.matching.engine.services.utils
+
+import com.lykke.matching.engine.utils.MessageBuilder.Companion.buildLimitOrder
+import org.junit.Test
+import java.util.Date
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class CopyOnWriteOrderBookQueueTest {
+
+    @Test
+    fun testSellSideOrdering() {
+        val queue = CopyOnWriteOrderBookQueue(false)
+        queue.add(buildLimitOrder(uid = "3", price = 1.3, volume = -1.0, registered = Date(1)))
+        queue.add(buildLimitOrder(uid = "1", price = 1.1, volume = -1.0, registered = Date(2)))
+        queue.add(buildLimitOrder(uid = "4", price = 1.3, volume = -1.0, registered = Date(3)))
+        queue.add(buildLimitOrder(uid = "2", price = 1.1, volume = -1.0, registered = Date(4)))
+
+        assertEquals(4, queue.size)
+        assertEquals(listOf("1", "2", "3", "4"), queue.map { it.externalId })
+        assertEquals(listOf("1", "2", "3", "4"), generateSequence { queue.poll() }.map { it.externalId }.toList())
+        assertTrue(queue.isEmpty())
+        assertNull(queue.peek())
+    }
+
+    @Test
+    fun testBuySideOrderingWithOlderOrderAddedToLevel() {
+        val queue = CopyOnWriteOrderBookQueue(true)
+        queue.add(buildLimitOrder(uid = "3", price = 1.1, registered = Date(3)))
+        queue.add(buildLimitOrder(uid = "2", price = 1.2, registered = Date(2)))
+        queue.add(buildLimitOrder(uid = "1", price = 1.2, registered = Date(1)))
+
+        assertEquals(listOf("1", "2", "3"), queue.map { it.externalId })
+        assertEquals("1", queue.peek()!!.externalId)
+    }
+
+    @Test
+    fun testCopyIsIndependent() {
+        val original = CopyOnWriteOrderBookQueue(false)
+        val order1 = buildLimitOrder(uid = "1", price = 1.1, volume = -1.0, registered = Date(1))
+        val order2 = buildLimitOrder(uid = "2", price = 1.1, volume = -1.0, registered = Date(2))
+        val order3 = buildLimitOrder(uid = "3", price = 1.2, volume = -1.0, registered = Date(3))
+        original.add(order1)
+        original.add(order2)
+        original.add(order3)
+
+        val copy = original.copy()
+        assertEquals(order1, copy.poll())
+        assertTrue(copy.remove(order3))
+        copy.add(buildLimitOrder(uid = "4", price = 1.0, volume = -1.0, registered = Date(4)))
+
+        assertEquals(listOf("1", "2", "3"), original.map { it.externalId })
+        assertEquals(listOf("4", "2"), copy.map { it.externalId })
+        assertEquals(3, original.size)
+        assertEquals(2, copy.size)
+
+        assertTrue(original.remove(order2))
+        assertEquals(listOf("1", "3"), original.map { it.externalId })
+        assertEquals(listOf("4", "2"), copy.map { it.externalId })
+    }
+
+    @Test
+    fun testIteratorIsSnapshot() {
+        val queue = CopyOnWriteOrderBookQueue(false)
+        queue.add(buildLimitOrder(uid = "1", price = 1.1, volume = -1.0, registered = Date(1)))
+        queue.add(buildLimitOrder(uid = "2", price = 1.2, volume = -1.0, registered = Date(2)))
+
+        val iterator = queue.iterator()
+        queue.poll()
+        queue.add(buildLimitOrder(uid = "3", price = 1.15, volume = -1.0, registered = Date(3)))
+
+        assertEquals(listOf("1", "2"), iterator.asSequence().map { it.externalId }.toList())
+        assertEquals(listOf("3", "2"), queue.map { it.externalId })
+    }
+
+    @Test
+    fun testRemoveNotExistingOrder() {
+        val queue = CopyOnWriteOrderBookQueue(false)
+        val order = buildLimitOrder(uid = "1", price = 1.1, volume = -1.0)
+        queue.add(order)
+
+        assertFalse(queue.remove(order.copy()))
+        assertFalse(queue.remove(buildLimitOrder(uid = "2", price = 1.2, volume = -1.0)))
+        assertEquals(1, queue.size)
+    }
+}
@@ -12,6 +12,7 @@ import com.lykke.matching.engine.messages.ProtocolMessages
 import com.lykke.matching.engine.order.OrderStatus
 import com.lykke.matching.engine.services.validators.impl.OrderValidationException
 import com.lykke.matching.engine.services.AssetOrderBook
+import com.lykke.matching.engine.services.utils.OrderBookQueue
 import com.lykke.matching.engine.services.validators.MarketOrderValidator
 import com.lykke.matching.engine.utils.getSetting
 import org.junit.Test
@@ -25,7 +26,6 @@ import org.springframework.test.annotation.DirtiesContext
 import org.springframework.test.context.junit4.SpringRunner
 import java.math.BigDecimal
 import java.util.*
-import java.util.concurrent.PriorityBlockingQueue
 import kotlin.test.assertEquals
 
 @RunWith(SpringRunner::class)
@@ -206,7 +206,7 @@ class MarketOrderValidatorTest {
                 NewFeeInstruction.create(message.fee), listOf(NewFeeInstruction.create(message.fee)))
     }
 
-    private fun getOrderBook(isBuy: Boolean): PriorityBlockingQueue<LimitOrder> {
+    private fun getOrderBook(isBuy: Boolean): OrderBookQueue {
         val assetOrderBook = AssetOrderBook(ASSET_PAIR_ID)
         val now = Date()
         assetOrderBook.addOrder(LimitOrder("test", "test",
@@ -0,0 +1,64 @@
+package com.lykke.matching.engine.socket.impl
+
+import com.lykke.matching.engine.messages.MessageType
+import com.lykke.matching.engine.utils.ByteHelper.Companion.toByteArray
+import org.junit.Test
+import java.io.IOException
+import java.nio.ByteBuffer
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class ClientMessageDecoderTest {
+
+    private val decoder = ClientMessageDecoder(1024)
+    private val messages = ArrayList<Pair<Byte, ByteArray?>>()
+
+    @Test
+    fun testDecodeMessagesFromOneBuffer() {
+        val data = toByteArray(MessageType.CASH_TRANSFER_OPERATION.type, 3, byteArrayOf(1, 2, 3)) +
+                byteArrayOf(MessageType.PING.type) +
+                toByteArray(MessageType.LIMIT_ORDER.type, 0, byteArrayOf())
+
+        decode(data)
+
+        assertEquals(3, messages.size)
+        assertMessage(MessageType.CASH_TRANSFER_OPERATION.type, byteArrayOf(1, 2, 3), messages[0])
+        assertEquals(MessageType.PING.type, messages[1].first)
+        assertNull(messages[1].second)
+        assertMessage(MessageType.LIMIT_ORDER.type, byteArrayOf(), messages[2])
+    }
+
+    @Test
+    fun testDecodeMessageSplitBetweenBuffers() {
+        val payload = ByteArray(300) { it.toByte() }
+        val data = toByteArray(MessageType.LIMIT_ORDER.type, payload.size, payload) + byteArrayOf(MessageType.PING.type)
+
+        data.forEach { decode(byteArrayOf(it)) }
+
+        assertEquals(2, messages.size)
+        assertMessage(MessageType.LIMIT_ORDER.type, payload, messages[0])
+        assertEquals(MessageType.PING.type, messages[1].first)
+    }
+
+    @Test
+    fun testTooLargeMessageIsRejected() {
+        var exception: IOException? = null
+        try {
+            decode(toByteArray(MessageType.LIMIT_ORDER.type, 2048, ByteArray(0)))
+        } catch (e: IOException) {
+            exception = e
+        }
+        assertTrue(exception != null)
+        assertTrue(messages.isEmpty())
+    }
+
+    private fun decode(data: ByteArray) {
+        decoder.decode(ByteBuffer.wrap(data)) { type, payload -> messages.add(Pair(type, payload)) }
+    }
+
+    private fun assertMessage(expectedType: Byte, expectedPayload: ByteArray, message: Pair<Byte, ByteArray?>) {
+        assertEquals(expectedType, message.first)
+        assertEquals(expectedPayload.toList(), message.second!!.toList())
+    }
+}
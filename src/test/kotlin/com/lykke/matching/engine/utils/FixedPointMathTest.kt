@@ -0,0 +1,73 @@
+package com.lykke.matching.engine.utils
+
+import org.junit.Test
+import java.math.BigDecimal
+import java.util.Random
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+
+class FixedPointMathTest {
+
+    private val random = Random(1)
+
+    @Test
+    fun testSetScale() {
+        repeat(10000) {
+            val value = randomNumber()
+            val accuracy = random.nextInt(9)
+            val roundUp = random.nextBoolean()
+            val negate = random.nextBoolean()
+            assertEquals(NumberUtils.setScale(if (negate) value.negate() else value, accuracy, roundUp),
+                    FixedPointMath.setScale(value, negate, accuracy, roundUp), "$value, $accuracy")
+        }
+    }
+
+    @Test
+    fun testMultiplyAndSetScale() {
+        repeat(10000) {
+            val first = randomNumber()
+            val second = randomNumber()
+            val accuracy = random.nextInt(9)
+            val roundUp = random.nextBoolean()
+            val negate = random.nextBoolean()
+            val product = first.multiply(second)
+            assertEquals(NumberUtils.setScale(if (negate) product.negate() else product, accuracy, roundUp),
+                    FixedPointMath.multiplyAndSetScale(first, second, negate, accuracy, roundUp), "$first * $second, $accuracy")
+        }
+    }
+
+    @Test
+    fun testAddAndSetScale() {
+        repeat(10000) {
+            val first = randomNumber()
+            val second = randomNumber()
+            val accuracy = random.nextInt(9)
+            val negateSecond = random.nextBoolean()
+            val roundUp = random.nextBoolean()
+            val sum = if (negateSecond) first.subtract(second) else first.add(second)
+            assertEquals(NumberUtils.setScale(sum, accuracy, roundUp),
+                    FixedPointMath.addAndSetScale(first, second, negateSecond, accuracy, roundUp), "$first, $second, $accuracy")
+            assertEquals(NumberUtils.setScaleRoundHalfUp(sum, accuracy),
+                    FixedPointMath.addAndSetScaleRoundHalfUp(first, second, negateSecond, accuracy), "$first, $second, $accuracy")
+        }
+    }
+
+    @Test
+    fun testHalfUpRounding() {
+        assertEquals(BigDecimal("0.13"), FixedPointMath.addAndSetScaleRoundHalfUp(BigDecimal("0.125"), BigDecimal.ZERO, false, 2))
+        assertEquals(BigDecimal("-0.13"), FixedPointMath.addAndSetScaleRoundHalfUp(BigDecimal("-0.125"), BigDecimal.ZERO, false, 2))
+        assertEquals(BigDecimal("0.12"), FixedPointMath.addAndSetScaleRoundHalfUp(BigDecimal("0.1249"), BigDecimal.ZERO, false, 2))
+    }
+
+    @Test
+    fun testNotRepresentableValues() {
+        assertNull(FixedPointMath.setScale(BigDecimal("12345678901234567890.1"), false, 2, true))
+        assertNull(FixedPointMath.multiplyAndSetScale(BigDecimal("123456789012.12345"), BigDecimal("123456789.123456"), false, 2, true))
+        assertNull(FixedPointMath.setScale(BigDecimal("1E+3"), false, 2, true))
+    }
+
+    private fun randomNumber(): BigDecimal {
+        val unscaled = random.nextLong() % 1_000_000L
+        return BigDecimal.valueOf(unscaled, random.nextInt(13))
+    }
+}
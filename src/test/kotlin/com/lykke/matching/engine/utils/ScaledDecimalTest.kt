@@ -0,0 +1,81 @@
+package com.lykke.matching.engine.utils
+
+import org.junit.Test
+import java.math.BigDecimal
+import java.util.Random
+import kotlin.test.assertEquals
+
+class ScaledDecimalTest {
+
+    private val random = Random(1)
+
+    @Test
+    fun testOperations() {
+        listOf(true, false).forEach { fixedPointArithmetic ->
+            repeat(10000) {
+                val first = randomNumber()
+                val second = randomNumber()
+                val third = randomNumber()
+                val accuracy = random.nextInt(9)
+                val negate = random.nextBoolean()
+                val roundUp = random.nextBoolean()
+                val message = "$first, $second, $third, $accuracy, $negate, $roundUp"
+                val sum = if (negate) first - second else first + second
+                val productSum = if (negate) first - second * third else first + second * third
+
+                assertDecimalEquals(sum, decimal(fixedPointArithmetic, first).add(decimal(fixedPointArithmetic, second), negate), message)
+                assertDecimalEquals(productSum, decimal(fixedPointArithmetic, first).addProduct(decimal(fixedPointArithmetic, second), decimal(fixedPointArithmetic, third), negate), message)
+                assertDecimalEquals(NumberUtils.setScale(if (negate) -first else first, accuracy, roundUp),
+                        ScaledDecimal(fixedPointArithmetic).setScale(decimal(fixedPointArithmetic, first), negate, accuracy, roundUp), message)
+                assertDecimalEquals(NumberUtils.setScale(if (negate) -(first * second) else first * second, accuracy, roundUp),
+                        ScaledDecimal(fixedPointArithmetic).multiplyAndSetScale(decimal(fixedPointArithmetic, first), decimal(fixedPointArithmetic, second), negate, accuracy, roundUp), message)
+                assertDecimalEquals(NumberUtils.setScale(sum, accuracy, roundUp),
+                        ScaledDecimal(fixedPointArithmetic).addAndSetScale(decimal(fixedPointArithmetic, first), decimal(fixedPointArithmetic, second), negate, accuracy, roundUp), message)
+                assertDecimalEquals(NumberUtils.setScaleRoundHalfUp(sum, accuracy),
+                        ScaledDecimal(fixedPointArithmetic).addAndSetScaleRoundHalfUp(decimal(fixedPointArithmetic, first), decimal(fixedPointArithmetic, second), negate, accuracy), message)
+                assertDecimalEquals(NumberUtils.setScale(productSum, accuracy, roundUp),
+                        ScaledDecimal(fixedPointArithmetic).addProductAndSetScale(decimal(fixedPointArithmetic, first), decimal(fixedPointArithmetic, second), decimal(fixedPointArithmetic, third), negate, accuracy, roundUp), message)
+                assertEquals(first.compareTo(second), decimal(fixedPointArithmetic, first).compareTo(decimal(fixedPointArithmetic, second)), message)
+                assertEquals(NumberUtils.equalsWithDefaultDelta(first, BigDecimal.ZERO), decimal(fixedPointArithmetic, first).isZeroWithDefaultDelta(), message)
+            }
+        }
+    }
+
+    @Test
+    fun testOperandIsTarget() {
+        val decimal = decimal(true, BigDecimal("10.125"))
+        decimal.addAndSetScale(decimal, decimal(true, BigDecimal("0.5")), true, 2, true)
+        assertDecimalEquals(BigDecimal("9.63"), decimal, "")
+        decimal.addProduct(decimal, decimal(true, BigDecimal("2")), false)
+        assertDecimalEquals(BigDecimal("28.89"), decimal, "")
+    }
+
+    @Test
+    fun testNotRepresentableValues() {
+        val big = BigDecimal("12345678901234567890.1")
+        assertDecimalEquals(big + BigDecimal.ONE, decimal(true, big).add(decimal(true, BigDecimal.ONE), false), "")
+
+        val maxLong = BigDecimal("999999999999999999")
+        val overflow = decimal(true, BigDecimal.ONE).addProduct(decimal(true, maxLong), decimal(true, maxLong), false)
+        assertDecimalEquals(BigDecimal.ONE + maxLong * maxLong, overflow, "")
+        overflow.addProduct(decimal(true, maxLong), decimal(true, maxLong), true)
+        assertDecimalEquals(BigDecimal.ONE, overflow, "")
+
+        assertDecimalEquals(BigDecimal("1E+3"), decimal(true, BigDecimal("1E+3")), "")
+        assertEquals(true, decimal(true, BigDecimal("0.00000000001")).isZeroWithDefaultDelta())
+        assertEquals(true, decimal(true, BigDecimal("0.000000000000000000000001")).isZeroWithDefaultDelta())
+        assertEquals(false, decimal(true, BigDecimal("0.0000000001")).isZeroWithDefaultDelta())
+    }
+
+    /** Checks value and scale */
+    private fun assertDecimalEquals(expected: BigDecimal, actual: ScaledDecimal, message: String) {
+        assertEquals(expected, actual.toBigDecimal(), message)
+    }
+
+    private fun decimal(fixedPointArithmetic: Boolean, value: BigDecimal) = ScaledDecimal(fixedPointArithmetic).set(value)
+
+    private fun randomNumber(): BigDecimal {
+        val unscaled = random.nextLong() % 1_000_000L
+        return BigDecimal.valueOf(unscaled, random.nextInt(13))
+    }
+}